@@ -0,0 +1,170 @@
+package com.andy.iamapi.infrastructure.adapter.rest.controller;
+
+import com.andy.iamapi.application.service.GetCurrentUserService;
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.domain.port.output.UserRepository;
+import com.andy.iamapi.infrastructure.adapter.security.JwtAuthenticationFilter;
+import com.andy.iamapi.infrastructure.adapter.security.JwtTokenService;
+import com.andy.iamapi.infrastructure.adapter.security.PermissionIndex;
+import com.andy.iamapi.infrastructure.adapter.security.RevocationNearCache;
+import com.andy.iamapi.infrastructure.adapter.security.SigningKeyRing;
+import com.andy.iamapi.infrastructure.adapter.security.UserRevocationEpochs;
+import com.andy.iamapi.infrastructure.adapter.security.UserVersionTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * GET /api/users/me con JwtAuthenticationFilter y UserController reales
+ * (MockMvc), con platform threads frente a virtual threads.
+ *
+ * Cada invocación lanza REQUESTS requests a la vez, como una ráfaga de
+ * clientes. La BD se simula con un semáforo del tamaño del pool de Hikari
+ * (maximum-pool-size) y una latencia fija por consulta; el filtro y el
+ * controller hacen una consulta cada uno, como en la aplicación con
+ * jwt.claims-authentication desactivado.
+ *
+ * - platform: pool fijo de 200 hilos (server.tomcat.threads.max por defecto)
+ * - virtual: un virtual thread por request (spring.threads.virtual.enabled)
+ *
+ * virtual necesita Java 21: perfil maven virtual-threads (ver src/jmh/README.md).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RequestConcurrencyBenchmark {
+
+	private static final int REQUESTS = 1_000;
+	private static final int TOMCAT_MAX_THREADS = 200;
+	private static final String SECRET = "benchmark-secret-key-with-at-least-256-bits!";
+
+	@Param({"platform", "virtual"})
+	public String threads;
+
+	/** Latencia de cada consulta a la BD. */
+	@Param({"2", "10"})
+	public int dbLatencyMillis;
+
+	/** Conexiones del pool (spring.datasource.hikari.maximum-pool-size). */
+	@Param({"10"})
+	public int dbPoolSize;
+
+	private ExecutorService executor;
+	private MockMvc mockMvc;
+	private String authorization;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		executor = switch (threads) {
+			case "platform" -> Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+			case "virtual" -> newVirtualThreadPerTaskExecutor();
+			default -> throw new IllegalArgumentException("threads: platform o virtual");
+		};
+
+		User user = User.create("john@example.com", "hash", "John", "Doe");
+		user.addRole(Role.create("ROLE_USER", "User"));
+
+		// stubOnly: sin registrar invocaciones (millones de llamadas por trial)
+		UserRepository userRepository = mock(UserRepository.class, withSettings().stubOnly());
+		Semaphore connections = new Semaphore(dbPoolSize);
+		when(userRepository.findByEmail(anyString())).thenAnswer(invocation -> query(connections, user));
+		when(userRepository.findById(any())).thenAnswer(invocation -> query(connections, user));
+
+		SigningKeyRing keyRing = new SigningKeyRing(mock(RedisTemplate.class), SECRET, 604_800_000L, "HS256",
+				Duration.ofHours(24), Duration.ofMinutes(5), Duration.ofSeconds(30), "", "");
+		JwtTokenService tokenService = new JwtTokenService(keyRing, 3_600_000L, 604_800_000L,
+				mock(RevocationNearCache.class), mock(UserRevocationEpochs.class), mock(PermissionIndex.class),
+				true, 10_000, false, true);
+		JwtAuthenticationFilter filter = new JwtAuthenticationFilter(tokenService, userRepository,
+				mock(UserVersionTracker.class), mock(PermissionIndex.class), false);
+
+		UserController controller = new UserController(new GetCurrentUserService(userRepository),
+				null, null, null, null, null, null, null);
+		mockMvc = MockMvcBuilders.standaloneSetup(controller).addFilters(filter).build();
+		authorization = "Bearer " + tokenService.generateAccessToken(user);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS)
+	public void currentUser() throws Exception {
+		List<Future<?>> responses = new ArrayList<>(REQUESTS);
+		for (int i = 0; i < REQUESTS; i++) {
+			responses.add(executor.submit(() -> {
+				int status = mockMvc.perform(get("/api/users/me").header("Authorization", authorization))
+						.andReturn().getResponse().getStatus();
+				if (status != 200) {
+					throw new IllegalStateException("GET /api/users/me: " + status);
+				}
+				return null;
+			}));
+		}
+		for (Future<?> response : responses) {
+			response.get();
+		}
+	}
+
+	private Optional<User> query(Semaphore connections, User user) throws InterruptedException {
+		connections.acquire();
+		try {
+			Thread.sleep(dbLatencyMillis);
+			return Optional.of(user);
+		} finally {
+			connections.release();
+		}
+	}
+
+	/**
+	 * Por reflexión: el perfil benchmark compila con Java 17 y
+	 * Executors.newVirtualThreadPerTaskExecutor es de Java 21.
+	 */
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("threads=virtual necesita Java 21 (-Pbenchmark,virtual-threads)", e);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.port.output.TokenService.TokenClaims;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HmacTokenEngine frente a jjwt con un access token como los que emitimos.
+ *
+ * Mismos claims en ambas vías; el token verificado es el mismo (jjwt e
+ * HmacTokenEngine son intercambiables, ver HmacTokenEngineTest).
+ * Sin caché de claims: mide solo Base64 + JSON + HMAC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TokenVerificationBenchmark {
+
+	private static final SecretKey KEY = Keys.hmacShaKeyFor(
+			"benchmark-secret-key-with-at-least-256-bits!".getBytes(StandardCharsets.UTF_8));
+
+	private HmacTokenEngine engine;
+	private JwtParser parser;
+	private TokenClaims claims;
+	private String token;
+
+	@Setup
+	public void setUp() {
+		engine = new HmacTokenEngine(KEY);
+		parser = Jwts.parser().verifyWith(KEY).build();
+
+		Instant now = Instant.now();
+		claims = new TokenClaims("john@example.com", UUID.randomUUID(), List.of("ROLE_USER", "ROLE_ADMIN"),
+				true, true, now.toEpochMilli(), now, now.plus(Duration.ofHours(1)), UUID.randomUUID().toString(),
+				"3f2a9c", "AAAAAQAAAAAAAAAg");
+		token = engine.signAccessToken(claims);
+	}
+
+	@Benchmark
+	public Claims verifyJjwt() {
+		return parser.parseSignedClaims(token).getPayload();
+	}
+
+	@Benchmark
+	public HmacTokenEngine.Verification verifyEngine() {
+		return engine.verify(token);
+	}
+
+	@Benchmark
+	public String signJjwt() {
+		return Jwts.builder()
+				.id(claims.tokenId())
+				.subject(claims.email())
+				.claim("uid", claims.userId().toString())
+				.claim("roles", String.join(",", claims.roles()))
+				.claim("enabled", claims.enabled())
+				.claim("locked", !claims.accountNonLocked())
+				.claim("ver", claims.version())
+				.claim("pix", claims.permissionIndexId())
+				.claim("perms", claims.permissionBitmap())
+				.issuedAt(Date.from(claims.issuedAt()))
+				.claim("iat_ms", claims.issuedAt().toEpochMilli())
+				.expiration(Date.from(claims.expiresAt()))
+				.signWith(KEY)
+				.compact();
+	}
+
+	@Benchmark
+	public String signEngine() {
+		return engine.signAccessToken(claims);
+	}
+}
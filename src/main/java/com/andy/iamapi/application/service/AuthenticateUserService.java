@@ -2,9 +2,13 @@ package com.andy.iamapi.application.service;
 
 import com.andy.iamapi.domain.exception.AccountLockedException;
 import com.andy.iamapi.domain.exception.InvalidCredentialsException;
+import com.andy.iamapi.domain.exception.LoginTemporarilyLockedException;
+import com.andy.iamapi.domain.exception.ServiceOverloadedException;
 import com.andy.iamapi.domain.model.User;
 import com.andy.iamapi.domain.port.input.AuthenticateUserUseCase;
 import com.andy.iamapi.domain.port.output.AuditLogger;
+import com.andy.iamapi.domain.port.output.LoginAttemptTracker;
+import com.andy.iamapi.domain.port.output.LoginAttemptTracker.FailureResult;
 import com.andy.iamapi.domain.port.output.PasswordEncoder;
 import com.andy.iamapi.domain.port.output.TokenService;
 import com.andy.iamapi.domain.port.output.UserRepository;
@@ -13,6 +17,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Optional;
+
 /**
  * Servicio de aplicación para autenticar usuarios.
  *
@@ -21,20 +28,25 @@ import org.springframework.stereotype.Service;
  * - Verificar estado de la cuenta (enabled, locked)
  * - Generar tokens JWT (access + refresh)
  * - Registrar auditoría de login
+ * - Contar logins fallidos y bloquear temporalmente cuenta/IP
  *
  * Flujo de autenticación:
- * 1. Buscar usuario por email
- * 2. Verificar que existe
- * 3. Verificar password con BCrypt
- * 4. Verificar cuenta habilitada
- * 5. Verificar cuenta no bloqueada
- * 6. Generar tokens
- * 7. Registrar auditoría
- * 8. Retornar tokens + datos del usuario
+ * 1. Comprobar bloqueo temporal de la cuenta o la IP (sin tocar BD ni hash)
+ * 2. Buscar usuario por email
+ * 3. Verificar que existe
+ * 4. Verificar password con BCrypt
+ * 5. Verificar cuenta habilitada
+ * 6. Verificar cuenta no bloqueada
+ * 7. Regenerar el hash en segundo plano si usa un coste antiguo
+ * 8. Generar tokens
+ * 9. Registrar auditoría
+ * 10. Retornar tokens + datos del usuario
  *
  * Seguridad:
  * - Mensajes de error genéricos (no revelar si email existe)
  * - Auditoría de intentos fallidos (detectar ataques)
+ * - Bloqueo temporal tras N fallos: el credential stuffing contra una cuenta
+ *   bloqueada no cuesta un hash por intento
  * - Timing attack resistant (BCrypt toma tiempo constante)
  */
 @Service
@@ -47,17 +59,23 @@ public class AuthenticateUserService implements AuthenticateUserUseCase {
     private final PasswordEncoder passwordEncoder;
     private final TokenService tokenService;
     private final AuditLogger auditLogger;
+    private final PasswordRehashService passwordRehashService;
+    private final LoginAttemptTracker loginAttemptTracker;
 
     public AuthenticateUserService(
             UserRepository userRepository,
             PasswordEncoder passwordEncoder,
             TokenService tokenService,
-            AuditLogger auditLogger
+            AuditLogger auditLogger,
+            PasswordRehashService passwordRehashService,
+            LoginAttemptTracker loginAttemptTracker
     ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.tokenService = tokenService;
         this.auditLogger = auditLogger;
+        this.passwordRehashService = passwordRehashService;
+        this.loginAttemptTracker = loginAttemptTracker;
     }
 
     /**
@@ -67,12 +85,29 @@ public class AuthenticateUserService implements AuthenticateUserUseCase {
      * @return AuthenticationResult con tokens y datos del usuario
      * @throws InvalidCredentialsException si email o password incorrectos
      * @throws AccountLockedException si la cuenta está bloqueada
+     * @throws LoginTemporarilyLockedException si la cuenta o la IP están bloqueadas por fallos
+     * @throws ServiceOverloadedException si el pool de hashing está saturado
      */
     @Override
     public AuthenticationResult execute(AuthenticateUserCommand command) {
         log.info("Attempting authentication for email: {}", command.email());
 
         try {
+            //0: Bloqueo temporal por logins fallidos (antes de la BD y del hash)
+            Optional<Duration> lockRemaining = loginAttemptTracker.lockRemaining(
+                    command.email(), command.ipAddress());
+
+            if (lockRemaining.isPresent()) {
+                auditLogger.logFailedAccess(
+                        command.email(),
+                        "TEMPORARILY_LOCKED",
+                        command.ipAddress()
+                );
+
+                log.warn("Login attempt while temporarily locked: {}", command.email());
+                throw new LoginTemporarilyLockedException(Math.max(1, lockRemaining.get().toSeconds()));
+            }
+
             //1: Buscar usuario por email
             User user = userRepository.findByEmail(command.email())
                     .orElseThrow(() -> {
@@ -81,6 +116,8 @@ public class AuthenticateUserService implements AuthenticateUserUseCase {
                                 "USER_NOT_FOUND",
                                 command.ipAddress()
                         );
+                        // Cuenta como fallo igual que una contraseña incorrecta
+                        recordFailure(command);
                         // Mensaje genérico por seguridad
                         // No revelar si el email existe o no
                         return new InvalidCredentialsException("Invalid email or password");
@@ -93,6 +130,7 @@ public class AuthenticateUserService implements AuthenticateUserUseCase {
                         "INVALID_PASSWORD",
                         command.ipAddress()
                 );
+                recordFailure(command);
 
                 log.warn("Invalid password attempt for user: {}", command.email());
                 throw new InvalidCredentialsException("Invalid email or password");
@@ -124,11 +162,19 @@ public class AuthenticateUserService implements AuthenticateUserUseCase {
                 throw new AccountLockedException("Account is locked");
             }
 
-            //5: Generar tokens JWT
+            // Credenciales correctas: reiniciar el contador de la cuenta
+            loginAttemptTracker.recordSuccess(user.getEmail());
+
+            //5: Hash con coste antiguo → regenerarlo sin retrasar el login
+            if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+                passwordRehashService.rehash(user.getId(), command.password(), user.getPassword());
+            }
+
+            //6: Generar tokens JWT
             String accessToken = tokenService.generateAccessToken(user);
             String refreshToken = tokenService.generateRefreshToken(user);
 
-            //6: Registrar auditoría de login exitoso
+            //7: Registrar auditoría de login exitoso
             auditLogger.logAction(
                     user.getId(),
                     "USER_LOGIN",
@@ -138,7 +184,7 @@ public class AuthenticateUserService implements AuthenticateUserUseCase {
 
             log.info("User authenticated successfully: {}", user.getEmail());
 
-            //7 Retornar resultado
+            //8 Retornar resultado
             return new AuthenticationResult(
                     accessToken,
                     refreshToken,
@@ -147,7 +193,8 @@ public class AuthenticateUserService implements AuthenticateUserUseCase {
                     user.getLastName()
             );
 
-        } catch (InvalidCredentialsException | AccountLockedException e) {
+        } catch (InvalidCredentialsException | AccountLockedException
+                 | LoginTemporarilyLockedException | ServiceOverloadedException e) {
             throw e;
         } catch (Exception e) {
             log.error("Unexpected error during authentication", e);
@@ -156,4 +203,19 @@ public class AuthenticateUserService implements AuthenticateUserUseCase {
 
 
     }
+
+    /**
+     * Registra el fallo y audita si con él se ha bloqueado la cuenta o la IP.
+     */
+    private void recordFailure(AuthenticateUserCommand command) {
+        FailureResult result = loginAttemptTracker.recordFailure(command.email(), command.ipAddress());
+
+        if (result.accountLocked() || result.ipLocked()) {
+            auditLogger.logFailedAccess(
+                    command.email(),
+                    result.accountLocked() ? "ACCOUNT_TEMPORARILY_LOCKED" : "IP_TEMPORARILY_LOCKED",
+                    command.ipAddress()
+            );
+        }
+    }
 }
@@ -6,6 +6,7 @@ import com.andy.iamapi.domain.exception.UserNotFoundException;
 import com.andy.iamapi.domain.model.User;
 import com.andy.iamapi.domain.port.input.ChangePasswordUseCase;
 import com.andy.iamapi.domain.port.output.PasswordEncoder;
+import com.andy.iamapi.domain.port.output.TokenService;
 import com.andy.iamapi.domain.port.output.UserRepository;
 import com.andy.iamapi.domain.util.PasswordValidator;
 import org.slf4j.Logger;
@@ -25,6 +26,7 @@ import java.time.LocalDateTime;
  * 4. Encriptar nueva contraseña
  * 5. Crear nuevo User con contraseña actualizada (reconstitute)
  * 6. Guardar
+ * 7. Invalidar todas las sesiones del usuario (tokens emitidos antes del cambio)
  */
 @Service
 @Transactional
@@ -35,12 +37,15 @@ public class ChangePasswordService implements ChangePasswordUseCase {
 
     private final UserRepository repository;
     private final PasswordEncoder passwordEncoder;
+    private final TokenService tokenService;
 
     public ChangePasswordService(
             UserRepository repository,
-            PasswordEncoder passwordEncoder) {
+            PasswordEncoder passwordEncoder,
+            TokenService tokenService) {
         this.repository = repository;
         this.passwordEncoder = passwordEncoder;
+        this.tokenService = tokenService;
     }
 
     @Override
@@ -81,6 +86,9 @@ public class ChangePasswordService implements ChangePasswordUseCase {
 
         repository.save(updatedUser);
 
+        //PASO 7: Cerrar todas las sesiones abiertas con la contraseña anterior
+        tokenService.revokeAllForUser(updatedUser.getId());
+
         log.info("Password changed successfully for user: {}", command.userId());
     }
 
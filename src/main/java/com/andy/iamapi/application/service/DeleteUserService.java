@@ -2,6 +2,7 @@ package com.andy.iamapi.application.service;
 
 import com.andy.iamapi.domain.exception.UserNotFoundException;
 import com.andy.iamapi.domain.port.input.DeleteUserUseCase;
+import com.andy.iamapi.domain.port.output.TokenService;
 import com.andy.iamapi.domain.port.output.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +13,8 @@ import java.util.UUID;
 
 /**
  * Servicio para eliminar usuarios.
+ *
+ * Al eliminar un usuario se invalidan todos sus tokens vivos.
  */
 @Service
 @Transactional
@@ -19,9 +22,11 @@ public class DeleteUserService implements DeleteUserUseCase {
     private static final Logger log = LoggerFactory.getLogger(DeleteUserService.class);
 
     private final UserRepository repository;
+    private final TokenService tokenService;
 
-    public DeleteUserService(UserRepository repository) {
+    public DeleteUserService(UserRepository repository, TokenService tokenService) {
         this.repository = repository;
+        this.tokenService = tokenService;
     }
 
     @Override
@@ -37,6 +42,9 @@ public class DeleteUserService implements DeleteUserUseCase {
         //Eliminar usuario
         repository.deleteById(userId);
 
+        //Invalidar todas sus sesiones
+        tokenService.revokeAllForUser(userId);
+
         log.info("User deleted successfully: {}", userId);
     }
 }
@@ -0,0 +1,282 @@
+package com.andy.iamapi.application.service;
+
+import com.andy.iamapi.domain.exception.InvalidPasswordException;
+import com.andy.iamapi.domain.exception.RoleNotFoundException;
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase;
+import com.andy.iamapi.domain.port.output.AuditLogger;
+import com.andy.iamapi.domain.port.output.PasswordEncoder;
+import com.andy.iamapi.domain.port.output.RoleRepository;
+import com.andy.iamapi.domain.port.output.UserRepository;
+import com.andy.iamapi.domain.util.PasswordValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Servicio de importación masiva de usuarios.
+ *
+ * Frente a llamar a /api/auth/register una vez por usuario:
+ * - El rol por defecto se busca una sola vez
+ * - Los emails existentes se comprueban con una query por bloque (no una por fila)
+ * - Los hashes de un bloque se calculan en paralelo en el pool de hashing
+ * - Las inserciones (users + user_roles) van en batch JDBC, un commit por bloque
+ *
+ * Flujo por bloque de CHUNK_SIZE filas:
+ * 1. Validar cada fila (email, contraseña, nombres)
+ * 2. Descartar emails repetidos en la importación o ya registrados
+ * 3. Hashear las contraseñas válidas en paralelo
+ * 4. Insertar en batch (ON CONFLICT DO NOTHING: un registro concurrente gana)
+ *
+ * Las filas se leen del iterador de forma incremental: la memoria depende
+ * del tamaño del bloque y de los resultados por fila, no del fichero entero.
+ * Un bloque ya insertado no se deshace si un bloque posterior falla.
+ *
+ * Si el parser encuentra el cuerpo mal formado a mitad, se importan las filas
+ * ya leídas y se devuelve el resultado parcial (ImportResult.error): los bloques
+ * anteriores ya están confirmados y el admin necesita saber cuáles.
+ *
+ * Cada request importa como mucho user-import.max-rows filas: la importación es
+ * síncrona y ocupa el request (y parte del pool de hashing) hasta terminar. Las
+ * filas siguientes no se leen y ImportResult.error indica el corte; el resto
+ * se envía en otra importación.
+ */
+@Service
+public class ImportUsersService implements ImportUsersUseCase {
+    private static final Logger log = LoggerFactory.getLogger(ImportUsersService.class);
+
+    private static final String DEFAULT_ROLE = "ROLE_USER";
+
+    /**
+     * Filas por bloque: una query de emails, un lote de hashes y un commit.
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    /**
+     * Longitudes máximas de las columnas (ver UserEntity).
+     */
+    private static final int MAX_EMAIL_LENGTH = 255;
+    private static final int MAX_NAME_LENGTH = 100;
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final AuditLogger auditLogger;
+    private final int maxRows;
+
+    public ImportUsersService(
+            UserRepository userRepository,
+            RoleRepository roleRepository,
+            PasswordEncoder passwordEncoder,
+            AuditLogger auditLogger,
+            @Value("${user-import.max-rows:10000}") int maxRows
+    ) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.auditLogger = auditLogger;
+        this.maxRows = maxRows;
+    }
+
+    @Override
+    public ImportResult execute(ImportUsersCommand command) {
+        Role defaultRole = roleRepository.findByName(DEFAULT_ROLE)
+                .orElseThrow(() -> new RoleNotFoundException(DEFAULT_ROLE));
+
+        List<RowResult> results = new ArrayList<>();
+        Set<String> seenEmails = new HashSet<>();
+        List<UserImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        Iterator<UserImportRow> rows = command.rows();
+        String error = null;
+        int read = 0;
+
+        while (true) {
+            UserImportRow row;
+            try {
+                if (!rows.hasNext()) {
+                    break;
+                }
+                if (read == maxRows) {
+                    error = "Row limit exceeded: at most " + maxRows
+                            + " rows per import, remaining rows were not imported";
+                    log.warn("User import reached the limit of {} rows, stopping", maxRows);
+                    break;
+                }
+                row = rows.next();
+                read++;
+            } catch (IllegalArgumentException | UncheckedIOException e) {
+                // Cuerpo mal formado a mitad: se importa lo leído y se informa del corte
+                error = e.getMessage();
+                log.warn("User import body malformed after {} rows, stopping: {}",
+                        results.size() + chunk.size(), error);
+                break;
+            }
+
+            chunk.add(row);
+
+            if (chunk.size() == CHUNK_SIZE) {
+                importChunk(chunk, defaultRole, seenEmails, results);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, defaultRole, seenEmails, results);
+        }
+
+        ImportResult result = summarize(results, error);
+
+        auditLogger.logAction(
+                command.executorId(),
+                "USERS_IMPORTED",
+                "USERS:" + result.created(),
+                command.ipAddress()
+        );
+
+        log.info("User import finished: {} rows, {} created, {} skipped, {} invalid",
+                result.total(), result.created(), result.skipped(), result.invalid());
+
+        return result;
+    }
+
+    private void importChunk(
+            List<UserImportRow> chunk,
+            Role defaultRole,
+            Set<String> seenEmails,
+            List<RowResult> results
+    ) {
+        //1: Validar filas y descartar repetidos dentro de la importación
+        List<UserImportRow> valid = new ArrayList<>(chunk.size());
+        List<String> emails = new ArrayList<>(chunk.size());
+
+        for (UserImportRow row : chunk) {
+            String error = validate(row);
+            if (error != null) {
+                results.add(new RowResult(row.rowNumber(), row.email(), RowStatus.INVALID, error));
+                continue;
+            }
+
+            String email = normalize(row.email());
+            if (!seenEmails.add(email)) {
+                results.add(new RowResult(row.rowNumber(), email, RowStatus.SKIPPED, "Duplicate email in import"));
+                continue;
+            }
+
+            valid.add(row);
+            emails.add(email);
+        }
+
+        //2: Emails ya registrados (una query para todo el bloque)
+        Set<String> existing = emails.isEmpty() ? Set.of() : userRepository.findExistingEmails(emails);
+
+        List<UserImportRow> toCreate = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            if (existing.contains(emails.get(i))) {
+                results.add(new RowResult(
+                        valid.get(i).rowNumber(), emails.get(i), RowStatus.SKIPPED, "Email already registered"));
+            } else {
+                toCreate.add(valid.get(i));
+            }
+        }
+
+        if (toCreate.isEmpty()) {
+            return;
+        }
+
+        //3: Hashear en paralelo en el pool de hashing
+        List<String> hashes = passwordEncoder.encodeAll(
+                toCreate.stream().map(UserImportRow::password).toList());
+
+        List<User> users = new ArrayList<>(toCreate.size());
+        for (int i = 0; i < toCreate.size(); i++) {
+            UserImportRow row = toCreate.get(i);
+            User user = User.create(row.email(), hashes.get(i), row.firstName().trim(), row.lastName().trim());
+            user.addRole(defaultRole);
+            users.add(user);
+        }
+
+        //4: Insertar en batch; los que no se insertan los registró otro request entretanto
+        Set<UUID> inserted = userRepository.insertAll(users);
+
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            boolean created = inserted.contains(user.getId());
+            results.add(new RowResult(
+                    toCreate.get(i).rowNumber(),
+                    user.getEmail(),
+                    created ? RowStatus.CREATED : RowStatus.SKIPPED,
+                    created ? null : "Email already registered"
+            ));
+        }
+    }
+
+    /**
+     * Valida una fila con las mismas reglas que el registro.
+     *
+     * @return Mensaje de error, o null si la fila es válida
+     */
+    private static String validate(UserImportRow row) {
+        if (row.email() == null || row.email().isBlank()) {
+            return "Email is required";
+        }
+        String email = row.email().trim();
+        if (email.length() > MAX_EMAIL_LENGTH || !EMAIL_PATTERN.matcher(email).matches()) {
+            return "Email must be valid";
+        }
+        if (row.firstName() == null || row.firstName().isBlank()) {
+            return "First name is required";
+        }
+        if (row.lastName() == null || row.lastName().isBlank()) {
+            return "Last name is required";
+        }
+        if (row.firstName().trim().length() > MAX_NAME_LENGTH || row.lastName().trim().length() > MAX_NAME_LENGTH) {
+            return "Names must be at most " + MAX_NAME_LENGTH + " characters";
+        }
+        try {
+            PasswordValidator.validate(row.password());
+        } catch (InvalidPasswordException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Misma normalización que User.create.
+     */
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static ImportResult summarize(List<RowResult> results, String error) {
+        long created = 0;
+        long skipped = 0;
+        long invalid = 0;
+
+        for (RowResult result : results) {
+            switch (result.status()) {
+                case CREATED -> created++;
+                case SKIPPED -> skipped++;
+                case INVALID -> invalid++;
+            }
+        }
+
+        // Resultados en el orden del fichero
+        List<RowResult> ordered = new ArrayList<>(results);
+        ordered.sort((a, b) -> Integer.compare(a.rowNumber(), b.rowNumber()));
+
+        return new ImportResult(results.size(), created, skipped, invalid, ordered, error);
+    }
+}
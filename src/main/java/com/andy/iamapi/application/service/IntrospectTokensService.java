@@ -0,0 +1,117 @@
+package com.andy.iamapi.application.service;
+
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.domain.port.input.IntrospectTokensUseCase;
+import com.andy.iamapi.domain.port.output.TokenService;
+import com.andy.iamapi.domain.port.output.TokenService.TokenClaims;
+import com.andy.iamapi.domain.port.output.UserChangeTracker;
+import com.andy.iamapi.domain.port.output.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Servicio de introspección de tokens en lote.
+ *
+ * Cada token pasa por la misma validación que en el filtro de autenticación
+ * (TokenService.validateToken): firma, expiración, blacklist y época de revocación.
+ * Se aprovechan así la caché de claims y la caché local de revocaciones.
+ *
+ * Después, como JwtAuthenticationFilter, se comprueba el estado de la cuenta:
+ * - Con jwt.claims-authentication.enabled y claims no obsoletos (UserChangeTracker):
+ *   enabled y locked del propio token
+ * - Si no: el usuario de la BD (debe existir, estar habilitado y no bloqueado).
+ *   Los roles devueltos son entonces los actuales
+ *
+ * Un token de una cuenta deshabilitada o bloqueada es inactivo aunque su firma sea válida.
+ */
+@Service
+public class IntrospectTokensService implements IntrospectTokensUseCase {
+    private static final Logger log = LoggerFactory.getLogger(IntrospectTokensService.class);
+
+    private final TokenService tokenService;
+    private final UserRepository userRepository;
+    private final UserChangeTracker userChangeTracker;
+    private final boolean claimsAuthenticationEnabled;
+
+    public IntrospectTokensService(
+            TokenService tokenService,
+            UserRepository userRepository,
+            UserChangeTracker userChangeTracker,
+            @Value("${jwt.claims-authentication.enabled:false}") boolean claimsAuthenticationEnabled
+    ) {
+        this.tokenService = tokenService;
+        this.userRepository = userRepository;
+        this.userChangeTracker = userChangeTracker;
+        this.claimsAuthenticationEnabled = claimsAuthenticationEnabled;
+    }
+
+    @Override
+    public List<TokenIntrospection> execute(IntrospectTokensCommand command) {
+        // Un lote suele traer varios tokens del mismo usuario: una consulta por email
+        Map<String, Optional<User>> users = new HashMap<>();
+
+        List<TokenIntrospection> results = command.tokens().stream()
+                .map(token -> tokenService.validateToken(token)
+                        .flatMap(claims -> active(claims, users))
+                        .orElseGet(TokenIntrospection::inactive))
+                .toList();
+
+        log.debug("Introspected {} tokens ({} active)", results.size(),
+                results.stream().filter(TokenIntrospection::active).count());
+
+        return results;
+    }
+
+    /**
+     * Resultado activo si la cuenta del token sigue habilitada y sin bloquear.
+     */
+    private Optional<TokenIntrospection> active(TokenClaims claims, Map<String, Optional<User>> users) {
+        if (canUseClaims(claims)) {
+            if (!claims.enabled() || !claims.accountNonLocked()) {
+                log.debug("Introspected token of disabled or locked account: {}", claims.userId());
+                return Optional.empty();
+            }
+            return Optional.of(active(claims, claims.roles()));
+        }
+
+        Optional<User> userOpt = users.computeIfAbsent(claims.email(), userRepository::findByEmail);
+        if (userOpt.isEmpty() || !userOpt.get().isEnabled() || !userOpt.get().isAccountNonLocked()) {
+            log.debug("Introspected token of missing, disabled or locked account: {}", claims.email());
+            return Optional.empty();
+        }
+
+        List<String> roles = userOpt.get().getRoles().stream()
+                .map(Role::getName)
+                .toList();
+        return Optional.of(active(claims, roles));
+    }
+
+    /**
+     * Mismo criterio que JwtAuthenticationFilter.canUseClaims.
+     */
+    private boolean canUseClaims(TokenClaims claims) {
+        return claimsAuthenticationEnabled
+                && claims.hasUserState()
+                && !userChangeTracker.isStale(claims.userId(), claims.version());
+    }
+
+    private static TokenIntrospection active(TokenClaims claims, List<String> roles) {
+        return new TokenIntrospection(
+                true,
+                claims.email(),
+                claims.userId(),
+                roles,
+                claims.tokenId(),
+                claims.issuedAt(),
+                claims.expiresAt()
+        );
+    }
+}
@@ -0,0 +1,112 @@
+package com.andy.iamapi.application.service;
+
+import com.andy.iamapi.domain.port.output.PasswordEncoder;
+import com.andy.iamapi.domain.port.output.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Regenera en segundo plano los hashes de contraseña con un coste antiguo.
+ *
+ * Se invoca tras un login correcto, cuando es el único momento en que
+ * se conoce la contraseña en claro. El login no espera al nuevo hash.
+ *
+ * El re-hash es opcional (se reintenta en el siguiente login), así que se descarta
+ * antes que acumular trabajo:
+ * - Un hilo propio con cola acotada (password-hashing.rehash.queue-capacity).
+ *   Con la cola llena la tarea se descarta: nunca hay más de esas contraseñas
+ *   en claro esperando en memoria
+ * - El hash se pide con tryEncode: si el pool de hashing está ocupado con logins,
+ *   se salta en lugar de esperar turno
+ *
+ * La escritura es un compare-and-set sobre el hash leído en el login:
+ * si el usuario cambió la contraseña entretanto, el re-hash se descarta.
+ */
+@Service
+public class PasswordRehashService {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordRehashService.class);
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder dropped = new LongAdder();
+
+    public PasswordRehashService(
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            @Value("${password-hashing.rehash.queue-capacity:16}") int queueCapacity
+    ) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.executor = new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-rehash");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> dropped.increment()
+        );
+    }
+
+    /**
+     * Encola la regeneración del hash con el coste actual.
+     *
+     * Vuelve al momento: con la cola llena la tarea se descarta.
+     * Los errores solo se loguean: el hash antiguo sigue siendo válido
+     * y se reintentará en el siguiente login.
+     *
+     * @param userId ID del usuario
+     * @param rawPassword Contraseña en claro ya verificada
+     * @param currentHash Hash con el que se verificó
+     */
+    public void rehash(UUID userId, String rawPassword, String currentHash) {
+        executor.execute(() -> upgrade(userId, rawPassword, currentHash));
+    }
+
+    private void upgrade(UUID userId, String rawPassword, String currentHash) {
+        try {
+            Optional<String> newHash = passwordEncoder.tryEncode(rawPassword);
+            if (newHash.isEmpty()) {
+                dropped.increment();
+                log.debug("Password hashing busy, skipping rehash for user: {}", userId);
+                return;
+            }
+
+            if (userRepository.updatePasswordHash(userId, currentHash, newHash.get())) {
+                log.info("Password hash upgraded for user: {}", userId);
+            } else {
+                log.debug("Password changed concurrently, skipping rehash for user: {}", userId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not upgrade password hash for user: {}", userId, e);
+        }
+    }
+
+    /**
+     * Re-hashes descartados (cola llena o pool de hashing ocupado).
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -74,12 +74,12 @@ public class RegisterUserService implements RegisterUserUseCase {
      *
      * Flujo de ejecución:
      *
-     *   Verifica que el email no esté en uso
+     *   Verifica que el email no esté en uso (antes de pagar el hash)
      *   Valida la fortaleza de la contraseña
      *   Hashea la contraseña con BCrypt (vía port)
      *   Crea la entidad User con factory method
      *   Asigna el rol por defecto ROLE_USER
-     *   Persiste el usuario en la base de datos
+     *   Inserta usuario y rol en una sola sentencia (falla si el email ya existe)
      *   Registra la acción en auditoría
      *
      *
@@ -91,7 +91,7 @@ public class RegisterUserService implements RegisterUserUseCase {
      */
     @Override
     public User execute(RegisterUserCommand command) {
-        //Verificar existencia email
+        //Verificar existencia email: descarta duplicados antes del hash (caro)
         if (userRepository.existsByEmail(command.email())) {
             throw new UserAlreadyExistsException(command.email());
         }
@@ -118,17 +118,20 @@ public class RegisterUserService implements RegisterUserUseCase {
 
         user.addRole(defaultRole);
 
-        //Persistir el usuario
-        User savedUser = userRepository.save(user);
+        //Persistir usuario + rol en una ida a la BD.
+        //Si otro registro del mismo email se cuela tras existsByEmail, la restricción UNIQUE decide
+        if (!userRepository.insertIfAbsent(user)) {
+            throw new UserAlreadyExistsException(command.email());
+        }
 
         //Auditoría
         auditLogger.logAction(
-                savedUser.getId(),
+                user.getId(),
                 "USER_REGISTERED",
-                "USER:"+ savedUser.getEmail(),
+                "USER:"+ user.getEmail(),
                 "SYSTEM" //Ip o source del registro
         );
 
-        return savedUser;
+        return user;
     }
 }
@@ -0,0 +1,18 @@
+package com.andy.iamapi.domain.exception;
+
+/**
+ * Se lanza cuando la cuenta o la IP están bloqueadas temporalmente
+ * por demasiados logins fallidos. El bloqueo se levanta solo.
+ */
+public class LoginTemporarilyLockedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public LoginTemporarilyLockedException(long retryAfterSeconds) {
+        super("Too many failed login attempts, try again later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
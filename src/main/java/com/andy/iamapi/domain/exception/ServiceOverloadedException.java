@@ -0,0 +1,20 @@
+package com.andy.iamapi.domain.exception;
+
+/**
+ * Se lanza cuando una operación costosa no puede atenderse ahora
+ * (p.ej. la cola de hashing de contraseñas está llena).
+ *
+ * El cliente puede reintentar pasado retryAfterSeconds.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,83 @@
+package com.andy.iamapi.domain.port.input;
+
+import com.andy.iamapi.domain.exception.RoleNotFoundException;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Caso de uso: Importar usuarios en lote (onboarding de clientes)
+ *
+ * PRINCIPIO APLICADO:
+ * - Single Responsibility: Solo se encarga de la importación masiva
+ * - Interface Segregation: Interfaz específica para este caso de uso
+ */
+public interface ImportUsersUseCase {
+    /**
+     * Importa usuarios leyendo las filas de forma incremental.
+     *
+     * Cada fila se valida por separado: una fila inválida o un email existente
+     * no detienen la importación, se reportan en su resultado.
+     *
+     * Si el cuerpo deja de ser legible a mitad (JSON roto, comillas CSV sin cerrar),
+     * se importan las filas leídas hasta ese punto y se devuelve el resultado
+     * parcial con el motivo en ImportResult.error.
+     *
+     * @param command Filas a importar y contexto del admin
+     * @return Resultado global y por fila
+     * @throws RoleNotFoundException si el rol por defecto no existe en la BD
+     */
+    ImportResult execute(ImportUsersCommand command);
+
+    record ImportUsersCommand(
+            Iterator<UserImportRow> rows, // Se consume una sola vez, sin cargar todo en memoria
+            UUID executorId,
+            String ipAddress //Auditoria
+    ) {
+        public ImportUsersCommand {
+            if (rows == null) {
+                throw new IllegalArgumentException("Rows cannot be null");
+            }
+            if (executorId == null) {
+                throw new IllegalArgumentException("Executor ID cannot be null");
+            }
+        }
+    }
+
+    /**
+     * Fila tal cual llega (sin validar).
+     */
+    record UserImportRow(
+            int rowNumber,
+            String email,
+            String password,
+            String firstName,
+            String lastName
+    ) {}
+
+    record RowResult(
+            int rowNumber,
+            String email,
+            RowStatus status,
+            String message
+    ) {}
+
+    enum RowStatus {
+        CREATED,
+        SKIPPED, // Email ya registrado o repetido en la importación
+        INVALID
+    }
+
+    /**
+     * @param error Motivo por el que se dejó de leer el cuerpo, o null si se leyó entero
+     */
+    record ImportResult(
+            long total,
+            long created,
+            long skipped,
+            long invalid,
+            List<RowResult> rows,
+            String error
+    ) {}
+}
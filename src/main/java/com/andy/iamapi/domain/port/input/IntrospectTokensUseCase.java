@@ -0,0 +1,53 @@
+package com.andy.iamapi.domain.port.input;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Caso de uso: Introspección de tokens en lote (estilo RFC 7662).
+ *
+ * Permite a gateways y servicios internos comprobar muchos tokens
+ * (firma, expiración y revocación) en una sola llamada.
+ */
+public interface IntrospectTokensUseCase {
+
+    /**
+     * Introspecciona cada token del comando.
+     *
+     * @param command Comando con los tokens
+     * @return Un resultado por token, en el mismo orden
+     */
+    List<TokenIntrospection> execute(IntrospectTokensCommand command);
+
+    record IntrospectTokensCommand(
+            List<String> tokens
+    ) {
+        public IntrospectTokensCommand {
+            if (tokens == null || tokens.isEmpty()) {
+                throw new IllegalArgumentException("At least one token is required");
+            }
+            tokens = List.copyOf(tokens);
+        }
+    }
+
+    /**
+     * Resultado de la introspección de un token.
+     *
+     * Si active es false el resto de campos son null: no se revela
+     * información de tokens inválidos, expirados o revocados.
+     */
+    record TokenIntrospection(
+            boolean active,
+            String email,
+            UUID userId,
+            List<String> roles,
+            String tokenId,
+            Instant issuedAt,
+            Instant expiresAt
+    ) {
+        public static TokenIntrospection inactive() {
+            return new TokenIntrospection(false, null, null, null, null, null, null);
+        }
+    }
+}
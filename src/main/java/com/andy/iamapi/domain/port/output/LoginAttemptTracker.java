@@ -0,0 +1,46 @@
+package com.andy.iamapi.domain.port.output;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Port para contar logins fallidos y bloquear temporalmente cuentas e IPs
+ *
+ * PRINCIPIOS APLICADOS:
+ * - Dependency Inversion: El dominio no conoce Redis, solo necesita contar fallos
+ */
+public interface LoginAttemptTracker {
+
+    /**
+     * Comprueba si la cuenta o la IP están bloqueadas temporalmente
+     * @param email Email del intento
+     * @param ipAddress IP del intento
+     * @return Optional con el tiempo restante de bloqueo si lo hay
+     */
+    Optional<Duration> lockRemaining(String email, String ipAddress);
+
+    /**
+     * Registra un login fallido para la cuenta y la IP
+     * @param email Email del intento (exista o no)
+     * @param ipAddress IP del intento
+     * @return Resultado con los fallos en la ventana y si se ha bloqueado algo
+     */
+    FailureResult recordFailure(String email, String ipAddress);
+
+    /**
+     * Reinicia el contador de fallos de la cuenta tras un login correcto
+     * @param email Email de la cuenta
+     */
+    void recordSuccess(String email);
+
+    record FailureResult(
+            long accountFailures,
+            long ipFailures,
+            boolean accountLocked,
+            boolean ipLocked
+    ) {
+        public static FailureResult none() {
+            return new FailureResult(0, 0, false, false);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.andy.iamapi.domain.port.output;
 
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Port para encoding de contraseñas
  *
@@ -15,6 +18,20 @@ public interface PasswordEncoder {
      */
     String encode(String rawPassword);
 
+    /**
+     * Hashea una contraseña solo si hay capacidad libre, sin esperar turno
+     * @param rawPassword Contraseña sin hashear
+     * @return Hash, o vacío si el hashing está saturado
+     */
+    Optional<String> tryEncode(String rawPassword);
+
+    /**
+     * Hashea varias contraseñas en paralelo (importaciones masivas)
+     * @param rawPasswords Contraseñas sin hashear
+     * @return Hashes en el mismo orden
+     */
+    List<String> encodeAll(List<String> rawPasswords);
+
     /**
      * Verifica si una contraseña coincide con su hash
      * @param rawPassword Contraseña en texto plano
@@ -22,4 +39,11 @@ public interface PasswordEncoder {
      * @return true si coinciden
      */
     boolean matches(String rawPassword, String encodedPassword);
+
+    /**
+     * Indica si un hash se generó con un coste menor al actual y conviene regenerarlo
+     * @param encodedPassword Hash almacenado
+     * @return true si debe re-hashearse en el próximo login correcto
+     */
+    boolean upgradeEncoding(String encodedPassword);
 }
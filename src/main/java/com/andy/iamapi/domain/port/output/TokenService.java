@@ -2,7 +2,10 @@ package com.andy.iamapi.domain.port.output;
 
 import com.andy.iamapi.domain.model.User;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Port para generación y validación de tokens JWT
@@ -30,16 +33,65 @@ public interface TokenService {
      */
     Optional<String> validateTokenAndGetEmail(String token);
 
+    /**
+     * Valida un token y devuelve todos los claims verificados
+     * (firma, expiración y que no esté revocado)
+     * @param token JWT token
+     * @return Optional con los claims si el token es válido
+     */
+    Optional<TokenClaims> validateToken(String token);
+
     /**
      * Invalida un token específico (para logout)
      * @param token Token a invalidar
      */
     void revokeToken(String token);
 
+    /**
+     * Invalida todos los tokens emitidos hasta ahora para un usuario
+     * (cambio de contraseña, bloqueo, borrado...)
+     * @param userId ID del usuario
+     */
+    void revokeAllForUser(UUID userId);
+
     /**
      * Verifica si un token ha sido revocado
      * @param token Token a verificar
      * @return true si está revocado
      */
     boolean isTokenRevoked(String token);
+
+    /**
+     * Claims verificados de un token.
+     *
+     * Los campos de estado del usuario (userId, enabled, accountNonLocked, version)
+     * y tokenId (jti) pueden ser null en tokens emitidos antes de que existieran esos claims.
+     *
+     * permissionIndexId y permissionBitmap solo existen si el bitmap de permisos está activado.
+     */
+    record TokenClaims(
+            String email,
+            UUID userId,
+            List<String> roles,
+            Boolean enabled,
+            Boolean accountNonLocked,
+            Long version,
+            Instant issuedAt,
+            Instant expiresAt,
+            String tokenId,
+            String permissionIndexId,
+            String permissionBitmap
+    ) {
+        public TokenClaims {
+            roles = roles == null ? List.of() : List.copyOf(roles);
+        }
+
+        /**
+         * Indica si el token trae el estado completo del usuario
+         * (suficiente para autenticar sin consultar la BD).
+         */
+        public boolean hasUserState() {
+            return userId != null && enabled != null && accountNonLocked != null && version != null;
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package com.andy.iamapi.domain.port.output;
+
+import java.util.UUID;
+
+/**
+ * Port para saber si el estado del usuario incluido en un token sigue vigente
+ *
+ * PRINCIPIOS APLICADOS:
+ * - Dependency Inversion: El dominio no conoce Redis, solo necesita comparar versiones
+ */
+public interface UserChangeTracker {
+
+    /**
+     * Indica si los claims emitidos con la versión dada están desactualizados
+     * @param userId ID del usuario
+     * @param tokenVersion Versión incluida en el token (claim ver)
+     * @return true si el usuario cambió después de emitir el token (o no se puede saber)
+     */
+    boolean isStale(UUID userId, long tokenVersion);
+}
@@ -5,8 +5,10 @@ import com.andy.iamapi.domain.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -74,6 +76,34 @@ public interface UserRepository {
      */
     boolean existsByEmail(String email);
 
+    /**
+     * Devuelve cuáles de los emails dados ya están registrados (una sola query)
+     * @param emails Emails a verificar (normalizados)
+     * @return Subconjunto de emails existentes
+     */
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    /**
+     * Inserta un usuario nuevo con sus roles si su email no está registrado.
+     *
+     * La unicidad la garantiza la restricción UNIQUE de users.email:
+     * no hay ventana entre comprobar y guardar.
+     *
+     * @param user Usuario creado con User.create (id ya asignado)
+     * @return true si se insertó, false si el email ya existía
+     */
+    boolean insertIfAbsent(User user);
+
+    /**
+     * Inserta usuarios nuevos con sus roles en batch.
+     *
+     * Los emails que ya existan (p.ej. registrados concurrentemente) se omiten sin error.
+     *
+     * @param users Usuarios creados con User.create (id ya asignado)
+     * @return IDs de los usuarios realmente insertados
+     */
+    Set<UUID> insertAll(List<User> users);
+
     /**
      * Verifica si existe un usuario con el id dado
      * @param userId Id a verificar
@@ -81,6 +111,19 @@ public interface UserRepository {
      */
     boolean existsById(UUID userId);
 
+    /**
+     * Sustituye el hash de la contraseña solo si sigue siendo el esperado.
+     *
+     * No modifica updated_at: el re-hash no cambia la contraseña
+     * y no debe invalidar los tokens del usuario.
+     *
+     * @param id UUID del usuario
+     * @param currentPassword Hash que se espera encontrar
+     * @param newPassword Nuevo hash
+     * @return true si se actualizó, false si el hash ya había cambiado
+     */
+    boolean updatePasswordHash(UUID id, String currentPassword, String newPassword);
+
     /**
      * Elimina un usuario (soft delete recomendado)
      * @param id UUID del usuario a eliminar
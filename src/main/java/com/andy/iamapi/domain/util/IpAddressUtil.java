@@ -2,6 +2,10 @@ package com.andy.iamapi.domain.util;
 
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
 /**
  * Utilidad para obtener la IP real del cliente HTTP.
  *
@@ -10,8 +14,10 @@ import jakarta.servlet.http.HttpServletRequest;
  *
  * Problema que resuelve:
  * Cuando la aplicación está detrás de un proxy o load balancer,
- * request.getRemoteAddr() devuelve la IP del proxy, no la del cliente.
- * El header X-Forwarded-For contiene la IP original del cliente.
+ * la conexión viene del proxy, no del cliente. El header X-Forwarded-For
+ * contiene la IP original del cliente, pero cualquiera puede enviarlo:
+ * fiarse de él sin más permite suplantar IPs (bloquear IPs ajenas en el
+ * login, saltarse el rate limit).
  */
 public class IpAddressUtil {
     // Clase de utilidad, no debe instanciarse
@@ -20,33 +26,66 @@ public class IpAddressUtil {
     /**
      * Extrae la IP real del cliente del request HTTP.
      *
-     * Orden de prioridad para obtener la IP:
-     * 1. Header X-Forwarded-For (si hay proxy/load balancer)
-     * 2. Header X-Real-IP (alternativa usada por Nginx)
-     * 3. remoteAddr directo (si no hay proxy)
+     * Los headers de proxy los procesa el contenedor (server.forward-headers-strategy: native,
+     * RemoteIpValve de Tomcat) antes de llegar aquí:
+     * - Solo se leen si la conexión viene de un proxy de confianza
+     *   (server.tomcat.remoteip.internal-proxies, por defecto redes privadas y loopback)
+     * - X-Forwarded-For se recorre de derecha a izquierda saltando proxies de confianza:
+     *   la primera IP que no lo es es el cliente (un valor inventado por el cliente
+     *   queda a la izquierda y se ignora)
      *
-     * X-Forwarded-For puede contener múltiples IPs:
-     * "clientIP, proxy1IP, proxy2IP"
-     * Siempre tomamos la primera (IP original del cliente).
+     * Con eso, remoteAddr ya es la IP del cliente.
      *
      * @param request HttpServletRequest del que extraer la IP
      * @return IP del cliente como String
      */
     public static String getClientIp(HttpServletRequest request) {
-        // Caso 1: Detrás de proxy/load balancer (AWS ELB, Nginx, etc.)
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isBlank()) {
-            // Tomamos solo la primera IP (la del cliente real)
-            return xForwardedFor.split(",")[0].trim();
-        }
+        return request.getRemoteAddr();
+    }
 
-        // Caso 2: Nginx como reverse proxy (alternativa a X-Forwarded-For)
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isBlank()) {
-            return xRealIp.trim();
+    /**
+     * Agrega una IPv6 a su prefijo de red (ej: /64).
+     *
+     * Un cliente IPv6 suele disponer de una /64 entera (2^64 direcciones):
+     * rotando de IP podría crear una clave de rate limit distinta por request.
+     * Agregando al prefijo, toda la red comparte una sola clave.
+     *
+     * IPv4 se devuelve tal cual, y una IPv6 con una IPv4 mapeada ("::ffff:1.2.3.4")
+     * como esa IPv4. El zone id ("fe80::1%eth0") se descarta: solo tiene sentido en
+     * el host local. Lo que no es una IP válida también se devuelve tal cual
+     * (solo se parsean literales, nunca se resuelve DNS).
+     *
+     * Ejemplo: "2001:db8:1:2:aaaa:bbbb:cccc:dddd" con 64 → "2001:db8:1:2:0:0:0:0/64"
+     *
+     * @param ip IP del cliente (ver getClientIp)
+     * @param prefixLength Bits del prefijo (1-128)
+     * @return Prefijo en notación CIDR, o la IP original si no es IPv6
+     */
+    public static String ipv6Prefix(String ip, int prefixLength) {
+        if (ip == null || ip.indexOf(':') < 0 || prefixLength >= 128) {
+            return ip;
         }
 
-        // Caso 3: Conexión directa sin proxy
-        return request.getRemoteAddr();
+        try {
+            String literal = ip.startsWith("[") && ip.endsWith("]") ? ip.substring(1, ip.length() - 1) : ip;
+            int zone = literal.indexOf('%');
+            if (zone >= 0) {
+                literal = literal.substring(0, zone);
+            }
+
+            // Entre corchetes solo se acepta un literal IPv6: nunca hay consulta DNS
+            InetAddress address = InetAddress.getByName("[" + literal + "]");
+            if (!(address instanceof Inet6Address)) {
+                return address.getHostAddress();
+            }
+
+            byte[] bytes = address.getAddress();
+            for (int bit = Math.max(prefixLength, 0); bit < 128; bit++) {
+                bytes[bit / 8] &= (byte) ~(1 << (7 - bit % 8));
+            }
+            return InetAddress.getByAddress(bytes).getHostAddress() + "/" + prefixLength;
+        } catch (UnknownHostException e) {
+            return ip;
+        }
     }
 }
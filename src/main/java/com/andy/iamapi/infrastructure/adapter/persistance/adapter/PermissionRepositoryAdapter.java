@@ -2,82 +2,92 @@ package com.andy.iamapi.infrastructure.adapter.persistance.adapter;
 
 import com.andy.iamapi.domain.model.Permission;
 import com.andy.iamapi.domain.port.output.PermissionRepository;
+import com.andy.iamapi.infrastructure.adapter.persistance.cache.ReferenceDataCache;
 import com.andy.iamapi.infrastructure.adapter.persistance.mapper.PermissionMapper;
 import com.andy.iamapi.infrastructure.adapter.persistance.repository.PermissionJpaRepository;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Adapter que implementa el port PermissionRepository usando JPA.
  *
+ * Las lecturas se sirven desde ReferenceDataCache (sin ir a la BD);
+ * las escrituras van por JPA e invalidan la caché.
+ *
  * @see PermissionRepository
  * @see PermissionJpaRepository
  * @see PermissionMapper
+ * @see ReferenceDataCache
  */
 @Component
 public class PermissionRepositoryAdapter implements PermissionRepository {
     private final PermissionJpaRepository jpaRepository;
     private final PermissionMapper mapper;
+    private final ReferenceDataCache cache;
 
-    public PermissionRepositoryAdapter(PermissionJpaRepository jpaRepository, PermissionMapper mapper) {
+    public PermissionRepositoryAdapter(
+            PermissionJpaRepository jpaRepository,
+            PermissionMapper mapper,
+            ReferenceDataCache cache
+    ) {
         this.jpaRepository = jpaRepository;
         this.mapper = mapper;
+        this.cache = cache;
     }
 
     @Override
     public Permission save(Permission permission) {
-        return mapper.toDomain(
+        Permission saved = mapper.toDomain(
                 jpaRepository.save(
                         mapper.toEntity(permission)
                 )
         );
+        cache.invalidate();
+        return saved;
     }
 
     @Override
     public Optional<Permission> findByName(String name) {
-        return jpaRepository.findByName(name)
-                .map(mapper::toDomain);
+        return cache.findPermissionByName(name);
     }
 
     @Override
     public Optional<Permission> findById(UUID id) {
-        return jpaRepository.findById(id)
-                .map(mapper::toDomain);
+        return cache.findPermissionById(id);
     }
 
     @Override
     public Optional<Permission> findByResourceAndAction(String resource, String action) {
-        return jpaRepository.findByResourceAndAction(resource, action)
-                .map(mapper::toDomain);
+        return cache.allPermissions().stream()
+                .filter(permission -> permission.getResource().equals(resource)
+                        && permission.getAction().equals(action))
+                .findFirst();
     }
 
     @Override
     public Set<Permission> findByNameIn(Set<String> names) {
-        return jpaRepository.findByNameIn(names)
-                .stream()
-                .map(mapper::toDomain)
-                .collect(Collectors.toSet());
+        Set<Permission> permissions = new HashSet<>();
+        names.forEach(name -> cache.findPermissionByName(name).ifPresent(permissions::add));
+        return permissions;
     }
 
     @Override
     public boolean existsByName(String name) {
-        return jpaRepository.existsByName(name);
+        return cache.findPermissionByName(name).isPresent();
     }
 
     @Override
     public Set<Permission> findAll() {
-        return jpaRepository.findAll()
-                .stream()
-                .map(mapper::toDomain)
-                .collect(Collectors.toSet());
+        return new HashSet<>(cache.allPermissions());
     }
 
     @Override
     public void deleteById(UUID id) {
         jpaRepository.deleteById(id);
+        cache.invalidate();
     }
 }
@@ -2,7 +2,7 @@ package com.andy.iamapi.infrastructure.adapter.persistance.adapter;
 
 import com.andy.iamapi.domain.model.Role;
 import com.andy.iamapi.domain.port.output.RoleRepository;
-import com.andy.iamapi.infrastructure.adapter.persistance.entity.RoleEntity;
+import com.andy.iamapi.infrastructure.adapter.persistance.cache.ReferenceDataCache;
 import com.andy.iamapi.infrastructure.adapter.persistance.mapper.RoleMapper;
 import com.andy.iamapi.infrastructure.adapter.persistance.repository.RoleJpaRepository;
 import org.springframework.stereotype.Component;
@@ -11,70 +11,72 @@ import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Adapter que implementa el port RoleRepository usando JPA.
  *
+ * Las lecturas se sirven desde ReferenceDataCache (sin ir a la BD);
+ * las escrituras van por JPA e invalidan la caché.
+ *
  * @see RoleRepository
  * @see RoleJpaRepository
  * @see RoleMapper
+ * @see ReferenceDataCache
  */
 @Component
 public class RoleRepositoryAdapter implements RoleRepository {
 
     private final RoleJpaRepository jpaRepository;
     private final RoleMapper mapper;
+    private final ReferenceDataCache cache;
 
-    public RoleRepositoryAdapter(RoleJpaRepository jpaRepository, RoleMapper mapper) {
+    public RoleRepositoryAdapter(RoleJpaRepository jpaRepository, RoleMapper mapper, ReferenceDataCache cache) {
         this.jpaRepository = jpaRepository;
         this.mapper = mapper;
+        this.cache = cache;
     }
 
     @Override
     public Role save(Role role) {
-        return mapper.toDomain(
+        Role saved = mapper.toDomain(
                 jpaRepository.save(
                         mapper.roleEntity(role)
                 )
         );
+        cache.invalidate();
+        return saved;
     }
 
     @Override
     public Optional<Role> findByName(String name) {
-        return jpaRepository.findByName(name)
-                .map(mapper::toDomain);
+        return cache.findRoleByName(name);
     }
 
     @Override
     public Optional<Role> findById(UUID id) {
-        return jpaRepository.findById(id)
-                .map(mapper::toDomain);
+        return cache.findRoleById(id);
     }
 
     @Override
     public Set<Role> findByNameIn(Set<String> names) {
-        return jpaRepository.findByNameIn(names).stream()
-                .map(mapper::toDomain)
-                .collect(Collectors.toSet());
-
+        Set<Role> roles = new HashSet<>();
+        names.forEach(name -> cache.findRoleByName(name).ifPresent(roles::add));
+        return roles;
     }
 
     @Override
     public boolean existsByName(String name) {
-        return jpaRepository.existsByName(name);
+        return cache.findRoleByName(name).isPresent();
     }
 
     @Override
     public Set<Role> findAll() {
-        return jpaRepository.findAll().stream()
-                .map(mapper::toDomain)
-                .collect(Collectors.toSet());
+        return new HashSet<>(cache.allRoles());
     }
 
     @Override
     public void deleteById(UUID id) {
         jpaRepository.deleteById(id);
+        cache.invalidate();
     }
 }
-
@@ -7,13 +7,21 @@ import com.andy.iamapi.infrastructure.adapter.persistance.entity.UserEntity;
 import com.andy.iamapi.infrastructure.adapter.persistance.mapper.UserMapper;
 import com.andy.iamapi.infrastructure.adapter.persistance.repository.UserJpaRepository;
 import com.andy.iamapi.infrastructure.adapter.persistance.specification.UserSpecifications;
+import com.andy.iamapi.infrastructure.adapter.security.UserVersionTracker;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -27,6 +35,7 @@ import java.util.stream.Collectors;
  * - Implementar los métodos del port UserRepository
  * - Delegar operaciones a UserJpaRepository (Spring Data)
  * - Convertir entre User (domain) y UserEntity (JPA) usando UserMapper
+ * - Inserciones masivas con JDBC batch (sin pasar por el contexto de persistencia)
  *
  * SOLID aplicado:
  * - Single Responsibility: Solo adapta el repositorio JPA al port del dominio
@@ -41,10 +50,53 @@ import java.util.stream.Collectors;
 public class UserRepositoryAdapter implements UserRepository {
     private final UserJpaRepository jpaRepository;
     private final UserMapper mapper;
+    private final UserVersionTracker userVersionTracker;
+    private final JdbcTemplate jdbcTemplate;
 
-    public UserRepositoryAdapter (UserJpaRepository jpaRepository, UserMapper mapper) {
+    /**
+     * Filas por ida a la BD en las inserciones masivas.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_USER_SQL = """
+            INSERT INTO users (id, email, password, first_name, last_name,
+                               enabled, account_non_locked, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (email) DO NOTHING
+            """;
+
+    /**
+     * Usuario + roles en una sola sentencia (CTEs de escritura de Postgres).
+     * Si el email ya existe, new_user queda vacío y tampoco se insertan roles.
+     * Devuelve las filas insertadas en users (0 o 1).
+     */
+    private static final String INSERT_USER_IF_ABSENT_SQL = """
+            WITH new_user AS (
+                INSERT INTO users (id, email, password, first_name, last_name,
+                                   enabled, account_non_locked, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+            ), new_roles AS (
+                INSERT INTO user_roles (user_id, role_id)
+                SELECT new_user.id, role_id FROM new_user CROSS JOIN unnest(?::uuid[]) AS role_id
+            )
+            SELECT count(*) FROM new_user
+            """;
+
+    private static final String INSERT_USER_ROLE_SQL =
+            "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)";
+
+    public UserRepositoryAdapter (
+            UserJpaRepository jpaRepository,
+            UserMapper mapper,
+            UserVersionTracker userVersionTracker,
+            JdbcTemplate jdbcTemplate
+    ) {
         this.jpaRepository = jpaRepository;
         this.mapper = mapper;
+        this.userVersionTracker = userVersionTracker;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     /**
@@ -54,7 +106,8 @@ public class UserRepositoryAdapter implements UserRepository {
      * 1. Convierte User (domain) a UserEntity (JPA)
      * 2. Guarda con JPA (inserta o actualiza según si existe el ID)
      * 3. Convierte UserEntity guardado de vuelta a User
-     * 4. Retorna User con datos actualizados (timestamps, etc)
+     * 4. Registra la nueva versión del usuario (invalida claims de tokens anteriores)
+     * 5. Retorna User con datos actualizados (timestamps, etc)
      *
      * Nota: JPA automáticamente detecta si es INSERT o UPDATE:
      * - Si entity.id es null o no existe en BD → INSERT
@@ -69,7 +122,11 @@ public class UserRepositoryAdapter implements UserRepository {
 
         UserEntity savedEntity = jpaRepository.save(entity);
 
-        return mapper.toDomain(savedEntity);
+        User savedUser = mapper.toDomain(savedEntity);
+
+        userVersionTracker.recordChange(savedUser);
+
+        return savedUser;
     }
 
     /**
@@ -180,6 +237,109 @@ public class UserRepositoryAdapter implements UserRepository {
         return jpaRepository.existsByEmail(email);
     }
 
+    /**
+     * Emails del conjunto que ya están registrados.
+     *
+     * Query ejecutada:
+     * {@code SELECT email FROM users WHERE email IN (?, ?, ...)}
+     *
+     * @param emails Emails a verificar
+     * @return Subconjunto de emails existentes
+     */
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        return jpaRepository.findExistingEmails(emails);
+    }
+
+    /**
+     * Inserta usuario y roles en una única ida a la BD.
+     *
+     * Frente a save():
+     * - Sin SELECT previo del merge de JPA (el id viene asignado por User.create)
+     * - Sin existsByEmail previo: ON CONFLICT sobre la restricción UNIQUE
+     *   decide, también con dos registros concurrentes del mismo email
+     * - users y user_roles en la misma sentencia (atómica sin transacción explícita)
+     *
+     * @param user Usuario nuevo con sus roles
+     * @return true si se insertó, false si el email ya existía
+     */
+    @Override
+    public boolean insertIfAbsent(User user) {
+        Long inserted = jdbcTemplate.queryForObject(
+                INSERT_USER_IF_ABSENT_SQL,
+                Long.class,
+                user.getId(),
+                user.getEmail(),
+                user.getPassword(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.isEnabled(),
+                user.isAccountNonLocked(),
+                Timestamp.valueOf(user.getCreatedAt()),
+                Timestamp.valueOf(user.getUpdatedAt()),
+                user.getRoles().stream().map(role -> role.getId()).toArray(UUID[]::new)
+        );
+
+        if (inserted == null || inserted == 0) {
+            return false;
+        }
+
+        userVersionTracker.recordChange(user);
+        return true;
+    }
+
+    /**
+     * Inserta usuarios y sus roles con JDBC batch, en una transacción.
+     *
+     * Frente a jpaRepository.saveAll:
+     * - Sin SELECT previo por entidad (merge) ni entidades en el contexto de persistencia
+     * - Una ida a la BD por BATCH_SIZE filas (con reWriteBatchedInserts el driver
+     *   las agrupa en INSERTs multi-fila)
+     *
+     * ON CONFLICT (email) DO NOTHING: un email registrado entretanto no aborta el lote.
+     * Los recuentos del batch no son fiables con reWriteBatchedInserts, así que los
+     * insertados se identifican por id (los ids los genera User.create).
+     *
+     * @param users Usuarios nuevos con sus roles
+     * @return IDs realmente insertados
+     */
+    @Override
+    @Transactional
+    public Set<UUID> insertAll(List<User> users) {
+        if (users.isEmpty()) {
+            return Set.of();
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_USER_SQL, users, BATCH_SIZE, (ps, user) -> {
+            ps.setObject(1, user.getId());
+            ps.setString(2, user.getEmail());
+            ps.setString(3, user.getPassword());
+            ps.setString(4, user.getFirstName());
+            ps.setString(5, user.getLastName());
+            ps.setBoolean(6, user.isEnabled());
+            ps.setBoolean(7, user.isAccountNonLocked());
+            ps.setTimestamp(8, Timestamp.valueOf(user.getCreatedAt()));
+            ps.setTimestamp(9, Timestamp.valueOf(user.getUpdatedAt()));
+        });
+
+        Set<UUID> inserted = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE id = ANY (?)",
+                UUID.class,
+                (Object) users.stream().map(User::getId).toArray(UUID[]::new)
+        ));
+
+        List<Object[]> userRoles = new ArrayList<>();
+        for (User user : users) {
+            if (inserted.contains(user.getId())) {
+                user.getRoles().forEach(role -> userRoles.add(new Object[]{user.getId(), role.getId()}));
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_USER_ROLE_SQL, userRoles);
+
+        return inserted;
+    }
+
     /**
      * Verifica si existe un usuario con el Id dado.
      *
@@ -198,6 +358,24 @@ public class UserRepositoryAdapter implements UserRepository {
     }
 
 
+    /**
+     * Actualiza el hash de la contraseña si no ha cambiado desde que se leyó.
+     *
+     * Query ejecutada:
+     * {@code UPDATE users SET password = ? WHERE id = ? AND password = ?}
+     *
+     * No registra nueva versión del usuario: updated_at no cambia.
+     *
+     * @param id UUID del usuario
+     * @param currentPassword Hash esperado
+     * @param newPassword Nuevo hash
+     * @return true si se actualizó una fila
+     */
+    @Override
+    public boolean updatePasswordHash(UUID id, String currentPassword, String newPassword) {
+        return jpaRepository.updatePasswordHash(id, currentPassword, newPassword) > 0;
+    }
+
     /**
      * Elimina un usuario por ID.
      *
@@ -214,5 +392,8 @@ public class UserRepositoryAdapter implements UserRepository {
     @Override
     public void deleteById(UUID id){
         jpaRepository.deleteById(id);
+
+        // Los tokens emitidos antes del borrado dejan de ser fiables
+        userVersionTracker.recordChange(id, System.currentTimeMillis());
     }
 }
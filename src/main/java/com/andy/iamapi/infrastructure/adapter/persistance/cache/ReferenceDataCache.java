@@ -0,0 +1,285 @@
+package com.andy.iamapi.infrastructure.adapter.persistance.cache;
+
+import com.andy.iamapi.domain.model.Permission;
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.infrastructure.adapter.persistance.mapper.PermissionMapper;
+import com.andy.iamapi.infrastructure.adapter.persistance.mapper.RoleMapper;
+import com.andy.iamapi.infrastructure.adapter.persistance.repository.PermissionJpaRepository;
+import com.andy.iamapi.infrastructure.adapter.persistance.repository.RoleJpaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copia en memoria de roles y permisos (datos de referencia).
+ *
+ * Roles y permisos cambian muy pocas veces, pero se leen en cada registro,
+ * asignación de rol y listado de roles. Con esta caché esas lecturas no tocan la BD:
+ * RoleRepositoryAdapter y PermissionRepositoryAdapter leen del snapshot y solo
+ * las escrituras van a Postgres.
+ *
+ * Snapshot:
+ * - Se carga entero (2 queries: permisos y roles con sus permisos) y se sustituye
+ *   de golpe: un lector ve el snapshot anterior o el nuevo, nunca uno a medias
+ * - Se carga en el primer acceso y se recarga:
+ *   - Tras el commit de cada escritura en roles o permisos (invalidate)
+ *   - Al recibir una invalidación de otra instancia (pub/sub en INVALIDATION_CHANNEL)
+ *   - Cada reference-data.refresh-interval, por cambios hechos fuera de la API
+ *     (migraciones, SQL manual) o mensajes pub/sub perdidos
+ * - Varias cargas pueden solaparse (dos invalidaciones seguidas, la periódica...).
+ *   Cada carga toma un número de generación al empezar y solo se instala si es
+ *   posterior a la del snapshot vigente: una carga lenta que empezó antes (y leyó
+ *   datos más antiguos) nunca sustituye a una más reciente
+ *
+ * Los objetos del dominio son mutables (Role.addPermission): se devuelven copias
+ * para que un llamante no pueda modificar el snapshot compartido.
+ *
+ * Cada recarga publica ReferenceDataReloadedEvent (ej: PermissionIndex se reconstruye).
+ */
+@Component
+public class ReferenceDataCache implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    /**
+     * Canal pub/sub de invalidaciones.
+     * Mensaje: id de la instancia que hizo la escritura (ella ya ha recargado).
+     */
+    public static final String INVALIDATION_CHANNEL = "reference-data:invalidations";
+
+    private final RoleJpaRepository roleJpaRepository;
+    private final PermissionJpaRepository permissionJpaRepository;
+    private final RoleMapper roleMapper;
+    private final PermissionMapper permissionMapper;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean broadcastEnabled;
+
+    /**
+     * Identifica a esta instancia en los mensajes pub/sub.
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Generación de la última carga iniciada.
+     */
+    private final AtomicLong generations = new AtomicLong();
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    public ReferenceDataCache(
+            RoleJpaRepository roleJpaRepository,
+            PermissionJpaRepository permissionJpaRepository,
+            RoleMapper roleMapper,
+            PermissionMapper permissionMapper,
+            RedisTemplate<String, String> redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${reference-data.broadcast-enabled:true}") boolean broadcastEnabled
+    ) {
+        this.roleJpaRepository = roleJpaRepository;
+        this.permissionJpaRepository = permissionJpaRepository;
+        this.roleMapper = roleMapper;
+        this.permissionMapper = permissionMapper;
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        this.broadcastEnabled = broadcastEnabled;
+
+        if (broadcastEnabled) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+        }
+    }
+
+    public Optional<Role> findRoleById(UUID id) {
+        return Optional.ofNullable(current().rolesById().get(id)).map(ReferenceDataCache::copy);
+    }
+
+    public Optional<Role> findRoleByName(String name) {
+        return Optional.ofNullable(current().rolesByName().get(name)).map(ReferenceDataCache::copy);
+    }
+
+    public List<Role> allRoles() {
+        return current().rolesById().values().stream().map(ReferenceDataCache::copy).toList();
+    }
+
+    public Optional<Permission> findPermissionById(UUID id) {
+        return Optional.ofNullable(current().permissionsById().get(id));
+    }
+
+    public Optional<Permission> findPermissionByName(String name) {
+        return Optional.ofNullable(current().permissionsByName().get(name));
+    }
+
+    public Collection<Permission> allPermissions() {
+        return current().permissionsById().values();
+    }
+
+    /**
+     * Programa la recarga tras una escritura en roles o permisos.
+     *
+     * Dentro de una transacción se recarga después del commit (antes se leería
+     * el estado anterior, y si hay rollback no hay nada que recargar).
+     * Fuera de ella, la escritura ya está confirmada y se recarga al momento.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reloadAndBroadcast();
+                }
+            });
+        } else {
+            reloadAndBroadcast();
+        }
+    }
+
+    /**
+     * Recarga periódica como red de seguridad.
+     */
+    @Scheduled(
+            initialDelayString = "${reference-data.refresh-interval:10m}",
+            fixedDelayString = "${reference-data.refresh-interval:10m}"
+    )
+    public void refresh() {
+        reload();
+    }
+
+    /**
+     * Recibe las invalidaciones de otras instancias.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String sender = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        if (!instanceId.equals(sender)) {
+            log.debug("Reference data invalidated by instance {}", sender);
+            reload();
+        }
+    }
+
+    private void reloadAndBroadcast() {
+        reload();
+
+        if (broadcastEnabled) {
+            try {
+                redisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId);
+            } catch (RuntimeException e) {
+                // Las demás instancias lo verán en su recarga periódica
+                log.warn("Could not broadcast reference data invalidation: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Snapshot actual, cargándolo si es el primer acceso.
+     *
+     * Sin snapshot no hay a qué volver: si la carga falla, el error llega al llamante.
+     */
+    private Snapshot current() {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            current = install(load());
+        }
+        return current;
+    }
+
+    /**
+     * Recarga el snapshot. Si falla se mantiene el anterior.
+     */
+    private void reload() {
+        try {
+            Snapshot loaded = load();
+            if (install(loaded) == loaded) {
+                eventPublisher.publishEvent(new ReferenceDataReloadedEvent());
+            } else {
+                log.debug("Reference data load {} superseded by a later one, discarding", loaded.generation());
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not reload reference data, keeping previous snapshot", e);
+        }
+    }
+
+    /**
+     * Instala el snapshot salvo que el vigente venga de una carga posterior.
+     *
+     * @return El snapshot vigente tras la operación
+     */
+    private Snapshot install(Snapshot loaded) {
+        return snapshot.accumulateAndGet(loaded, (installed, candidate) ->
+                installed == null || candidate.generation() > installed.generation() ? candidate : installed);
+    }
+
+    private Snapshot load() {
+        long generation = generations.incrementAndGet();
+
+        Map<UUID, Permission> permissionsById = new HashMap<>();
+        Map<String, Permission> permissionsByName = new HashMap<>();
+        permissionJpaRepository.findAll().stream()
+                .map(permissionMapper::toDomain)
+                .forEach(permission -> {
+                    permissionsById.put(permission.getId(), permission);
+                    permissionsByName.put(permission.getName(), permission);
+                });
+
+        Map<UUID, Role> rolesById = new HashMap<>();
+        Map<String, Role> rolesByName = new HashMap<>();
+        roleJpaRepository.findAllWithPermissions().stream()
+                .map(roleMapper::toDomain)
+                .forEach(role -> {
+                    rolesById.put(role.getId(), role);
+                    rolesByName.put(role.getName(), role);
+                });
+
+        log.info("Reference data loaded: {} roles, {} permissions", rolesById.size(), permissionsById.size());
+
+        return new Snapshot(
+                generation,
+                Map.copyOf(rolesById),
+                Map.copyOf(rolesByName),
+                Map.copyOf(permissionsById),
+                Map.copyOf(permissionsByName)
+        );
+    }
+
+    /**
+     * Permission no tiene setters: solo el rol (y su set de permisos) necesita copia.
+     */
+    private static Role copy(Role role) {
+        Role copy = Role.reconstitute(role.getId(), role.getName(), role.getDescription());
+        role.getPermissions().forEach(copy::addPermission);
+        return copy;
+    }
+
+    private record Snapshot(
+            long generation,
+            Map<UUID, Role> rolesById,
+            Map<String, Role> rolesByName,
+            Map<UUID, Permission> permissionsById,
+            Map<String, Permission> permissionsByName
+    ) {}
+
+    /**
+     * Evento publicado tras cada recarga del snapshot.
+     */
+    public record ReferenceDataReloadedEvent() {}
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -26,6 +27,9 @@ public interface RoleJpaRepository extends JpaRepository<RoleEntity, UUID> {
     @Query("SELECT r FROM RoleEntity r LEFT JOIN FETCH r.permissions WHERE r.name =: name")
     Optional<RoleEntity> findByNameWithPermissions(@Param("name") String name);
 
+    @Query("SELECT DISTINCT r FROM RoleEntity r LEFT JOIN FETCH r.permissions")
+    List<RoleEntity> findAllWithPermissions();
+
 
 
 }
@@ -3,11 +3,15 @@ package com.andy.iamapi.infrastructure.adapter.persistance.repository;
 import com.andy.iamapi.infrastructure.adapter.persistance.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -38,4 +42,20 @@ public interface UserJpaRepository extends
 
     @Query("SELECT u FROM UserEntity u LEFT JOIN FETCH u.roles WHERE u.id =: id")
     Optional<UserEntity> findByIdWithRoles(@Param("id") UUID id);
+
+    @Query("SELECT u.email FROM UserEntity u WHERE u.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Update directo (sin cargar la entidad ni disparar PreUpdate).
+     * Solo actualiza si el hash actual coincide (compare-and-set).
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserEntity u SET u.password = :newPassword WHERE u.id = :id AND u.password = :currentPassword")
+    int updatePasswordHash(
+            @Param("id") UUID id,
+            @Param("currentPassword") String currentPassword,
+            @Param("newPassword") String newPassword
+    );
 }
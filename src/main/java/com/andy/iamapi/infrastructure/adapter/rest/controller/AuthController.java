@@ -259,6 +259,10 @@ public class AuthController {
                  **⚠️ Rate Limiting:**
                  Máximo **5 intentos por minuto** por IP.
                  Si se supera, retorna `429 Too Many Requests`.
+
+                 **⚠️ Bloqueo temporal:**
+                 Tras **5 logins fallidos** en 15 minutos la cuenta se bloquea 15 minutos
+                 (20 fallos para una IP). Mientras dura retorna `429` con header `Retry-After`.
                 """
 )
 @ApiResponses(value = {
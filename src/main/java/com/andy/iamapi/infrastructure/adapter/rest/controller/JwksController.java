@@ -0,0 +1,100 @@
+package com.andy.iamapi.infrastructure.adapter.rest.controller;
+
+import com.andy.iamapi.infrastructure.adapter.security.SigningKeyRing;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Controller REST que publica las claves públicas de firma (JWK Set).
+ *
+ * Los servicios downstream descargan el JWKS, lo cachean y verifican
+ * los tokens localmente por su kid, sin llamar al IAM en cada request.
+ *
+ * Cacheo:
+ * - Cache-Control público con max-age (jwt.signing.jwks-max-age)
+ * - ETag con los kid publicados → 304 Not Modified si no hay cambios
+ *
+ * 2 × max-age + jwt.signing.jwks-refresh debe ser menor que jwt.signing.rotation-interval:
+ * las claves se publican dos max-age (max-age + stale-while-revalidate) más un
+ * jwks-refresh (lo que tarda este endpoint en dejar de servir su JWKS calculado)
+ * antes de usarse, así que un JWKS cacheado siempre contiene la clave con la que se firma.
+ */
+@RestController
+@Tag(
+        name = "JWKS",
+        description = "Claves públicas para verificar los tokens JWT"
+)
+public class JwksController {
+
+    private final SigningKeyRing keyRing;
+    private final CacheControl cacheControl;
+
+    public JwksController(
+            SigningKeyRing keyRing,
+            @Value("${jwt.signing.jwks-max-age:5m}") Duration maxAge
+    ) {
+        this.keyRing = keyRing;
+        this.cacheControl = CacheControl.maxAge(maxAge)
+                .cachePublic()
+                .staleWhileRevalidate(maxAge)
+                .staleIfError(Duration.ofHours(1));
+    }
+
+    /**
+     * Devuelve el JWK Set con las claves públicas vigentes.
+     *
+     * Vacío si los tokens se firman con HS256 (la clave simétrica no se publica).
+     *
+     * @param request Request para comprobar If-None-Match
+     * @return JWK Set, o 304 si el cliente ya tiene la versión actual
+     */
+    @GetMapping("/.well-known/jwks.json")
+    @Operation(
+            summary = "Claves públicas de firma (JWKS)",
+            description = "JWK Set (RFC 7517) con las claves públicas vigentes, identificadas por kid."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "JWK Set"),
+            @ApiResponse(responseCode = "304", description = "El JWKS no ha cambiado")
+    })
+    public ResponseEntity<Map<String, Object>> jwks(WebRequest request) {
+        Map<String, Object> jwks = keyRing.jwks();
+        String etag = etag(jwks);
+
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(304).cacheControl(cacheControl).eTag(etag).build();
+        }
+
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(etag)
+                .body(jwks);
+    }
+
+    /**
+     * ETag derivado de los kid publicados (cambian con cada rotación).
+     */
+    @SuppressWarnings("unchecked")
+    private static String etag(Map<String, Object> jwks) {
+        List<Map<String, Object>> keys = (List<Map<String, Object>>) jwks.get("keys");
+
+        String kids = keys.stream()
+                .map(key -> String.valueOf(key.get("kid")))
+                .collect(Collectors.joining(","));
+
+        return "\"" + Integer.toHexString(kids.hashCode()) + "\"";
+    }
+}
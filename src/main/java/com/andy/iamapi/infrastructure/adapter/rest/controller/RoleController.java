@@ -40,7 +40,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
  * - GET /api/roles - Listar todos los roles del sistema
  * - GET /api/roles/{id} - Obtener un rol específico por ID
  *
- * Todos los endpoints requieren autenticación JWT y rol ROLE_ADMIN.
+ * Todos los endpoints requieren autenticación JWT, rol ROLE_ADMIN y el permiso ROLE_READ.
  *
  * Roles predefinidos en el sistema:
  * - ROLE_USER: Usuario estándar del sistema
@@ -82,7 +82,7 @@ public class RoleController {
      * @return RoleListResponse con todos los roles y sus permisos
      */
     @GetMapping()
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PreAuthorize("hasRole('ROLE_ADMIN') and @permissions.has(authentication, 'ROLE_READ')")
     @Operation(
             summary = "Listar todos los roles",
             description = """
@@ -221,7 +221,7 @@ public class RoleController {
      * @return RoleResponse con los datos del rol y sus permisos
      */
     @GetMapping("/{id}")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PreAuthorize("hasRole('ROLE_ADMIN') and @permissions.has(authentication, 'ROLE_READ')")
     @Operation(
             summary = "Obtener rol por ID",
             description = """
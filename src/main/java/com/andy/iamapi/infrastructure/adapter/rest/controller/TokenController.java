@@ -0,0 +1,124 @@
+package com.andy.iamapi.infrastructure.adapter.rest.controller;
+
+import com.andy.iamapi.domain.port.input.IntrospectTokensUseCase;
+import com.andy.iamapi.domain.port.input.IntrospectTokensUseCase.TokenIntrospection;
+import com.andy.iamapi.infrastructure.adapter.rest.dto.request.IntrospectTokensRequest;
+import com.andy.iamapi.infrastructure.adapter.rest.dto.response.IntrospectTokensResponse;
+import com.andy.iamapi.infrastructure.adapter.rest.dto.response.TokenIntrospectionResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Controller REST para la introspección de tokens.
+ *
+ * Pensado para gateways y servicios internos que necesitan conocer el
+ * estado de revocación de los tokens (la firma la pueden verificar con el JWKS,
+ * pero la revocación solo la conoce el IAM).
+ */
+@RestController
+@RequestMapping("/api/tokens")
+@Tag(
+        name = "Tokens",
+        description = "Introspección de tokens para servicios internos"
+)
+public class TokenController {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenController.class);
+
+    private final IntrospectTokensUseCase introspectTokensUseCase;
+
+    /**
+     * Máximo tiempo que un cliente puede cachear el resultado.
+     * Es la ventana en la que una revocación puede no verse en el cliente.
+     */
+    private final Duration maxCacheAge;
+
+    public TokenController(
+            IntrospectTokensUseCase introspectTokensUseCase,
+            @Value("${jwt.introspection.max-cache-age:30s}") Duration maxCacheAge
+    ) {
+        this.introspectTokensUseCase = introspectTokensUseCase;
+        this.maxCacheAge = maxCacheAge;
+    }
+
+    /**
+     * Introspecciona hasta 100 tokens en una sola llamada.
+     *
+     * Cache-Control max-age = mínimo entre jwt.introspection.max-cache-age
+     * y lo que le queda al token activo que antes expira: un resultado
+     * "active" nunca se cachea más allá de la expiración del token.
+     *
+     * @param request Lista de tokens
+     * @return Un resultado por token, en el mismo orden
+     */
+    @PostMapping("/introspect")
+    @PreAuthorize("hasRole('ROLE_SERVICE') or hasRole('ROLE_ADMIN')")
+    @Operation(
+            summary = "Introspección de tokens en lote",
+            description = """
+                    Valida varios tokens (firma, expiración y revocación) en una sola llamada.
+
+                    **Respuesta (estilo RFC 7662):**
+                    - Token válido: active=true, sub, uid, roles, jti, iat, exp
+                    - Token inválido, expirado o revocado: solo active=false
+
+                    **Cacheo:** el header Cache-Control indica cuánto tiempo puede
+                    reutilizarse el resultado (nunca más allá de la expiración de los tokens).
+
+                    **Requiere rol:** ROLE_SERVICE o ROLE_ADMIN
+                    """
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resultado por token"),
+            @ApiResponse(responseCode = "400", description = "Lista vacía o más de 100 tokens"),
+            @ApiResponse(responseCode = "403", description = "Sin rol ROLE_SERVICE ni ROLE_ADMIN")
+    })
+    public ResponseEntity<IntrospectTokensResponse> introspect(
+            @Valid @RequestBody IntrospectTokensRequest request
+    ) {
+        List<TokenIntrospection> introspections = introspectTokensUseCase.execute(request.toCommand());
+
+        List<TokenIntrospectionResponse> results = introspections.stream()
+                .map(TokenIntrospectionResponse::fromDomain)
+                .toList();
+
+        log.debug("Token introspection requested for {} tokens", results.size());
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(cacheAge(introspections)).cachePrivate())
+                .body(new IntrospectTokensResponse(results));
+    }
+
+    private Duration cacheAge(List<TokenIntrospection> introspections) {
+        Instant now = Instant.now();
+        Duration age = maxCacheAge;
+
+        for (TokenIntrospection introspection : introspections) {
+            if (introspection.active() && introspection.expiresAt() != null) {
+                Duration remaining = Duration.between(now, introspection.expiresAt());
+                if (remaining.compareTo(age) < 0) {
+                    age = remaining.isNegative() ? Duration.ZERO : remaining;
+                }
+            }
+        }
+
+        return age;
+    }
+}
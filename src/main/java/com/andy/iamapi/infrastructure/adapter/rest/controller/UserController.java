@@ -53,7 +53,8 @@ import io.swagger.v3.oas.annotations.tags.Tag;
  * - Asignar/revocar roles (solo admins)
  *
  * Todos los endpoints requieren autenticación JWT.
- * Algunos endpoints tienen restricciones adicionales de autorización (ROLE_ADMIN).
+ * Algunos endpoints tienen restricciones adicionales de autorización (ROLE_ADMIN y el
+ * permiso correspondiente, comprobado como test de bit por PermissionChecker).
  */
 @RestController
 @RequestMapping("/api/users")
@@ -191,7 +192,7 @@ public class UserController {
      * @return PageResponse con los usuarios encontrados y metadata de paginación
      */
     @GetMapping
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PreAuthorize("hasRole('ROLE_ADMIN') and @permissions.has(authentication, 'USER_READ')")
     @Operation(
             summary = "Listar usuarios con paginación y filtros",
             description = """
@@ -349,7 +350,7 @@ public class UserController {
      * @return UserResponse con los datos del usuario
      */
     @GetMapping("/{id}")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PreAuthorize("hasRole('ROLE_ADMIN') and @permissions.has(authentication, 'USER_READ')")
     @Operation(
             summary = "Obtener usuario por ID",
             description = """
@@ -428,7 +429,7 @@ public class UserController {
      * @return UserResponse con los datos actualizados
      */
     @PutMapping("/{id}")
-    @PreAuthorize("hasRole('ROLE_ADMIN') or #id == authentication.principal.id")
+    @PreAuthorize("(hasRole('ROLE_ADMIN') and @permissions.has(authentication, 'USER_WRITE')) or #id == authentication.principal.id")
     @Operation(
             summary = "Actualizar usuario",
             description = """
@@ -633,7 +634,7 @@ public class UserController {
      * @return 204 No Content si es exitoso
      */
     @DeleteMapping("/{id}")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PreAuthorize("hasRole('ROLE_ADMIN') and @permissions.has(authentication, 'USER_DELETE')")
     @Operation(
             summary = "Eliminar usuario",
             description = """
@@ -708,7 +709,7 @@ public class UserController {
      * @return 204 No Content si es exitoso
      */
     @PostMapping("/{userId}/roles/{roleId}")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PreAuthorize("hasRole('ROLE_ADMIN') and @permissions.has(authentication, 'ROLE_ASSIGN')")
     @Operation(
             summary = "Asignar rol a usuario",
             description = """
@@ -797,7 +798,7 @@ public class UserController {
      * @return 204 No Content si es exitoso
      */
     @DeleteMapping("/{userId}/roles/{roleId}")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PreAuthorize("hasRole('ROLE_ADMIN') and @permissions.has(authentication, 'ROLE_ASSIGN')")
     @Operation(
             summary = "Revocar rol de usuario",
             description = """
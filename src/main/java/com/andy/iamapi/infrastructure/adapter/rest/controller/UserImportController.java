@@ -0,0 +1,135 @@
+package com.andy.iamapi.infrastructure.adapter.rest.controller;
+
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase;
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.ImportResult;
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.ImportUsersCommand;
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.UserImportRow;
+import com.andy.iamapi.infrastructure.adapter.rest.dto.response.ImportUsersResponse;
+import com.andy.iamapi.infrastructure.adapter.rest.parser.UserImportParser;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import static com.andy.iamapi.domain.util.IpAddressUtil.getClientIp;
+
+/**
+ * Controller REST para la importación masiva de usuarios.
+ *
+ * El cuerpo NO se deserializa con @RequestBody: se lee del stream fila a fila
+ * (UserImportParser), así que el tamaño de la importación no depende de la memoria.
+ *
+ * Requiere rol ROLE_ADMIN.
+ */
+@RestController
+@RequestMapping("/api/users/import")
+@Tag(
+        name = "Users",
+        description = "Gestión completa de usuarios del sistema."
+)
+@SecurityRequirement(name = "Bearer Authentication")
+public class UserImportController {
+    private static final Logger log = LoggerFactory.getLogger(UserImportController.class);
+
+    private static final String TEXT_CSV = "text/csv";
+
+    private final ImportUsersUseCase importUsersUseCase;
+    private final UserImportParser parser;
+
+    public UserImportController(ImportUsersUseCase importUsersUseCase, UserImportParser parser) {
+        this.importUsersUseCase = importUsersUseCase;
+        this.parser = parser;
+    }
+
+    /**
+     * Importa usuarios desde un array JSON.
+     *
+     * @param request Request con el array de usuarios en el cuerpo
+     * @return Resumen y resultado por fila
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ROLE_ADMIN') and @permissions.has(authentication, 'USER_WRITE')")
+    @Operation(
+            summary = "Importar usuarios (JSON)",
+            description = """
+                    Crea usuarios en lote a partir de un array JSON:
+                    `[{"email", "password", "firstName", "lastName"}, ...]`
+
+                    **Comportamiento:**
+                    - Cada fila se valida con las mismas reglas que el registro
+                    - Filas inválidas o con email ya registrado no detienen la importación
+                    - Todos los usuarios reciben ROLE_USER
+                    - Se procesa por bloques: un bloque ya importado no se deshace si otro falla
+                    - Si el cuerpo se rompe a mitad, se importan las filas leídas y `error` indica el motivo
+                    - Como mucho `user-import.max-rows` filas por request (10000 por defecto): las siguientes
+                      no se leen y `error` lo indica. Importaciones mayores, en varios requests
+
+                    **Requiere rol:** ROLE_ADMIN
+                    """
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resumen y resultado por fila (CREATED, SKIPPED, INVALID)"),
+            @ApiResponse(responseCode = "400", description = "Cuerpo mal formado desde el principio (no es un array JSON)"),
+            @ApiResponse(responseCode = "403", description = "Sin rol ROLE_ADMIN"),
+            @ApiResponse(responseCode = "503", description = "Pool de hashing saturado")
+    })
+    public ResponseEntity<ImportUsersResponse> importJson(HttpServletRequest request) throws IOException {
+        return importRows(parser.parseJson(request.getInputStream()), request);
+    }
+
+    /**
+     * Importa usuarios desde un CSV con cabecera email,password,firstName,lastName.
+     *
+     * @param request Request con el CSV en el cuerpo
+     * @return Resumen y resultado por fila
+     */
+    @PostMapping(consumes = TEXT_CSV)
+    @PreAuthorize("hasRole('ROLE_ADMIN') and @permissions.has(authentication, 'USER_WRITE')")
+    @Operation(
+            summary = "Importar usuarios (CSV)",
+            description = """
+                    Igual que la importación JSON, con un CSV (UTF-8) cuya primera línea es la cabecera:
+                    `email,password,firstName,lastName` (en cualquier orden).
+
+                    Los campos con comas, comillas o saltos de línea van entre comillas dobles (RFC 4180).
+
+                    **Requiere rol:** ROLE_ADMIN
+                    """
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resumen y resultado por fila (CREATED, SKIPPED, INVALID)"),
+            @ApiResponse(responseCode = "400", description = "Cabecera ausente o incompleta"),
+            @ApiResponse(responseCode = "403", description = "Sin rol ROLE_ADMIN"),
+            @ApiResponse(responseCode = "503", description = "Pool de hashing saturado")
+    })
+    public ResponseEntity<ImportUsersResponse> importCsv(HttpServletRequest request) throws IOException {
+        return importRows(parser.parseCsv(request.getInputStream()), request);
+    }
+
+    private ResponseEntity<ImportUsersResponse> importRows(Iterator<UserImportRow> rows, HttpServletRequest request) {
+        User admin = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+
+        log.info("User import started by admin: {}", admin.getId());
+
+        ImportResult result = importUsersUseCase.execute(
+                new ImportUsersCommand(rows, admin.getId(), getClientIp(request))
+        );
+
+        return ResponseEntity.ok(ImportUsersResponse.fromDomain(result));
+    }
+}
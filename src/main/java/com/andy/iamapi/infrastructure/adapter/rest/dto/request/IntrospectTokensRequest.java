@@ -0,0 +1,24 @@
+package com.andy.iamapi.infrastructure.adapter.rest.dto.request;
+
+import com.andy.iamapi.domain.port.input.IntrospectTokensUseCase.IntrospectTokensCommand;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO para solicitud de introspección de tokens en lote.
+ */
+public record IntrospectTokensRequest(
+        @NotEmpty(message = "At least one token is required")
+        @Size(max = 100, message = "At most 100 tokens per request")
+        List<@NotBlank(message = "Token cannot be blank") String> tokens
+) {
+    /**
+     * Convierte el DTO a Command del dominio.
+     */
+    public IntrospectTokensCommand toCommand() {
+        return new IntrospectTokensCommand(tokens);
+    }
+}
@@ -0,0 +1,26 @@
+package com.andy.iamapi.infrastructure.adapter.rest.dto.response;
+
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.RowResult;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * DTO con el resultado de una fila de la importación.
+ *
+ * message solo aparece en filas no creadas (motivo del descarte).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportRowResponse(
+        int row,
+        String email,
+        String status, // CREATED | SKIPPED | INVALID
+        String message
+) {
+    public static ImportRowResponse fromDomain(RowResult result) {
+        return new ImportRowResponse(
+                result.rowNumber(),
+                result.email(),
+                result.status().name(),
+                result.message()
+        );
+    }
+}
@@ -0,0 +1,33 @@
+package com.andy.iamapi.infrastructure.adapter.rest.dto.response;
+
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.ImportResult;
+
+import java.util.List;
+
+/**
+ * DTO de respuesta de una importación masiva de usuarios.
+ *
+ * rows está en el orden de las filas del fichero.
+ * error indica que el cuerpo se cortó a mitad: rows cubre solo lo leído hasta ahí.
+ */
+public record ImportUsersResponse(
+        long total,
+        long created,
+        long skipped,
+        long invalid,
+        List<ImportRowResponse> rows,
+        String error
+) {
+    public static ImportUsersResponse fromDomain(ImportResult result) {
+        return new ImportUsersResponse(
+                result.total(),
+                result.created(),
+                result.skipped(),
+                result.invalid(),
+                result.rows().stream()
+                        .map(ImportRowResponse::fromDomain)
+                        .toList(),
+                result.error()
+        );
+    }
+}
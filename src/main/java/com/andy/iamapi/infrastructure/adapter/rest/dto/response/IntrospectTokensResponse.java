@@ -0,0 +1,12 @@
+package com.andy.iamapi.infrastructure.adapter.rest.dto.response;
+
+import java.util.List;
+
+/**
+ * DTO de respuesta para la introspección de tokens en lote.
+ *
+ * results está en el mismo orden que los tokens de la solicitud.
+ */
+public record IntrospectTokensResponse(
+        List<TokenIntrospectionResponse> results
+) {}
@@ -0,0 +1,43 @@
+package com.andy.iamapi.infrastructure.adapter.rest.dto.response;
+
+import com.andy.iamapi.domain.port.input.IntrospectTokensUseCase.TokenIntrospection;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO de respuesta para la introspección de un token.
+ *
+ * Nombres de campos según RFC 7662 (active, sub, jti, iat, exp en segundos epoch).
+ * Los tokens inactivos solo devuelven {"active": false}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TokenIntrospectionResponse(
+        boolean active,
+        String sub,
+        UUID uid,
+        List<String> roles,
+        String jti,
+        Long iat,
+        Long exp
+) {
+    /**
+     * Convierte el resultado del dominio a DTO.
+     */
+    public static TokenIntrospectionResponse fromDomain(TokenIntrospection introspection) {
+        if (!introspection.active()) {
+            return new TokenIntrospectionResponse(false, null, null, null, null, null, null);
+        }
+
+        return new TokenIntrospectionResponse(
+                true,
+                introspection.email(),
+                introspection.userId(),
+                introspection.roles(),
+                introspection.tokenId(),
+                introspection.issuedAt() != null ? introspection.issuedAt().getEpochSecond() : null,
+                introspection.expiresAt() != null ? introspection.expiresAt().getEpochSecond() : null
+        );
+    }
+}
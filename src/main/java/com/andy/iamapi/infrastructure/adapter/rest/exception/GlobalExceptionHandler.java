@@ -5,6 +5,7 @@ import com.andy.iamapi.infrastructure.adapter.rest.dto.response.ErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -235,6 +236,64 @@ public class GlobalExceptionHandler {
                 .body(errorResponse);
     }
 
+    /**
+     * Maneja LoginTemporarilyLockedException.
+     *
+     * Se lanza cuando la cuenta o la IP superaron el máximo de logins fallidos.
+     * El bloqueo se levanta solo.
+     *
+     * Retorna 429 Too Many Requests con Retry-After.
+     */
+    @ExceptionHandler(LoginTemporarilyLockedException.class)
+    public ResponseEntity<ErrorResponse> handleLoginTemporarilyLocked(
+            LoginTemporarilyLockedException ex,
+            HttpServletRequest request
+    ) {
+
+        log.warn("Temporarily locked login attempt from {}", request.getRemoteAddr());
+
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                "Too Many Requests",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
+    /**
+     * Maneja ServiceOverloadedException.
+     *
+     * Se lanza cuando el pool de hashing de contraseñas está saturado
+     * (login y registro en ráfaga).
+     *
+     * Retorna 503 Service Unavailable con Retry-After.
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloaded(
+            ServiceOverloadedException ex,
+            HttpServletRequest request
+    ) {
+
+        log.warn("Service overloaded for request to {}", request.getRequestURI());
+
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Service Unavailable",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
     /**
      * Maneja IllegalArgumentException.
      *
@@ -0,0 +1,279 @@
+package com.andy.iamapi.infrastructure.adapter.rest.parser;
+
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.UserImportRow;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Lee el cuerpo de una importación de usuarios fila a fila.
+ *
+ * Formatos soportados:
+ * - JSON: array de objetos {"email", "password", "firstName", "lastName"}
+ * - CSV: cabecera con esas columnas (en cualquier orden) y una fila por usuario,
+ *   comillas dobles según RFC 4180
+ *
+ * Ninguno de los dos carga el fichero entero: el iterador lee del stream
+ * a medida que el servicio pide filas.
+ *
+ * Un cuerpo mal formado al principio (no es un array JSON, cabecera CSV incompleta)
+ * lanza IllegalArgumentException → 400. Si se rompe a mitad, el iterador lanza
+ * IllegalArgumentException en esa fila y ImportUsersService devuelve el resultado
+ * parcial. Un campo vacío no es un error de formato: llega como null y lo reporta
+ * la validación por fila.
+ */
+@Component
+public class UserImportParser {
+
+    private static final List<String> CSV_COLUMNS = List.of("email", "password", "firstname", "lastname");
+
+    private final ObjectMapper objectMapper;
+
+    public UserImportParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param body Array JSON de usuarios
+     * @return Iterador perezoso sobre las filas
+     * @throws IllegalArgumentException si el cuerpo no es un array JSON
+     */
+    public Iterator<UserImportRow> parseJson(InputStream body) {
+        try {
+            JsonParser parser = objectMapper.getFactory().createParser(body);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Import body must be a JSON array");
+            }
+            return new JsonRowIterator(parser);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed JSON import body", e);
+        }
+    }
+
+    /**
+     * @param body CSV con cabecera
+     * @return Iterador perezoso sobre las filas
+     * @throws IllegalArgumentException si falta la cabecera o alguna columna obligatoria
+     */
+    public Iterator<UserImportRow> parseCsv(InputStream body) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        try {
+            List<String> header = readCsvRecord(reader);
+            if (header == null) {
+                throw new IllegalArgumentException("CSV import body must start with a header");
+            }
+
+            int[] columns = new int[CSV_COLUMNS.size()];
+            List<String> normalized = header.stream()
+                    .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                    .toList();
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = normalized.indexOf(CSV_COLUMNS.get(i));
+                if (columns[i] < 0) {
+                    throw new IllegalArgumentException("CSV header is missing column: " + CSV_COLUMNS.get(i));
+                }
+            }
+
+            return new CsvRowIterator(reader, columns);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lee un registro CSV (puede ocupar varias líneas si hay saltos entre comillas).
+     *
+     * @return Campos del registro, o null al final del stream
+     */
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+
+            if (!quoted) {
+                break;
+            }
+
+            // Salto de línea dentro de un campo entre comillas
+            line = reader.readLine();
+            if (line == null) {
+                throw new IllegalArgumentException("Unterminated quoted field in CSV import body");
+            }
+            field.append('\n');
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static final class JsonRowIterator implements Iterator<UserImportRow> {
+        private final JsonParser parser;
+        private int rowNumber;
+        private JsonToken next;
+
+        private JsonRowIterator(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next == JsonToken.START_OBJECT;
+        }
+
+        @Override
+        public UserImportRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            next = null;
+            rowNumber++;
+
+            try {
+                String email = null;
+                String password = null;
+                String firstName = null;
+                String lastName = null;
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    JsonToken value = parser.nextToken();
+
+                    if (value.isStructStart()) {
+                        // Campos anidados no se importan
+                        parser.skipChildren();
+                        continue;
+                    }
+
+                    String text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                    switch (name) {
+                        case "email" -> email = text;
+                        case "password" -> password = text;
+                        case "firstName" -> firstName = text;
+                        case "lastName" -> lastName = text;
+                        default -> { } // Campos desconocidos se ignoran
+                    }
+                }
+
+                return new UserImportRow(rowNumber, email, password, firstName, lastName);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Malformed JSON import body at row " + rowNumber, e);
+            }
+        }
+
+        private JsonToken advance() {
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.END_ARRAY || token == null) {
+                    return JsonToken.END_ARRAY;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("Each JSON import row must be an object");
+                }
+                return token;
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Malformed JSON import body after row " + rowNumber, e);
+            }
+        }
+    }
+
+    private static final class CsvRowIterator implements Iterator<UserImportRow> {
+        private final BufferedReader reader;
+        private final int[] columns;
+        private int rowNumber;
+        private List<String> next;
+        private boolean finished;
+
+        private CsvRowIterator(BufferedReader reader, int[] columns) {
+            this.reader = reader;
+            this.columns = columns;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !finished) {
+                try {
+                    List<String> record = readCsvRecord(reader);
+                    if (record == null) {
+                        finished = true;
+                    } else if (!(record.size() == 1 && record.get(0).isBlank())) {
+                        // Las líneas vacías se ignoran
+                        next = record;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public UserImportRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<String> record = next;
+            next = null;
+            rowNumber++;
+
+            return new UserImportRow(
+                    rowNumber,
+                    field(record, columns[0]),
+                    field(record, columns[1]),
+                    field(record, columns[2]),
+                    field(record, columns[3])
+            );
+        }
+
+        private static String field(List<String> record, int column) {
+            return column < record.size() ? emptyToNull(record.get(column)) : null;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom concurrente para strings.
+ *
+ * Estructura probabilística que responde "¿puede estar este elemento?":
+ * - false → seguro que NO está (sin falsos negativos)
+ * - true → probablemente está (falsos positivos con probabilidad configurable)
+ *
+ * No admite borrados: los elementos caducados se eliminan reconstruyendo el filtro.
+ *
+ * Thread-safe: los bits se guardan en un AtomicLongArray y se activan con operaciones atómicas.
+ */
+public final class BloomFilter {
+
+    private static final long SEED_1 = 0x9E3779B97F4A7C15L;
+    private static final long SEED_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong insertions = new AtomicLong();
+
+    private BloomFilter(int wordCount, int hashCount) {
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * Long.SIZE;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Crea un filtro dimensionado para el número de elementos y la tasa de falsos positivos dados.
+     *
+     * Fórmulas estándar:
+     * - bits m = -n·ln(p) / ln(2)²
+     * - funciones hash k = (m/n)·ln(2)
+     *
+     * @param expectedInsertions Número de elementos esperados (n)
+     * @param falsePositiveRate Probabilidad de falso positivo deseada (p), entre 0 y 1
+     * @return Filtro vacío
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+
+        double bits = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long wordCount = Math.min((long) Math.ceil(bits / Long.SIZE), Integer.MAX_VALUE - 8);
+        int hashCount = (int) Math.max(1, Math.round(bits / expectedInsertions * Math.log(2)));
+
+        return new BloomFilter((int) Math.max(1, wordCount), hashCount);
+    }
+
+    /**
+     * Agrega un elemento al filtro.
+     *
+     * @param value Elemento a agregar
+     */
+    public void put(String value) {
+        long h1 = hash(value, SEED_1);
+        long h2 = hash(value, SEED_2) | 1L;
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << (bit & 63);
+            words.getAndAccumulate((int) (bit >>> 6), mask, (current, m) -> current | m);
+        }
+
+        insertions.incrementAndGet();
+    }
+
+    /**
+     * Indica si el elemento puede estar en el filtro.
+     *
+     * @param value Elemento a consultar
+     * @return false si seguro que no está, true si probablemente está
+     */
+    public boolean mightContain(String value) {
+        long h1 = hash(value, SEED_1);
+        long h2 = hash(value, SEED_2) | 1L;
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << (bit & 63);
+            if ((words.get((int) (bit >>> 6)) & mask) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Número de inserciones realizadas (incluye repetidos).
+     */
+    public long insertions() {
+        return insertions.get();
+    }
+
+    /**
+     * Hash de 64 bits: FNV-1a sobre los caracteres + finalizador de SplitMix64.
+     */
+    private static long hash(String value, long seed) {
+        long h = seed;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+
+        h ^= h >>> 30;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 27;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return h;
+    }
+}
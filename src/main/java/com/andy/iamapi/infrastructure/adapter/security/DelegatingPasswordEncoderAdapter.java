@@ -0,0 +1,266 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.port.output.PasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Adapter que implementa el port PasswordEncoder con varios algoritmos.
+ *
+ * Cada hash guarda el algoritmo con el que se generó como prefijo:
+ * - {bcrypt}$2a$12$...
+ * - {argon2}$argon2id$v=19$m=19456,t=2,p=1$...
+ * - {pbkdf2}...
+ * - Sin prefijo: hashes BCrypt anteriores a este adapter
+ *
+ * Algoritmos:
+ * - BCrypt: solo CPU, coste calibrado al arrancar (ver calibrate)
+ * - Argon2id: CPU + memoria (memory-hard, encarece ataques con GPU/ASIC)
+ * - PBKDF2-HMAC-SHA256: solo CPU, para entornos que requieren FIPS
+ *
+ * password-hashing.algorithm elige con qué se generan los hashes nuevos.
+ * La verificación elige el motor por el prefijo de cada hash, así que todos
+ * los algoritmos conviven. Los hashes con otro algoritmo o parámetros más débiles
+ * se regeneran en el siguiente login correcto (upgradeEncoding + PasswordRehashService).
+ *
+ * El dominio NO conoce los algoritmos, solo conoce el port PasswordEncoder.
+ *
+ * Los hashes se calculan en PasswordHashingExecutor, nunca en el hilo del request.
+ *
+ * SOLID aplicado:
+ * - Single Responsibility: Solo adapta los encoders de Spring Security al port del dominio
+ * - Dependency Inversion: Implementa abstracción definida por dominio
+ * - Open/Closed: Un algoritmo nuevo es una entrada más en el mapa de encoders
+ *
+ * @see PasswordEncoder
+ * @see DelegatingPasswordEncoder
+ */
+@Component
+public class DelegatingPasswordEncoderAdapter implements PasswordEncoder {
+    private static final Logger log = LoggerFactory.getLogger(DelegatingPasswordEncoderAdapter.class);
+
+    /**
+     * Mediciones por coste durante la calibración de BCrypt (se toma la más rápida).
+     */
+    private static final int CALIBRATION_SAMPLES = 3;
+
+    /**
+     * Longitudes de salt y hash de Argon2 (bytes), valores recomendados por Spring Security.
+     */
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+
+    /**
+     * Longitud del salt de PBKDF2 (bytes).
+     */
+    private static final int PBKDF2_SALT_LENGTH = 16;
+
+    /**
+     * Encoder que elige el algoritmo por el prefijo {id} del hash.
+     *
+     * Referencia de tiempos de BCrypt (cada +1 de strength duplica el coste):
+     * - Strength 10 (2^10 = 1024 rounds): ~100ms en hardware moderno
+     * - Strength 12: ~400ms
+     * - Strength 14: ~1600ms
+     */
+    private final DelegatingPasswordEncoder encoder;
+
+    /**
+     * Pool acotado donde se ejecutan los hashes
+     */
+    private final PasswordHashingExecutor hashingExecutor;
+
+    /**
+     * @param hashingExecutor Pool donde se ejecutan los hashes
+     * @param algorithm Algoritmo de los hashes nuevos (bcrypt | argon2 | pbkdf2)
+     * @param bcryptStrength Coste fijo de BCrypt (0 = calibrar al arrancar)
+     * @param bcryptTargetLatency Tiempo máximo deseado por hash al calibrar
+     * @param bcryptMinStrength Coste mínimo (nunca se baja de él aunque el host sea lento)
+     * @param bcryptMaxStrength Coste máximo al calibrar
+     * @param argon2Memory Memoria de Argon2id en KiB
+     * @param argon2Iterations Pasadas de Argon2id sobre la memoria
+     * @param argon2Parallelism Hilos de Argon2id por hash
+     * @param pbkdf2Iterations Iteraciones de PBKDF2
+     */
+    public DelegatingPasswordEncoderAdapter(
+            PasswordHashingExecutor hashingExecutor,
+            @Value("${password-hashing.algorithm:bcrypt}") String algorithm,
+            @Value("${password-hashing.bcrypt.strength:0}") int bcryptStrength,
+            @Value("${password-hashing.bcrypt.target-latency:250ms}") Duration bcryptTargetLatency,
+            @Value("${password-hashing.bcrypt.min-strength:10}") int bcryptMinStrength,
+            @Value("${password-hashing.bcrypt.max-strength:14}") int bcryptMaxStrength,
+            @Value("${password-hashing.argon2.memory:19456}") int argon2Memory,
+            @Value("${password-hashing.argon2.iterations:2}") int argon2Iterations,
+            @Value("${password-hashing.argon2.parallelism:1}") int argon2Parallelism,
+            @Value("${password-hashing.pbkdf2.iterations:600000}") int pbkdf2Iterations
+    ) {
+        int strength = bcryptStrength > 0
+                ? bcryptStrength
+                : calibrate(bcryptTargetLatency, bcryptMinStrength, bcryptMaxStrength);
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+
+        Map<String, org.springframework.security.crypto.password.PasswordEncoder> encoders = Map.of(
+                "bcrypt", bcrypt,
+                "argon2", new Argon2PasswordEncoder(
+                        ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH, argon2Parallelism, argon2Memory, argon2Iterations),
+                "pbkdf2", new Pbkdf2PasswordEncoder(
+                        "", PBKDF2_SALT_LENGTH, pbkdf2Iterations,
+                        Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256)
+        );
+
+        if (!encoders.containsKey(algorithm)) {
+            // Falla al arrancar en lugar de generar hashes que nadie sabría verificar
+            throw new IllegalArgumentException("Unsupported password hashing algorithm: " + algorithm);
+        }
+
+        this.encoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        // Hashes sin prefijo: los BCrypt generados antes de este adapter
+        this.encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        this.hashingExecutor = hashingExecutor;
+
+        log.info("Password hashing with {} (bcrypt strength {})", algorithm, strength);
+    }
+
+    /**
+     * Elige el mayor coste de BCrypt cuyo tiempo estimado no supera el objetivo.
+     *
+     * Mide minStrength (tras un hash de calentamiento) y extrapola:
+     * cada +1 de strength duplica el tiempo.
+     */
+    private static int calibrate(Duration targetLatency, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        String sample = UUID.randomUUID().toString();
+
+        // Calentamiento (JIT)
+        probe.encode(sample);
+
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_SAMPLES; i++) {
+            long start = System.nanoTime();
+            probe.encode(sample);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        int strength = minStrength;
+        long estimate = fastest;
+        while (strength < maxStrength && estimate * 2 <= targetLatency.toNanos()) {
+            strength++;
+            estimate *= 2;
+        }
+
+        log.info("BCrypt calibration: strength {} takes {} ms, target {} ms, using strength {} (~{} ms)",
+                minStrength, fastest / 1_000_000, targetLatency.toMillis(), strength, estimate / 1_000_000);
+
+        return strength;
+    }
+
+    /**
+     * Hashea una contraseña en texto plano con el algoritmo configurado.
+     *
+     * El resultado lleva el prefijo del algoritmo y, dentro del hash,
+     * el salt y los parámetros de coste: basta con el hash para verificarlo.
+     *
+     * Ejemplo de hash generado:
+     * {@code {bcrypt}$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy}
+     *
+     * Características:
+     * - Mismo password genera DIFERENTE hash cada vez (salt único)
+     * - Irreversible (no puedes obtener password original)
+     *
+     * @param rawPassword Contraseña en texto plano
+     * @return Hash con prefijo de algoritmo
+     * @throws com.andy.iamapi.domain.exception.ServiceOverloadedException si el pool de hashing está saturado
+     */
+    @Override
+    public String encode(String rawPassword) {
+        return hashingExecutor.execute(() -> encoder.encode(rawPassword));
+    }
+
+    /**
+     * Hashea una contraseña solo si hay un hilo de hashing libre.
+     *
+     * Para trabajo opcional (re-hash tras el login): con el pool ocupado
+     * no encola nada y devuelve vacío, sin quitar sitio a los logins.
+     *
+     * @param rawPassword Contraseña en texto plano
+     * @return Hash con prefijo de algoritmo, o vacío si el pool está ocupado
+     */
+    @Override
+    public Optional<String> tryEncode(String rawPassword) {
+        return hashingExecutor.tryExecute(() -> encoder.encode(rawPassword));
+    }
+
+    /**
+     * Hashea varias contraseñas en paralelo en el pool de hashing.
+     *
+     * @param rawPasswords Contraseñas en texto plano
+     * @return Hashes con prefijo de algoritmo, en el mismo orden
+     */
+    @Override
+    public List<String> encodeAll(List<String> rawPasswords) {
+        List<Supplier<String>> tasks = rawPasswords.stream()
+                .<Supplier<String>>map(rawPassword -> () -> encoder.encode(rawPassword))
+                .toList();
+
+        return hashingExecutor.executeAll(tasks);
+    }
+
+    /**
+     * Verifica si una contraseña coincide con su hash.
+     *
+     * El motor se elige por el prefijo del hash almacenado
+     * (sin prefijo → BCrypt), con los parámetros guardados en el propio hash.
+     *
+     * @param rawPassword Contraseña en texto plano a verificar
+     * @param encodedPassword Hash almacenado en la BD
+     * @return true si coinciden, false si no (también con prefijo desconocido)
+     * @throws com.andy.iamapi.domain.exception.ServiceOverloadedException si el pool de hashing está saturado
+     */
+    @Override
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return hashingExecutor.execute(() -> {
+            try {
+                return encoder.matches(rawPassword, encodedPassword);
+            } catch (IllegalArgumentException e) {
+                // Prefijo sin encoder registrado
+                log.warn("Stored password hash uses an unsupported algorithm");
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Indica si el hash debe regenerarse en el siguiente login correcto.
+     *
+     * true si:
+     * - No tiene prefijo (BCrypt antiguo)
+     * - Usa otro algoritmo que el configurado
+     * - Usa el mismo algoritmo con parámetros más débiles (strength, memoria, iteraciones)
+     *
+     * @param encodedPassword Hash almacenado en la BD
+     * @return true si conviene regenerarlo con la configuración actual
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        try {
+            return encoder.upgradeEncoding(encodedPassword);
+        } catch (IllegalArgumentException e) {
+            // Hash con un formato que ningún encoder reconoce: matches() tampoco lo habría aceptado
+            return false;
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.port.output.TokenService.TokenClaims;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Emisión y verificación HS256 especializada para la forma fija de nuestros tokens.
+ *
+ * jjwt es genérico: en cada llamada crea builders, mapas, árboles JSON y un Mac nuevo.
+ * Para los tokens que emitimos (header {"alg":"HS256"} y claims conocidos) este motor:
+ * - Usa el header ya codificado en Base64URL
+ * - Reutiliza instancias de Mac de un pool (clonadas de un prototipo ya inicializado)
+ * - Escribe y lee los claims con un writer/lector de JSON plano, sin árbol intermedio
+ * - Compara la firma en tiempo constante (MessageDigest.isEqual)
+ *
+ * Cualquier token con otra forma (otro header, claims desconocidos, valores anidados)
+ * se marca como UNSUPPORTED y JwtTokenService lo procesa con jjwt.
+ *
+ * Thread-safe.
+ */
+public final class HmacTokenEngine {
+
+    private static final String HEADER = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.US_ASCII));
+    private static final byte[] HEADER_BYTES = HEADER.getBytes(StandardCharsets.US_ASCII);
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Mac prototype;
+
+    /**
+     * Macs libres para reutilizar.
+     *
+     * No es un ThreadLocal: con virtual threads cada request corre en un hilo
+     * nuevo y un Mac por hilo sería un clon por request. La cola está acotada;
+     * si se vacía se clona uno nuevo y si se llena el sobrante se descarta.
+     */
+    private final BlockingQueue<Mac> macs;
+
+    public HmacTokenEngine(SecretKey secretKey) {
+        try {
+            this.prototype = Mac.getInstance("HmacSHA256");
+            this.prototype.init(secretKey);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+        this.macs = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Firma un access token: jti, sub, uid, roles, enabled, locked, ver, [pix, perms], iat, iat_ms, exp.
+     *
+     * @param claims Claims del token (issuedAt y expiresAt obligatorios)
+     * @return JWT compacto header.payload.signature
+     */
+    public String signAccessToken(TokenClaims claims) {
+        JsonWriter json = new JsonWriter();
+        json.string("jti", claims.tokenId());
+        json.string("sub", claims.email());
+        json.string("uid", claims.userId() != null ? claims.userId().toString() : null);
+        json.string("roles", String.join(",", claims.roles()));
+        json.bool("enabled", claims.enabled());
+        json.bool("locked", claims.accountNonLocked() != null ? !claims.accountNonLocked() : null);
+        json.number("ver", claims.version());
+        json.string("pix", claims.permissionIndexId());
+        json.string("perms", claims.permissionBitmap());
+        json.number("iat", claims.issuedAt().getEpochSecond());
+        json.number("iat_ms", claims.issuedAt().toEpochMilli());
+        json.number("exp", claims.expiresAt().getEpochSecond());
+
+        return sign(json.close());
+    }
+
+    /**
+     * Firma un refresh token: jti, sub, uid, iat, iat_ms, exp.
+     *
+     * @param claims Claims del token (issuedAt y expiresAt obligatorios)
+     * @return JWT compacto header.payload.signature
+     */
+    public String signRefreshToken(TokenClaims claims) {
+        JsonWriter json = new JsonWriter();
+        json.string("jti", claims.tokenId());
+        json.string("sub", claims.email());
+        json.string("uid", claims.userId() != null ? claims.userId().toString() : null);
+        json.number("iat", claims.issuedAt().getEpochSecond());
+        json.number("iat_ms", claims.issuedAt().toEpochMilli());
+        json.number("exp", claims.expiresAt().getEpochSecond());
+
+        return sign(json.close());
+    }
+
+    private String sign(String payloadJson) {
+        byte[] payload = ENCODER.encode(payloadJson.getBytes(StandardCharsets.UTF_8));
+
+        // La firma se calcula por partes, sin construir "header.payload" en un array aparte
+        Mac mac = acquireMac();
+        mac.update(HEADER_BYTES);
+        mac.update((byte) '.');
+        mac.update(payload);
+        byte[] signature = mac.doFinal();
+        releaseMac(mac);
+
+        return new StringBuilder(HEADER.length() + payload.length + 45)
+                .append(HEADER)
+                .append('.')
+                .append(new String(payload, StandardCharsets.US_ASCII))
+                .append('.')
+                .append(ENCODER.encodeToString(signature))
+                .toString();
+    }
+
+    /**
+     * Verifica firma y expiración de un token con la forma que emitimos.
+     *
+     * La firma se compara ya codificada: solo es válida su codificación canónica
+     * (Base64URL sin '=' ni bits sobrantes distintos de cero). Si se decodificase,
+     * "firma=" o una última letra equivalente verificarían igual con otro texto,
+     * y el token tendría otro TokenDigest (caché de claims, blacklist sin jti).
+     *
+     * @param token JWT compacto
+     * @return VALID con claims, INVALID (firma o expiración) o UNSUPPORTED (usar jjwt)
+     */
+    public Verification verify(String token) {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0
+                || firstDot != HEADER.length() || !token.startsWith(HEADER)) {
+            return Verification.UNSUPPORTED;
+        }
+
+        if (token.indexOf('=') >= 0) {
+            // Relleno en algún segmento: nunca lo emitimos
+            return Verification.INVALID;
+        }
+
+        byte[] ascii = token.getBytes(StandardCharsets.US_ASCII);
+        Mac mac = acquireMac();
+        mac.update(ascii, 0, secondDot);
+        byte[] expected = ENCODER.encode(mac.doFinal());
+        releaseMac(mac);
+
+        byte[] actual = Arrays.copyOfRange(ascii, secondDot + 1, ascii.length);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return Verification.INVALID;
+        }
+
+        byte[] payload;
+        try {
+            payload = DECODER.decode(Arrays.copyOfRange(ascii, firstDot + 1, secondDot));
+        } catch (IllegalArgumentException e) {
+            return Verification.INVALID;
+        }
+
+        TokenClaims claims = new ClaimsReader(new String(payload, StandardCharsets.UTF_8)).read();
+        if (claims == null || claims.expiresAt() == null) {
+            // Firma válida pero forma desconocida: que decida jjwt
+            return Verification.UNSUPPORTED;
+        }
+
+        if (!claims.expiresAt().isAfter(Instant.now())) {
+            return Verification.INVALID;
+        }
+
+        return Verification.valid(claims);
+    }
+
+    private Mac acquireMac() {
+        Mac mac = macs.poll();
+        return mac != null ? mac : newMac();
+    }
+
+    /**
+     * Devuelve un Mac al pool. Solo tras doFinal(), que deja el Mac reiniciado.
+     */
+    private void releaseMac(Mac mac) {
+        macs.offer(mac);
+    }
+
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HmacSHA256 Mac is not cloneable", e);
+        }
+    }
+
+    /**
+     * Resultado de verify().
+     */
+    public record Verification(Status status, TokenClaims claims) {
+        static final Verification INVALID = new Verification(Status.INVALID, null);
+        static final Verification UNSUPPORTED = new Verification(Status.UNSUPPORTED, null);
+
+        static Verification valid(TokenClaims claims) {
+            return new Verification(Status.VALID, claims);
+        }
+    }
+
+    public enum Status { VALID, INVALID, UNSUPPORTED }
+
+    /**
+     * Writer de objetos JSON planos (strings, enteros y booleanos).
+     */
+    private static final class JsonWriter {
+        private final StringBuilder out = new StringBuilder(256).append('{');
+
+        void string(String name, String value) {
+            if (value == null) {
+                return;
+            }
+            name(name);
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+            out.append('"');
+        }
+
+        void number(String name, Long value) {
+            if (value != null) {
+                name(name);
+                out.append(value.longValue());
+            }
+        }
+
+        void bool(String name, Boolean value) {
+            if (value != null) {
+                name(name);
+                out.append(value.booleanValue());
+            }
+        }
+
+        String close() {
+            return out.append('}').toString();
+        }
+
+        private void name(String name) {
+            if (out.length() > 1) {
+                out.append(',');
+            }
+            out.append('"').append(name).append("\":");
+        }
+    }
+
+    /**
+     * Lector de JSON plano con los claims conocidos.
+     *
+     * Devuelve null ante cualquier cosa inesperada (claim desconocido,
+     * objeto/array anidado, null, decimales), para que decida jjwt.
+     */
+    private static final class ClaimsReader {
+        private final String json;
+        private int pos;
+
+        private String jti;
+        private String sub;
+        private String uid;
+        private String roles;
+        private Boolean enabled;
+        private Boolean locked;
+        private Long ver;
+        private String pix;
+        private String perms;
+        private Long iat;
+        private Long iatMillis;
+        private Long exp;
+
+        /**
+         * Si el último valor leído tenía el tipo esperado.
+         */
+        private boolean lastReadOk;
+
+        ClaimsReader(String json) {
+            this.json = json;
+        }
+
+        TokenClaims read() {
+            try {
+                if (!readObject()) {
+                    return null;
+                }
+
+                List<String> roleNames = new ArrayList<>();
+                if (roles != null && !roles.isBlank()) {
+                    roleNames.addAll(Arrays.asList(roles.split(",")));
+                }
+
+                return new TokenClaims(
+                        sub,
+                        uid != null ? UUID.fromString(uid) : null,
+                        roleNames,
+                        enabled,
+                        locked != null ? !locked : null,
+                        ver,
+                        iatMillis != null ? Instant.ofEpochMilli(iatMillis)
+                                : iat != null ? Instant.ofEpochSecond(iat) : null,
+                        exp != null ? Instant.ofEpochSecond(exp) : null,
+                        jti,
+                        pix,
+                        perms
+                );
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        private boolean readObject() {
+            skipWhitespace();
+            if (!consume('{')) {
+                return false;
+            }
+
+            skipWhitespace();
+            if (consume('}')) {
+                return atEnd();
+            }
+
+            do {
+                skipWhitespace();
+                String name = readString();
+                skipWhitespace();
+                if (name == null || !consume(':')) {
+                    return false;
+                }
+                skipWhitespace();
+                if (!readValue(name)) {
+                    return false;
+                }
+                skipWhitespace();
+            } while (consume(','));
+
+            return consume('}') && atEnd();
+        }
+
+        private boolean readValue(String name) {
+            switch (name) {
+                case "jti" -> jti = readString();
+                case "sub" -> sub = readString();
+                case "uid" -> uid = readString();
+                case "roles" -> roles = readString();
+                case "pix" -> pix = readString();
+                case "perms" -> perms = readString();
+                case "enabled" -> enabled = readBoolean();
+                case "locked" -> locked = readBoolean();
+                case "ver" -> ver = readLong();
+                case "iat" -> iat = readLong();
+                case "iat_ms" -> iatMillis = readLong();
+                case "exp" -> exp = readLong();
+                default -> {
+                    return false;
+                }
+            }
+            return lastReadOk;
+        }
+
+        private String readString() {
+            lastReadOk = false;
+            if (!consume('"')) {
+                return null;
+            }
+
+            StringBuilder value = null;
+            int start = pos;
+            while (pos < json.length()) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    lastReadOk = true;
+                    return value == null ? json.substring(start, pos - 1) : value.toString();
+                }
+                if (c == '\\') {
+                    if (value == null) {
+                        value = new StringBuilder(json.substring(start, pos - 1));
+                    }
+                    char escaped = json.charAt(pos++);
+                    switch (escaped) {
+                        case '"', '\\', '/' -> value.append(escaped);
+                        case 'b' -> value.append('\b');
+                        case 'f' -> value.append('\f');
+                        case 'n' -> value.append('\n');
+                        case 'r' -> value.append('\r');
+                        case 't' -> value.append('\t');
+                        case 'u' -> {
+                            value.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                            pos += 4;
+                        }
+                        default -> {
+                            return null;
+                        }
+                    }
+                } else if (value != null) {
+                    value.append(c);
+                }
+            }
+            return null;
+        }
+
+        private Boolean readBoolean() {
+            lastReadOk = true;
+            if (json.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (json.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            lastReadOk = false;
+            return null;
+        }
+
+        private Long readLong() {
+            int start = pos;
+            if (pos < json.length() && json.charAt(pos) == '-') {
+                pos++;
+            }
+            while (pos < json.length() && Character.isDigit(json.charAt(pos))) {
+                pos++;
+            }
+            // Decimales o exponentes: forma no soportada
+            lastReadOk = pos > start && (pos >= json.length()
+                    || (json.charAt(pos) != '.' && json.charAt(pos) != 'e' && json.charAt(pos) != 'E'));
+            return lastReadOk ? Long.parseLong(json.substring(start, pos)) : null;
+        }
+
+        private void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean consume(char expected) {
+            if (pos < json.length() && json.charAt(pos) == expected) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean atEnd() {
+            skipWhitespace();
+            return pos == json.length();
+        }
+    }
+}
@@ -2,20 +2,28 @@ package com.andy.iamapi.infrastructure.adapter.security;
 
 import com.andy.iamapi.domain.model.User;
 import com.andy.iamapi.domain.port.output.TokenService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Implementación del port TokenService usando JWT (JSON Web Tokens).
@@ -32,6 +40,12 @@ import java.util.stream.Collectors;
  * Payload: {"sub":"john@example.com","exp":1640995200}
  * Signature: HMACSHA256(base64UrlEncode(header) + "." + base64UrlEncode(payload), secret)
  *
+ * El algoritmo y las claves de firma los gestiona SigningKeyRing
+ * (HS256 con jwt.secret, o RS256/ES256/EdDSA con kid y rotación).
+ *
+ * Los tokens HS256 sin kid se firman y verifican con HmacTokenEngine
+ * (jwt.fast-path.enabled); jjwt queda para el resto de formas y algoritmos.
+ *
  * Ventajas de JWT:
  * - Stateless: no necesitas almacenar sesiones en servidor
  * - Self-contained: contiene toda la info necesaria
@@ -42,15 +56,24 @@ import java.util.stream.Collectors;
 public class JwtTokenService implements TokenService {
     private static final Logger log = LoggerFactory.getLogger(JwtTokenService.class);
 
+    // Nombres de los claims propios
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLES = "roles";
+    private static final String CLAIM_ENABLED = "enabled";
+    private static final String CLAIM_LOCKED = "locked";
+    private static final String CLAIM_VERSION = "ver";
+    private static final String CLAIM_PERMISSION_INDEX = "pix";
+    private static final String CLAIM_PERMISSIONS = "perms";
+    // iat con milisegundos: la época de revocación se compara con esta precisión
+    private static final String CLAIM_ISSUED_AT_MILLIS = "iat_ms";
+
     /**
-     * Clave secreta para firmar los tokens.
+     * Claves para firmar y verificar los tokens.
      *
-     * Viene de application.yml: jwt.secret
+     * Secreto HMAC de jwt.secret o pares de claves asimétricos rotados (jwt.signing.*).
      * IMPORTANTE: En producción usar una clave fuerte y almacenarla en variables de entorno.
-     *
-     * Requisito: Mínimo 256 bits (32 caracteres) para HMAC-SHA256
      */
-    private final SecretKey secretKey;
+    private final SigningKeyRing keyRing;
 
     /**
      * Tiempo de expiración del access token en milisegundos.
@@ -69,30 +92,103 @@ public class JwtTokenService implements TokenService {
     private final long refreshTokenExpiration;
 
     /**
-     * Black list de tokens de Redis
+     * Revocaciones: caché local (Bloom) delante de la blacklist de Redis
+     */
+    private final RevocationNearCache revocationCache;
+
+    /**
+     * Revocación masiva por usuario: tokens con iat anterior a la época del usuario
+     */
+    private final UserRevocationEpochs revocationEpochs;
+
+    /**
+     * Si se consultan también las claves antiguas de la blacklist (JWT completo como clave).
+     *
+     * Solo afecta a tokens sin jti. Puede desactivarse una vez transcurrida
+     * jwt.refresh-expiration desde el despliegue (ya no quedan claves antiguas vivas).
+     */
+    private final boolean legacyRevocationLookup;
+
+    /**
+     * Índice de permisos para el claim opcional "perms" (bitmap)
+     */
+    private final PermissionIndex permissionIndex;
+
+    /**
+     * Parser configurado una sola vez (inmutable y thread-safe).
+     */
+    private final JwtParser jwtParser;
+
+    /**
+     * Firma y verificación HS256 especializada, sin pasar por jjwt.
+     *
+     * null si el fast path está desactivado o, en modo asimétrico, sin ventana legacy HS256.
+     */
+    private final HmacTokenEngine hmacEngine;
+
+    /**
+     * Caché de claims ya verificados.
+     *
+     * Un mismo access token llega miles de veces durante su hora de vida.
+     * Guardar los claims verificados evita repetir Base64 + JSON + HMAC en cada request.
+     *
+     * - Clave: SHA-256 del token (tamaño fijo, ver TokenDigest)
+     * - Valor: claims verificados
+     * - Expiración: la del propio token (claim exp)
+     * - Tamaño máximo: jwt.claims-cache.max-size (se expulsa por frecuencia de uso)
+     *
+     * null si la caché está desactivada.
+     */
+    private final Cache<String, TokenClaims> claimsCache;
+
+    /**
+     * Verificaciones de firma (sin contar aciertos de la caché de claims) por cada vía.
+     * Si jjwt domina con jwt.fast-path.enabled, los tokens no llegan con la forma que emitimos.
      */
-    private final RedisTokenBlacklist tokenBlacklist;
+    private final LongAdder fastPathVerifications = new LongAdder();
+    private final LongAdder jjwtVerifications = new LongAdder();
 
     /**
      * Constructor que inyecta configuración desde application.yml.
      *
      * Value inyecta valores de properties.
      *
-     * @param secret Clave secreta para firmar tokens
+     * @param keyRing Claves de firma y verificación
      * @param accessTokenExpiration Expiración del access token en ms
      * @param refreshTokenExpiration Expiración del refresh token en ms
+     * @param claimsCacheEnabled Si se cachean los claims verificados
+     * @param claimsCacheMaxSize Número máximo de tokens en la caché
+     * @param legacyRevocationLookup Si se consultan las claves antiguas de la blacklist
+     * @param fastPathEnabled Si se usa HmacTokenEngine para los tokens HS256
      */
     public JwtTokenService(
-            @Value("${jwt.secret}") String secret,
+            SigningKeyRing keyRing,
             @Value("${jwt.expiration}") long accessTokenExpiration,
             @Value("${jwt.refresh-expiration}") long refreshTokenExpiration,
-            RedisTokenBlacklist tokenBlacklist
+            RevocationNearCache revocationCache,
+            UserRevocationEpochs revocationEpochs,
+            PermissionIndex permissionIndex,
+            @Value("${jwt.claims-cache.enabled:true}") boolean claimsCacheEnabled,
+            @Value("${jwt.claims-cache.max-size:100000}") long claimsCacheMaxSize,
+            @Value("${jwt.revocation.legacy-keys-lookup:true}") boolean legacyRevocationLookup,
+            @Value("${jwt.fast-path.enabled:true}") boolean fastPathEnabled
     ) {
-        // Convertir el string secret a SecretKey para HMAC-SHA256
-        this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.keyRing = keyRing;
         this.accessTokenExpiration = accessTokenExpiration;
         this.refreshTokenExpiration = refreshTokenExpiration;
-        this.tokenBlacklist = tokenBlacklist;
+        this.revocationCache = revocationCache;
+        this.revocationEpochs = revocationEpochs;
+        this.permissionIndex = permissionIndex;
+        this.legacyRevocationLookup = legacyRevocationLookup;
+        // La clave de verificación se elige por el header kid de cada token
+        this.jwtParser = Jwts.parser()
+                .keyLocator(keyRing)
+                .build();
+        this.claimsCache = claimsCacheEnabled ? buildClaimsCache(claimsCacheMaxSize) : null;
+        // Con firma asimétrica solo verifica tokens HS256 sin kid, y solo dentro de la ventana legacy
+        this.hmacEngine = fastPathEnabled && keyRing.acceptsUnkeyedHmac()
+                ? new HmacTokenEngine(keyRing.secretKey())
+                : null;
 
         log.info("JwtTokenService initialized with access token expiration: {}ms, refresh token expiration: {}ms",
         accessTokenExpiration, refreshTokenExpiration);
@@ -108,7 +204,13 @@ public class JwtTokenService implements TokenService {
      *
      * Claims incluidos:
      * - sub (subject): email del usuario
+     * - jti: identificador único del token (clave en la blacklist)
+     * - uid: ID del usuario
      * - roles: lista de roles del usuario
+     * - enabled / locked: estado de la cuenta al emitir el token
+     * - ver: versión del usuario (updatedAt en ms), ver UserVersionTracker
+     * - pix / perms: id del índice de permisos y bitmap de permisos efectivos
+     *   (solo con jwt.permission-bitmap.enabled, ver PermissionIndex)
      * - iat (issued at): cuándo se generó
      * - exp (expiration): cuándo expira
      *
@@ -121,18 +223,49 @@ public class JwtTokenService implements TokenService {
         Date expiryDate = new Date(now.getTime() + accessTokenExpiration);
 
         //Extraer nombres de roles
-        String roles = user.getRoles()
+        List<String> roleNames = user.getRoles()
                 .stream()
                 .map(role -> role.getName())
-                .collect(Collectors.joining(","));
+                .toList();
 
-        String token = Jwts.builder()
+        Optional<PermissionIndex.EncodedPermissions> permissions = permissionIndex.encodeForToken(roleNames);
+
+        if (useFastPath()) {
+            String token = hmacEngine.signAccessToken(new TokenClaims(
+                    user.getEmail(),
+                    user.getId(),
+                    roleNames,
+                    user.isEnabled(),
+                    user.isAccountNonLocked(),
+                    UserVersionTracker.versionOf(user),
+                    now.toInstant(),
+                    expiryDate.toInstant(),
+                    UUID.randomUUID().toString(),
+                    permissions.map(PermissionIndex.EncodedPermissions::indexId).orElse(null),
+                    permissions.map(PermissionIndex.EncodedPermissions::bitmap).orElse(null)
+            ));
+
+            log.debug("Generated acces token for user: {}", user.getEmail());
+            return token;
+        }
+
+        JwtBuilder builder = Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(user.getEmail())
-                .claim("roles", roles)
+                .claim(CLAIM_USER_ID, user.getId().toString())
+                .claim(CLAIM_ROLES, String.join(",", roleNames))
+                .claim(CLAIM_ENABLED, user.isEnabled())
+                .claim(CLAIM_LOCKED, !user.isAccountNonLocked())
+                .claim(CLAIM_VERSION, UserVersionTracker.versionOf(user))
                 .issuedAt(now)
-                .expiration(expiryDate)
-                .signWith(secretKey)
-                .compact();
+                .claim(CLAIM_ISSUED_AT_MILLIS, now.getTime())
+                .expiration(expiryDate);
+
+        permissions.ifPresent(encoded -> builder
+                .claim(CLAIM_PERMISSION_INDEX, encoded.indexId())
+                .claim(CLAIM_PERMISSIONS, encoded.bitmap()));
+
+        String token = keyRing.sign(builder).compact();
 
         log.debug("Generated acces token for user: {}", user.getEmail());
 
@@ -145,7 +278,7 @@ public class JwtTokenService implements TokenService {
      * Refresh token:
      * - Larga duración (7 días por defecto)
      * - Se usa solo en endpoint /auth/refresh
-     * - Más simple que access token (solo email)
+     * - Más simple que access token (solo email, uid y jti)
      *
      * Flujo de uso:
      * 1. Usuario hace login → recibe access token (1h) + refresh token (7d)
@@ -162,11 +295,23 @@ public class JwtTokenService implements TokenService {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + refreshTokenExpiration);
 
-        String token = Jwts.builder()
+        if (useFastPath()) {
+            String token = hmacEngine.signRefreshToken(new TokenClaims(
+                    user.getEmail(), user.getId(), List.of(), null, null, null,
+                    now.toInstant(), expiryDate.toInstant(), UUID.randomUUID().toString(), null, null
+            ));
+
+            log.debug("Generated refresh token for user: {}", user.getEmail());
+            return token;
+        }
+
+        String token = keyRing.sign(Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId().toString())
                 .issuedAt(now)
-                .expiration(expiryDate)
-                .signWith(secretKey)
+                .claim(CLAIM_ISSUED_AT_MILLIS, now.getTime())
+                .expiration(expiryDate))
                 .compact();
 
         log.debug("Generated refresh token for user: {}", user.getEmail());
@@ -181,25 +326,137 @@ public class JwtTokenService implements TokenService {
      * 1. Firma válida (no fue alterado)
      * 2. No expiró
      * 3. Formato correcto
+     * 4. No revocado
      *
      * @param token JWT token a validar
      * @return Optional con email si es válido, Optional.empty() si no
      */
     @Override
     public Optional<String> validateTokenAndGetEmail(String token) {
+        return validateToken(token).map(TokenClaims::email);
+    }
+
+    /**
+     * Valida un token y extrae todos sus claims.
+     *
+     * Validaciones que realiza:
+     * 1. Firma, expiración y formato (con caché de claims verificados)
+     * 2. No revocado (blacklist, consultada a través de RevocationNearCache)
+     * 3. Emitido después de la última revocación masiva del usuario (UserRevocationEpochs)
+     *
+     * Los claims de estado del usuario son null en tokens emitidos antes de existir.
+     *
+     * @param token JWT token a validar
+     * @return Optional con los claims si es válido, Optional.empty() si no
+     */
+    @Override
+    public Optional<TokenClaims> validateToken(String token) {
+        Optional<TokenClaims> verified = verify(token);
+
+        if (verified.isPresent() && isRevoked(token, verified.get())) {
+            log.warn("Revoked token used for user: {}", verified.get().email());
+            return Optional.empty();
+        }
+
+        return verified;
+    }
+
+    /**
+     * Verifica firma y expiración, usando la caché de claims si está activa.
+     *
+     * @param token JWT token a verificar
+     * @return Optional con los claims si la firma es válida y no ha expirado
+     */
+    private Optional<TokenClaims> verify(String token) {
+        if (claimsCache == null) {
+            return parseAndVerify(token);
+        }
+
+        String cacheKey = TokenDigest.of(token);
+        TokenClaims cached = claimsCache.getIfPresent(cacheKey);
+
+        if (cached != null) {
+            // La caché expira por exp, pero comprobamos igualmente contra el reloj real
+            if (cached.expiresAt().isAfter(Instant.now())) {
+                return Optional.of(cached);
+            }
+            claimsCache.invalidate(cacheKey);
+            return Optional.empty();
+        }
+
+        Optional<TokenClaims> verified = parseAndVerify(token);
+
+        // Solo se cachean tokens válidos con expiración
+        verified.filter(claims -> claims.expiresAt() != null)
+                .ifPresent(claims -> claimsCache.put(cacheKey, claims));
+
+        return verified;
+    }
+
+    /**
+     * uid de un token cuya firma ya se verificó (está en la caché de claims), sin verificar nada más.
+     *
+     * Lo usa RateLimitSubjects para conocer al usuario antes de autenticar: un token
+     * inventado nunca está en la caché. No comprueba revocación ni cuenta en las
+     * estadísticas de la caché.
+     *
+     * @param token JWT del header Authorization
+     * @return uid, o vacío si el token no está en la caché (primer uso, expulsado, caducado o caché desactivada)
+     */
+    public Optional<UUID> verifiedUserId(String token) {
+        if (claimsCache == null) {
+            return Optional.empty();
+        }
+
+        TokenClaims cached = claimsCache.asMap().get(TokenDigest.of(token));
+        if (cached == null || cached.userId() == null || !cached.expiresAt().isAfter(Instant.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(cached.userId());
+    }
+
+    /**
+     * Parsea y verifica el token.
+     *
+     * Primero HmacTokenEngine (tokens HS256 con la forma que emitimos), mientras
+     * SigningKeyRing acepte tokens sin kid; si no, jjwt (Base64 + JSON + firma).
+     *
+     * @param token JWT token a validar
+     * @return Optional con los claims si es válido, Optional.empty() si no
+     */
+    private Optional<TokenClaims> parseAndVerify(String token) {
+        if (hmacEngine != null && keyRing.acceptsUnkeyedHmac()) {
+            HmacTokenEngine.Verification verification = hmacEngine.verify(token);
+
+            switch (verification.status()) {
+                case VALID -> {
+                    fastPathVerifications.increment();
+                    log.debug("Token validated successfully for user: {}", verification.claims().email());
+                    return Optional.of(verification.claims());
+                }
+                case INVALID -> {
+                    fastPathVerifications.increment();
+                    log.warn("Invalid or expired token");
+                    return Optional.empty();
+                }
+                case UNSUPPORTED -> {
+                    // Otra forma de token: se verifica con jjwt
+                }
+            }
+        }
+
+        jjwtVerifications.increment();
         try {
             //Parsear y validar el token
-            Claims claims = Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
+            Claims claims = jwtParser
                     .parseSignedClaims(token)
                     .getPayload();
 
-            String email = claims.getSubject();
+            TokenClaims tokenClaims = toTokenClaims(claims);
 
-            log.debug("Token validated successfully for user: {}", email);
+            log.debug("Token validated successfully for user: {}", tokenClaims.email());
 
-            return Optional.of(email);
+            return Optional.of(tokenClaims);
 
         } catch (io.jsonwebtoken.ExpiredJwtException e) {
             log.warn("Token expired: {}", e.getMessage());
@@ -213,37 +470,68 @@ public class JwtTokenService implements TokenService {
         }
     }
 
+    /**
+     * Convierte los claims de jjwt al record del port.
+     */
+    private TokenClaims toTokenClaims(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        String roles = claims.get(CLAIM_ROLES, String.class);
+        Boolean locked = claims.get(CLAIM_LOCKED, Boolean.class);
+        Number version = claims.get(CLAIM_VERSION, Number.class);
+        Number issuedAtMillis = claims.get(CLAIM_ISSUED_AT_MILLIS, Number.class);
+
+        List<String> roleNames = roles == null || roles.isBlank()
+                ? List.of()
+                : Arrays.asList(roles.split(","));
+
+        return new TokenClaims(
+                claims.getSubject(),
+                userId != null ? UUID.fromString(userId) : null,
+                roleNames,
+                claims.get(CLAIM_ENABLED, Boolean.class),
+                locked != null ? !locked : null,
+                version != null ? version.longValue() : null,
+                issuedAtMillis != null ? Instant.ofEpochMilli(issuedAtMillis.longValue())
+                        : claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                claims.getId(),
+                claims.get(CLAIM_PERMISSION_INDEX, String.class),
+                claims.get(CLAIM_PERMISSIONS, String.class)
+        );
+    }
+
     /**
      * Invalida un token específico.
      *
-     * NOTA: Implementación simplificada.
-     * En producción, deberías:
-     * - Almacenar tokens revocados en Redis o BD
-     * - Verificar contra esa lista en validateTokenAndGetEmail()
-     *
-     * Por ahora, simplemente logueamos.
-     * Los tokens expirarán naturalmente.
+     * - Lo elimina de la caché de claims verificados de esta instancia
+     * - Lo agrega a la blacklist de Redis hasta su expiración natural,
+     *   identificado por su jti (o por un digest de 16 bytes si no tiene)
      *
      * @param token Token a revocar
      */
     @Override
     public void revokeToken(String token) {
         try {
-            // Parsear el token para obtener la expiración
-            Claims claims = Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            // Verificar el token para obtener la expiración
+            Optional<TokenClaims> claims = verify(token);
+
+            // Un token revocado no debe seguir sirviéndose desde la caché
+            if (claimsCache != null) {
+                claimsCache.invalidate(TokenDigest.of(token));
+            }
+
+            if (claims.isEmpty()) {
+                log.debug("Token invalid or already expired, not adding to blacklist");
+                return;
+            }
 
-            Date expiration = claims.getExpiration();
             long now = System.currentTimeMillis();
-            long ttlMillis = expiration.getTime() - now;
+            long ttlMillis = claims.get().expiresAt().toEpochMilli() - now;
 
             //Agregar a blacklist solo si aún no ha expirado
             if (ttlMillis > 0) {
                 Duration ttl = Duration.ofMillis(ttlMillis);
-                tokenBlacklist.add(token, ttl);
+                revocationCache.revoke(revocationId(token, claims.get().tokenId()), ttl);
 
                 log.info("Token revoked and added to Redis blacklist with TTL: {} seconds", ttl.getSeconds());
             } else {
@@ -265,6 +553,136 @@ public class JwtTokenService implements TokenService {
      */
     @Override
     public boolean isTokenRevoked(String token) {
-        return tokenBlacklist.contains(token);
+        return verify(token)
+                .map(claims -> isRevoked(token, claims))
+                .orElseGet(() -> isBlacklisted(token, null));
+    }
+
+    /**
+     * Invalida todos los tokens del usuario con una sola escritura (época de revocación).
+     *
+     * Los tokens sin claim uid (emitidos antes de existir) no se ven afectados.
+     *
+     * @param userId ID del usuario
+     */
+    @Override
+    public void revokeAllForUser(UUID userId) {
+        revocationEpochs.revokeAll(userId);
+    }
+
+    /**
+     * Revocación individual (blacklist) o masiva (época del usuario).
+     */
+    private boolean isRevoked(String token, TokenClaims claims) {
+        if (claims.userId() != null && claims.issuedAt() != null
+                && revocationEpochs.isRevoked(claims.userId(), claims.issuedAt())) {
+            return true;
+        }
+
+        return isBlacklisted(token, claims.tokenId());
+    }
+
+    /**
+     * Consulta la blacklist por el identificador de revocación del token.
+     *
+     * Tokens sin jti se buscan por digest y, durante la migración,
+     * también por la clave antigua con el JWT completo.
+     */
+    private boolean isBlacklisted(String token, String tokenId) {
+        if (revocationCache.isRevoked(revocationId(token, tokenId))) {
+            return true;
+        }
+
+        return tokenId == null
+                && legacyRevocationLookup
+                && revocationCache.isRevoked(RedisTokenBlacklist.legacyId(token));
+    }
+
+    private boolean useFastPath() {
+        return hmacEngine != null && !keyRing.isAsymmetric();
+    }
+
+    private static String revocationId(String token, String tokenId) {
+        return tokenId != null
+                ? RedisTokenBlacklist.jtiId(tokenId)
+                : RedisTokenBlacklist.digestId(token);
+    }
+
+    /**
+     * Estadísticas de la caché de claims, para dimensionarla.
+     *
+     * @return Tamaño y contadores de aciertos, fallos y expulsiones
+     */
+    public ClaimsCacheStats claimsCacheStats() {
+        if (claimsCache == null) {
+            return new ClaimsCacheStats(0, 0, 0, 0);
+        }
+
+        CacheStats stats = claimsCache.stats();
+        return new ClaimsCacheStats(
+                claimsCache.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount()
+        );
     }
+
+    /**
+     * Cuántas verificaciones de firma ha hecho cada vía desde el arranque.
+     *
+     * @return Verificaciones con HmacTokenEngine y con jjwt
+     */
+    public VerificationStats verificationStats() {
+        return new VerificationStats(fastPathVerifications.sum(), jjwtVerifications.sum());
+    }
+
+    /**
+     * Loguea periódicamente las estadísticas de la caché de claims y de verificación.
+     */
+    @Scheduled(fixedDelayString = "${jwt.claims-cache.stats-log-interval:300000}")
+    public void logClaimsCacheStats() {
+        if (claimsCache != null) {
+            log.debug("Claims cache stats: {}", claimsCacheStats());
+        }
+        log.debug("Token verification stats: {}", verificationStats());
+    }
+
+    /**
+     * Construye la caché de claims con expiración variable por entrada.
+     *
+     * Cada entrada expira exactamente en el exp del token que representa.
+     */
+    private static Cache<String, TokenClaims> buildClaimsCache(long maxSize) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, TokenClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, TokenClaims claims, long currentTime) {
+                        long nanos = Duration.between(Instant.now(), claims.expiresAt()).toNanos();
+                        return Math.max(nanos, 0L);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, TokenClaims claims, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, claims, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, TokenClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Snapshot de las estadísticas de la caché de claims.
+     */
+    public record ClaimsCacheStats(long size, long hits, long misses, long evictions) {}
+
+    /**
+     * Verificaciones de firma por vía (HmacTokenEngine o jjwt).
+     */
+    public record VerificationStats(long fastPath, long jjwt) {}
 }
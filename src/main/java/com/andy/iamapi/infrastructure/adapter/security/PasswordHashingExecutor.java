@@ -0,0 +1,340 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.exception.ServiceOverloadedException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Pool dedicado para el hashing de contraseñas (BCrypt/Argon2/PBKDF2, ~100ms de CPU por operación).
+ *
+ * Sin él, cada login/registro ocupa un hilo de Tomcat durante todo el hash:
+ * una ráfaga de logins agota el pool del servlet y endpoints baratos
+ * como /api/users/me dejan de responder.
+ *
+ * - Hilos: uno por core (el hash es CPU pura; más hilos solo añaden cambios de contexto)
+ *   Son hilos de plataforma también con spring.threads.virtual.enabled: los virtual threads
+ *   sirven para esperar I/O, no para acotar el uso de CPU
+ * - Cola acotada (password-hashing.queue-capacity): con la cola llena se rechaza al momento
+ * - Espera máxima (password-hashing.max-wait): si el hash no termina a tiempo se cancela.
+ *   Una tarea que sale de la cola sin tiempo para terminar (espera + duración media de un
+ *   hash >= max-wait) no se ejecuta: su llamante va a rendirse igualmente y el hash
+ *   solo quitaría CPU a las siguientes. Cuenta como timeout
+ *
+ * En ambos casos se lanza ServiceOverloadedException (503 + Retry-After).
+ * Así, como mucho hilos + cola requests esperan un hash; el resto falla rápido
+ * y el pool del servlet queda libre para lo demás.
+ *
+ * El trabajo opcional (re-hash tras el login) usa tryExecute: solo entra si hay un hilo
+ * libre y nunca ocupa la cola que necesitan los logins.
+ *
+ * Métricas: tiempo en cola (medio y máximo), rechazos, timeouts y tareas opcionales
+ * descartadas, logueadas periódicamente.
+ */
+@Component
+public class PasswordHashingExecutor {
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final int poolSize;
+    private final int importConcurrency;
+    private final long maxWaitNanos;
+    private final long retryAfterSeconds;
+
+    /**
+     * Sale de la cola una tarea que ya no puede terminar dentro de max-wait.
+     * Sin stack trace: es control de flujo, no un error.
+     */
+    private static final RuntimeException EXPIRED_IN_QUEUE = new RuntimeException(
+            "Password hashing task expired in queue", null, false, false) {};
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder runTimeNanos = new LongAdder();
+    private final LongAdder queueTimeNanos = new LongAdder();
+    private final AtomicLong maxQueueTimeNanos = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    public PasswordHashingExecutor(
+            @Value("${password-hashing.threads:0}") int threads,
+            @Value("${password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${password-hashing.max-wait:5s}") Duration maxWait,
+            @Value("${password-hashing.import-concurrency:0}") int importConcurrency
+    ) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.poolSize = poolSize;
+        this.importConcurrency = importConcurrency(importConcurrency, poolSize);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.retryAfterSeconds = Math.max(1, maxWait.toSeconds());
+
+        log.info("Password hashing executor started with {} threads, queue capacity {} and import concurrency {}",
+                poolSize, queueCapacity, this.importConcurrency);
+    }
+
+    /**
+     * Hashes simultáneos de una importación: los configurados (0 = la mitad del pool),
+     * siempre por debajo del número de hilos para que los logins tengan hilo libre.
+     * Con un solo hilo no hay margen: la importación usa ese hilo y compite con los logins.
+     */
+    private static int importConcurrency(int requested, int poolSize) {
+        int max = Math.max(1, poolSize - 1);
+        if (requested <= 0) {
+            return Math.max(1, poolSize / 2);
+        }
+        if (requested > max) {
+            log.warn("password-hashing.import-concurrency {} must stay below the {} hashing threads, using {}",
+                    requested, poolSize, max);
+        }
+        return Math.min(requested, max);
+    }
+
+    /**
+     * Ejecuta una operación de hashing en el pool y espera su resultado.
+     *
+     * @param task Operación (encode o matches)
+     * @return Resultado de la operación
+     * @throws ServiceOverloadedException si la cola está llena o se supera la espera máxima
+     */
+    public <T> T execute(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                if (startedAt - submittedAt + averageRunTimeNanos() >= maxWaitNanos) {
+                    throw EXPIRED_IN_QUEUE;
+                }
+
+                recordQueueTime(startedAt - submittedAt);
+                try {
+                    return task.get();
+                } finally {
+                    recordRunTime(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Password hashing queue full, rejecting request");
+            throw new ServiceOverloadedException("Server is busy, please retry later", retryAfterSeconds);
+        }
+
+        try {
+            return future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw timeout();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() == EXPIRED_IN_QUEUE) {
+                throw timeout();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Ejecuta una operación solo si hay un hilo de hashing libre.
+     *
+     * Para trabajo que puede no hacerse: con el pool ocupado o algo en cola
+     * devuelve vacío sin encolar ni esperar, y la tarea no se ejecuta.
+     * No cuenta como rechazo ni timeout (se cuenta en skipped).
+     *
+     * @param task Operación
+     * @return Resultado, o vacío si el pool estaba ocupado o no terminó dentro de max-wait
+     */
+    public <T> Optional<T> tryExecute(Supplier<T> task) {
+        if (executor.getActiveCount() >= poolSize || !executor.getQueue().isEmpty()) {
+            skipped.increment();
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.ofNullable(execute(task));
+        } catch (ServiceOverloadedException e) {
+            // El pool se llenó entre la comprobación y el submit (cuenta también como rechazo o timeout)
+            skipped.increment();
+            return Optional.empty();
+        }
+    }
+
+    private ServiceOverloadedException timeout() {
+        timedOut.increment();
+        log.warn("Password hashing did not complete within {} ms", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+        return new ServiceOverloadedException("Server is busy, please retry later", retryAfterSeconds);
+    }
+
+    /**
+     * Ejecuta un lote de operaciones en paralelo (importaciones masivas).
+     *
+     * Como mucho password-hashing.import-concurrency operaciones del lote están
+     * en el pool a la vez (menos que hilos): el lote nunca llena la cola ni ocupa
+     * todos los hilos que usan los logins. Si aun así se rechaza una (cola llena
+     * por tráfico de login), se ejecuta en el hilo llamante: el lote se frena en
+     * vez de fallar.
+     *
+     * @param tasks Operaciones
+     * @return Resultados en el mismo orden
+     */
+    public <T> List<T> executeAll(List<Supplier<T>> tasks) {
+        Semaphore inFlight = new Semaphore(importConcurrency);
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+
+        try {
+            for (Supplier<T> task : tasks) {
+                inFlight.acquire();
+                long submittedAt = System.nanoTime();
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            long startedAt = System.nanoTime();
+                            recordQueueTime(startedAt - submittedAt);
+                            try {
+                                return task.get();
+                            } finally {
+                                recordRunTime(System.nanoTime() - startedAt);
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    inFlight.release();
+                    futures.add(CompletableFuture.completedFuture(task.get()));
+                }
+            }
+
+            List<T> results = new ArrayList<>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Snapshot de las métricas del pool.
+     *
+     * @return Cola actual, tiempos en cola y de ejecución, rechazos, timeouts y descartes
+     */
+    public HashingStats stats() {
+        long count = executed.sum();
+        return new HashingStats(
+                executor.getActiveCount(),
+                executor.getQueue().size(),
+                count,
+                count > 0 ? TimeUnit.NANOSECONDS.toMicros(queueTimeNanos.sum() / count) : 0,
+                TimeUnit.NANOSECONDS.toMicros(maxQueueTimeNanos.get()),
+                TimeUnit.NANOSECONDS.toMicros(averageRunTimeNanos()),
+                rejected.sum(),
+                timedOut.sum(),
+                skipped.sum()
+        );
+    }
+
+    /**
+     * Loguea periódicamente las métricas del pool.
+     */
+    @Scheduled(fixedDelayString = "${password-hashing.stats-log-interval:300000}")
+    public void logStats() {
+        log.debug("Password hashing stats: {}", stats());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void recordQueueTime(long nanos) {
+        executed.increment();
+        queueTimeNanos.add(nanos);
+        maxQueueTimeNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void recordRunTime(long nanos) {
+        completed.increment();
+        runTimeNanos.add(nanos);
+    }
+
+    /**
+     * Duración media de un hash ejecutado (0 hasta que termine el primero).
+     */
+    private long averageRunTimeNanos() {
+        long count = completed.sum();
+        return count > 0 ? runTimeNanos.sum() / count : 0;
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Métricas del pool de hashing (tiempos en microsegundos).
+     */
+    public record HashingStats(
+            int active,
+            int queued,
+            long executed,
+            long avgQueueTimeMicros,
+            long maxQueueTimeMicros,
+            long avgRunTimeMicros,
+            long rejected,
+            long timedOut,
+            long skipped
+    ) {}
+}
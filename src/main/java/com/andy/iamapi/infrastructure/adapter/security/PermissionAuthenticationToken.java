@@ -0,0 +1,31 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.infrastructure.adapter.security.PermissionIndex.PermissionSet;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Autenticación JWT que además lleva los permisos efectivos del usuario como bitmap.
+ *
+ * La crea JwtAuthenticationFilter; PermissionChecker la usa para
+ * resolver los permisos con un test de bit.
+ */
+public class PermissionAuthenticationToken extends UsernamePasswordAuthenticationToken {
+
+    private final transient PermissionSet permissions;
+
+    public PermissionAuthenticationToken(
+            Object principal,
+            Collection<? extends GrantedAuthority> authorities,
+            PermissionSet permissions
+    ) {
+        super(principal, null, authorities);
+        this.permissions = permissions;
+    }
+
+    public PermissionSet getPermissions() {
+        return permissions;
+    }
+}
@@ -0,0 +1,47 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * Comprobación de permisos para expresiones de seguridad.
+ *
+ * Uso:
+ * PreAuthorize("@permissions.has(authentication, 'USER_READ')")
+ *
+ * Con autenticación JWT los permisos ya vienen resueltos como bitmap
+ * (PermissionAuthenticationToken) y la comprobación es un test de bit.
+ * Para otros tipos de autenticación se calculan a partir de los roles.
+ */
+@Component("permissions")
+public class PermissionChecker {
+
+    private final PermissionIndex permissionIndex;
+
+    public PermissionChecker(PermissionIndex permissionIndex) {
+        this.permissionIndex = permissionIndex;
+    }
+
+    /**
+     * Indica si el usuario autenticado tiene un permiso.
+     *
+     * @param authentication Autenticación actual
+     * @param permissionName Nombre del permiso (ej: "USER_READ")
+     * @return true si alguno de sus roles concede el permiso
+     */
+    public boolean has(Authentication authentication, String permissionName) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+
+        if (authentication instanceof PermissionAuthenticationToken token && token.getPermissions() != null) {
+            return token.getPermissions().has(permissionName);
+        }
+
+        return permissionIndex.fromRoles(authentication.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .toList())
+                .has(permissionName);
+    }
+}
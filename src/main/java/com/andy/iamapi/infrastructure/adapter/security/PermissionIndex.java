@@ -0,0 +1,231 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.model.Permission;
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.domain.port.output.PermissionRepository;
+import com.andy.iamapi.domain.port.output.RoleRepository;
+import com.andy.iamapi.infrastructure.adapter.persistance.cache.ReferenceDataCache.ReferenceDataReloadedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Índice de permisos para representarlos como bitmap.
+ *
+ * Cada permiso de la tabla permissions ocupa una posición fija (orden por nombre).
+ * Los permisos efectivos de un usuario (unión de los de sus roles) se codifican
+ * como un BitSet: comprobar un permiso es un test de bit.
+ *
+ * El índice tiene un id de versión (hash de los nombres ordenados y del bitmap
+ * de cada rol). Se incluye en el token (claim "pix") junto al bitmap (claim "perms"):
+ * si cambia el catálogo de permisos o los permisos de algún rol, el id cambia y los
+ * bitmaps antiguos se ignoran (se recalculan a partir de los roles). Así quitar un
+ * permiso a un rol tiene efecto inmediato, sin esperar a que caduquen los tokens.
+ *
+ * El catálogo se construye al arrancar y cada vez que ReferenceDataCache recarga
+ * roles y permisos (escrituras, invalidaciones de otras instancias, recarga periódica).
+ */
+@Component
+public class PermissionIndex {
+    private static final Logger log = LoggerFactory.getLogger(PermissionIndex.class);
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private static final Snapshot EMPTY = new Snapshot("", Map.of(), Map.of());
+
+    private final PermissionRepository permissionRepository;
+    private final RoleRepository roleRepository;
+
+    /**
+     * Si se incluye el bitmap en los access tokens.
+     */
+    private final boolean tokenClaimEnabled;
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    public PermissionIndex(
+            PermissionRepository permissionRepository,
+            RoleRepository roleRepository,
+            @Value("${jwt.permission-bitmap.enabled:false}") boolean tokenClaimEnabled
+    ) {
+        this.permissionRepository = permissionRepository;
+        this.roleRepository = roleRepository;
+        this.tokenClaimEnabled = tokenClaimEnabled;
+    }
+
+    /**
+     * Carga inicial al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        reload();
+    }
+
+    /**
+     * Reconstruye el índice cuando cambian roles o permisos.
+     *
+     * Los repositorios leen de la caché de datos de referencia: reconstruir no toca la BD.
+     */
+    @EventListener(ReferenceDataReloadedEvent.class)
+    public void onReferenceDataReloaded() {
+        reload();
+    }
+
+    /**
+     * Construye el catálogo de permisos y los bitmaps de cada rol.
+     */
+    public void reload() {
+        try {
+            String[] names = permissionRepository.findAll().stream()
+                    .map(Permission::getName)
+                    .sorted()
+                    .toArray(String[]::new);
+
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                positions.put(names[i], i);
+            }
+
+            Map<String, BitSet> roleBitmaps = new HashMap<>();
+            for (Role role : roleRepository.findAll()) {
+                BitSet bits = new BitSet(names.length);
+                role.getPermissions().forEach(permission -> {
+                    Integer position = positions.get(permission.getName());
+                    if (position != null) {
+                        bits.set(position);
+                    }
+                });
+                roleBitmaps.put(role.getName(), bits);
+            }
+
+            snapshot = new Snapshot(indexId(names, roleBitmaps), Map.copyOf(positions), Map.copyOf(roleBitmaps));
+
+            log.info("Permission index {} loaded with {} permissions and {} roles",
+                    snapshot.id(), names.length, roleBitmaps.size());
+        } catch (RuntimeException e) {
+            log.error("Could not reload permission index, keeping previous one", e);
+        }
+    }
+
+    /**
+     * Claims de permisos para un access token, si el bitmap está activado.
+     *
+     * @param roleNames Roles del usuario
+     * @return Id del índice y bitmap codificado, o vacío si está desactivado o el índice no está cargado
+     */
+    public Optional<EncodedPermissions> encodeForToken(Collection<String> roleNames) {
+        Snapshot current = snapshot;
+
+        if (!tokenClaimEnabled || current == EMPTY) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new EncodedPermissions(current.id(), encode(fromRoles(current, roleNames))));
+    }
+
+    /**
+     * Permisos efectivos a partir de los claims del token.
+     *
+     * Si el token trae un bitmap del índice actual se usa directamente;
+     * si no (token antiguo o índice distinto) se calcula a partir de los roles.
+     *
+     * @param indexId Claim pix (puede ser null)
+     * @param bitmap Claim perms (puede ser null)
+     * @param roleNames Roles del token
+     * @return Permisos efectivos
+     */
+    public PermissionSet resolve(String indexId, String bitmap, Collection<String> roleNames) {
+        Snapshot current = snapshot;
+
+        if (bitmap != null && current.id().equals(indexId)) {
+            try {
+                return new PermissionSet(current.positions(), BitSet.valueOf(DECODER.decode(bitmap)));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring malformed permission bitmap");
+            }
+        }
+
+        return new PermissionSet(current.positions(), fromRoles(current, roleNames));
+    }
+
+    /**
+     * Permisos efectivos de un conjunto de roles (unión de sus bitmaps).
+     *
+     * @param roleNames Roles del usuario
+     * @return Permisos efectivos
+     */
+    public PermissionSet fromRoles(Collection<String> roleNames) {
+        Snapshot current = snapshot;
+        return new PermissionSet(current.positions(), fromRoles(current, roleNames));
+    }
+
+    private static BitSet fromRoles(Snapshot current, Collection<String> roleNames) {
+        BitSet bits = new BitSet();
+        for (String roleName : roleNames) {
+            BitSet roleBits = current.roleBitmaps().get(roleName);
+            if (roleBits != null) {
+                bits.or(roleBits);
+            }
+        }
+        return bits;
+    }
+
+    private static String encode(BitSet bits) {
+        // toByteArray es little-endian: el bit 0 es el bit menos significativo del primer byte
+        return ENCODER.encodeToString(bits.toByteArray());
+    }
+
+    /**
+     * Id de versión: primeros 8 bytes del SHA-256 de los nombres ordenados
+     * y de los bitmaps de los roles (ordenados por nombre de rol).
+     */
+    private static String indexId(String[] sortedNames, Map<String, BitSet> roleBitmaps) {
+        StringBuilder content = new StringBuilder(String.join(",", sortedNames));
+        roleBitmaps.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> content.append('|').append(entry.getKey())
+                        .append('=').append(encode(entry.getValue())));
+
+        byte[] digest = TokenDigest.sha256(content.toString());
+        return ENCODER.encodeToString(Arrays.copyOf(digest, 8));
+    }
+
+    /**
+     * Permisos efectivos de un usuario: bitmap + posiciones del índice con el que se construyó.
+     *
+     * Guarda sus propias posiciones para que una recarga del índice durante
+     * el request no desplace los bits.
+     */
+    public record PermissionSet(Map<String, Integer> positions, BitSet bits) {
+
+        /**
+         * Comprueba un permiso con un lookup de posición y un test de bit.
+         *
+         * @param permissionName Nombre del permiso (ej: "USER_READ")
+         * @return true si el usuario tiene el permiso
+         */
+        public boolean has(String permissionName) {
+            Integer position = positions.get(permissionName);
+            return position != null && bits.get(position);
+        }
+    }
+
+    /**
+     * Claims de permisos de un token: id del índice (pix) y bitmap (perms).
+     */
+    public record EncodedPermissions(String indexId, String bitmap) {}
+
+    private record Snapshot(String id, Map<String, Integer> positions, Map<String, BitSet> roleBitmaps) {}
+}
@@ -0,0 +1,78 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import static com.andy.iamapi.domain.util.IpAddressUtil.getClientIp;
+
+/**
+ * Aplica el resultado del rate limit lanzado por RateLimitFilter.
+ *
+ * Va después de JwtAuthenticationFilter: la ida a Redis y la validación del JWT
+ * se solapan, y aquí solo se espera lo que falte. La espera está acotada por
+ * rate-limit.redis.timeout (RateLimitService completa el future como mucho en ese tiempo).
+ *
+ * Las políticas por usuario (KeyStrategy.USER) que RateLimitFilter no pudo resolver
+ * (token aún no verificado) se comprueban aquí, con el uid del usuario que
+ * JwtAuthenticationFilter acaba de autenticar.
+ *
+ * Si el cliente excede el límite, retorna 429 Too Many Requests
+ * sin llegar a autorización ni a los controllers.
+ */
+@Component
+@Order(3)
+public class RateLimitDecisionFilter extends OncePerRequestFilter {
+
+    private final RateLimitService rateLimitService;
+    private final RateLimitSubjects rateLimitSubjects;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitDecisionFilter(
+            RateLimitService rateLimitService,
+            RateLimitSubjects rateLimitSubjects,
+            ObjectMapper objectMapper
+    ) {
+        this.rateLimitService = rateLimitService;
+        this.rateLimitSubjects = rateLimitSubjects;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Boolean> decision =
+                (CompletableFuture<Boolean>) request.getAttribute(RateLimitFilter.DECISION_ATTRIBUTE);
+
+        // Política por usuario: el usuario ya está autenticado (o no lo estará)
+        if (request.getAttribute(RateLimitFilter.DEFERRED_POLICY_ATTRIBUTE) instanceof RateLimitPolicy policy) {
+            String subject = rateLimitSubjects.afterAuthentication(
+                    getClientIp(request), SecurityContextHolder.getContext().getAuthentication());
+            decision = rateLimitService.isAllowed(policy, subject);
+        }
+
+        // Sin comprobación pendiente (ya resuelta en RateLimitFilter o sin política)
+        if (decision != null && !decision.join()) {
+            RateLimitFilter.sendRateLimitExceededResponse(
+                    response, objectMapper, getClientIp(request), request.getRequestURI());
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -16,6 +16,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static com.andy.iamapi.domain.util.IpAddressUtil.getClientIp;
 
@@ -25,14 +27,29 @@ import static com.andy.iamapi.domain.util.IpAddressUtil.getClientIp;
  * Se ejecuta una vez por request (OncePerRequestFilter) antes de
  * Spring Security y los controllers.
  *
- * Si el cliente excede el límite, retorna 429 Too Many Requests
- * inmediatamente sin procesar el request.
+ * Lanza la comprobación del rate limit y deja seguir el request sin esperar
+ * a Redis: mientras Redis responde se valida el JWT. RateLimitDecisionFilter
+ * (después de JwtAuthenticationFilter) espera el resultado antes de llegar a
+ * autorización y controllers.
  *
- * Endpoints protegidos:
+ * Si el resultado ya se conoce (rechazo en caché local, token de la reserva local),
+ * se aplica aquí mismo: un cliente bloqueado recibe 429 sin validar su JWT.
+ *
+ * En modo combinado (rate-limit.fused-check.enabled) la misma ida a Redis consulta
+ * la revocación del token del header Authorization (ver RateLimitRevocationScript).
+ *
+ * Las políticas por usuario (KeyStrategy.USER) necesitan el token verificado:
+ * si el token ya está en la caché de claims verificados se comprueban aquí como
+ * las demás; si no, en RateLimitDecisionFilter, sin solape ni modo combinado
+ * (ver RateLimitSubjects).
+ *
+ * Los límites de cada endpoint se definen en rate-limit.policies
+ * (application.yml) y se resuelven con RateLimitPolicies. Por defecto:
  * - POST /api/auth/login → 5 req/min por IP
  * - POST /api/auth/register → 3 req/hora por IP
  * - POST /api/auth/refresh → 10 req/min por IP
- * - GET /api/users → 30 req/min por IP
+ * - GET /api/users → 30 req/min por usuario
+ * - Resto de /api/** → límites generales por grupo (users, roles, tokens...) y usuario
  */
 @Component
 @Order(1)
@@ -40,14 +57,40 @@ public class RateLimitFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
 
+    /**
+     * Atributo del request con el resultado pendiente (CompletableFuture&lt;Boolean&gt;).
+     */
+    static final String DECISION_ATTRIBUTE = RateLimitFilter.class.getName() + ".decision";
+
+    /**
+     * Atributo del request con la comprobación que también consulta la revocación
+     * del token. JwtAuthenticationFilter la espera antes de validar el token.
+     */
+    static final String REVOCATION_PREFETCH_ATTRIBUTE = RateLimitFilter.class.getName() + ".revocation";
+
+    /**
+     * Atributo del request con la política que se comprueba tras autenticar
+     * (KeyStrategy.USER con token). La comprueba RateLimitDecisionFilter.
+     */
+    static final String DEFERRED_POLICY_ATTRIBUTE = RateLimitFilter.class.getName() + ".deferredPolicy";
+
     private final RateLimitService rateLimitService;
+    private final RateLimitPolicies rateLimitPolicies;
+    private final RateLimitSubjects rateLimitSubjects;
+    private final RateLimitRevocationScript revocationScript;
     private final ObjectMapper objectMapper;
 
     public RateLimitFilter(
             RateLimitService rateLimitService,
+            RateLimitPolicies rateLimitPolicies,
+            RateLimitSubjects rateLimitSubjects,
+            RateLimitRevocationScript revocationScript,
             ObjectMapper objectMapper
     ) {
         this.rateLimitService = rateLimitService;
+        this.rateLimitPolicies = rateLimitPolicies;
+        this.rateLimitSubjects = rateLimitSubjects;
+        this.revocationScript = revocationScript;
         this.objectMapper = objectMapper;
     }
 
@@ -57,9 +100,9 @@ public class RateLimitFilter extends OncePerRequestFilter {
      * Para cada request:
      * 1. Extrae la IP del cliente
      * 2. Identifica qué endpoint se está llamando
-     * 3. Verifica el rate limit correspondiente
-     * 4. Si está permitido → continúa la cadena de filtros
-     * 5. Si está bloqueado → retorna 429 inmediatamente
+     * 3. Lanza la comprobación del rate limit correspondiente
+     * 4. Si ya se sabe que está bloqueado → retorna 429 inmediatamente
+     * 5. Si no → guarda el resultado pendiente y continúa la cadena de filtros
      *
      * @param request Request HTTP entrante
      * @param response Response HTTP
@@ -76,50 +119,64 @@ public class RateLimitFilter extends OncePerRequestFilter {
         String method = request.getMethod();
         String ipAddress = getClientIp(request);
 
+        // Lanzar la comprobación según el endpoint
+        CompletableFuture<Boolean> decision = checkRateLimit(request, path, method, ipAddress);
 
-        // Verificar rate limit según el endpoint
-        boolean allowed = checkRateLimit(path,method,ipAddress);
-
-        if (!allowed) {
+        if (decision.isDone() && !decision.join()) {
             // Bloquear el request con 429 Too Many Requests
-            sendRateLimitExceededResponse(response, ipAddress, path);
+            sendRateLimitExceededResponse(response, objectMapper, ipAddress, path);
             return;  // No continúa la cadena de filtros
         }
 
-        // Request permitido → continuar con el siguiente filtro
+        // Resultado pendiente → lo espera RateLimitDecisionFilter
+        request.setAttribute(DECISION_ATTRIBUTE, decision);
         filterChain.doFilter(request, response);
     }
 
     /**
      * Determina qué límite aplicar según el endpoint y método HTTP.
      *
+     * @param request Request HTTP (token para políticas USER y el modo combinado)
      * @param path URI del request (ej: "/api/auth/login")
      * @param method Método HTTP (GET, POST, etc.)
      * @param ipAddress IP del cliente
-     * @return true si el request está permitido, false si está bloqueado
+     * @return Future con true si el request está permitido, false si está bloqueado
      */
-    private boolean checkRateLimit(String path, String method, String ipAddress) {
-        // Login: POST /api/auth/login
-        if ("POST".equals(method) && path.equals("/api/auth/login")) {
-            return rateLimitService.isLoginAllowed(ipAddress);
-        }
-        // Register: POST /api/auth/register
-        if ("POST".equals(method) && path.equals("/api/auth/register")) {
-            return rateLimitService.isRegisterAllowed(ipAddress);
+    private CompletableFuture<Boolean> checkRateLimit(
+            HttpServletRequest request,
+            String path,
+            String method,
+            String ipAddress
+    ) {
+        RateLimitPolicy policy = rateLimitPolicies.match(method, path);
+
+        // Endpoint sin política: sin rate limit
+        if (policy == null) {
+            return CompletableFuture.completedFuture(true);
         }
 
-        // Refresh: POST /api/auth/refresh
-        if ("POST".equals(method) && path.equals("/api/auth/refresh")) {
-            return rateLimitService.isRefreshAllowed(ipAddress);
+        Optional<String> token = BearerTokens.resolve(request);
+        String subject = rateLimitSubjects.beforeAuthentication(policy, ipAddress, token);
+
+        // Política por usuario con un token aún no verificado: se comprueba tras autenticar (RateLimitDecisionFilter)
+        if (subject == null) {
+            request.setAttribute(DEFERRED_POLICY_ATTRIBUTE, policy);
+            return CompletableFuture.completedFuture(true);
         }
 
-        // Listado de usuarios: GET /api/users
-        if ("GET".equals(method) && path.equals("/api/users")) {
-            return rateLimitService.isGeneralAllowed(ipAddress);
+        if (!rateLimitService.fusesRevocation(policy)) {
+            return rateLimitService.isAllowed(policy, subject);
         }
 
-        // El resto de endpoints no tienen rate limit (por ahora)
-        return true;
+        RateLimitRevocationScript.TokenRevocation revocation = token
+                .flatMap(revocationScript::peek)
+                .orElse(null);
+
+        CompletableFuture<Boolean> decision = rateLimitService.isAllowed(policy, subject, revocation);
+        if (revocation != null) {
+            request.setAttribute(REVOCATION_PREFETCH_ATTRIBUTE, decision);
+        }
+        return decision;
     }
 
     /**
@@ -129,11 +186,13 @@ public class RateLimitFilter extends OncePerRequestFilter {
      * pueda manejarlo correctamente.
      *
      * @param response HttpServletResponse para escribir la respuesta
+     * @param objectMapper Serializador del JSON de error
      * @param ipAddress IP del cliente (para el log)
      * @param path Endpoint que se estaba llamando
      */
-    private void sendRateLimitExceededResponse(
+    static void sendRateLimitExceededResponse(
             HttpServletResponse response,
+            ObjectMapper objectMapper,
             String ipAddress,
             String path
     )throws IOException {
@@ -0,0 +1,196 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.infrastructure.config.RateLimitProperties;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.KeyStrategy;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.Limit;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.Policy;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConfigurationBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Tabla de políticas de rate limiting compilada en un trie de rutas.
+ *
+ * Al arrancar, cada política de RateLimitProperties se convierte en un
+ * RateLimitPolicy con su BucketConfiguration ya construida y el prefijo de su
+ * clave ya calculado, y se coloca en el trie según los segmentos de su ruta.
+ *
+ * Buscar la política de un request es recorrer el trie segmento a segmento
+ * (sin regex ni comparar contra cada política). Precedencia en cada nivel:
+ * segmento literal > {variable} > **. Si el literal no lleva a ninguna política
+ * se prueba con la variable (backtracking), así /api/users/import y
+ * /api/users/{id} conviven.
+ *
+ * Una tabla mal definida (ruta vacía, ** en medio, sin límites, nombre o ruta repetidos)
+ * impide arrancar.
+ */
+@Component
+public class RateLimitPolicies {
+    private static final Logger log = LoggerFactory.getLogger(RateLimitPolicies.class);
+
+    private static final String ANY_METHOD = "*";
+    private static final String DOUBLE_WILDCARD = "**";
+
+    private final Node root;
+
+    public RateLimitPolicies(RateLimitProperties properties) {
+        this.root = compile(properties);
+    }
+
+    /**
+     * Política aplicable a un request.
+     *
+     * @param method Método HTTP
+     * @param path URI del request (sin query string)
+     * @return Política más específica, o null si ninguna encaja (sin rate limit)
+     */
+    public RateLimitPolicy match(String method, String path) {
+        return match(root, path, 0, method);
+    }
+
+    private static RateLimitPolicy match(Node node, String path, int from, String method) {
+        // Saltar separadores (también "//" y la "/" final)
+        int start = from;
+        while (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+
+        if (start == path.length()) {
+            RateLimitPolicy exact = node.policyFor(method);
+            if (exact != null) {
+                return exact;
+            }
+            // "/api/roles/**" también cubre "/api/roles"
+            return node.doubleWildcard != null ? node.doubleWildcard.policyFor(method) : null;
+        }
+
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        String segment = path.substring(start, end);
+
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            RateLimitPolicy policy = match(literal, path, end, method);
+            if (policy != null) {
+                return policy;
+            }
+        }
+
+        if (node.wildcard != null) {
+            RateLimitPolicy policy = match(node.wildcard, path, end, method);
+            if (policy != null) {
+                return policy;
+            }
+        }
+
+        return node.doubleWildcard != null ? node.doubleWildcard.policyFor(method) : null;
+    }
+
+    private static Node compile(RateLimitProperties properties) {
+        Node root = new Node();
+        Set<String> names = new HashSet<>();
+
+        for (Policy policy : properties.policies()) {
+            if (policy.name() == null || policy.name().isBlank()) {
+                throw new IllegalStateException("Rate limit policy without name: " + policy);
+            }
+            if (!names.add(policy.name())) {
+                throw new IllegalStateException("Duplicate rate limit policy name: " + policy.name());
+            }
+            if (policy.path() == null || !policy.path().startsWith("/")) {
+                throw new IllegalStateException("Rate limit policy " + policy.name() + " needs an absolute path");
+            }
+
+            RateLimitPolicy compiled = new RateLimitPolicy(
+                    policy.name(),
+                    policy.key() != null ? policy.key() : KeyStrategy.IP,
+                    bucketConfiguration(policy),
+                    policy.version()
+            );
+
+            String method = policy.method() == null ? ANY_METHOD : policy.method().toUpperCase(Locale.ROOT);
+            Node leaf = insert(root, policy);
+
+            if (leaf.policies.putIfAbsent(method, compiled) != null) {
+                throw new IllegalStateException("Rate limit policies overlap on " + method + " " + policy.path());
+            }
+        }
+
+        log.info("Rate limit policies compiled: {}", names);
+        return root;
+    }
+
+    private static Node insert(Node root, Policy policy) {
+        String[] segments = policy.path().split("/");
+        Node node = root;
+
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty()) {
+                continue;
+            }
+
+            if (segment.equals(DOUBLE_WILDCARD)) {
+                if (i != segments.length - 1) {
+                    throw new IllegalStateException(
+                            "'**' must be the last segment in rate limit policy " + policy.name());
+                }
+                if (node.doubleWildcard == null) {
+                    node.doubleWildcard = new Node();
+                }
+                node = node.doubleWildcard;
+            } else if (segment.equals("*") || (segment.startsWith("{") && segment.endsWith("}"))) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+        return node;
+    }
+
+    private static BucketConfiguration bucketConfiguration(Policy policy) {
+        if (policy.limits() == null || policy.limits().isEmpty()) {
+            throw new IllegalStateException("Rate limit policy " + policy.name() + " has no limits");
+        }
+
+        ConfigurationBuilder builder = BucketConfiguration.builder();
+        for (Limit limit : policy.limits()) {
+            Objects.requireNonNull(limit.refillPeriod(),
+                    "Rate limit policy " + policy.name() + " needs a refill-period");
+
+            builder.addLimit(Bandwidth.builder()
+                    .capacity(limit.capacity())
+                    .refillGreedy(limit.refillTokens() != null ? limit.refillTokens() : limit.capacity(),
+                            limit.refillPeriod())
+                    .build());
+        }
+        return builder.build();
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private final Map<String, RateLimitPolicy> policies = new HashMap<>();
+        private Node wildcard;
+        private Node doubleWildcard;
+
+        private RateLimitPolicy policyFor(String method) {
+            RateLimitPolicy policy = policies.get(method);
+            return policy != null ? policy : policies.get(ANY_METHOD);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.KeyStrategy;
+import io.github.bucket4j.BucketConfiguration;
+
+/**
+ * Política de rate limiting compilada (ver RateLimitPolicies).
+ *
+ * La configuración del bucket y el prefijo de la clave se construyen una vez
+ * al arrancar; por request solo se concatena el identificador del cliente.
+ *
+ * @param name Nombre de la política
+ * @param keyStrategy Cómo se identifica al cliente
+ * @param configuration Configuración de Bucket4j ya construida
+ * @param version Versión de la configuración (0 = no reemplazar la de buckets existentes)
+ * @param keyPrefix "rate_limit:{name}:"
+ */
+public record RateLimitPolicy(
+        String name,
+        KeyStrategy keyStrategy,
+        BucketConfiguration configuration,
+        long version,
+        String keyPrefix
+) {
+    private static final String KEY_PREFIX = "rate_limit";
+
+    public RateLimitPolicy(String name, KeyStrategy keyStrategy, BucketConfiguration configuration, long version) {
+        this(name, keyStrategy, configuration, version, KEY_PREFIX + ":" + name + ":");
+    }
+
+    /**
+     * Clave del bucket en Redis. Ejemplo: "rate_limit:login:192.168.1.1"
+     *
+     * @param subject Identificador del cliente (según keyStrategy)
+     */
+    public String key(String subject) {
+        return keyPrefix + subject;
+    }
+}
@@ -0,0 +1,274 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit y revocación del token en una sola ida a Redis.
+ *
+ * Un request autenticado consulta Redis para el bucket (Bucket4j) y, cuando las
+ * cachés locales no bastan, para la revocación (blacklist y época del usuario).
+ * Este script Lua hace las tres cosas de forma atómica y devuelve un array de 4 enteros:
+ * {permitido, tokens restantes o ms hasta la recarga, PTTL de la blacklist, época}.
+ *
+ * El estado de Bucket4j en Redis es binario y no se puede leer desde Lua, así que
+ * el script lleva su propio token bucket (mismo algoritmo: recarga continua, un
+ * token por request, todos los límites de la política) en un hash aparte:
+ * Key: "fused:rate_limit:{política}:{cliente}" (hash)
+ * Campos: "ts" (última actualización en ms), "t1".."tN" (tokens de cada límite)
+ * TTL: lo que tarda el bucket en llenarse
+ *
+ * La configuración viaja en cada llamada: un cambio de límites se aplica al
+ * momento, sin versión.
+ *
+ * Los resultados de revocación alimentan RevocationNearCache y UserRevocationEpochs,
+ * así JwtTokenService los encuentra en memoria al validar el token.
+ *
+ * El script se ejecuta con EVALSHA; si Redis no lo tiene (reinicio, SCRIPT FLUSH)
+ * se reenvía con EVAL, que lo vuelve a cargar.
+ *
+ * Todas las claves del script deben estar en el mismo nodo: no apto para Redis Cluster.
+ */
+@Component
+public class RateLimitRevocationScript {
+    private static final Logger log = LoggerFactory.getLogger(RateLimitRevocationScript.class);
+
+    private static final String KEY_PREFIX = "fused:";
+
+    /**
+     * KEYS[1] = bucket, KEYS[2] = blacklist (o ""), KEYS[3] = época (o "")
+     * ARGV[1] = ahora (ms), y por cada límite: capacidad, tokens por recarga, periodo (ms)
+     *
+     * Devuelve {1, tokens restantes, pttl, época} si se consumió el token,
+     * o {0, ms hasta tener un token, pttl, época} si no.
+     * pttl: -2 si el token no está revocado. época: -1 si el usuario no tiene.
+     *
+     * Package-private para los tests.
+     */
+    static final String SCRIPT = """
+            local now = tonumber(ARGV[1])
+            local limits = (#ARGV - 1) / 3
+            local last = tonumber(redis.call('HGET', KEYS[1], 'ts'))
+            local tokens = {}
+            local allowed = 1
+            local wait = 0
+            local ttl = 1
+            for i = 1, limits do
+                local capacity = tonumber(ARGV[i * 3 - 1])
+                local refill = tonumber(ARGV[i * 3])
+                local period = tonumber(ARGV[i * 3 + 1])
+                local available = capacity
+                if last then
+                    available = tonumber(redis.call('HGET', KEYS[1], 't' .. i)) or capacity
+                    available = math.min(capacity, available + math.max(now - last, 0) * refill / period)
+                end
+                tokens[i] = available
+                if available < 1 then
+                    allowed = 0
+                    wait = math.max(wait, math.ceil((1 - available) * period / refill))
+                end
+                ttl = math.max(ttl, math.ceil(capacity * period / refill))
+            end
+            local result = wait
+            if allowed == 1 then
+                result = -1
+                for i = 1, limits do
+                    tokens[i] = tokens[i] - 1
+                    redis.call('HSET', KEYS[1], 't' .. i, tostring(tokens[i]))
+                    if result < 0 or tokens[i] < result then
+                        result = math.floor(tokens[i])
+                    end
+                end
+                redis.call('HSET', KEYS[1], 'ts', tostring(now))
+                redis.call('PEXPIRE', KEYS[1], ttl)
+            end
+            local revoked = -2
+            if KEYS[2] ~= '' then
+                revoked = redis.call('PTTL', KEYS[2])
+            end
+            local epoch = -1
+            if KEYS[3] ~= '' then
+                epoch = tonumber(redis.call('GET', KEYS[3])) or -1
+            end
+            return {allowed, result, revoked, epoch}
+            """;
+
+    private static final String SCRIPT_SHA = sha1(SCRIPT);
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final StatefulRedisConnection<String, byte[]> connection;
+    private final RevocationNearCache revocationCache;
+    private final UserRevocationEpochs revocationEpochs;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitRevocationScript(
+            StatefulRedisConnection<String, byte[]> rateLimitRedisConnection,
+            RevocationNearCache revocationCache,
+            UserRevocationEpochs revocationEpochs,
+            ObjectMapper objectMapper
+    ) {
+        this.connection = rateLimitRedisConnection;
+        this.revocationCache = revocationCache;
+        this.revocationEpochs = revocationEpochs;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Consume un token del bucket y consulta la revocación del token en una ida a Redis.
+     *
+     * @param bucketKey Clave del bucket (RateLimitPolicy.key)
+     * @param configuration Límites de la política
+     * @param revocation Token a consultar, o null si el request no trae token
+     * @return Resultado del bucket (la revocación ya se ha registrado en las cachés locales)
+     */
+    public CompletableFuture<Result> execute(
+            String bucketKey,
+            BucketConfiguration configuration,
+            TokenRevocation revocation
+    ) {
+        String[] keys = {
+                KEY_PREFIX + bucketKey,
+                revocation != null && revocation.revocationId() != null
+                        ? RedisTokenBlacklist.key(revocation.revocationId()) : "",
+                revocation != null && revocation.userId() != null
+                        ? UserRevocationEpochs.key(revocation.userId()) : ""
+        };
+        byte[][] args = arguments(configuration);
+
+        CompletableFuture<List<Object>> reply = connection.async()
+                .<List<Object>>evalsha(SCRIPT_SHA, ScriptOutputType.MULTI, keys, args)
+                .toCompletableFuture()
+                .exceptionallyCompose(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (!(cause instanceof RedisNoScriptException)) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    log.debug("Rate limit script not cached in Redis, sending it with EVAL");
+                    return connection.async()
+                            .<List<Object>>eval(SCRIPT, ScriptOutputType.MULTI, keys, args)
+                            .toCompletableFuture();
+                });
+
+        return reply.thenApply(values -> {
+            boolean allowed = ((Long) values.get(0)) == 1;
+            long bucketValue = (Long) values.get(1);
+
+            if (revocation != null) {
+                cacheRevocation(revocation, (Long) values.get(2), (Long) values.get(3));
+            }
+
+            return allowed
+                    ? new Result(true, bucketValue, 0)
+                    : new Result(false, 0, TimeUnit.MILLISECONDS.toNanos(bucketValue));
+        });
+    }
+
+    /**
+     * Identifica el token del request para consultar su revocación junto al rate limit.
+     *
+     * Lee los claims SIN verificar la firma: solo sirven para elegir qué claves
+     * consultar. Un token falsificado consulta claves que no existen y después
+     * JwtTokenService lo rechaza igualmente al verificar la firma.
+     *
+     * @param token JWT del header Authorization
+     * @return Identificadores del token, o vacío si no tiene formato JWT
+     */
+    public Optional<TokenRevocation> peek(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            return Optional.empty();
+        }
+
+        try {
+            JsonNode payload = objectMapper.readTree(DECODER.decode(parts[1]));
+            String jti = payload.path("jti").asText(null);
+            String uid = payload.path("uid").asText(null);
+
+            return Optional.of(new TokenRevocation(
+                    jti != null ? RedisTokenBlacklist.jtiId(jti) : RedisTokenBlacklist.digestId(token),
+                    uid != null ? UUID.fromString(uid) : null
+            ));
+        } catch (Exception e) {
+            // Token mal formado: se comprueba solo el rate limit
+            return Optional.empty();
+        }
+    }
+
+    private void cacheRevocation(TokenRevocation revocation, long revokedTtl, long epoch) {
+        // PTTL: -2 no existe, -1 sin TTL (no debería ocurrir, lo tratamos como 1 hora)
+        if (revokedTtl != -2 && revocation.revocationId() != null) {
+            long ttl = revokedTtl == -1 ? TimeUnit.HOURS.toMillis(1) : revokedTtl;
+            revocationCache.onRevoked(revocation.revocationId(), System.currentTimeMillis() + ttl);
+        }
+        if (revocation.userId() != null) {
+            revocationEpochs.cacheLoaded(revocation.userId(), epoch);
+        }
+    }
+
+    /**
+     * ARGV del script: ahora (ms) y capacidad, tokens por recarga y periodo (ms) de cada límite.
+     * Package-private para los tests.
+     */
+    static byte[][] arguments(BucketConfiguration configuration) {
+        Bandwidth[] bandwidths = configuration.getBandwidths();
+        byte[][] args = new byte[1 + bandwidths.length * 3][];
+
+        args[0] = bytes(System.currentTimeMillis());
+        for (int i = 0; i < bandwidths.length; i++) {
+            args[1 + i * 3] = bytes(bandwidths[i].getCapacity());
+            args[2 + i * 3] = bytes(bandwidths[i].getRefillTokens());
+            args[3 + i * 3] = bytes(TimeUnit.NANOSECONDS.toMillis(bandwidths[i].getRefillPeriodNanos()));
+        }
+        return args;
+    }
+
+    private static byte[] bytes(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String sha1(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    /**
+     * Token del request a consultar junto al rate limit.
+     *
+     * @param revocationId Identificador en la blacklist (ver RedisTokenBlacklist.jtiId / digestId)
+     * @param userId Claim uid, o null en tokens antiguos (sin época)
+     */
+    public record TokenRevocation(String revocationId, UUID userId) {}
+
+    /**
+     * Resultado del bucket.
+     *
+     * @param allowed Si se consumió el token
+     * @param remainingTokens Tokens restantes (si se consumió)
+     * @param nanosToWaitForRefill Tiempo hasta tener un token (si no se consumió)
+     */
+    public record Result(boolean allowed, long remainingTokens, long nanosToWaitForRefill) {}
+}
@@ -1,99 +1,174 @@
 package com.andy.iamapi.infrastructure.adapter.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
 import io.github.bucket4j.BucketConfiguration;
-import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
+import io.github.bucket4j.distributed.proxy.AsyncProxyManager;
 import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteAsyncBucketBuilder;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.util.function.Supplier;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Servicio de Rate Limiting usando Bucket4j con Redis.
  *
- * Gestiona los límites de peticiones por IP para endpoints sensibles.
- * Cada combinación de (endpoint + IP) tiene su propio bucket en Redis.
+ * Aplica las políticas de RateLimitPolicies (definidas en rate-limit.policies).
+ * Cada combinación de (política + cliente) tiene su propio bucket en Redis.
  *
  * Algoritmo Token Bucket:
  * - Cada bucket tiene una capacidad máxima de tokens
  * - Cada request consume 1 token
  * - Los tokens se recargan automáticamente con el tiempo
  * - Si no hay tokens disponibles → 429 Too Many Requests
+ *
+ * Dos niveles:
+ * 1. Caché local de rechazos: una clave que acaba de quedarse sin tokens se
+ *    rechaza en memoria hasta que Redis le recargue uno (getNanosToWaitForRefill).
+ *    Durante un ataque de fuerza bruta la mayoría de requests se rechazan aquí,
+ *    sin ida a Redis.
+ * 2. Bucket en Redis: el resto de requests (los que pueden pasar) consumen
+ *    el token en Redis, compartido por todas las instancias.
+ *
+ * La caché local solo guarda rechazos: nunca deja pasar un request que Redis
+ * habría rechazado. Cada instancia aprende por su cuenta que una clave está
+ * bloqueada, con una ida a Redis por clave e instancia.
+ *
+ * Modo aproximado (rate-limit.lease.*), para buckets de mucho tráfico:
+ * la instancia reserva varios tokens del bucket en una sola CAS y sirve los
+ * siguientes requests desde memoria (ver TokenLeases). El límite global se
+ * respeta; el error es rechazar antes de tiempo mientras otras instancias
+ * tienen tokens reservados (como mucho max-error × capacidad por instancia).
+ *
+ * Las idas a Redis son asíncronas (AsyncProxyManager): isAllowed devuelve un
+ * CompletableFuture y el hilo del request no se bloquea mientras Redis responde,
+ * así la comprobación se solapa con el resto del trabajo del request (ej: validar el JWT).
+ * Cada comprobación tiene un timeout (rate-limit.redis.timeout). Si Redis tarda más
+ * o falla, o RedisCircuitBreaker lo da por caído, se decide sin él según
+ * rate-limit.degraded-mode: buckets en memoria (LOCAL), permitir (OPEN) o rechazar (CLOSED).
+ *
+ * Modo combinado (rate-limit.fused-check.enabled): las políticas sin reservas
+ * usan el bucket de RateLimitRevocationScript, que en la misma ida a Redis
+ * consulta la revocación del token del request.
  */
 @Service
 public class RateLimitService {
     private static final Logger log = LoggerFactory.getLogger(RateLimitService.class);
 
-    // Prefijo para las claves en Redis
-    // Ejemplo de clave: "rate_limit:login:192.168.1.1"
-    private static final String KEY_PREFIX = "rate_limit";
+    private static final CompletableFuture<Boolean> ALLOWED = CompletableFuture.completedFuture(true);
+    private static final CompletableFuture<Boolean> REJECTED = CompletableFuture.completedFuture(false);
 
-    private final ProxyManager<String> proxyManager;
+    private final AsyncProxyManager<String> proxyManager;
 
-    public RateLimitService(ProxyManager<String> proxyManager) {
-        this.proxyManager = proxyManager;
-    }
+    /**
+     * Tiempo máximo de espera a Redis por comprobación.
+     */
+    private final long redisTimeoutNanos;
 
     /**
-     * Verifica si una IP puede hacer una petición al endpoint de login.
-     *
-     * Límite: 5 intentos por minuto por IP.
-     * Pensado para prevenir ataques de fuerza bruta.
-     *
-     * @param ipAddress IP del cliente
-     * @return true si el request está permitido, false si se excedió el límite
+     * Claves sin tokens → instante (System.nanoTime) en que Redis tendrá uno de nuevo.
+     * Cada entrada caduca justo en ese instante. Null si la caché local está desactivada.
      */
-    public boolean isLoginAllowed(String ipAddress) {
-        return isAllowed("login", ipAddress, loginBucketConfiguration());
-    }
+    private final Cache<String, Long> blockedUntil;
 
     /**
-     * Verifica si una IP puede hacer una petición al endpoint de registro.
-     *
-     * Límite: 3 registros por hora por IP.
-     * Pensado para prevenir creación masiva de cuentas.
-     *
-     * @param ipAddress IP del cliente
-     * @return true si el request está permitido, false si se excedió el límite
+     * Reservas locales de tokens. Null si el modo aproximado está desactivado.
      */
-    public boolean isRegisterAllowed(String ipAddress) {
-        return isAllowed("register", ipAddress, registerBucketConfiguration());
-    }
+    private final TokenLeases tokenLeases;
 
     /**
-     * Verifica si una IP puede hacer una petición al endpoint de refresh.
-     *
-     * Límite: 10 intentos por minuto por IP.
-     *
-     * @param ipAddress IP del cliente
-     * @return true si el request está permitido, false si se excedió el límite
+     * Políticas que usan reservas (ej: "general").
      */
-    public boolean isRefreshAllowed(String ipAddress) {
-        return isAllowed("refresh", ipAddress, refreshBucketConfiguration());
-    }
+    private final Set<String> leasedPolicies;
 
     /**
-     * Verifica si una IP puede hacer una petición a endpoints generales.
-     *
-     * Límite: 30 requests por minuto por IP.
-     * Pensado para endpoints de listado (GET /api/users, etc.)
-     *
-     * @param ipAddress IP del cliente
-     * @return true si el request está permitido, false si se excedió el límite
+     * Fracción de la capacidad del bucket que una instancia puede reservar.
      */
-    public boolean isGeneralAllowed(String ipAddress) {
-        return isAllowed("general", ipAddress, generalBucketConfiguration());
-    }
+    private final double leaseMaxError;
+
+    /**
+     * Script de rate limit + revocación. Null si el modo combinado está desactivado.
+     */
+    private final RateLimitRevocationScript revocationScript;
+
+    private final RedisCircuitBreaker circuitBreaker;
+
+    /**
+     * Qué hacer si Redis no está disponible.
+     */
+    private final RedisCircuitBreaker.DegradedMode degradedMode;
+
+    /**
+     * Buckets en memoria para el modo degradado LOCAL.
+     */
+    private final Cache<String, Bucket> fallbackBuckets;
+
+    /**
+     * Tamaño de reserva por política (se calcula una vez a partir de su capacidad).
+     */
+    private final Map<String, Long> leaseSizes = new ConcurrentHashMap<>();
+
+    /**
+     * Renovación de reserva en curso por clave (tokens obtenidos del bucket).
+     */
+    private final Map<String, CompletableFuture<Long>> leaseRenewals = new ConcurrentHashMap<>();
 
-//    ----------------------------------------
+    /**
+     * Builder de buckets por política (con su versión de configuración ya aplicada).
+     */
+    private final Map<String, RemoteAsyncBucketBuilder<String>> bucketBuilders = new ConcurrentHashMap<>();
+
+    public RateLimitService(
+            ProxyManager<String> proxyManager,
+            @Value("${rate-limit.redis.timeout:100ms}") Duration redisTimeout,
+            @Value("${rate-limit.local-cache.enabled:true}") boolean localCacheEnabled,
+            @Value("${rate-limit.local-cache.max-size:100000}") long localCacheMaxSize,
+            @Value("${rate-limit.lease.enabled:false}") boolean leaseEnabled,
+            @Value("${rate-limit.lease.policies:general}") Set<String> leasedPolicies,
+            @Value("${rate-limit.lease.max-error:0.1}") double leaseMaxError,
+            @Value("${rate-limit.lease.duration:1s}") Duration leaseDuration,
+            RateLimitRevocationScript revocationScript,
+            @Value("${rate-limit.fused-check.enabled:false}") boolean fusedCheckEnabled,
+            RedisCircuitBreaker circuitBreaker,
+            @Value("${rate-limit.degraded-mode:LOCAL}") RedisCircuitBreaker.DegradedMode degradedMode,
+            @Value("${rate-limit.degraded-buckets.idle-timeout:10m}") Duration fallbackBucketIdleTimeout
+    ) {
+        this.proxyManager = proxyManager.asAsync();
+        this.redisTimeoutNanos = redisTimeout.toNanos();
+        this.blockedUntil = localCacheEnabled ? buildBlockedCache(localCacheMaxSize) : null;
+        this.tokenLeases = leaseEnabled ? new TokenLeases(leaseDuration.toNanos(), System::nanoTime) : null;
+        this.leasedPolicies = Set.copyOf(leasedPolicies);
+        this.leaseMaxError = leaseMaxError;
+        this.revocationScript = fusedCheckEnabled ? revocationScript : null;
+        this.circuitBreaker = circuitBreaker;
+        this.degradedMode = degradedMode;
+        this.fallbackBuckets = Caffeine.newBuilder()
+                .maximumSize(localCacheMaxSize)
+                .expireAfterAccess(fallbackBucketIdleTimeout)
+                .build();
+    }
 
     /**
      * Lógica central de verificación de rate limit.
      *
-     * Construye la clave única para el bucket (endpoint + IP),
+     * Construye la clave única para el bucket (política + cliente),
      * obtiene o crea el bucket en Redis, y verifica si hay tokens disponibles.
      *
      * ConsumptionProbe contiene:
@@ -101,106 +176,330 @@ public class RateLimitService {
      * - getNanosToWaitForRefill(): tiempo hasta que haya tokens disponibles
      * - getRemainingTokens(): tokens restantes después del consumo
      *
-     * @param endpoint Nombre del endpoint (para diferenciar buckets)
-     * @param ipAddress IP del cliente
-     * @param configSupplier Configuración del bucket (capacidad y velocidad de recarga)
-     * @return true si el request está permitido
-     */
-    private boolean isAllowed(
-            String endpoint,
-            String ipAddress,
-            Supplier<BucketConfiguration> configSupplier
+     * Si la clave se rechazó hace poco y aún no le toca recarga, o le quedan tokens
+     * en la reserva local, el resultado ya viene completado (sin ida a Redis).
+     *
+     * Los callbacks se ejecutan en el hilo de I/O de Redis: solo trabajo en memoria,
+     * nada que bloquee.
+     *
+     * @param policy Política del endpoint
+     * @param subject Identificador del cliente según la política (ej: IP)
+     * @return Future con true si el request está permitido. Nunca se completa con
+     *         excepción y se completa como mucho en rate-limit.redis.timeout
+     *         (al momento si el circuito está abierto)
+     */
+    public CompletableFuture<Boolean> isAllowed(RateLimitPolicy policy, String subject) {
+        return isAllowed(policy, subject, null);
+    }
+
+    /**
+     * Como isAllowed(policy, subject), consultando además la revocación del token
+     * en la misma ida a Redis si la política usa el modo combinado (ver fusesRevocation).
+     *
+     * @param revocation Token del request, o null si no trae
+     */
+    public CompletableFuture<Boolean> isAllowed(
+            RateLimitPolicy policy,
+            String subject,
+            RateLimitRevocationScript.TokenRevocation revocation
     ) {
 
-        // Clave única: "rate_limit:login:192.168.1.1"\
-        String key = String.format("%s:%s:%s", KEY_PREFIX, endpoint, ipAddress);
+        // Clave única: "rate_limit:login:192.168.1.1"
+        String key = policy.key(subject);
 
-        // Obtiene el bucket existente o crea uno nuevo con la configuración dada
-        // Si la IP ya tiene un bucket en Redis, lo reutiliza
-        // Si es la primera petición, crea un bucket nuevo
-        ConsumptionProbe probe = proxyManager
-                .builder()
-                .build(key,configSupplier)
-                .tryConsumeAndReturnRemaining(1); // Intenta consumir 1 token
-
-        if (probe.isConsumed()) {
-            // No hay tokens disponibles
-            long waitSeconds = probe.getNanosToWaitForRefill() / 1_000_000_000;
-            log.warn("Rate limit exceeded for IP: {} on endpoint: {}. Wait {} seconds",
-                    ipAddress, endpoint, waitSeconds);
-            return false;
+        // Nivel 1: rechazo local si la clave sigue sin tokens
+        if (blockedUntil != null) {
+            Long until = blockedUntil.getIfPresent(key);
+            if (until != null && until - System.nanoTime() > 0) {
+                log.debug("Rate limit exceeded for {} on policy: {} (local)", subject, policy.name());
+                return REJECTED;
+            }
         }
 
-        log.debug("Rate limit check passed for IP: {} on endpoint: {}. Remaining tokens: {}",
-                ipAddress, endpoint, probe.getRemainingTokens());
+        // Modo aproximado: token de la reserva local (sin ida a Redis)
+        if (isLeased(policy) && tokenLeases.tryTake(key)) {
+            return ALLOWED;
+        }
 
-        return true;
+        // Redis no disponible (circuito abierto): decidir sin llamar
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.completedFuture(degraded(policy, key, subject));
+        }
+
+        return withTimeout(check(policy, key, subject, revocation), policy, key, subject);
     }
 
-    // ===== Configuraciones de cada endpoint =====
+    /**
+     * Ida a Redis según el modo de la política.
+     */
+    private CompletableFuture<Boolean> check(
+            RateLimitPolicy policy,
+            String key,
+            String subject,
+            RateLimitRevocationScript.TokenRevocation revocation
+    ) {
+        // Modo combinado: bucket del script + revocación, una sola ida a Redis
+        if (fusesRevocation(policy)) {
+            return revocationScript.execute(key, policy.configuration(), revocation)
+                    .thenApply(result -> onResult(key, policy, subject,
+                            result.allowed(), result.remainingTokens(), result.nanosToWaitForRefill()));
+        }
+
+        // Obtiene el bucket existente o crea uno nuevo con la configuración dada
+        // (el proxy es solo una referencia: no hay ida a Redis hasta consumir)
+        AsyncBucketProxy bucket = bucketBuilder(policy)
+                .build(key, () -> CompletableFuture.completedFuture(policy.configuration()));
+
+        // Modo aproximado: renovar la reserva (una CAS cada leaseSize requests)
+        if (isLeased(policy)) {
+            return renewLease(bucket, key, policy, subject);
+        }
+
+        return consume(bucket, key, policy, subject);
+    }
 
     /**
-     * Configuración para endpoint de login.
+     * Renueva la reserva local de la clave, una sola renovación en curso por clave.
      *
-     * 5 tokens máximo, se recarga 1 token cada 12 segundos
-     * (equivale a 5 por minuto en total).
+     * Sin esto, los requests que llegan con la reserva vacía mientras Redis responde
+     * pedirían cada uno otra reserva: varias reservas de la misma instancia a la vez
+     * y un error mayor que max-error × capacidad. Los que llegan durante la renovación
+     * esperan la de curso y toman un token de ella; si ya no quedan, consumen uno en
+     * Redis como sin reservas.
      *
-     * @return Supplier con la configuración del bucket
-     */
-    private Supplier<BucketConfiguration> loginBucketConfiguration() {
-        return () -> BucketConfiguration.builder()
-                .addLimit(Bandwidth.builder()
-                        .capacity(5)  // Máximo 5 tokens
-                        .refillGreedy(5, Duration.ofMinutes(1)) // Recarga 5 tokens
-                        .build())
-                .build();
+     * Si el bucket no da tokens para reservar, el request que pidió la renovación sigue
+     * por la ruta normal para obtener el tiempo de recarga y rechazar en local; los que
+     * esperaban se rechazan (el bucket estaba vacío).
+     */
+    private CompletableFuture<Boolean> renewLease(
+            AsyncBucketProxy bucket,
+            String key,
+            RateLimitPolicy policy,
+            String subject
+    ) {
+        CompletableFuture<Long> renewal = new CompletableFuture<>();
+        CompletableFuture<Long> inFlight = leaseRenewals.putIfAbsent(key, renewal);
+        if (inFlight != null) {
+            return inFlight.thenCompose(granted -> {
+                if (granted == 0) {
+                    return REJECTED;
+                }
+                return tokenLeases.tryTake(key) ? ALLOWED : consume(bucket, key, policy, subject);
+            });
+        }
+
+        long leaseSize = leaseSizes.computeIfAbsent(policy.name(), name -> leaseSize(policy.configuration()));
+        // Con timeout propio: una renovación sin respuesta no puede dejar la clave esperando
+        bucket.tryConsumeAsMuchAsPossible(leaseSize)
+                .orTimeout(redisTimeoutNanos, TimeUnit.NANOSECONDS)
+                .whenComplete((granted, e) -> {
+                    if (e == null) {
+                        if (granted > 0) {
+                            // Devolución sin esperar a Redis
+                            tokenLeases.install(key, bucket::addTokens, granted);
+                        } else {
+                            tokenLeases.discard(key);
+                        }
+                    }
+                    // Reserva ya instalada: quien llegue ahora la encuentra con tryTake
+                    leaseRenewals.remove(key, renewal);
+                    if (e != null) {
+                        renewal.completeExceptionally(e);
+                    } else {
+                        renewal.complete(granted);
+                    }
+                });
+
+        return renewal.thenCompose(granted -> granted > 0 ? ALLOWED : consume(bucket, key, policy, subject));
     }
 
     /**
-     * Configuración para endpoint de registro.
-     *
-     * 3 tokens máximo, se recargan cada hora.
-     *
-     * @return Supplier con la configuración del bucket
-     */
-    private Supplier<BucketConfiguration> registerBucketConfiguration() {
-        return () -> BucketConfiguration.builder()
-                .addLimit(Bandwidth.builder()
-                        .capacity(3)
-                        .refillGreedy(3, Duration.ofHours(1))
-                        .build())
-                .build();
+     * Intenta consumir 1 token del bucket en Redis.
+     */
+    private CompletableFuture<Boolean> consume(
+            AsyncBucketProxy bucket,
+            String key,
+            RateLimitPolicy policy,
+            String subject
+    ) {
+        return bucket.tryConsumeAndReturnRemaining(1).thenApply(probe -> onResult(key, policy, subject,
+                probe.isConsumed(), probe.getRemainingTokens(), probe.getNanosToWaitForRefill()));
     }
 
     /**
-     * Configuración para endpoint de refresh token.
-     *
-     * 10 tokens máximo, se recargan cada minuto.
-     *
-     * @return Supplier con la configuración del bucket
-     */
-    private Supplier<BucketConfiguration> refreshBucketConfiguration() {
-        return () -> BucketConfiguration.builder()
-                .addLimit(Bandwidth.builder()
-                        .capacity(10)
-                        .refillGreedy(10, Duration.ofMinutes(1))
-                        .build())
-                .build();
+     * Indica si la política consulta la revocación junto al rate limit.
+     * Las políticas con reservas siguen en Bucket4j (las reservas no pasan por Redis).
+     */
+    public boolean fusesRevocation(RateLimitPolicy policy) {
+        return revocationScript != null && !isLeased(policy);
+    }
+
+    private boolean isLeased(RateLimitPolicy policy) {
+        return tokenLeases != null && leasedPolicies.contains(policy.name());
+    }
+
+    /**
+     * Registra el resultado del bucket en Redis.
+     */
+    private boolean onResult(
+            String key,
+            RateLimitPolicy policy,
+            String subject,
+            boolean consumed,
+            long remainingTokens,
+            long nanosToWaitForRefill
+    ) {
+        if (!consumed) {
+            // No hay tokens disponibles: recordar hasta la próxima recarga
+            if (blockedUntil != null) {
+                blockedUntil.put(key, System.nanoTime() + nanosToWaitForRefill);
+            }
+
+            long waitSeconds = nanosToWaitForRefill / 1_000_000_000;
+            log.warn("Rate limit exceeded for {} on policy: {}. Wait {} seconds",
+                    subject, policy.name(), waitSeconds);
+            return false;
+        }
+
+        log.debug("Rate limit check passed for {} on policy: {}. Remaining tokens: {}",
+                subject, policy.name(), remainingTokens);
+        return true;
+    }
+
+    /**
+     * Limita la espera a Redis e informa del resultado al circuit breaker.
+     * Si Redis no responde a tiempo o falla, se aplica el modo degradado:
+     * Redis lento no debe convertirse en latencia (o errores) para todos los clientes.
+     */
+    private CompletableFuture<Boolean> withTimeout(
+            CompletableFuture<Boolean> check,
+            RateLimitPolicy policy,
+            String key,
+            String subject
+    ) {
+        return check
+                .orTimeout(redisTimeoutNanos, TimeUnit.NANOSECONDS)
+                .handle((allowed, e) -> {
+                    if (e == null) {
+                        circuitBreaker.recordSuccess();
+                        return allowed;
+                    }
+
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    circuitBreaker.recordFailure(cause);
+                    if (cause instanceof TimeoutException) {
+                        log.warn("Rate limit check timed out for {} on policy: {}, degraded mode {}",
+                                subject, policy.name(), degradedMode);
+                    } else {
+                        log.warn("Rate limit check failed for {} on policy: {}, degraded mode {}: {}",
+                                subject, policy.name(), degradedMode, cause.getMessage());
+                    }
+                    return degraded(policy, key, subject);
+                });
     }
 
     /**
-     * Configuración para endpoints generales.
+     * Decisión sin Redis (rate-limit.degraded-mode).
      *
-     * 30 tokens máximo, se recargan cada minuto.
+     * LOCAL: bucket en memoria por clave con los límites de la política. Cada
+     * instancia limita por su cuenta, así que con N instancias el límite global
+     * efectivo puede llegar a N veces el configurado.
+     */
+    private boolean degraded(RateLimitPolicy policy, String key, String subject) {
+        return switch (degradedMode) {
+            case OPEN -> true;
+            case CLOSED -> false;
+            case LOCAL -> {
+                boolean allowed = fallbackBuckets.get(key, k -> localBucket(policy.configuration())).tryConsume(1);
+                if (!allowed) {
+                    log.warn("Rate limit exceeded for {} on policy: {} (local fallback)", subject, policy.name());
+                }
+                yield allowed;
+            }
+        };
+    }
+
+    private static Bucket localBucket(BucketConfiguration configuration) {
+        LocalBucketBuilder builder = Bucket.builder();
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builder de buckets de la política, creado una vez.
      *
-     * @return Supplier con la configuración del bucket
-     */
-    private Supplier<BucketConfiguration> generalBucketConfiguration() {
-        return () -> BucketConfiguration.builder()
-                .addLimit(Bandwidth.builder()
-                        .capacity(30)
-                        .refillGreedy(30, Duration.ofMinutes(1))
-                        .build())
+     * Con versión > 0, un bucket existente en Redis con una versión anterior adopta
+     * la configuración actual conservando la proporción de tokens disponibles.
+     */
+    private RemoteAsyncBucketBuilder<String> bucketBuilder(RateLimitPolicy policy) {
+        return bucketBuilders.computeIfAbsent(policy.name(), name -> {
+            RemoteAsyncBucketBuilder<String> builder = proxyManager.builder();
+            return policy.version() > 0
+                    ? builder.withImplicitConfigurationReplacement(policy.version(), TokensInheritanceStrategy.PROPORTIONALLY)
+                    : builder;
+        });
+    }
+
+    /**
+     * Tokens por reserva: max-error × capacidad del límite más restrictivo (mínimo 1).
+     */
+    private long leaseSize(BucketConfiguration configuration) {
+        long capacity = Long.MAX_VALUE;
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            capacity = Math.min(capacity, bandwidth.getCapacity());
+        }
+        return Math.max(1, (long) (capacity * leaseMaxError));
+    }
+
+    /**
+     * Devuelve al bucket los tokens de las reservas caducadas.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.lease.duration:1s}")
+    public void releaseExpiredLeases() {
+        if (tokenLeases != null) {
+            long released = tokenLeases.releaseExpired();
+            if (released > 0) {
+                log.debug("Returned {} unused rate limit tokens", released);
+            }
+        }
+    }
+
+    /**
+     * Devuelve los tokens reservados al apagar la instancia.
+     */
+    @PreDestroy
+    public void releaseAllLeases() {
+        if (tokenLeases != null) {
+            tokenLeases.releaseAll();
+        }
+    }
+
+    /**
+     * Caché de rechazos con caducidad por entrada (el tiempo hasta la recarga
+     * depende del bucket: segundos en login, minutos en registro).
+     */
+    private static Cache<String, Long> buildBlockedCache(long maxSize) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String key, Long until, long currentTime) {
+                        // currentTime viene del ticker de Caffeine (System.nanoTime)
+                        return Math.max(until - currentTime, 0L);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Long until, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, until, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Long until, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
                 .build();
     }
 }
@@ -0,0 +1,80 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+import static com.andy.iamapi.domain.util.IpAddressUtil.ipv6Prefix;
+
+/**
+ * Identificador del cliente en la clave del bucket, según la KeyStrategy de la política.
+ *
+ * - IP: "203.0.113.7", "2001:db8::1"
+ * - IP_PREFIX: "203.0.113.7", "2001:db8:0:0:0:0:0:0/64"
+ * - USER: "user:{uid}" con un token válido, o como IP_PREFIX sin él
+ *
+ * USER solo usa el uid de un token ya verificado: con el claim sin verificar, un
+ * atacante podría inventar un uid por request (una clave nueva cada vez) o gastar
+ * el bucket de otro usuario. Dos fuentes:
+ * - Antes de autenticar, la caché de claims verificados de JwtTokenService. Así la
+ *   comprobación se lanza en RateLimitFilter y conserva el solape con la validación
+ *   del JWT y el modo combinado (rate-limit.fused-check)
+ * - Si el token no está en esa caché (primer request con el token, expulsado, o
+ *   jwt.claims-cache.enabled: false), tras autenticar (RateLimitDecisionFilter):
+ *   ese request espera a Redis sin solape y sin modo combinado
+ */
+@Component
+public class RateLimitSubjects {
+
+    private static final String USER_PREFIX = "user:";
+
+    private final int ipv6PrefixLength;
+    private final JwtTokenService tokenService;
+
+    public RateLimitSubjects(
+            @Value("${rate-limit.ipv6-prefix-length:64}") int ipv6PrefixLength,
+            JwtTokenService tokenService
+    ) {
+        if (ipv6PrefixLength < 1 || ipv6PrefixLength > 128) {
+            throw new IllegalStateException("rate-limit.ipv6-prefix-length must be between 1 and 128");
+        }
+        this.ipv6PrefixLength = ipv6PrefixLength;
+        this.tokenService = tokenService;
+    }
+
+    /**
+     * Identificador antes de autenticar (RateLimitFilter).
+     *
+     * @param policy Política del endpoint
+     * @param ipAddress IP del cliente
+     * @param token Token Bearer del request, si trae
+     * @return Identificador, o null si hay que esperar a la autenticación
+     *         (USER con un token que aún no está en la caché de claims verificados)
+     */
+    public String beforeAuthentication(RateLimitPolicy policy, String ipAddress, Optional<String> token) {
+        return switch (policy.keyStrategy()) {
+            case IP -> ipAddress;
+            case IP_PREFIX -> ipv6Prefix(ipAddress, ipv6PrefixLength);
+            case USER -> token.isEmpty()
+                    ? ipv6Prefix(ipAddress, ipv6PrefixLength)
+                    : tokenService.verifiedUserId(token.get()).map(uid -> USER_PREFIX + uid).orElse(null);
+        };
+    }
+
+    /**
+     * Identificador de una política USER tras autenticar (RateLimitDecisionFilter).
+     *
+     * @param ipAddress IP del cliente
+     * @param authentication Autenticación del SecurityContext (null si el token no era válido)
+     * @return "user:{uid}", o la IP agregada si el request no quedó autenticado
+     */
+    public String afterAuthentication(String ipAddress, Authentication authentication) {
+        if (authentication != null && authentication.getPrincipal() instanceof User user && user.getId() != null) {
+            return USER_PREFIX + user.getId();
+        }
+        return ipv6Prefix(ipAddress, ipv6PrefixLength);
+    }
+}
@@ -0,0 +1,238 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker delante de Redis.
+ *
+ * Sin él, con Redis caído cada request espera el timeout de Lettuce
+ * (spring.data.redis.timeout) en cada consulta: rate limit, revocación, época,
+ * intentos de login. Con él, tras failure-threshold fallos seguidos dejan de
+ * hacerse llamadas y cada uso aplica su modo degradado (DegradedMode) al momento.
+ *
+ * Estados:
+ * - CLOSED: llamadas normales. Cuenta los fallos seguidos (error o timeout)
+ * - OPEN: no se llama a Redis durante open-duration
+ * - HALF_OPEN: pasado open-duration se deja pasar UNA llamada de prueba.
+ *   Si va bien → CLOSED (recuperación automática); si falla → OPEN de nuevo
+ *
+ * Un único breaker para todos los adaptadores: comparten el mismo Redis,
+ * y si no responde a uno no responde a ninguno.
+ *
+ * Métricas (stats): aperturas, llamadas evitadas y tiempo total en modo degradado.
+ */
+@Component
+public class RedisCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    /**
+     * Qué hace cada uso de Redis mientras no está disponible.
+     */
+    public enum DegradedMode {
+        LOCAL,  // Decidir con el estado local (buckets en memoria, cachés de revocación)
+        OPEN,   // Permitir (fail-open)
+        CLOSED  // Rechazar (fail-closed)
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /**
+     * Instante (System.nanoTime) del último cambio a OPEN o HALF_OPEN.
+     */
+    private volatile long stateChangedAt;
+
+    /**
+     * Instante en que se salió de CLOSED (inicio del modo degradado actual).
+     */
+    private volatile long degradedSince;
+
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder openings = new LongAdder();
+    private final AtomicLong degradedNanos = new AtomicLong();
+
+    public RedisCircuitBreaker(
+            @Value("${redis.circuit-breaker.enabled:true}") boolean enabled,
+            @Value("${redis.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${redis.circuit-breaker.open-duration:10s}") Duration openDuration
+    ) {
+        this.enabled = enabled;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Indica si se puede llamar a Redis. Quien recibe true debe informar
+     * del resultado con recordSuccess / recordFailure.
+     *
+     * @return false si el circuito está abierto (usar el modo degradado)
+     */
+    public boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        long changedAt = stateChangedAt;
+
+        // OPEN caducado → esta llamada es la de prueba.
+        // HALF_OPEN sin respuesta de la prueba en open-duration → se permite otra
+        if (now - changedAt >= openDurationNanos && state.compareAndSet(current, State.HALF_OPEN)) {
+            stateChangedAt = now;
+            log.info("Redis circuit breaker half-open, sending trial call");
+            return true;
+        }
+
+        shortCircuited.increment();
+        return false;
+    }
+
+    /**
+     * Llamada a Redis completada correctamente.
+     *
+     * Solo la llamada de prueba (HALF_OPEN) cierra el circuito: una llamada
+     * lanzada antes de abrirse que termina bien tarde no lo cierra desde OPEN.
+     */
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+
+        if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            long degraded = System.nanoTime() - degradedSince;
+            degradedNanos.addAndGet(degraded);
+            log.info("Redis circuit breaker closed, Redis available again after {} ms",
+                    TimeUnit.NANOSECONDS.toMillis(degraded));
+        }
+    }
+
+    /**
+     * Llamada a Redis fallida (error o timeout).
+     *
+     * @param error Causa, solo para el log
+     */
+    public void recordFailure(Throwable error) {
+        failures.increment();
+        long now = System.nanoTime();
+
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+                stateChangedAt = now;
+                log.warn("Redis circuit breaker trial call failed, staying open: {}", error.toString());
+            }
+            return;
+        }
+
+        if (current == State.CLOSED
+                && consecutiveFailures.incrementAndGet() >= failureThreshold
+                && state.compareAndSet(State.CLOSED, State.OPEN)) {
+            stateChangedAt = now;
+            degradedSince = now;
+            openings.increment();
+            log.warn("Redis circuit breaker opened after {} consecutive failures: {}",
+                    failureThreshold, error.toString());
+        }
+    }
+
+    /**
+     * Ejecuta una llamada síncrona a Redis, con fallback si el circuito
+     * está abierto o la llamada falla.
+     *
+     * @param call Llamada a Redis
+     * @param fallback Resultado en modo degradado
+     * @return Resultado de la llamada, o del fallback
+     */
+    public <T> T execute(Supplier<T> call, Supplier<T> fallback) {
+        if (!tryAcquire()) {
+            return fallback.get();
+        }
+
+        try {
+            T result = call.get();
+            recordSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            log.debug("Redis call failed, using degraded mode: {}", e.getMessage());
+            return fallback.get();
+        }
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    /**
+     * Snapshot de las métricas del breaker.
+     *
+     * @return Estado, fallos, aperturas, llamadas evitadas y tiempo degradado (incluido el actual)
+     */
+    public BreakerStats stats() {
+        State current = state.get();
+        long degraded = degradedNanos.get();
+        if (current != State.CLOSED) {
+            degraded += System.nanoTime() - degradedSince;
+        }
+
+        return new BreakerStats(
+                current,
+                failures.sum(),
+                openings.sum(),
+                shortCircuited.sum(),
+                TimeUnit.NANOSECONDS.toMillis(degraded)
+        );
+    }
+
+    /**
+     * Loguea periódicamente las métricas del breaker.
+     */
+    @Scheduled(fixedDelayString = "${redis.circuit-breaker.stats-log-interval:300000}")
+    public void logStats() {
+        BreakerStats stats = stats();
+        if (stats.state() != State.CLOSED) {
+            log.warn("Redis circuit breaker stats: {}", stats);
+        } else {
+            log.debug("Redis circuit breaker stats: {}", stats);
+        }
+    }
+
+    /**
+     * Métricas del breaker.
+     *
+     * @param degradedMillis Tiempo total fuera de CLOSED desde el arranque
+     */
+    public record BreakerStats(
+            State state,
+            long failures,
+            long openings,
+            long shortCircuited,
+            long degradedMillis
+    ) {}
+}
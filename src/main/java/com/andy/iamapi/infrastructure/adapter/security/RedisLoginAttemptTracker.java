@@ -0,0 +1,217 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.port.output.LoginAttemptTracker;
+import com.andy.iamapi.domain.util.IpAddressUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Adapter que implementa el port LoginAttemptTracker con Redis.
+ *
+ * Ventana deslizante de fallos por cuenta y por IP:
+ * Key: "login:failures:account:{email}" / "login:failures:ip:{ip}" (sorted set)
+ * La IP es la que resuelve IpAddressUtil.getClientIp (X-Forwarded-For solo desde
+ * proxies de confianza); una IPv6 se agrega a su prefijo (login-protection.ip.ipv6-prefix-length),
+ * así rotar de dirección dentro de la misma /64 no reinicia el contador.
+ * Member: id único del intento
+ * Score: instante del fallo en ms
+ * TTL: la ventana (si no hay más fallos, la clave desaparece sola)
+ *
+ * Al llegar a max-failures dentro de la ventana se crea el bloqueo:
+ * Key: "login:lock:account:{email}" / "login:lock:ip:{ip}"
+ * Value: instante de desbloqueo en ms
+ * TTL: lock-duration (el desbloqueo es automático, Redis borra la clave)
+ *
+ * Registrar un fallo es un único script Lua por clave (podar, añadir, contar
+ * y bloquear de forma atómica): dos instancias no pueden saltarse el límite.
+ *
+ * El bloqueo no toca users.account_non_locked: ese flag es permanente (lo gestiona
+ * un admin con User.lock/unlock) y un atacante podría usarlo para bloquear cuentas ajenas
+ * indefinidamente. El bloqueo temporal se levanta solo.
+ *
+ * Si Redis falla no se bloquea a nadie (fail-open): el rate limit por IP
+ * y el coste del hash siguen limitando los intentos. Con el circuito de
+ * RedisCircuitBreaker abierto ni siquiera se intenta (sin esperar timeouts).
+ */
+@Component
+public class RedisLoginAttemptTracker implements LoginAttemptTracker {
+    private static final Logger log = LoggerFactory.getLogger(RedisLoginAttemptTracker.class);
+
+    private static final String FAILURES_PREFIX = "login:failures:";
+    private static final String LOCK_PREFIX = "login:lock:";
+
+    /**
+     * KEYS[1] = fallos, KEYS[2] = bloqueo
+     * ARGV[1] = ahora (ms), ARGV[2] = ventana (ms), ARGV[3] = máximo de fallos,
+     * ARGV[4] = duración del bloqueo (ms), ARGV[5] = id del intento
+     *
+     * Devuelve los fallos dentro de la ventana incluyendo este.
+     */
+    static final RedisScript<Long> RECORD_FAILURE = new DefaultRedisScript<>("""
+            local now = tonumber(ARGV[1])
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - tonumber(ARGV[2]))
+            redis.call('ZADD', KEYS[1], now, ARGV[5])
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            local failures = redis.call('ZCARD', KEYS[1])
+            if failures >= tonumber(ARGV[3]) then
+                redis.call('SET', KEYS[2], now + tonumber(ARGV[4]), 'PX', ARGV[4])
+                redis.call('DEL', KEYS[1])
+            end
+            return failures
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final boolean enabled;
+    private final Policy accountPolicy;
+    private final Policy ipPolicy;
+    private final int ipv6PrefixLength;
+
+    public RedisLoginAttemptTracker(
+            RedisTemplate<String, String> redisTemplate,
+            RedisCircuitBreaker circuitBreaker,
+            @Value("${login-protection.enabled:true}") boolean enabled,
+            @Value("${login-protection.account.max-failures:5}") int accountMaxFailures,
+            @Value("${login-protection.account.window:15m}") Duration accountWindow,
+            @Value("${login-protection.account.lock-duration:15m}") Duration accountLockDuration,
+            @Value("${login-protection.ip.max-failures:20}") int ipMaxFailures,
+            @Value("${login-protection.ip.window:15m}") Duration ipWindow,
+            @Value("${login-protection.ip.lock-duration:15m}") Duration ipLockDuration,
+            @Value("${login-protection.ip.ipv6-prefix-length:64}") int ipv6PrefixLength
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.enabled = enabled;
+        this.accountPolicy = new Policy("account:", accountMaxFailures, accountWindow, accountLockDuration);
+        this.ipPolicy = new Policy("ip:", ipMaxFailures, ipWindow, ipLockDuration);
+        this.ipv6PrefixLength = ipv6PrefixLength;
+    }
+
+    /**
+     * Lee los dos bloqueos (cuenta e IP) en una sola ida a Redis (MGET).
+     */
+    @Override
+    public Optional<Duration> lockRemaining(String email, String ipAddress) {
+        if (!enabled || !circuitBreaker.tryAcquire()) {
+            return Optional.empty();
+        }
+
+        try {
+            List<String> unlockTimes = redisTemplate.opsForValue().multiGet(List.of(
+                    LOCK_PREFIX + accountPolicy.scope() + normalize(email),
+                    LOCK_PREFIX + ipPolicy.scope() + ipSubject(ipAddress)
+            ));
+
+            long unlockAt = 0;
+            if (unlockTimes != null) {
+                for (String value : unlockTimes) {
+                    if (value != null) {
+                        unlockAt = Math.max(unlockAt, Long.parseLong(value));
+                    }
+                }
+            }
+
+            circuitBreaker.recordSuccess();
+
+            long remaining = unlockAt - System.currentTimeMillis();
+            return remaining > 0 ? Optional.of(Duration.ofMillis(remaining)) : Optional.empty();
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(e);
+            log.warn("Could not check login lock, allowing attempt: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public FailureResult recordFailure(String email, String ipAddress) {
+        if (!enabled || !circuitBreaker.tryAcquire()) {
+            return FailureResult.none();
+        }
+
+        try {
+            long accountFailures = record(accountPolicy, normalize(email));
+            long ipFailures = record(ipPolicy, ipSubject(ipAddress));
+            circuitBreaker.recordSuccess();
+
+            FailureResult result = new FailureResult(
+                    accountFailures,
+                    ipFailures,
+                    accountFailures >= accountPolicy.maxFailures(),
+                    ipFailures >= ipPolicy.maxFailures()
+            );
+
+            if (result.accountLocked()) {
+                log.warn("Account {} locked for {} after {} failed logins",
+                        email, accountPolicy.lockDuration(), accountFailures);
+            }
+            if (result.ipLocked()) {
+                log.warn("IP {} locked for {} after {} failed logins",
+                        ipSubject(ipAddress), ipPolicy.lockDuration(), ipFailures);
+            }
+
+            return result;
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(e);
+            log.warn("Could not record failed login: {}", e.getMessage());
+            return FailureResult.none();
+        }
+    }
+
+    @Override
+    public void recordSuccess(String email) {
+        if (!enabled || !circuitBreaker.tryAcquire()) {
+            return;
+        }
+
+        try {
+            redisTemplate.delete(FAILURES_PREFIX + accountPolicy.scope() + normalize(email));
+            circuitBreaker.recordSuccess();
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(e);
+            log.warn("Could not reset failed login counter: {}", e.getMessage());
+        }
+    }
+
+    private long record(Policy policy, String subject) {
+        long now = System.currentTimeMillis();
+
+        Long failures = redisTemplate.execute(
+                RECORD_FAILURE,
+                List.of(FAILURES_PREFIX + policy.scope() + subject, LOCK_PREFIX + policy.scope() + subject),
+                String.valueOf(now),
+                String.valueOf(policy.window().toMillis()),
+                String.valueOf(policy.maxFailures()),
+                String.valueOf(policy.lockDuration().toMillis()),
+                UUID.randomUUID().toString()
+        );
+
+        return failures != null ? failures : 0;
+    }
+
+    /**
+     * IPv4 tal cual; IPv6 agregada a su prefijo de red.
+     */
+    private String ipSubject(String ipAddress) {
+        return IpAddressUtil.ipv6Prefix(ipAddress, ipv6PrefixLength);
+    }
+
+    /**
+     * Emails case-insensitive: "John@x.com" y "john@x.com" comparten contador.
+     */
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Policy(String scope, int maxFailures, Duration window, Duration lockDuration) {}
+}
@@ -2,10 +2,19 @@ package com.andy.iamapi.infrastructure.adapter.security;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Blacklist de tokens usando Redis.
@@ -17,26 +26,113 @@ import java.time.Duration;
  * - Altísima performance (todo en RAM)
  *
  * Estructura en Redis:
- * Key: "blacklist:token:{token}"
+ * Key: "blacklist:{revocationId}"
  * Value: timestamp de revocación
  * TTL: tiempo hasta que el token expire naturalmente
  *
+ * El revocationId identifica al token sin guardar el JWT completo:
+ * - "jti:{jti}" → tokens con claim jti (todos los emitidos actualmente)
+ * - "dig:{digest}" → tokens sin jti: SHA-256 truncado a 16 bytes (22 caracteres Base64URL)
+ * - "token:{token}" → formato antiguo, el JWT completo. Ya no se escribe; las claves
+ *   existentes se siguen consultando hasta que expiren (jwt.revocation.legacy-keys-lookup)
+ *
  * Ejemplo:
- * Key: "blacklist:token:eyJhbGciOiJIUzI1NiIs..."
- * Value: "2026-02-02T15:30:45"
+ * Key: "blacklist:jti:3f2b8c1e-5a4d-4e7f-9b6a-1c2d3e4f5a6b"
+ * Value: "1770046245000"
  * TTL: 3600 segundos (1 hora para access token)
+ *
+ * Índice para contar revocaciones vigentes:
+ * Key: "revocation:index" (sorted set)
+ * Member: revocationId
+ * Score: instante de expiración en ms
+ * Las entradas caducadas se podan periódicamente con ZREMRANGEBYSCORE,
+ * así que count() es un ZCARD en O(1).
+ *
+ * Nunca se usa KEYS: bloquea Redis entero mientras recorre el keyspace,
+ * y Redis es compartido con rate limiting. Todo recorrido usa SCAN y los
+ * borrados masivos usan UNLINK en lotes (liberación de memoria en segundo plano).
  */
 @Component
 public class RedisTokenBlacklist {
     private static final Logger log = LoggerFactory.getLogger(RedisTokenBlacklist.class);
 
-    private static final String BLACKLIST_PREFIX = "blacklist:token:";
+    private static final String BLACKLIST_PREFIX = "blacklist:";
+
+    private static final String JTI_PREFIX = "jti:";
+    private static final String DIGEST_PREFIX = "dig:";
+    private static final String LEGACY_PREFIX = "token:";
+
+    /**
+     * Bytes del SHA-256 que se conservan para tokens sin jti.
+     * 128 bits bastan para que una colisión sea irrelevante en la práctica.
+     */
+    private static final int DIGEST_BYTES = 16;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * Canal pub/sub donde se anuncia cada revocación.
+     * Mensaje: "{expiraEnMs}:{revocationId}"
+     * Lo escuchan las RevocationNearCache de todas las instancias.
+     */
+    public static final String REVOCATION_CHANNEL = "blacklist:revocations";
+
+    /**
+     * Sorted set revocationId → expiración (ms). Fuera del prefijo "blacklist:"
+     * para que no aparezca en los SCAN de la blacklist.
+     */
+    private static final String INDEX_KEY = "revocation:index";
+
+    private static final int SCAN_BATCH_SIZE = 1000;
     private final RedisTemplate<String, String> redisTemplate;
 
     public RedisTokenBlacklist(RedisTemplate<String,String> redisTemplate) {
         this.redisTemplate = redisTemplate;
     }
 
+    /**
+     * Identificador de revocación de un token con claim jti.
+     *
+     * @param jti Claim jti del token
+     * @return revocationId
+     */
+    public static String jtiId(String jti) {
+        return JTI_PREFIX + jti;
+    }
+
+    /**
+     * Identificador de revocación de un token sin jti (emitido antes de existir el claim).
+     *
+     * @param token Token JWT
+     * @return revocationId con los primeros 16 bytes del SHA-256 del token
+     */
+    public static String digestId(String token) {
+        byte[] digest = Arrays.copyOf(TokenDigest.sha256(token), DIGEST_BYTES);
+        return DIGEST_PREFIX + ENCODER.encodeToString(digest);
+    }
+
+    /**
+     * Clave en Redis de una revocación.
+     *
+     * @param revocationId Identificador del token (ver jtiId / digestId)
+     * @return "blacklist:{revocationId}"
+     */
+    public static String key(String revocationId) {
+        return BLACKLIST_PREFIX + revocationId;
+    }
+
+    /**
+     * Identificador de revocación en el formato antiguo (JWT completo).
+     *
+     * Solo se usa para consultar claves escritas antes del cambio de formato.
+     *
+     * @param token Token JWT
+     * @return revocationId antiguo
+     */
+    public static String legacyId(String token) {
+        return LEGACY_PREFIX + token;
+    }
+
     /**
      * Agrega un token a la blacklist con TTL.
      *
@@ -47,14 +143,23 @@ public class RedisTokenBlacklist {
      * - Un token expirado naturalmente no necesita estar en blacklist
      * - Redis limpia automáticamente (no crece indefinidamente)
      *
-     * @param token Token JWT a revocar
+     * Después de escribir la clave se registra en el índice de conteo y se publica
+     * la revocación en REVOCATION_CHANNEL para que las cachés locales del resto
+     * de instancias se actualicen.
+     *
+     * @param revocationId Identificador del token (ver jtiId / digestId)
      * @param ttl Tiempo de vida (cuánto falta para que expire el token)
      */
-    public void add(String token, Duration ttl) {
-        String key = BLACKLIST_PREFIX + token;
-        String value = String.valueOf(System.currentTimeMillis());
+    public void add(String revocationId, Duration ttl) {
+        String key = key(revocationId);
+        long now = System.currentTimeMillis();
+        String value = String.valueOf(now);
+
+        long expiresAt = now + ttl.toMillis();
 
         redisTemplate.opsForValue().set(key, value, ttl);
+        redisTemplate.opsForZSet().add(INDEX_KEY, revocationId, expiresAt);
+        redisTemplate.convertAndSend(REVOCATION_CHANNEL, expiresAt + ":" + revocationId);
 
         log.info("Token added to Redis blacklist with TLL: {}", ttl.getSeconds());
     }
@@ -62,28 +167,57 @@ public class RedisTokenBlacklist {
     /**
      * Verifica si un token está en la blacklist.
      *
-     * @param token Token JWT a verificar
+     * @param revocationId Identificador del token a verificar
      * @return true si está revocado, false si no
      */
-    public boolean contains(String token) {
-        String key = BLACKLIST_PREFIX + token;
+    public boolean contains(String revocationId) {
+        String key = key(revocationId);
         Boolean exists = redisTemplate.hasKey(key);
 
         return exists != null && exists;
     }
 
+    /**
+     * Devuelve cuántos milisegundos le quedan a un token en la blacklist.
+     *
+     * Equivale a contains() pero además informa del TTL, útil para
+     * cachear localmente el resultado positivo el tiempo justo.
+     *
+     * @param revocationId Identificador del token a verificar
+     * @return TTL restante en ms, o 0 si el token no está en la blacklist
+     */
+    public long remainingTtlMillis(String revocationId) {
+        Long ttl = redisTemplate.getExpire(key(revocationId), TimeUnit.MILLISECONDS);
+
+        // -2: no existe, -1: existe sin TTL (no debería ocurrir, lo tratamos como 1 hora)
+        if (ttl == null || ttl == -2) {
+            return 0;
+        }
+        return ttl == -1 ? Duration.ofHours(1).toMillis() : ttl;
+    }
+
+    /**
+     * Recorre todas las revocaciones de la blacklist con SCAN (sin bloquear Redis).
+     *
+     * @param consumer Recibe el revocationId de cada token revocado
+     */
+    public void forEach(Consumer<String> consumer) {
+        scan(BLACKLIST_PREFIX + "*", key -> consumer.accept(key.substring(BLACKLIST_PREFIX.length())));
+    }
+
     /**
      * Remueve un token de la blacklist manualmente.
      *
      * Normalmente no es necesario (Redis lo borra por TTL).
      * Útil para testing o casos especiales.
      *
-     * @param token Token a remover
+     * @param revocationId Identificador del token a remover
      * @return true si se removió, false si no existía
      */
-    public boolean remove(String token) {
-        String key = BLACKLIST_PREFIX + token;
+    public boolean remove(String revocationId) {
+        String key = key(revocationId);
         Boolean deleted = redisTemplate.delete(key);
+        redisTemplate.opsForZSet().remove(INDEX_KEY, revocationId);
 
         if (deleted != null && deleted) {
             log.debug("Token removed from Redis blacklist");
@@ -98,25 +232,114 @@ public class RedisTokenBlacklist {
      *
      * CUIDADO: Esto borra TODOS los tokens revocados.
      * Útil para testing, NO usar en producción.
+     *
+     * Recorre las claves con SCAN y las borra con UNLINK en lotes,
+     * sin bloquear Redis aunque la blacklist sea muy grande.
+     *
+     * @return Número de claves borradas
      */
-    public void clear() {
-        var keys = redisTemplate.keys(BLACKLIST_PREFIX + "*");
+    public long clear() {
+        long removed = unlinkMatching(BLACKLIST_PREFIX + "*");
+        redisTemplate.unlink(INDEX_KEY);
 
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
-            log.info("Cleared {} tokens from Redis blacklist", keys.size());
-        }
+        log.info("Cleared {} tokens from Redis blacklist", removed);
+        return removed;
     }
 
     /**
-     * Obtiene el número de tokens en la blacklist.
+     * Borra las claves en formato antiguo ("blacklist:token:{jwt}").
      *
-     * Útil para monitoreo y debugging.
+     * Permite terminar la migración sin esperar a que expiren por TTL.
+     * Los tokens afectados dejan de estar revocados, así que solo debe
+     * ejecutarse cuando ya no quedan tokens sin jti en circulación.
+     *
+     * @return Número de claves borradas
+     */
+    public long purgeLegacyKeys() {
+        long removed = unlinkMatching(BLACKLIST_PREFIX + LEGACY_PREFIX + "*");
+
+        log.info("Purged {} legacy keys from Redis blacklist", removed);
+        return removed;
+    }
+
+    /**
+     * Obtiene el número aproximado de tokens revocados vigentes.
+     *
+     * Útil para monitoreo y dashboards: es un ZCARD sobre el índice, O(1).
+     *
+     * Aproximado porque:
+     * - Incluye revocaciones caducadas desde la última poda (pruneIndex)
+     * - No incluye claves en formato antiguo (anteriores al índice)
      *
      * @return Cantidad de tokens revocados
      */
     public long count() {
-        var keys = redisTemplate.keys(BLACKLIST_PREFIX + "*");
-        return keys != null ? keys.size() : 0;
+        Long size = redisTemplate.opsForZSet().zCard(INDEX_KEY);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * Elimina del índice las revocaciones ya caducadas.
+     *
+     * Las claves de la blacklist las borra Redis por TTL; el índice hay que podarlo.
+     * ZREMRANGEBYSCORE es O(log N + M) con M = entradas caducadas desde la última poda.
+     * Es idempotente, así que no importa que lo ejecuten varias instancias.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.index-prune-interval:60000}")
+    public void pruneIndex() {
+        try {
+            Long pruned = redisTemplate.opsForZSet()
+                    .removeRangeByScore(INDEX_KEY, Double.NEGATIVE_INFINITY, System.currentTimeMillis());
+
+            if (pruned != null && pruned > 0) {
+                log.debug("Pruned {} expired entries from revocation index", pruned);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not prune revocation index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recorre las claves que cumplen el patrón con SCAN (cursor incremental).
+     */
+    private void scan(String pattern, Consumer<String> keyConsumer) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(pattern)
+                .count(SCAN_BATCH_SIZE)
+                .build();
+
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                keyConsumer.accept(cursor.next());
+            }
+        }
+    }
+
+    /**
+     * Borra con UNLINK, en lotes de SCAN_BATCH_SIZE, las claves que cumplen el patrón.
+     */
+    private long unlinkMatching(String pattern) {
+        List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+        long[] removed = {0};
+
+        scan(pattern, key -> {
+            batch.add(key);
+            if (batch.size() >= SCAN_BATCH_SIZE) {
+                removed[0] += unlink(batch);
+            }
+        });
+        removed[0] += unlink(batch);
+
+        return removed[0];
+    }
+
+    private long unlink(List<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+
+        Long unlinked = redisTemplate.unlink(keys);
+        keys.clear();
+        return unlinked != null ? unlinked : 0;
     }
 }
@@ -0,0 +1,330 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Caché local de revocaciones delante de RedisTokenBlacklist.
+ *
+ * Casi ningún token se revoca nunca, así que la inmensa mayoría de
+ * consultas son negativas. Un filtro de Bloom con todas las revocaciones
+ * vigentes permite responder "no revocado" sin salir de la JVM.
+ *
+ * Trabaja con revocationIds (ver RedisTokenBlacklist.jtiId / digestId), no con el JWT completo.
+ *
+ * Flujo de isRevoked(revocationId):
+ * 1. Si la caché aún no se ha construido → Redis directamente
+ * 2. Bloom dice "no está" → false (sin red)
+ * 3. Está en la caché de positivos y no ha expirado → true (sin red)
+ * 4. Posible falso positivo → Redis (PTTL) y se cachea el resultado positivo
+ *
+ * Sin Redis (RedisCircuitBreaker abierto o error), según jwt.revocation.degraded-mode:
+ * - LOCAL: decide el filtro; un posible falso positivo sin confirmar se da por revocado.
+ *   Sin filtro construido, no revocado
+ * - OPEN: lo no confirmado se da por no revocado
+ * - CLOSED: lo no confirmado se da por revocado, también sin filtro construido
+ *   (todos los tokens se rechazan hasta que vuelva Redis o se construya el filtro)
+ *
+ * Mantenimiento:
+ * - Al arrancar se construye el filtro recorriendo la blacklist con SCAN
+ * - Cada revocación se publica en RedisTokenBlacklist.REVOCATION_CHANNEL
+ *   y todas las instancias la agregan a su filtro
+ * - Periódicamente se reconstruye el filtro (descarta caducados y repara
+ *   mensajes pub/sub perdidos durante una desconexión)
+ *
+ * La suscripción se registra antes del primer SCAN, y las revocaciones que
+ * llegan durante un SCAN se agregan tanto al filtro vigente como al nuevo.
+ */
+@Component
+public class RevocationNearCache implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(RevocationNearCache.class);
+
+    private final RedisTokenBlacklist blacklist;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final RedisCircuitBreaker.DegradedMode degradedMode;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    /**
+     * Filtro vigente. Se sustituye entero en cada reconstrucción.
+     */
+    private volatile BloomFilter current;
+
+    /**
+     * Filtro en construcción (null fuera de una reconstrucción).
+     * Las revocaciones que llegan durante el SCAN se agregan también aquí.
+     */
+    private volatile BloomFilter building;
+
+    /**
+     * false hasta completar el primer SCAN: mientras tanto se consulta Redis.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Protege el intercambio de filtros frente a agregados concurrentes.
+     * put() toma el lock de lectura (concurrente entre sí) y el cambio de filtro el de escritura.
+     */
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    /**
+     * Serializa las reconstrucciones (arranque y tarea programada).
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * Revocaciones confirmadas: revocationId → instante de expiración (ms).
+     * Cada entrada caduca con su token; al llenarse, Caffeine expulsa las menos usadas.
+     */
+    private final Cache<String, Long> positives;
+
+    public RevocationNearCache(
+            RedisTokenBlacklist blacklist,
+            RedisMessageListenerContainer listenerContainer,
+            RedisCircuitBreaker circuitBreaker,
+            @Value("${jwt.revocation.degraded-mode:LOCAL}") RedisCircuitBreaker.DegradedMode degradedMode,
+            @Value("${jwt.revocation-cache.enabled:true}") boolean enabled,
+            @Value("${jwt.revocation-cache.expected-insertions:100000}") long expectedInsertions,
+            @Value("${jwt.revocation-cache.false-positive-rate:0.001}") double falsePositiveRate,
+            @Value("${jwt.revocation-cache.positive-cache-max-size:10000}") int positiveCacheMaxSize
+    ) {
+        this.blacklist = blacklist;
+        this.circuitBreaker = circuitBreaker;
+        this.degradedMode = degradedMode;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.positives = buildPositiveCache(positiveCacheMaxSize);
+        this.current = BloomFilter.create(expectedInsertions, falsePositiveRate);
+
+        if (enabled) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(RedisTokenBlacklist.REVOCATION_CHANNEL));
+        }
+    }
+
+    /**
+     * Revoca un token: lo escribe en Redis y lo registra localmente de inmediato
+     * (sin esperar al mensaje pub/sub de vuelta).
+     *
+     * @param revocationId Identificador del token a revocar
+     * @param ttl Tiempo hasta su expiración natural
+     */
+    public void revoke(String revocationId, Duration ttl) {
+        blacklist.add(revocationId, ttl);
+        onRevoked(revocationId, System.currentTimeMillis() + ttl.toMillis());
+    }
+
+    /**
+     * Indica si un token está revocado.
+     *
+     * @param revocationId Identificador del token a verificar
+     * @return true si está en la blacklist
+     */
+    public boolean isRevoked(String revocationId) {
+        if (!enabled || !ready) {
+            return circuitBreaker.execute(() -> blacklist.contains(revocationId), this::unknownWithoutRedis);
+        }
+
+        if (!current.mightContain(revocationId)) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        Long expiresAt = positives.getIfPresent(revocationId);
+        if (expiresAt != null) {
+            // Caducado: Redis ya ha borrado la clave
+            return expiresAt > now;
+        }
+
+        // Posible falso positivo: confirmar en Redis
+        // Sin Redis, en modo LOCAL se da por revocado: el filtro casi nunca se equivoca
+        long ttl = circuitBreaker.execute(
+                () -> blacklist.remainingTtlMillis(revocationId),
+                () -> degradedMode == RedisCircuitBreaker.DegradedMode.OPEN ? 0L : -1L
+        );
+        if (ttl < 0) {
+            return true;
+        }
+        if (ttl > 0) {
+            cachePositive(revocationId, now + ttl);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Sin Redis y sin filtro construido no hay información local:
+     * solo CLOSED rechaza el token.
+     */
+    private boolean unknownWithoutRedis() {
+        return degradedMode == RedisCircuitBreaker.DegradedMode.CLOSED;
+    }
+
+    /**
+     * Registra una revocación (local o recibida por pub/sub).
+     *
+     * @param revocationId Identificador del token revocado
+     * @param expiresAt Instante (ms) en que expira la revocación
+     */
+    public void onRevoked(String revocationId, long expiresAt) {
+        swapLock.readLock().lock();
+        try {
+            current.put(revocationId);
+            BloomFilter inProgress = building;
+            if (inProgress != null) {
+                inProgress.put(revocationId);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+
+        cachePositive(revocationId, expiresAt);
+    }
+
+    /**
+     * Recibe las revocaciones publicadas por cualquier instancia.
+     *
+     * Formato del mensaje: "{expiraEnMs}:{revocationId}"
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(':');
+
+        if (separator <= 0) {
+            log.warn("Ignoring malformed revocation message");
+            return;
+        }
+
+        try {
+            long expiresAt = Long.parseLong(body.substring(0, separator));
+            onRevoked(body.substring(separator + 1), expiresAt);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed revocation message");
+        }
+    }
+
+    /**
+     * Construcción inicial al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+
+    /**
+     * Reconstrucción periódica del filtro desde Redis.
+     */
+    @Scheduled(
+            initialDelayString = "${jwt.revocation-cache.rebuild-interval:600000}",
+            fixedDelayString = "${jwt.revocation-cache.rebuild-interval:600000}"
+    )
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Reconstruye el filtro a partir del contenido actual de la blacklist.
+     *
+     * Si Redis no está disponible se mantiene el filtro anterior (o, si aún
+     * no hay ninguno válido, se sigue consultando Redis directamente).
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        rebuildLock.lock();
+        try {
+            // Dimensionar con margen según lo que había en el filtro anterior
+            long expected = Math.max(expectedInsertions, current.insertions() * 2);
+            BloomFilter next = BloomFilter.create(expected, falsePositiveRate);
+
+            swapLock.writeLock().lock();
+            try {
+                building = next;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            long[] count = {0};
+            try {
+                blacklist.forEach(revocationId -> {
+                    next.put(revocationId);
+                    count[0]++;
+                });
+            } catch (RuntimeException e) {
+                building = null;
+                log.error("Could not rebuild revocation cache from Redis, keeping previous filter", e);
+                return;
+            }
+
+            swapLock.writeLock().lock();
+            try {
+                current = next;
+                building = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            positives.cleanUp();
+            ready = true;
+
+            log.info("Revocation cache rebuilt with {} revoked tokens", count[0]);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void cachePositive(String revocationId, long expiresAt) {
+        positives.put(revocationId, expiresAt);
+    }
+
+    /**
+     * Caché de positivos con caducidad por entrada (la expiración de cada token).
+     */
+    private static Cache<String, Long> buildPositiveCache(int maxSize) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String revocationId, Long expiresAt, long currentTime) {
+                        long remainingMillis = Math.max(expiresAt - System.currentTimeMillis(), 0L);
+                        return TimeUnit.MILLISECONDS.toNanos(remainingMillis);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String revocationId, Long expiresAt, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(revocationId, expiresAt, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String revocationId, Long expiresAt, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+}
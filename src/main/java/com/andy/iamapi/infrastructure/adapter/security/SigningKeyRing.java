@@ -0,0 +1,758 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Claves de firma de los tokens JWT.
+ *
+ * Algoritmos soportados (jwt.signing.algorithm):
+ * - HS256 (por defecto): clave simétrica jwt.secret, sin JWKS
+ * - RS256 / ES256 / EdDSA (Ed25519): par de claves asimétrico, identificado por kid (opt-in)
+ *
+ * Con algoritmos asimétricos los servicios downstream verifican los tokens
+ * localmente con las claves públicas de /.well-known/jwks.json, sin llamar al IAM.
+ *
+ * Anillo compartido:
+ * Todas las instancias firman con la misma clave activa, guardada en Redis.
+ * Una instancia nueva (arranque, escalado) adopta la clave del anillo en lugar
+ * de generar una propia que ningún JWKS cacheado conoce todavía.
+ *
+ * Las claves privadas se guardan cifradas (AES-256-GCM) con jwt.signing.key-encryption-key
+ * o, si no se define, con una clave derivada de jwt.secret. Leer Redis (una réplica,
+ * un volcado RDB/AOF, MONITOR) no basta para firmar tokens: hace falta además
+ * la configuración, como con HS256.
+ * Las claves guardadas en claro por versiones anteriores se cifran al leerlas.
+ * Si hay claves que no se pueden descifrar (otra key-encryption-key) la instancia
+ * no genera una propia: no firma hasta que se corrija la configuración, en lugar
+ * de sustituir la clave del resto de instancias.
+ *
+ * Estructura en Redis:
+ * Key: "jwks:keys" (hash, claves públicas)
+ * Field: kid
+ * Value: "{alg}:{expiraEnMs}:{clave pública X.509 en Base64}"
+ *
+ * Key: "jwks:signing" (hash, claves privadas del anillo)
+ * Field: kid
+ * Value: "{alg}:{activaDesdeMs}:{IV + clave privada PKCS#8 cifrada, en Base64}"
+ * (kid, alg y activaDesdeMs van como datos autenticados: no se pueden cambiar sin la clave)
+ *
+ * Rotación (sincronizada cada jwt.signing.jwks-refresh):
+ * - Una clave se publica al menos dos jwt.signing.jwks-max-age (max-age +
+ *   stale-while-revalidate del JWKS) más un jwt.signing.jwks-refresh antes de firmar
+ *   con ella. El jwks-refresh cubre lo que tarda cada instancia en verla en Redis
+ *   y en recalcular su JWKS. Así los verificadores que cachean el JWKS ya la
+ *   conocen cuando llega el primer token
+ * - Cada jwt.signing.rotation-interval firma la clave siguiente; la genera una sola
+ *   instancia (lock "jwks:rotation-lock")
+ * - La primera clave de un anillo vacío firma al momento: aún no hay JWKS cacheado
+ *   con tokens que proteger
+ * - Una clave pública se publica hasta que expira el último token que pudo firmar
+ *   (dos intervalos de rotación + jwt.refresh-expiration)
+ *
+ * Tokens HS256 sin kid:
+ * - En modo HS256 son los tokens normales
+ * - En modo asimétrico solo se aceptan hasta jwt.signing.legacy-hs256-until
+ *   (instante del cambio + jwt.refresh-expiration). Sin ese valor se rechazan
+ */
+@Component
+public class SigningKeyRing extends LocatorAdapter<Key> {
+    private static final Logger log = LoggerFactory.getLogger(SigningKeyRing.class);
+
+    private static final String KEYS_HASH = "jwks:keys";
+    private static final String SIGNING_HASH = "jwks:signing";
+    private static final String ROTATION_LOCK = "jwks:rotation-lock";
+
+    private static final Duration ROTATION_LOCK_TTL = Duration.ofSeconds(30);
+
+    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final String KEY_WRAP_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int KEY_WRAP_IV_BYTES = 12;
+    private static final int KEY_WRAP_TAG_BITS = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final String algorithm;
+    private final Duration keyRetention;
+    private final long rotationIntervalMillis;
+    private final long publishLeadMillis;
+    private final long jwksRefreshNanos;
+
+    /**
+     * Fin de la ventana en la que se aceptan tokens HS256 sin kid en modo asimétrico.
+     *
+     * null = sin ventana (se rechazan).
+     */
+    private final Instant legacyHmacUntil;
+
+    /**
+     * Clave HMAC derivada de jwt.secret.
+     *
+     * Firma en modo HS256 y verifica tokens sin kid (en modo asimétrico, solo dentro de la ventana).
+     * Requisito: Mínimo 256 bits (32 caracteres) para HMAC-SHA256
+     */
+    private final SecretKey secretKey;
+
+    /**
+     * Clave AES con la que se cifran las claves privadas guardadas en Redis.
+     */
+    private final SecretKey keyEncryptionKey;
+
+    /**
+     * Clave del anillo con la que se firma actualmente (null en modo HS256 o antes de sincronizar).
+     */
+    private volatile SigningKey active;
+
+    /**
+     * Clave ya publicada que pasará a firmar en su activatesAt.
+     */
+    private volatile SigningKey next;
+
+    /**
+     * Claves públicas conocidas: kid → clave.
+     */
+    private final Map<String, VerificationKey> verificationKeys = new ConcurrentHashMap<>();
+
+    /**
+     * kid que no están en Redis, para no repetir el HGET en cada token falsificado.
+     *
+     * Caduca a los jwt.signing.jwks-refresh; las claves legítimas se publican
+     * mucho antes de usarse y la sincronización periódica ya las carga.
+     */
+    private final Cache<String, Boolean> unknownKids;
+
+    /**
+     * Último JWKS calculado, para no leer Redis en cada request al endpoint.
+     */
+    private volatile JwksSnapshot jwksSnapshot;
+
+    /**
+     * Serializa las sincronizaciones con Redis (ver sync).
+     */
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    public SigningKeyRing(
+            RedisTemplate<String, String> redisTemplate,
+            @Value("${jwt.secret}") String secret,
+            @Value("${jwt.refresh-expiration}") long refreshTokenExpiration,
+            @Value("${jwt.signing.algorithm:HS256}") String algorithm,
+            @Value("${jwt.signing.rotation-interval:24h}") Duration rotationInterval,
+            @Value("${jwt.signing.jwks-max-age:5m}") Duration jwksMaxAge,
+            @Value("${jwt.signing.jwks-refresh:30s}") Duration jwksRefresh,
+            @Value("${jwt.signing.legacy-hs256-until:}") String legacyHmacUntil,
+            @Value("${jwt.signing.key-encryption-key:}") String keyEncryptionKey
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.algorithm = algorithm;
+        this.keyRetention = rotationInterval.multipliedBy(2).plusMillis(refreshTokenExpiration);
+        this.rotationIntervalMillis = rotationInterval.toMillis();
+        this.publishLeadMillis = jwksMaxAge.multipliedBy(2).plus(jwksRefresh).toMillis();
+        this.jwksRefreshNanos = jwksRefresh.toNanos();
+        this.legacyHmacUntil = legacyHmacUntil.isBlank() ? null : Instant.parse(legacyHmacUntil);
+        this.keyEncryptionKey = keyEncryptionKey.isBlank()
+                ? deriveKeyEncryptionKey(secretKey)
+                : new SecretKeySpec(decodeKeyEncryptionKey(keyEncryptionKey), "AES");
+        this.unknownKids = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(jwksRefresh)
+                .build();
+
+        if (isAsymmetric()) {
+            // Falla con algoritmos no soportados → la app no arranca (sin tocar Redis)
+            keyAlgorithm(algorithm);
+            if (publishLeadMillis >= rotationIntervalMillis) {
+                throw new IllegalStateException(
+                        "2 * jwt.signing.jwks-max-age + jwt.signing.jwks-refresh must be less than jwt.signing.rotation-interval");
+            }
+        }
+    }
+
+    /**
+     * Firma el token con la clave activa, agregando el header kid.
+     *
+     * @param builder Builder del token con los claims ya definidos
+     * @return El mismo builder, listo para compact()
+     * @throws IllegalStateException si en modo asimétrico no se ha podido obtener la clave del anillo
+     */
+    public JwtBuilder sign(JwtBuilder builder) {
+        if (!isAsymmetric()) {
+            return builder.signWith(secretKey);
+        }
+
+        SigningKey signingKey = currentSigningKey();
+
+        return builder
+                .header().keyId(signingKey.kid()).and()
+                .signWith(signingKey.privateKey());
+    }
+
+    /**
+     * Clave HMAC de jwt.secret.
+     */
+    public SecretKey secretKey() {
+        return secretKey;
+    }
+
+    /**
+     * Indica si se firma con un algoritmo asimétrico (y por tanto hay JWKS que publicar).
+     */
+    public boolean isAsymmetric() {
+        return !"HS256".equals(algorithm);
+    }
+
+    /**
+     * Indica si ahora mismo se aceptan tokens HS256 sin kid (firmados con jwt.secret).
+     *
+     * Siempre en modo HS256; en modo asimétrico solo hasta jwt.signing.legacy-hs256-until.
+     */
+    public boolean acceptsUnkeyedHmac() {
+        return !isAsymmetric()
+                || (legacyHmacUntil != null && Instant.now().isBefore(legacyHmacUntil));
+    }
+
+    /**
+     * Localiza la clave de verificación a partir del header del token.
+     *
+     * - Sin kid → jwt.secret (tokens HS256), si acceptsUnkeyedHmac
+     * - Con kid → clave pública conocida, o se busca en Redis (salvo kid ya buscado sin éxito)
+     *
+     * Si no se encuentra se devuelve null y jjwt rechaza el token.
+     */
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+
+        if (kid == null) {
+            if (acceptsUnkeyedHmac()) {
+                return secretKey;
+            }
+            log.warn("Rejecting token without kid: legacy HS256 window is closed");
+            return null;
+        }
+
+        VerificationKey key = verificationKeys.get(kid);
+        if (key == null && unknownKids.getIfPresent(kid) == null) {
+            key = load(kid);
+            if (key == null) {
+                unknownKids.put(kid, Boolean.TRUE);
+            }
+        }
+
+        if (key == null || key.expiresAt() <= System.currentTimeMillis()) {
+            log.warn("Unknown or expired signing key: {}", kid);
+            return null;
+        }
+
+        return key.publicKey();
+    }
+
+    /**
+     * Claves públicas vigentes en formato JWK Set (RFC 7517).
+     *
+     * Incluye las claves de todas las instancias publicadas en Redis.
+     * Se recalcula como mucho cada jwt.signing.jwks-refresh.
+     *
+     * @return Mapa serializable a JSON: {"keys": [...]}
+     */
+    public Map<String, Object> jwks() {
+        if (!isAsymmetric()) {
+            // La clave HMAC es secreta: nunca se publica
+            return Map.of("keys", List.of());
+        }
+
+        long now = System.nanoTime();
+        JwksSnapshot snapshot = jwksSnapshot;
+
+        if (snapshot == null || now - snapshot.builtAt() >= jwksRefreshNanos) {
+            snapshot = new JwksSnapshot(buildJwks(), now);
+            jwksSnapshot = snapshot;
+        }
+
+        return snapshot.jwks();
+    }
+
+    private Map<String, Object> buildJwks() {
+        reload();
+
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> keys = new ArrayList<>();
+
+        verificationKeys.entrySet().stream()
+                .filter(entry -> entry.getValue().expiresAt() > now)
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> keys.add(toJwk(entry.getKey(), entry.getValue())));
+
+        return Map.of("keys", List.copyOf(keys));
+    }
+
+    /**
+     * Sincronización programada con el anillo de Redis.
+     *
+     * Adopta la clave activa y la siguiente, y genera una nueva cuando toca rotar.
+     * Si Redis no responde se sigue firmando con la clave que ya se tenía.
+     */
+    @Scheduled(fixedDelayString = "${jwt.signing.jwks-refresh:30s}")
+    public void refresh() {
+        if (!isAsymmetric()) {
+            return;
+        }
+
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh signing keys from Redis: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Clave con la que firmar ahora.
+     *
+     * Pasa a la siguiente en cuanto llega su activatesAt, sin esperar a la sincronización.
+     * Antes de la primera sincronización (o si falló) se sincroniza en el momento.
+     */
+    private SigningKey currentSigningKey() {
+        SigningKey upcoming = next;
+        if (upcoming != null && upcoming.activatesAt() <= System.currentTimeMillis()) {
+            activate(upcoming);
+            next = null;
+        }
+
+        SigningKey signingKey = active;
+        if (signingKey == null) {
+            sync();
+            signingKey = active;
+        }
+
+        if (signingKey == null) {
+            throw new IllegalStateException("No published signing key available yet");
+        }
+        return signingKey;
+    }
+
+    /**
+     * Lee el anillo de Redis, rota si toca y actualiza la clave activa y la siguiente.
+     *
+     * Con syncLock y no synchronized: hace I/O con Redis y se llama desde el request
+     * (currentSigningKey). Con virtual threads, un synchronized fijaría el hilo portador
+     * durante toda la llamada, y los demás requests que firman esperarían sin soltarlo.
+     */
+    private void sync() {
+        syncLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+
+            StoredRing ring = loadRing();
+            SigningKey current = null;
+            SigningKey upcoming = null;
+            for (SigningKey key : ring.keys()) {
+                if (key.activatesAt() <= now) {
+                    current = key;
+                } else if (upcoming == null) {
+                    upcoming = key;
+                }
+            }
+
+            boolean rotationDue = current == null
+                    || now >= current.activatesAt() + rotationIntervalMillis - publishLeadMillis;
+
+            if (current == null && ring.unreadable() > 0) {
+                log.error("{} signing keys in Redis cannot be decrypted, check jwt.signing.key-encryption-key",
+                        ring.unreadable());
+            } else if (upcoming == null && rotationDue && acquireRotationLock()) {
+                // Anillo vacío: la primera clave firma ya. Si no, se publica con antelación
+                long activatesAt = current == null
+                        ? now
+                        : Math.max(now + publishLeadMillis, current.activatesAt() + rotationIntervalMillis);
+
+                SigningKey generated = generate(activatesAt);
+                if (current == null) {
+                    current = generated;
+                } else {
+                    upcoming = generated;
+                }
+                removeExpired(current);
+                log.info("Generated {} signing key {}, signing from {}", algorithm, generated.kid(),
+                        Instant.ofEpochMilli(activatesAt));
+            }
+
+            if (current != null) {
+                activate(current);
+            }
+            SigningKey previousNext = next;
+            next = upcoming;
+            if (upcoming != null && (previousNext == null || !previousNext.kid().equals(upcoming.kid()))) {
+                // Clave recién publicada: el JWKS servido debe incluirla ya, sin esperar a que caduque
+                jwksSnapshot = null;
+            }
+
+            reload();
+            verificationKeys.entrySet().removeIf(entry -> entry.getValue().expiresAt() <= now);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void activate(SigningKey key) {
+        SigningKey previous = active;
+        if (previous == null || !previous.kid().equals(key.kid())) {
+            active = key;
+            jwksSnapshot = null;
+            log.info("Signing tokens with {} key {}", algorithm, key.kid());
+        }
+    }
+
+    /**
+     * Solo una instancia genera la clave siguiente.
+     */
+    private boolean acquireRotationLock() {
+        return Boolean.TRUE.equals(
+                redisTemplate.opsForValue().setIfAbsent(ROTATION_LOCK, "1", ROTATION_LOCK_TTL));
+    }
+
+    /**
+     * Claves privadas del anillo con el algoritmo configurado, ordenadas por activatesAt.
+     */
+    private StoredRing loadRing() {
+        List<SigningKey> ring = new ArrayList<>();
+        int unreadable = 0;
+
+        for (Map.Entry<Object, Object> entry : redisTemplate.opsForHash().entries(SIGNING_HASH).entrySet()) {
+            SigningKey key = parseSigningKey(entry.getKey().toString(), entry.getValue().toString());
+            if (key == null) {
+                unreadable++;
+            } else if (algorithm.equals(key.algorithm())) {
+                ring.add(key);
+            }
+        }
+
+        ring.sort(Comparator.comparingLong(SigningKey::activatesAt));
+        return new StoredRing(List.copyOf(ring), unreadable);
+    }
+
+    /**
+     * Genera un par de claves y lo publica: la pública en el JWKS y la privada en el anillo.
+     */
+    private SigningKey generate(long activatesAt) {
+        KeyPair keyPair;
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(keyAlgorithm(algorithm));
+            switch (algorithm) {
+                case "RS256" -> generator.initialize(2048);
+                case "ES256" -> generator.initialize(new ECGenParameterSpec("secp256r1"));
+                default -> {
+                    // Ed25519 no tiene parámetros
+                }
+            }
+            keyPair = generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not generate " + algorithm + " signing key", e);
+        }
+
+        String kid = UUID.randomUUID().toString();
+        VerificationKey verification = new VerificationKey(algorithm, keyPair.getPublic(),
+                System.currentTimeMillis() + keyRetention.toMillis());
+
+        // Primero la pública: nunca se firma con una clave que el JWKS no tenga
+        publish(kid, verification);
+        String metadata = algorithm + ":" + activatesAt;
+        redisTemplate.opsForHash().put(SIGNING_HASH, kid,
+                metadata + ":" + seal(kid, metadata, keyPair.getPrivate().getEncoded()));
+
+        return new SigningKey(kid, algorithm, keyPair.getPrivate(), activatesAt);
+    }
+
+    private void publish(String kid, VerificationKey verification) {
+        verificationKeys.put(kid, verification);
+
+        String value = verification.algorithm() + ":" + verification.expiresAt() + ":"
+                + Base64.getEncoder().encodeToString(verification.publicKey().getEncoded());
+
+        redisTemplate.opsForHash().put(KEYS_HASH, kid, value);
+    }
+
+    /**
+     * Carga por kid una clave publicada que aún no se ha sincronizado (un HGET).
+     */
+    private VerificationKey load(String kid) {
+        Object value = redisTemplate.opsForHash().get(KEYS_HASH, kid);
+        if (value == null) {
+            return null;
+        }
+
+        VerificationKey key = parse(value.toString());
+        if (key != null) {
+            verificationKeys.put(kid, key);
+        }
+        return key;
+    }
+
+    /**
+     * Sincroniza las claves conocidas con las publicadas en Redis.
+     */
+    private void reload() {
+        redisTemplate.opsForHash().entries(KEYS_HASH).forEach((kid, value) -> {
+            VerificationKey key = parse(value.toString());
+            if (key != null) {
+                verificationKeys.put(kid.toString(), key);
+            }
+        });
+    }
+
+    /**
+     * Borra de Redis las claves privadas sustituidas por la activa y las públicas caducadas.
+     */
+    private void removeExpired(SigningKey current) {
+        long now = System.currentTimeMillis();
+
+        // Sin descifrar: una instancia con otra key-encryption-key no borra las claves buenas
+        redisTemplate.opsForHash().entries(SIGNING_HASH).forEach((kid, value) -> {
+            String[] parts = value.toString().split(":", 3);
+            if (parts.length != 3 || !parts[1].matches("\\d+")
+                    || Long.parseLong(parts[1]) < current.activatesAt()) {
+                redisTemplate.opsForHash().delete(SIGNING_HASH, kid);
+            }
+        });
+
+        redisTemplate.opsForHash().entries(KEYS_HASH).forEach((kid, value) -> {
+            VerificationKey key = parse(value.toString());
+            if (key == null || key.expiresAt() <= now) {
+                redisTemplate.opsForHash().delete(KEYS_HASH, kid);
+            }
+        });
+    }
+
+    private static VerificationKey parse(String value) {
+        String[] parts = value.split(":", 3);
+        if (parts.length != 3) {
+            return null;
+        }
+
+        try {
+            PublicKey publicKey = KeyFactory.getInstance(keyAlgorithm(parts[0]))
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(parts[2])));
+
+            return new VerificationKey(parts[0], publicKey, Long.parseLong(parts[1]));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.warn("Ignoring malformed signing key in Redis: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private SigningKey parseSigningKey(String kid, String value) {
+        String[] parts = value.split(":", 3);
+        if (parts.length != 3) {
+            return null;
+        }
+
+        String metadata = parts[0] + ":" + parts[1];
+        try {
+            byte[] stored = Base64.getDecoder().decode(parts[2]);
+            byte[] encoded;
+            boolean plaintext = false;
+            try {
+                encoded = open(kid, metadata, stored);
+            } catch (AEADBadTagException e) {
+                // Guardada en claro por una versión anterior (si no, falla al parsear el PKCS#8)
+                encoded = stored;
+                plaintext = true;
+            }
+
+            PrivateKey privateKey = KeyFactory.getInstance(keyAlgorithm(parts[0]))
+                    .generatePrivate(new PKCS8EncodedKeySpec(encoded));
+
+            if (plaintext) {
+                redisTemplate.opsForHash().put(SIGNING_HASH, kid, metadata + ":" + seal(kid, metadata, encoded));
+                log.info("Encrypted plaintext private signing key {} in Redis", kid);
+            }
+
+            return new SigningKey(kid, parts[0], privateKey, Long.parseLong(parts[1]));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            // También si se cifró con otra jwt.signing.key-encryption-key
+            log.warn("Ignoring unreadable private signing key {} in Redis: {}", kid, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Cifra una clave privada para guardarla en Redis.
+     *
+     * @param kid Identificador de la clave (dato autenticado)
+     * @param metadata "{alg}:{activaDesdeMs}" (dato autenticado)
+     * @param plaintext Clave privada PKCS#8
+     * @return IV seguido del texto cifrado con su tag, en Base64
+     */
+    private String seal(String kid, String metadata, byte[] plaintext) {
+        byte[] iv = new byte[KEY_WRAP_IV_BYTES];
+        RANDOM.nextBytes(iv);
+
+        try {
+            Cipher cipher = Cipher.getInstance(KEY_WRAP_TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(KEY_WRAP_TAG_BITS, iv));
+            cipher.updateAAD((kid + ":" + metadata).getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = cipher.doFinal(plaintext);
+
+            byte[] sealed = Arrays.copyOf(iv, iv.length + ciphertext.length);
+            System.arraycopy(ciphertext, 0, sealed, iv.length, ciphertext.length);
+            return Base64.getEncoder().encodeToString(sealed);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt signing key", e);
+        }
+    }
+
+    /**
+     * Descifra una clave privada guardada con seal.
+     *
+     * @throws GeneralSecurityException si el valor no se cifró con esta clave o se ha alterado
+     */
+    private byte[] open(String kid, String metadata, byte[] sealed) throws GeneralSecurityException {
+        if (sealed.length <= KEY_WRAP_IV_BYTES) {
+            throw new IllegalArgumentException("Encrypted signing key too short");
+        }
+
+        Cipher cipher = Cipher.getInstance(KEY_WRAP_TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, keyEncryptionKey,
+                new GCMParameterSpec(KEY_WRAP_TAG_BITS, sealed, 0, KEY_WRAP_IV_BYTES));
+        cipher.updateAAD((kid + ":" + metadata).getBytes(StandardCharsets.UTF_8));
+        return cipher.doFinal(sealed, KEY_WRAP_IV_BYTES, sealed.length - KEY_WRAP_IV_BYTES);
+    }
+
+    /**
+     * Clave de cifrado derivada de jwt.secret: HMAC-SHA256(secret, etiqueta fija).
+     */
+    private static SecretKey deriveKeyEncryptionKey(SecretKey secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(secret);
+            byte[] derived = mac.doFinal("jwks:signing:key-encryption".getBytes(StandardCharsets.UTF_8));
+            return new SecretKeySpec(derived, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not derive the signing key encryption key", e);
+        }
+    }
+
+    private static byte[] decodeKeyEncryptionKey(String value) {
+        byte[] key = Base64.getDecoder().decode(value.trim());
+        if (key.length != 32) {
+            throw new IllegalStateException("jwt.signing.key-encryption-key must be 32 bytes in Base64");
+        }
+        return key;
+    }
+
+    /**
+     * Algoritmo de KeyFactory / KeyPairGenerator para cada algoritmo JWS.
+     */
+    private static String keyAlgorithm(String jwsAlgorithm) {
+        return switch (jwsAlgorithm) {
+            case "RS256" -> "RSA";
+            case "ES256" -> "EC";
+            case "EdDSA" -> "Ed25519";
+            default -> throw new IllegalStateException("Unsupported jwt.signing.algorithm: " + jwsAlgorithm);
+        };
+    }
+
+    /**
+     * Convierte una clave pública a JWK (RFC 7518 / RFC 8037).
+     */
+    private static Map<String, Object> toJwk(String kid, VerificationKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", key.algorithm());
+
+        if (key.publicKey() instanceof RSAPublicKey rsa) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64Url(rsa.getModulus()));
+            jwk.put("e", base64Url(rsa.getPublicExponent()));
+        } else if (key.publicKey() instanceof ECPublicKey ec) {
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", base64Url(ec.getW().getAffineX(), 32));
+            jwk.put("y", base64Url(ec.getW().getAffineY(), 32));
+        } else {
+            // Ed25519: la codificación X.509 termina con los 32 bytes de la clave
+            byte[] encoded = key.publicKey().getEncoded();
+            jwk.put("kty", "OKP");
+            jwk.put("crv", "Ed25519");
+            jwk.put("x", URL_ENCODER.encodeToString(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
+        }
+
+        return jwk;
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        // Quitar el byte de signo que añade BigInteger
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return URL_ENCODER.encodeToString(bytes);
+    }
+
+    private static String base64Url(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        byte[] fixed = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, fixed, length - copy, copy);
+        return URL_ENCODER.encodeToString(fixed);
+    }
+
+    private record SigningKey(String kid, String algorithm, PrivateKey privateKey, long activatesAt) {}
+
+    private record VerificationKey(String algorithm, PublicKey publicKey, long expiresAt) {}
+
+    /**
+     * Resultado de leer "jwks:signing".
+     *
+     * @param unreadable Entradas que no se han podido descifrar ni parsear
+     */
+    private record StoredRing(List<SigningKey> keys, int unreadable) {}
+
+    private record JwksSnapshot(Map<String, Object> jwks, long builtAt) {}
+}
@@ -0,0 +1,47 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Utilidad para obtener un identificador de tamaño fijo de un token.
+ *
+ * Un JWT ocupa cientos de bytes. Usarlo directamente como clave de caché
+ * o de Redis obliga a hashear y comparar el string completo en cada lookup.
+ * SHA-256 reduce cualquier token a 32 bytes (43 caracteres en Base64URL).
+ */
+public final class TokenDigest {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    // Clase de utilidad, no debe instanciarse
+    private TokenDigest() {}
+
+    /**
+     * Calcula el SHA-256 del token.
+     *
+     * @param token Token JWT
+     * @return 32 bytes del digest
+     */
+    public static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 es obligatorio en toda JVM
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Digest completo del token en Base64URL (43 caracteres).
+     *
+     * @param token Token JWT
+     * @return Clave de tamaño fijo
+     */
+    public static String of(String token) {
+        return ENCODER.encodeToString(sha256(token));
+    }
+}
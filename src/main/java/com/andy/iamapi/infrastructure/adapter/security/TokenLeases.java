@@ -0,0 +1,132 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Reservas locales ("leases") de tokens de buckets distribuidos.
+ *
+ * En lugar de una ida a Redis por request, la instancia consume de golpe
+ * hasta leaseSize tokens del bucket (una sola CAS) y sirve los siguientes
+ * requests desde memoria. Al caducar la reserva, los tokens no usados se devuelven.
+ *
+ * Garantías:
+ * - El límite global nunca se supera: cada token servido se consumió antes en Redis,
+ *   y addTokens no pasa de la capacidad del bucket
+ * - Error: solo por defecto (rechazar antes de tiempo). Con N instancias, hasta
+ *   (N - 1) × leaseSize tokens pueden estar reservados en otras instancias sin usarse,
+ *   como mucho durante leaseDuration
+ * - Idas a Redis: una por reserva, es decir ~1/leaseSize por request admitido
+ *
+ * No es un rate limiter por sí mismo: la renovación (pedir tokens al bucket)
+ * y qué hacer cuando el bucket no tiene tokens los decide RateLimitService.
+ */
+class TokenLeases {
+
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final long leaseDurationNanos;
+    private final LongSupplier nanoClock;
+
+    TokenLeases(long leaseDurationNanos, LongSupplier nanoClock) {
+        this.leaseDurationNanos = leaseDurationNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Consume un token de la reserva local, sin renovarla (sin ir a Redis).
+     *
+     * @param key Clave del bucket
+     * @return true si la reserva estaba vigente y le quedaban tokens
+     */
+    boolean tryTake(String key) {
+        Lease current = leases.get(key);
+        return current != null && nanoClock.getAsLong() - current.expiresAt() < 0 && current.take();
+    }
+
+    /**
+     * Instala una reserva recién obtenida del bucket.
+     *
+     * Uno de los tokens es para el request que la pidió; el resto, para los siguientes.
+     * RateLimitService hace una sola renovación a la vez por clave; si aun así se
+     * sustituye una reserva, esta devuelve sus tokens y no se pierde ninguno.
+     *
+     * @param key Clave del bucket
+     * @param refund Devuelve tokens sin usar al bucket (en la ruta asíncrona no debe bloquear)
+     * @param granted Tokens consumidos en el bucket (mayor que 0)
+     */
+    void install(String key, LongConsumer refund, long granted) {
+        Lease fresh = new Lease(refund, new AtomicLong(granted - 1), nanoClock.getAsLong() + leaseDurationNanos);
+        Lease replaced = leases.put(key, fresh);
+        if (replaced != null) {
+            replaced.release();
+        }
+    }
+
+    /**
+     * Descarta la reserva de una clave (el bucket ya no tiene tokens que reservar).
+     */
+    void discard(String key) {
+        Lease current = leases.remove(key);
+        if (current != null) {
+            current.release();
+        }
+    }
+
+    /**
+     * Devuelve al bucket los tokens de las reservas caducadas.
+     *
+     * @return Tokens devueltos
+     */
+    long releaseExpired() {
+        long now = nanoClock.getAsLong();
+        long released = 0;
+
+        for (Map.Entry<String, Lease> entry : leases.entrySet()) {
+            Lease lease = entry.getValue();
+            if (now - lease.expiresAt() >= 0 && leases.remove(entry.getKey(), lease)) {
+                released += lease.release();
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Devuelve todos los tokens reservados (apagado de la instancia).
+     */
+    void releaseAll() {
+        leases.forEach((key, lease) -> {
+            if (leases.remove(key, lease)) {
+                lease.release();
+            }
+        });
+    }
+
+    private record Lease(LongConsumer refund, AtomicLong remaining, long expiresAt) {
+
+        boolean take() {
+            while (true) {
+                long available = remaining.get();
+                if (available <= 0) {
+                    return false;
+                }
+                if (remaining.compareAndSet(available, available - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Vacía la reserva y devuelve al bucket lo que quedaba.
+         */
+        long release() {
+            long unused = remaining.getAndSet(0);
+            if (unused > 0) {
+                refund.accept(unused);
+            }
+            return unused;
+        }
+    }
+}
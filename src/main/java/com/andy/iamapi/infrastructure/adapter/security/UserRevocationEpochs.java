@@ -0,0 +1,231 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Época de revocación por usuario ("revocar todas las sesiones desde T").
+ *
+ * En lugar de agregar a la blacklist cada token vivo del usuario, se guarda
+ * un único instante: todo token del usuario emitido hasta entonces (iat <= época) es inválido.
+ * Invalidar todas las sesiones es una sola escritura, sin importar cuántos tokens haya.
+ *
+ * La comparación es en milisegundos (claim iat_ms). En segundos, un token emitido
+ * en el mismo segundo que la revocación sobrevivía a ella o, con <=, el login
+ * inmediatamente posterior (p.ej. tras cambiar la contraseña) quedaba revocado.
+ * Los tokens sin iat_ms (emitidos antes de existir) se comparan con iat truncado
+ * a segundos: los del mismo segundo que la revocación quedan revocados.
+ *
+ * Estructura en Redis:
+ * Key: "revocation:epoch:{userId}"
+ * Value: época en milisegundos (las guardadas en segundos por versiones anteriores se convierten al leerlas)
+ * TTL: duración del refresh token (pasado ese tiempo no queda ningún token anterior vivo)
+ *
+ * Cada instancia mantiene una caché local:
+ * - Los cambios se publican en EPOCH_CHANNEL y se aplican en todas las instancias al momento
+ * - Las entradas caducan tras jwt.revocation.epoch-cache-ttl como red de seguridad
+ *   por si se pierde un mensaje pub/sub
+ * - Como mucho jwt.revocation.epoch-cache-max-size usuarios: el script de
+ *   RateLimitRevocationScript registra épocas de uids aún sin verificar, y un
+ *   cliente que invente uids no debe poder hacer crecer la caché sin límite
+ *
+ * Si Redis no está disponible (RedisCircuitBreaker), la época se decide según
+ * jwt.revocation.degraded-mode (ver degradedEpoch).
+ */
+@Component
+public class UserRevocationEpochs implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(UserRevocationEpochs.class);
+
+    private static final String EPOCH_PREFIX = "revocation:epoch:";
+
+    /**
+     * Canal pub/sub donde se anuncia cada nueva época.
+     * Mensaje: "{userId}:{épocaEnMilisegundos}"
+     */
+    public static final String EPOCH_CHANNEL = "revocation:epochs";
+
+    /**
+     * Sin época registrada para el usuario.
+     */
+    public static final long NO_EPOCH = -1L;
+
+    /**
+     * Por debajo de este valor una época está en segundos (año 1973 en milisegundos, 5138 en segundos).
+     */
+    private static final long MILLIS_THRESHOLD = 100_000_000_000L;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final RedisCircuitBreaker.DegradedMode degradedMode;
+    private final Duration keyTtl;
+    private final long localTtlNanos;
+
+    /**
+     * Caché local: userId → época conocida (o NO_EPOCH si no hay clave).
+     * Al llenarse, Caffeine expulsa las menos usadas.
+     */
+    private final Cache<UUID, CachedEpoch> localCache;
+
+    public UserRevocationEpochs(
+            RedisTemplate<String, String> redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            RedisCircuitBreaker circuitBreaker,
+            @Value("${jwt.revocation.degraded-mode:LOCAL}") RedisCircuitBreaker.DegradedMode degradedMode,
+            @Value("${jwt.refresh-expiration}") long refreshTokenExpiration,
+            @Value("${jwt.revocation.epoch-cache-ttl:60s}") Duration localTtl,
+            @Value("${jwt.revocation.epoch-cache-max-size:100000}") long localMaxSize
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.degradedMode = degradedMode;
+        this.keyTtl = Duration.ofMillis(refreshTokenExpiration);
+        this.localTtlNanos = localTtl.toNanos();
+        // Sin expireAfterWrite: en modo LOCAL se sigue usando la época caducada si Redis no responde
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .build();
+
+        listenerContainer.addMessageListener(this, new ChannelTopic(EPOCH_CHANNEL));
+    }
+
+    /**
+     * Invalida todos los tokens del usuario emitidos hasta ahora.
+     *
+     * @param userId ID del usuario
+     * @return Época registrada (milisegundos)
+     */
+    public long revokeAll(UUID userId) {
+        long epoch = System.currentTimeMillis();
+
+        redisTemplate.opsForValue().set(key(userId), String.valueOf(epoch), keyTtl);
+        redisTemplate.convertAndSend(EPOCH_CHANNEL, userId + ":" + epoch);
+        localCache.put(userId, new CachedEpoch(epoch, System.nanoTime()));
+
+        log.info("All sessions revoked for user {} (not before {})", userId, epoch);
+        return epoch;
+    }
+
+    /**
+     * Indica si un token quedó invalidado por la época del usuario.
+     *
+     * @param userId ID del usuario (claim uid)
+     * @param issuedAt Instante de emisión del token (claim iat_ms, o iat en tokens anteriores)
+     * @return true si el token se emitió hasta la época (incluida)
+     */
+    public boolean isRevoked(UUID userId, Instant issuedAt) {
+        long epoch = currentEpoch(userId);
+        return epoch != NO_EPOCH && issuedAt.toEpochMilli() <= epoch;
+    }
+
+    private long currentEpoch(UUID userId) {
+        long now = System.nanoTime();
+        CachedEpoch cached = localCache.getIfPresent(userId);
+
+        if (cached != null && now - cached.loadedAt() < localTtlNanos) {
+            return cached.epoch();
+        }
+
+        Long loaded = circuitBreaker.execute(() -> {
+            String value = redisTemplate.opsForValue().get(key(userId));
+            return value != null ? toMillis(Long.parseLong(value)) : NO_EPOCH;
+        }, () -> null);
+
+        if (loaded == null) {
+            // Sin Redis: no se cachea, se vuelve a intentar en la siguiente consulta
+            return degradedEpoch(cached);
+        }
+
+        localCache.put(userId, new CachedEpoch(loaded, now));
+        return loaded;
+    }
+
+    /**
+     * Época a aplicar sin Redis (jwt.revocation.degraded-mode):
+     * - LOCAL: la última conocida aunque haya caducado (o ninguna)
+     * - OPEN: ninguna
+     * - CLOSED: "ahora", es decir, todos los tokens del usuario quedan invalidados
+     */
+    private long degradedEpoch(CachedEpoch cached) {
+        return switch (degradedMode) {
+            case LOCAL -> cached != null ? cached.epoch() : NO_EPOCH;
+            case OPEN -> NO_EPOCH;
+            case CLOSED -> Long.MAX_VALUE;
+        };
+    }
+
+    /**
+     * Registra una época leída de Redis por otra vía (ej: el script de
+     * RateLimitRevocationScript), para que isRevoked no vuelva a leerla.
+     *
+     * @param userId ID del usuario (puede venir de un token aún sin verificar)
+     * @param epoch Época tal cual está en Redis, o NO_EPOCH si no hay clave
+     */
+    public void cacheLoaded(UUID userId, long epoch) {
+        // Como en onMessage: una época más reciente recibida por pub/sub tiene prioridad
+        localCache.asMap().merge(userId, new CachedEpoch(toMillis(epoch), System.nanoTime()),
+                (old, loaded) -> old.epoch() > loaded.epoch() ? old : loaded);
+    }
+
+    /**
+     * Época en milisegundos, también si se guardó en segundos (versiones anteriores).
+     */
+    static long toMillis(long epoch) {
+        return epoch != NO_EPOCH && epoch < MILLIS_THRESHOLD ? epoch * 1000 : epoch;
+    }
+
+    /**
+     * Clave en Redis de la época de un usuario.
+     *
+     * @param userId ID del usuario
+     * @return "revocation:epoch:{userId}"
+     */
+    public static String key(UUID userId) {
+        return EPOCH_PREFIX + userId;
+    }
+
+    /**
+     * Recibe las épocas publicadas por cualquier instancia.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(':');
+
+        try {
+            UUID userId = UUID.fromString(body.substring(0, separator));
+            long epoch = toMillis(Long.parseLong(body.substring(separator + 1)));
+
+            // Nunca retroceder: una época más reciente ya aplicada tiene prioridad
+            localCache.asMap().merge(userId, new CachedEpoch(epoch, System.nanoTime()),
+                    (old, received) -> old.epoch() > received.epoch() ? old : received);
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed revocation epoch message");
+        }
+    }
+
+    /**
+     * Elimina entradas locales caducadas (sin esperar a que las expulse maximumSize).
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.epoch-cache-cleanup:60000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        localCache.asMap().entrySet().removeIf(entry -> now - entry.getValue().loadedAt() >= localTtlNanos);
+    }
+
+    private record CachedEpoch(long epoch, long loadedAt) {}
+}
@@ -0,0 +1,185 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.domain.port.output.UserChangeTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de la "versión" actual de cada usuario.
+ *
+ * La versión es el updatedAt del usuario en milisegundos. Se incluye como
+ * claim "ver" en el access token y permite al JwtAuthenticationFilter
+ * saber si los claims del token siguen siendo fiables sin consultar la BD.
+ *
+ * Estructura en Redis:
+ * Key: "user:version:{userId}"
+ * Value: versión en ms del último cambio del usuario
+ * TTL: duración del access token (pasado ese tiempo, ningún token anterior sigue vivo)
+ *
+ * Solo existen claves para usuarios modificados recientemente. Si no hay clave,
+ * ningún token vivo puede estar desactualizado.
+ *
+ * Cada instancia mantiene una caché local con TTL corto para no ir a Redis
+ * en cada request. El TTL de esa caché es la ventana máxima en la que otra
+ * instancia puede seguir aceptando claims obsoletos.
+ *
+ * Las llamadas a Redis pasan por RedisCircuitBreaker:
+ * - Sin Redis, isStale responde true: el filtro consulta la BD, como sin modo claims
+ * - recordChange es best-effort: nunca hace fallar la escritura del usuario. Si Redis
+ *   no la recibe, las demás instancias pueden aceptar los claims anteriores hasta
+ *   que caduque el access token (se loguea como warning)
+ */
+@Component
+public class UserVersionTracker implements UserChangeTracker {
+    private static final Logger log = LoggerFactory.getLogger(UserVersionTracker.class);
+
+    private static final String VERSION_PREFIX = "user:version:";
+    private static final long UNKNOWN_VERSION = -1L;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final Duration keyTtl;
+    private final long localTtlNanos;
+
+    /**
+     * Caché local: userId → última versión conocida (o UNKNOWN_VERSION si no hay clave).
+     */
+    private final Map<UUID, CachedVersion> localCache = new ConcurrentHashMap<>();
+
+    public UserVersionTracker(
+            RedisTemplate<String, String> redisTemplate,
+            RedisCircuitBreaker circuitBreaker,
+            @Value("${jwt.expiration}") long accessTokenExpiration,
+            @Value("${jwt.claims-authentication.version-cache-ttl:5s}") Duration localTtl
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.keyTtl = Duration.ofMillis(accessTokenExpiration);
+        this.localTtlNanos = localTtl.toNanos();
+    }
+
+    /**
+     * Calcula la versión de un usuario a partir de su updatedAt.
+     *
+     * @param user Usuario de dominio
+     * @return Versión en ms, o 0 si el usuario aún no tiene updatedAt
+     */
+    public static long versionOf(User user) {
+        return toVersion(user.getUpdatedAt());
+    }
+
+    private static long toVersion(LocalDateTime updatedAt) {
+        if (updatedAt == null) {
+            return 0L;
+        }
+        return updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Registra que un usuario ha cambiado.
+     *
+     * Los tokens emitidos con una versión anterior pasan a considerarse obsoletos.
+     *
+     * Dentro de una transacción se registra tras el commit (como ReferenceDataCache.invalidate):
+     * antes, la BD aún tiene los datos anteriores. No lanza excepciones.
+     *
+     * @param userId ID del usuario
+     * @param version Nueva versión (ms)
+     */
+    public void recordChange(UUID userId, long version) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    store(userId, version);
+                }
+            });
+        } else {
+            store(userId, version);
+        }
+    }
+
+    private void store(UUID userId, long version) {
+        localCache.put(userId, new CachedVersion(version, System.nanoTime()));
+
+        boolean stored = circuitBreaker.execute(() -> {
+            redisTemplate.opsForValue().set(VERSION_PREFIX + userId, String.valueOf(version), keyTtl);
+            return true;
+        }, () -> false);
+
+        if (stored) {
+            log.debug("User version updated: {} -> {}", userId, version);
+        } else {
+            log.warn("User version {} -> {} not stored in Redis; other instances may accept previous token claims",
+                    userId, version);
+        }
+    }
+
+    /**
+     * Registra un cambio del usuario usando su updatedAt como versión.
+     *
+     * @param user Usuario persistido
+     */
+    public void recordChange(User user) {
+        recordChange(user.getId(), versionOf(user));
+    }
+
+    /**
+     * Indica si los claims emitidos con la versión dada están desactualizados.
+     *
+     * @param userId ID del usuario
+     * @param tokenVersion Versión incluida en el token
+     * @return true si el usuario cambió después de emitir el token
+     */
+    @Override
+    public boolean isStale(UUID userId, long tokenVersion) {
+        return currentVersion(userId) > tokenVersion;
+    }
+
+    private long currentVersion(UUID userId) {
+        long now = System.nanoTime();
+        CachedVersion cached = localCache.get(userId);
+
+        if (cached != null && now - cached.loadedAt() < localTtlNanos) {
+            return cached.version();
+        }
+
+        Long version = circuitBreaker.execute(() -> {
+            String value = redisTemplate.opsForValue().get(VERSION_PREFIX + userId);
+            return value != null ? Long.parseLong(value) : UNKNOWN_VERSION;
+        }, () -> null);
+
+        if (version == null) {
+            // Sin Redis no se sabe si el usuario cambió: obsoleto (se consulta la BD), sin cachear
+            return Long.MAX_VALUE;
+        }
+
+        localCache.put(userId, new CachedVersion(version, now));
+        return version;
+    }
+
+    /**
+     * Elimina entradas locales caducadas para que la caché no crezca sin límite.
+     */
+    @Scheduled(fixedDelayString = "${jwt.claims-authentication.version-cache-cleanup:60000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        localCache.entrySet().removeIf(entry -> now - entry.getValue().loadedAt() >= localTtlNanos);
+    }
+
+    private record CachedVersion(long version, long loadedAt) {}
+}
@@ -7,6 +7,7 @@ import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.codec.RedisCodec;
 import io.lettuce.core.codec.StringCodec;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
@@ -18,12 +19,17 @@ import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactor
  * que ya usa Spring Data Redis internamente.
  *
  * Cada IP tendrá su propio "bucket" (contador) en Redis,
- * identificado por una clave única por endpoint + IP.
+ * identificado por una clave única por política + cliente.
+ *
+ * Las políticas (rutas, claves y límites) se leen de rate-limit.policies
+ * en RateLimitProperties.
  */
 @Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class RateLimitConfig {
     /**
-     * Crea el ProxyManager de Bucket4j usando la conexión Lettuce de Spring.
+     * Conexión Lettuce para rate limiting, compartida por Bucket4j y
+     * RateLimitRevocationScript.
      *
      * Reutilizamos la LettuceConnectionFactory que ya configura Spring Boot
      * automáticamente con los datos del application.yml (host, port, etc.)
@@ -33,10 +39,10 @@ public class RateLimitConfig {
      * - ByteArray: valores binarios serializados del estado del bucket
      *
      * @param connectionFactory Factory de conexiones Redis de Spring Boot
-     * @return ProxyManager listo para gestionar buckets en Redis
+     * @return Conexión (Spring la cierra al apagar)
      */
     @Bean
-    public ProxyManager<String> lettuceBasedProxyManager(
+    public StatefulRedisConnection<String, byte[]> rateLimitRedisConnection(
             LettuceConnectionFactory connectionFactory
     ) {
 
@@ -54,9 +60,22 @@ public class RateLimitConfig {
             );
         }
 
+        return connection;
+    }
+
+    /**
+     * Crea el ProxyManager de Bucket4j sobre la conexión de rate limiting.
+     *
+     * @param rateLimitRedisConnection Conexión Lettuce String/ByteArray
+     * @return ProxyManager listo para gestionar buckets en Redis
+     */
+    @Bean
+    public ProxyManager<String> lettuceBasedProxyManager(
+            StatefulRedisConnection<String, byte[]> rateLimitRedisConnection
+    ) {
         // Creamos el ProxyManager que gestiona los buckets en Redis
         return LettuceBasedProxyManager
-                .builderFor(connection)
+                .builderFor(rateLimitRedisConnection)
                 .build();
     }
 }
@@ -0,0 +1,84 @@
+package com.andy.iamapi.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Tabla de políticas de rate limiting (rate-limit.policies en application.yml).
+ *
+ * Cada política indica a qué requests se aplica (método + patrón de ruta),
+ * cómo se identifica al cliente (key) y sus límites. RateLimitPolicies la
+ * compila al arrancar en un trie de rutas con las configuraciones de Bucket4j ya construidas.
+ *
+ * Ejemplo:
+ * <pre>
+ * rate-limit:
+ *   policies:
+ *     - name: login
+ *       method: POST
+ *       path: /api/auth/login
+ *       key: IP_PREFIX
+ *       limits:
+ *         - capacity: 5
+ *           refill-period: 1m
+ * </pre>
+ *
+ * Patrones de ruta:
+ * - Segmento literal: /api/users
+ * - {variable} o *: exactamente un segmento (/api/users/{id})
+ * - **: cualquier resto de la ruta, solo al final (/api/roles/**)
+ *
+ * Si varias políticas encajan gana la más específica: literal antes que
+ * variable, variable antes que **, y método concreto antes que cualquier método.
+ */
+@ConfigurationProperties(prefix = "rate-limit")
+public record RateLimitProperties(
+        List<Policy> policies
+) {
+    public RateLimitProperties {
+        policies = policies != null ? List.copyOf(policies) : List.of();
+    }
+
+    /**
+     * @param name Nombre de la política (forma parte de la clave en Redis: "rate_limit:{name}:{cliente}")
+     * @param method Método HTTP, o null / "*" para cualquiera
+     * @param path Patrón de ruta
+     * @param key Cómo se identifica al cliente
+     * @param limits Límites (el request debe caber en todos)
+     * @param version Versión de los límites. Los buckets ya creados en Redis conservan su
+     *                configuración: al cambiar los límites hay que subir la versión para que la adopten
+     */
+    public record Policy(
+            String name,
+            String method,
+            String path,
+            KeyStrategy key,
+            List<Limit> limits,
+            long version
+    ) {}
+
+    /**
+     * Token bucket: capacity tokens como máximo, recarga de refillTokens
+     * (por defecto capacity) cada refillPeriod, de forma continua.
+     */
+    public record Limit(
+            long capacity,
+            Long refillTokens,
+            Duration refillPeriod
+    ) {}
+
+    /**
+     * Cómo se identifica al cliente (ver RateLimitSubjects).
+     *
+     * IP_PREFIX y USER acotan el número de claves en Redis: rotar de IP dentro
+     * de una red IPv6 no crea buckets nuevos, y los usuarios detrás de un mismo
+     * NAT no comparten bucket.
+     */
+    public enum KeyStrategy {
+        IP,        // IP del cliente tal cual (IpAddressUtil.getClientIp)
+        IP_PREFIX, // IP del cliente, IPv6 agregada a su prefijo (rate-limit.ipv6-prefix-length)
+        USER       // Usuario autenticado (uid del token ya verificado, ver RateLimitSubjects); sin token, como IP_PREFIX
+    }
+}
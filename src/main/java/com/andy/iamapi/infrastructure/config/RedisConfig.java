@@ -4,6 +4,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -11,6 +12,7 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
  *
  * Redis se usa para:
  * - Blacklist de tokens revocados
+ * - Pub/sub para propagar revocaciones entre instancias
  * - Cache (futuro)
  * - Sesiones (futuro)
  *
@@ -54,8 +56,19 @@ RedisTemplate<String, String> redisTemplate(RedisConnectionFactory connectionFac
         return template;
     }
 
-
-
-
+    /**
+     * Contenedor de listeners pub/sub de Redis.
+     *
+     * Mantiene la conexión de suscripción y reparte los mensajes a los
+     * MessageListener registrados (ej: RevocationNearCache).
+     *
+     * @param connectionFactory Factory de conexiones
+     * @return Contenedor que arranca con el contexto de Spring
+     */
+    @Bean
+    RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 }
-
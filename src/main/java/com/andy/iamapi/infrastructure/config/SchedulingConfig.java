@@ -0,0 +1,15 @@
+package com.andy.iamapi.infrastructure.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas (@Scheduled).
+ *
+ * Se usan para tareas de mantenimiento en segundo plano,
+ * como limpiar cachés locales con entradas caducadas.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,6 +1,7 @@
 package com.andy.iamapi.infrastructure.config;
 
 import com.andy.iamapi.infrastructure.adapter.security.JwtAuthenticationFilter;
+import com.andy.iamapi.infrastructure.adapter.security.RateLimitDecisionFilter;
 import com.andy.iamapi.infrastructure.adapter.security.RateLimitFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -26,13 +27,16 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final RateLimitFilter rateLimitFilter;
+    private final RateLimitDecisionFilter rateLimitDecisionFilter;
 
     public SecurityConfig (
             JwtAuthenticationFilter jwtAuthenticationFilter,
-            RateLimitFilter rateLimitFilter
+            RateLimitFilter rateLimitFilter,
+            RateLimitDecisionFilter rateLimitDecisionFilter
     ) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
         this.rateLimitFilter = rateLimitFilter;
+        this.rateLimitDecisionFilter = rateLimitDecisionFilter;
     }
 
     /**
@@ -41,9 +45,11 @@ public class SecurityConfig {
      * Configuración:
      * 1. CSRF deshabilitado (APIs REST stateless no lo necesitan)
      * 2. Sesiones deshabilitadas (stateless con JWT)
-     * 3. Endpoints públicos: /api/auth/** (register, login)
+     * 3. Endpoints públicos: /api/auth/** (register, login) y /.well-known/jwks.json
      * 4. Endpoints protegidos: todo lo demás
      * 5. Filtro JWT antes del filtro de autenticación de Spring
+     * 6. Rate limit en dos pasos alrededor del filtro JWT: RateLimitFilter lanza
+     *    la comprobación en Redis y RateLimitDecisionFilter espera el resultado
      *
      * @param http HttpSecurity builder
      * @return SecurityFilterChain configurado
@@ -70,6 +76,9 @@ public class SecurityConfig {
                         // Endpoints PÚBLICOS (sin token)
                         .requestMatchers("/api/auth/**").permitAll() //register, login, logout y refresh
 
+                        // Claves públicas de firma (JWKS) para los servicios downstream
+                        .requestMatchers("/.well-known/jwks.json").permitAll()
+
                         // Swagger/OpenAPI endpoints (públicos para documentación)
                         .requestMatchers(
                                 "/v3/api-docs/**",      // OpenAPI JSON
@@ -81,7 +90,8 @@ public class SecurityConfig {
                         .anyRequest().authenticated())
 
                 .addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class)
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitDecisionFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,4 @@
+-- Rol para servicios internos y gateways (introspección de tokens)
+INSERT INTO roles (id, name, description, created_at, updated_at) VALUES
+    ('550e8400-e29b-41d4-a716-446655440004', 'ROLE_SERVICE', 'Servicio interno autorizado a introspeccionar tokens', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+ON CONFLICT (name) DO NOTHING;
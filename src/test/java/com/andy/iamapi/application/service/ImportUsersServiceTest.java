@@ -0,0 +1,155 @@
+package com.andy.iamapi.application.service;
+
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.ImportResult;
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.ImportUsersCommand;
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.RowResult;
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.RowStatus;
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.UserImportRow;
+import com.andy.iamapi.domain.port.output.AuditLogger;
+import com.andy.iamapi.domain.port.output.PasswordEncoder;
+import com.andy.iamapi.domain.port.output.RoleRepository;
+import com.andy.iamapi.domain.port.output.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ImportUsersServiceTest {
+
+	private static final String PASSWORD = "Secret123";
+	private static final int MAX_ROWS = 5;
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final RoleRepository roleRepository = mock(RoleRepository.class);
+	private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+	private final AuditLogger auditLogger = mock(AuditLogger.class);
+
+	private final ImportUsersService service =
+			new ImportUsersService(userRepository, roleRepository, passwordEncoder, auditLogger, MAX_ROWS);
+
+	@BeforeEach
+	void setUp() {
+		when(roleRepository.findByName("ROLE_USER")).thenReturn(Optional.of(Role.create("ROLE_USER", "User")));
+		when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of("taken@example.com"));
+		when(passwordEncoder.encodeAll(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0))
+				.stream().map(raw -> "hash:" + raw).toList());
+		// Todos se insertan salvo race@example.com (registrado por otro request entretanto)
+		when(userRepository.insertAll(anyList())).thenAnswer(invocation -> {
+			List<User> users = invocation.getArgument(0);
+			return users.stream()
+					.filter(user -> !user.getEmail().equals("race@example.com"))
+					.map(User::getId)
+					.collect(Collectors.toSet());
+		});
+	}
+
+	@Test
+	void reportsEveryRowInFileOrder() {
+		ImportResult result = service.execute(command(List.of(
+				row(1, "new@example.com"),
+				new UserImportRow(2, "bad-email", PASSWORD, "Ana", "Pérez"),
+				row(3, "taken@example.com"),
+				row(4, "NEW@example.com"),
+				row(5, "race@example.com")
+		).iterator()));
+
+		assertEquals(List.of(
+				new RowResult(1, "new@example.com", RowStatus.CREATED, null),
+				new RowResult(2, "bad-email", RowStatus.INVALID, "Email must be valid"),
+				new RowResult(3, "taken@example.com", RowStatus.SKIPPED, "Email already registered"),
+				new RowResult(4, "new@example.com", RowStatus.SKIPPED, "Duplicate email in import"),
+				new RowResult(5, "race@example.com", RowStatus.SKIPPED, "Email already registered")
+		), result.rows());
+		assertEquals(5, result.total());
+		assertEquals(1, result.created());
+		assertEquals(3, result.skipped());
+		assertEquals(1, result.invalid());
+		assertNull(result.error());
+	}
+
+	@Test
+	void malformedBodyMidStreamReturnsThePartialResult() {
+		Iterator<UserImportRow> rows = new Iterator<>() {
+			private int read;
+
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+
+			@Override
+			public UserImportRow next() {
+				if (read == 2) {
+					throw new IllegalArgumentException("Malformed JSON import body at row 3");
+				}
+				read++;
+				return row(read, "user" + read + "@example.com");
+			}
+		};
+
+		ImportResult result = service.execute(command(rows));
+
+		assertEquals(2, result.total());
+		assertEquals(2, result.created());
+		assertEquals("Malformed JSON import body at row 3", result.error());
+	}
+
+	@Test
+	void rowsBeyondTheLimitAreNotRead() {
+		Iterator<UserImportRow> rows = IntStream.rangeClosed(1, MAX_ROWS + 2)
+				.mapToObj(i -> row(i, "user" + i + "@example.com"))
+				.iterator();
+
+		ImportResult result = service.execute(command(rows));
+
+		assertEquals(MAX_ROWS, result.total());
+		assertEquals(MAX_ROWS, result.created());
+		assertEquals("Row limit exceeded: at most 5 rows per import, remaining rows were not imported", result.error());
+		// La fila siguiente al límite no se ha consumido
+		assertEquals(MAX_ROWS + 1, rows.next().rowNumber());
+	}
+
+	@Test
+	void malformedBodyBeforeAnyRowReturnsAnEmptyResult() {
+		Iterator<UserImportRow> rows = new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				throw new IllegalArgumentException("Each JSON import row must be an object");
+			}
+
+			@Override
+			public UserImportRow next() {
+				throw new NoSuchElementException();
+			}
+		};
+
+		ImportResult result = service.execute(command(rows));
+
+		assertEquals(0, result.total());
+		assertEquals("Each JSON import row must be an object", result.error());
+	}
+
+	private static UserImportRow row(int rowNumber, String email) {
+		return new UserImportRow(rowNumber, email, PASSWORD, "Ana", "Pérez");
+	}
+
+	private static ImportUsersCommand command(Iterator<UserImportRow> rows) {
+		return new ImportUsersCommand(rows, UUID.randomUUID(), "10.0.0.1");
+	}
+}
@@ -0,0 +1,146 @@
+package com.andy.iamapi.application.service;
+
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.domain.port.input.IntrospectTokensUseCase.IntrospectTokensCommand;
+import com.andy.iamapi.domain.port.input.IntrospectTokensUseCase.TokenIntrospection;
+import com.andy.iamapi.domain.port.output.TokenService;
+import com.andy.iamapi.domain.port.output.TokenService.TokenClaims;
+import com.andy.iamapi.domain.port.output.UserChangeTracker;
+import com.andy.iamapi.domain.port.output.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IntrospectTokensServiceTest {
+
+	private static final String EMAIL = "john@example.com";
+
+	private final TokenService tokenService = mock(TokenService.class);
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final UserChangeTracker userChangeTracker = mock(UserChangeTracker.class);
+
+	private final UUID userId = UUID.randomUUID();
+
+	@Test
+	void activeTokenReportsTheCurrentRolesFromTheDatabase() {
+		token("token", claims(true, true));
+		user(true, true);
+
+		TokenIntrospection result = introspect(false, "token");
+
+		assertTrue(result.active());
+		assertEquals(EMAIL, result.email());
+		assertEquals(List.of("ROLE_ADMIN"), result.roles());
+	}
+
+	@Test
+	void disabledAccountIsInactive() {
+		token("token", claims(true, true));
+		user(false, true);
+
+		assertFalse(introspect(false, "token").active());
+	}
+
+	@Test
+	void lockedAccountIsInactive() {
+		token("token", claims(true, true));
+		user(true, false);
+
+		assertFalse(introspect(false, "token").active());
+	}
+
+	@Test
+	void deletedAccountIsInactive() {
+		token("token", claims(true, true));
+		when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.empty());
+
+		assertFalse(introspect(false, "token").active());
+	}
+
+	@Test
+	void freshClaimsAreTrustedInClaimsMode() {
+		token("active", claims(true, true));
+		token("locked", claims(true, false));
+		when(userChangeTracker.isStale(any(), anyLong())).thenReturn(false);
+
+		IntrospectTokensService service = service(true);
+		List<TokenIntrospection> results = service.execute(new IntrospectTokensCommand(List.of("active", "locked")));
+
+		assertTrue(results.get(0).active());
+		assertEquals(List.of("ROLE_USER"), results.get(0).roles());
+		assertFalse(results.get(1).active());
+		verify(userRepository, never()).findByEmail(any());
+	}
+
+	@Test
+	void staleClaimsFallBackToTheDatabase() {
+		// El token dice habilitado; la cuenta se bloqueó después
+		token("token", claims(true, true));
+		when(userChangeTracker.isStale(userId, 1L)).thenReturn(true);
+		user(true, false);
+
+		assertFalse(introspect(true, "token").active());
+	}
+
+	@Test
+	void invalidTokenIsInactiveWithoutLookingUpTheUser() {
+		when(tokenService.validateToken("invalid")).thenReturn(Optional.empty());
+
+		assertFalse(introspect(false, "invalid").active());
+		verify(userRepository, never()).findByEmail(any());
+	}
+
+	@Test
+	void userIsLoadedOncePerBatch() {
+		token("first", claims(true, true));
+		token("second", claims(true, true));
+		user(true, true);
+
+		service(false).execute(new IntrospectTokensCommand(List.of("first", "second")));
+
+		verify(userRepository, times(1)).findByEmail(EMAIL);
+	}
+
+	private TokenIntrospection introspect(boolean claimsAuthenticationEnabled, String token) {
+		return service(claimsAuthenticationEnabled).execute(new IntrospectTokensCommand(List.of(token))).get(0);
+	}
+
+	private IntrospectTokensService service(boolean claimsAuthenticationEnabled) {
+		return new IntrospectTokensService(tokenService, userRepository, userChangeTracker,
+				claimsAuthenticationEnabled);
+	}
+
+	private void token(String token, TokenClaims claims) {
+		when(tokenService.validateToken(token)).thenReturn(Optional.of(claims));
+	}
+
+	private TokenClaims claims(boolean enabled, boolean accountNonLocked) {
+		Instant now = Instant.now();
+		return new TokenClaims(EMAIL, userId, List.of("ROLE_USER"), enabled, accountNonLocked, 1L,
+				now, now.plus(Duration.ofHours(1)), UUID.randomUUID().toString(), null, null);
+	}
+
+	private void user(boolean enabled, boolean accountNonLocked) {
+		User user = User.reconstitute(userId, EMAIL, "hash", "John", "Doe", enabled, accountNonLocked,
+				LocalDateTime.now(), LocalDateTime.now());
+		user.addRole(Role.create("ROLE_ADMIN", "Admin"));
+		when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user));
+	}
+}
@@ -0,0 +1,80 @@
+package com.andy.iamapi.application.service;
+
+import com.andy.iamapi.domain.port.output.PasswordEncoder;
+import com.andy.iamapi.domain.port.output.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PasswordRehashServiceTest {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+	private final PasswordRehashService service = new PasswordRehashService(userRepository, passwordEncoder, 1);
+
+	private final UUID userId = UUID.randomUUID();
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void upgradesTheHashInTheBackground() {
+		when(passwordEncoder.tryEncode("password")).thenReturn(Optional.of("new-hash"));
+
+		service.rehash(userId, "password", "old-hash");
+
+		verify(userRepository, timeout(1_000)).updatePasswordHash(userId, "old-hash", "new-hash");
+	}
+
+	@Test
+	void skipsTheRehashWhenHashingIsBusy() {
+		when(passwordEncoder.tryEncode("password")).thenReturn(Optional.empty());
+
+		service.rehash(userId, "password", "old-hash");
+
+		verify(passwordEncoder, timeout(1_000)).tryEncode("password");
+		verify(userRepository, never()).updatePasswordHash(any(), any(), any());
+		assertEquals(1, service.droppedCount());
+	}
+
+	@Test
+	void dropsRehashesWhenTheQueueIsFull() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(passwordEncoder.tryEncode(anyString())).thenAnswer(invocation -> {
+			started.countDown();
+			release.await(1, TimeUnit.SECONDS);
+			return Optional.of("new-hash");
+		});
+
+		// Uno en ejecución, uno en cola (capacidad 1) y el resto se descarta
+		service.rehash(userId, "first", "old-hash");
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		service.rehash(userId, "second", "old-hash");
+		service.rehash(userId, "third", "old-hash");
+		service.rehash(userId, "fourth", "old-hash");
+
+		assertEquals(2, service.droppedCount());
+		release.countDown();
+		verify(userRepository, timeout(1_000).times(2)).updatePasswordHash(userId, "old-hash", "new-hash");
+		verify(passwordEncoder, never()).tryEncode("third");
+		verify(passwordEncoder, times(1)).tryEncode("second");
+	}
+}
@@ -0,0 +1,80 @@
+package com.andy.iamapi.domain.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IpAddressUtilTest {
+
+	@Test
+	void ipv6IsTruncatedToA64() {
+		assertEquals("2001:db8:1:2:0:0:0:0/64",
+				IpAddressUtil.ipv6Prefix("2001:db8:1:2:aaaa:bbbb:cccc:dddd", 64));
+		assertEquals("2001:db8:0:0:0:0:0:0/64", IpAddressUtil.ipv6Prefix("2001:db8::1", 64));
+	}
+
+	@Test
+	void addressesOfTheSameNetworkShareThePrefix() {
+		assertEquals(IpAddressUtil.ipv6Prefix("2001:db8:1:2::1", 64),
+				IpAddressUtil.ipv6Prefix("2001:db8:1:2:ffff:ffff:ffff:ffff", 64));
+		assertNotEquals(IpAddressUtil.ipv6Prefix("2001:db8:1:2::1", 64),
+				IpAddressUtil.ipv6Prefix("2001:db8:1:3::1", 64));
+	}
+
+	@Test
+	void ipv6IsTruncatedToA48() {
+		assertEquals("2001:db8:abcd:0:0:0:0:0/48", IpAddressUtil.ipv6Prefix("2001:db8:abcd:12:1:2:3:4", 48));
+		assertEquals(IpAddressUtil.ipv6Prefix("2001:db8:abcd:1::1", 48),
+				IpAddressUtil.ipv6Prefix("2001:db8:abcd:ffff::1", 48));
+	}
+
+	@Test
+	void prefixNotAlignedToAGroup() {
+		assertEquals("2001:db8:1:200:0:0:0:0/56", IpAddressUtil.ipv6Prefix("2001:db8:1:2ff::1", 56));
+	}
+
+	@Test
+	void equivalentNotationsGiveTheSamePrefix() {
+		String expected = "2001:db8:1:2:0:0:0:0/64";
+
+		assertEquals(expected, IpAddressUtil.ipv6Prefix("2001:0DB8:0001:0002:0000:0000:0000:0001", 64));
+		assertEquals(expected, IpAddressUtil.ipv6Prefix("[2001:db8:1:2::1]", 64));
+	}
+
+	@Test
+	void ipv4IsReturnedAsIs() {
+		assertEquals("192.168.1.10", IpAddressUtil.ipv6Prefix("192.168.1.10", 64));
+	}
+
+	@Test
+	void ipv4MappedIsReturnedAsIpv4() {
+		assertEquals("192.168.1.10", IpAddressUtil.ipv6Prefix("::ffff:192.168.1.10", 64));
+		assertEquals("192.168.1.10", IpAddressUtil.ipv6Prefix("::ffff:c0a8:10a", 64));
+	}
+
+	@Test
+	void zoneIdIsDropped() {
+		assertEquals("fe80:0:0:0:0:0:0:0/64", IpAddressUtil.ipv6Prefix("fe80::1%eth0", 64));
+		assertEquals("fe80:0:0:0:0:0:0:0/64", IpAddressUtil.ipv6Prefix("fe80::2%3", 64));
+		assertEquals("fe80:0:0:0:0:0:0:0/64", IpAddressUtil.ipv6Prefix("[fe80::1%25eth0]", 64));
+	}
+
+	@Test
+	void invalidInputIsReturnedAsIs() {
+		assertNull(IpAddressUtil.ipv6Prefix(null, 64));
+		assertEquals("", IpAddressUtil.ipv6Prefix("", 64));
+		assertEquals("unknown", IpAddressUtil.ipv6Prefix("unknown", 64));
+		assertEquals("2001:db8::zz", IpAddressUtil.ipv6Prefix("2001:db8::zz", 64));
+		assertEquals("1:2:3:4:5:6:7:8:9", IpAddressUtil.ipv6Prefix("1:2:3:4:5:6:7:8:9", 64));
+		assertEquals("[::1", IpAddressUtil.ipv6Prefix("[::1", 64));
+		// Con ':' pero no es un literal: nunca se resuelve como nombre
+		assertEquals("localhost:8080", IpAddressUtil.ipv6Prefix("localhost:8080", 64));
+	}
+
+	@Test
+	void fullLengthPrefixKeepsTheAddress() {
+		assertEquals("2001:db8::1", IpAddressUtil.ipv6Prefix("2001:db8::1", 128));
+	}
+}
@@ -0,0 +1,126 @@
+package com.andy.iamapi.infrastructure.adapter.persistance.adapter;
+
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.infrastructure.adapter.persistance.mapper.UserMapper;
+import com.andy.iamapi.infrastructure.adapter.persistance.repository.UserJpaRepository;
+import com.andy.iamapi.infrastructure.adapter.security.UserVersionTracker;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Inserciones JDBC del adapter (insertIfAbsent e insertAll) con un JdbcTemplate simulado:
+ * parámetros enviados, interpretación del resultado y registro de versión.
+ */
+class UserRepositoryAdapterTest {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final UserVersionTracker userVersionTracker = mock(UserVersionTracker.class);
+
+	private final UserRepositoryAdapter adapter = new UserRepositoryAdapter(
+			mock(UserJpaRepository.class), mock(UserMapper.class), userVersionTracker, jdbcTemplate);
+
+	@Test
+	void insertIfAbsentSendsUserAndRolesInOneStatement() {
+		Role role = Role.create("ROLE_USER", "User");
+		User user = user("new@example.com", role);
+		AtomicReference<Object[]> arguments = new AtomicReference<>();
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class)))
+				.thenAnswer(invocation -> {
+					arguments.set(invocation.getArguments());
+					return 1L;
+				});
+
+		assertTrue(adapter.insertIfAbsent(user));
+
+		Object[] args = arguments.get();
+		assertTrue(((String) args[0]).contains("ON CONFLICT (email) DO NOTHING"));
+		assertEquals(user.getId(), args[2]);
+		assertEquals("new@example.com", args[3]);
+		assertEquals(user.getPassword(), args[4]);
+		assertArrayEquals(new UUID[]{role.getId()}, (UUID[]) args[args.length - 1]);
+		verify(userVersionTracker).recordChange(user);
+	}
+
+	@Test
+	void insertIfAbsentReportsExistingEmail() {
+		User user = user("taken@example.com", Role.create("ROLE_USER", "User"));
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class))).thenReturn(0L);
+
+		assertFalse(adapter.insertIfAbsent(user));
+		verify(userVersionTracker, never()).recordChange(any(User.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void insertAllInsertsRolesOnlyForInsertedUsers() throws Exception {
+		Role role = Role.create("ROLE_USER", "User");
+		User inserted = user("new@example.com", role);
+		User conflicting = user("race@example.com", role);
+
+		AtomicReference<ParameterizedPreparedStatementSetter<User>> setter = new AtomicReference<>();
+		doAnswer(invocation -> {
+			setter.set(invocation.getArgument(3));
+			return new int[0][];
+		}).when(jdbcTemplate).batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+		when(jdbcTemplate.queryForList(anyString(), eq(UUID.class), any(Object[].class)))
+				.thenReturn(List.of(inserted.getId()));
+
+		Set<UUID> result = adapter.insertAll(List.of(inserted, conflicting));
+
+		assertEquals(Set.of(inserted.getId()), result);
+
+		// Columnas del INSERT de users
+		PreparedStatement ps = mock(PreparedStatement.class);
+		setter.get().setValues(ps, inserted);
+		verify(ps).setObject(1, inserted.getId());
+		verify(ps).setString(2, "new@example.com");
+		verify(ps).setString(3, inserted.getPassword());
+		verify(ps).setBoolean(6, true);
+		verify(ps).setBoolean(7, true);
+
+		// user_roles solo del usuario que se insertó
+		ArgumentCaptor<List<Object[]>> userRoles = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(argThat((String sql) -> sql.startsWith("INSERT INTO user_roles")),
+				userRoles.capture());
+		assertEquals(1, userRoles.getValue().size());
+		assertArrayEquals(new Object[]{inserted.getId(), role.getId()}, userRoles.getValue().get(0));
+	}
+
+	@Test
+	void insertAllWithNoUsersDoesNotTouchTheDatabase() {
+		assertEquals(Set.of(), adapter.insertAll(List.of()));
+		verifyNoInteractions(jdbcTemplate);
+	}
+
+	private static User user(String email, Role role) {
+		User user = User.create(email, "hash", "Ana", "Pérez");
+		user.addRole(role);
+		return user;
+	}
+}
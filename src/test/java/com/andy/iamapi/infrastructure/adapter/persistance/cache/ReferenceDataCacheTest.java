@@ -0,0 +1,77 @@
+package com.andy.iamapi.infrastructure.adapter.persistance.cache;
+
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.infrastructure.adapter.persistance.cache.ReferenceDataCache.ReferenceDataReloadedEvent;
+import com.andy.iamapi.infrastructure.adapter.persistance.entity.RoleEntity;
+import com.andy.iamapi.infrastructure.adapter.persistance.mapper.PermissionMapper;
+import com.andy.iamapi.infrastructure.adapter.persistance.mapper.RoleMapper;
+import com.andy.iamapi.infrastructure.adapter.persistance.repository.PermissionJpaRepository;
+import com.andy.iamapi.infrastructure.adapter.persistance.repository.RoleJpaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Recargas solapadas: una carga que empezó antes y termina después
+ * no sustituye al snapshot de una carga posterior.
+ */
+class ReferenceDataCacheTest {
+
+	private final RoleJpaRepository roleJpaRepository = mock(RoleJpaRepository.class);
+	private final PermissionJpaRepository permissionJpaRepository = mock(PermissionJpaRepository.class);
+	private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void slowerEarlierLoadDoesNotOverwriteANewerSnapshot() throws Exception {
+		ReferenceDataCache cache = new ReferenceDataCache(roleJpaRepository, permissionJpaRepository,
+				new RoleMapper(new PermissionMapper()), new PermissionMapper(), mock(RedisTemplate.class),
+				mock(RedisMessageListenerContainer.class), eventPublisher, false);
+
+		CountDownLatch slowLoadStarted = new CountDownLatch(1);
+		CountDownLatch releaseSlowLoad = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		when(permissionJpaRepository.findAll()).thenReturn(List.of());
+		when(roleJpaRepository.findAllWithPermissions()).thenAnswer(invocation -> {
+			if (loads.incrementAndGet() == 1) {
+				// Primera carga: lee el estado antiguo y tarda en terminar
+				slowLoadStarted.countDown();
+				assertTrue(releaseSlowLoad.await(1, TimeUnit.SECONDS));
+				return List.of(role("ROLE_OLD"));
+			}
+			return List.of(role("ROLE_NEW"));
+		});
+
+		CompletableFuture<Void> slowReload = CompletableFuture.runAsync(cache::refresh);
+		assertTrue(slowLoadStarted.await(1, TimeUnit.SECONDS));
+
+		// Invalidación posterior: carga e instala el estado nuevo mientras la primera sigue en curso
+		cache.invalidate();
+		releaseSlowLoad.countDown();
+		slowReload.get(1, TimeUnit.SECONDS);
+
+		assertEquals(List.of("ROLE_NEW"), cache.allRoles().stream().map(Role::getName).toList());
+		// Solo la carga instalada avisa de la recarga
+		verify(eventPublisher, times(1)).publishEvent(any(ReferenceDataReloadedEvent.class));
+	}
+
+	private static RoleEntity role(String name) {
+		return RoleEntity.builder().id(UUID.randomUUID()).name(name).description(name).build();
+	}
+}
@@ -0,0 +1,143 @@
+package com.andy.iamapi.infrastructure.adapter.rest.parser;
+
+import com.andy.iamapi.domain.port.input.ImportUsersUseCase.UserImportRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserImportParserTest {
+
+	private final UserImportParser parser = new UserImportParser(new ObjectMapper());
+
+	@Test
+	void parsesJsonRows() {
+		List<UserImportRow> rows = readAll(parser.parseJson(body("""
+				[
+				  {"email": "a@example.com", "password": "Secret123", "firstName": "Ana", "lastName": "Pérez"},
+				  {"lastName": "Ruiz", "firstName": "Luis", "email": "b@example.com", "password": null}
+				]
+				""")));
+
+		assertEquals(List.of(
+				new UserImportRow(1, "a@example.com", "Secret123", "Ana", "Pérez"),
+				new UserImportRow(2, "b@example.com", null, "Luis", "Ruiz")
+		), rows);
+	}
+
+	@Test
+	void ignoresUnknownAndNestedJsonFields() {
+		List<UserImportRow> rows = readAll(parser.parseJson(body("""
+				[{"email": "a@example.com", "roles": ["ROLE_ADMIN"], "meta": {"x": 1}, "extra": 7, "lastName": "P"}]
+				""")));
+
+		assertEquals(List.of(new UserImportRow(1, "a@example.com", null, null, "P")), rows);
+	}
+
+	@Test
+	void emptyJsonArrayHasNoRows() {
+		assertFalse(parser.parseJson(body("[]")).hasNext());
+	}
+
+	@Test
+	void rejectsJsonThatIsNotAnArray() {
+		assertThrows(IllegalArgumentException.class, () -> parser.parseJson(body("{\"email\": \"a@example.com\"}")));
+		assertThrows(IllegalArgumentException.class, () -> parser.parseJson(body("not json")));
+	}
+
+	@Test
+	void malformedJsonMidStreamFailsAfterTheRowsRead() {
+		Iterator<UserImportRow> rows = parser.parseJson(body("""
+				[{"email": "a@example.com"}, {"email": "b@example.com"}, {"email": "c@exa
+				"""));
+
+		assertEquals("a@example.com", rows.next().email());
+		assertEquals("b@example.com", rows.next().email());
+		assertThrows(IllegalArgumentException.class, () -> {
+			rows.hasNext();
+			rows.next();
+		});
+	}
+
+	@Test
+	void nonObjectJsonRowFails() {
+		Iterator<UserImportRow> rows = parser.parseJson(body("[{\"email\": \"a@example.com\"}, 42]"));
+
+		rows.next();
+		assertThrows(IllegalArgumentException.class, rows::hasNext);
+	}
+
+	@Test
+	void parsesCsvWithHeaderInAnyOrder() {
+		List<UserImportRow> rows = readAll(parser.parseCsv(body("""
+				LastName,email,FIRSTNAME,password
+				Pérez,a@example.com,Ana,Secret123
+				Ruiz,b@example.com,Luis,
+				""")));
+
+		assertEquals(List.of(
+				new UserImportRow(1, "a@example.com", "Secret123", "Ana", "Pérez"),
+				new UserImportRow(2, "b@example.com", null, "Luis", "Ruiz")
+		), rows);
+	}
+
+	@Test
+	void parsesQuotedCsvFields() {
+		List<UserImportRow> rows = readAll(parser.parseCsv(body("""
+				email,password,firstName,lastName
+				a@example.com,"Sec,ret""1","Ana
+				María","Pérez"
+				""")));
+
+		assertEquals(List.of(new UserImportRow(1, "a@example.com", "Sec,ret\"1", "Ana\nMaría", "Pérez")), rows);
+	}
+
+	@Test
+	void skipsBlankCsvLinesAndFillsMissingColumnsWithNull() {
+		List<UserImportRow> rows = readAll(parser.parseCsv(body("""
+				email,password,firstName,lastName
+
+				a@example.com,Secret123
+
+				""")));
+
+		assertEquals(List.of(new UserImportRow(1, "a@example.com", "Secret123", null, null)), rows);
+	}
+
+	@Test
+	void rejectsCsvWithoutHeaderOrMissingColumns() {
+		assertThrows(IllegalArgumentException.class, () -> parser.parseCsv(body("")));
+		assertThrows(IllegalArgumentException.class, () -> parser.parseCsv(body("email,password,firstName\n")));
+	}
+
+	@Test
+	void unterminatedCsvQuoteFailsAfterTheRowsRead() {
+		Iterator<UserImportRow> rows = parser.parseCsv(body("""
+				email,password,firstName,lastName
+				a@example.com,Secret123,Ana,Pérez
+				b@example.com,"Secret123,Luis,Ruiz
+				"""));
+
+		assertEquals("a@example.com", rows.next().email());
+		assertThrows(IllegalArgumentException.class, rows::hasNext);
+	}
+
+	private static InputStream body(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static List<UserImportRow> readAll(Iterator<UserImportRow> iterator) {
+		List<UserImportRow> rows = new ArrayList<>();
+		iterator.forEachRemaining(rows::add);
+		return rows;
+	}
+}
@@ -0,0 +1,303 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.port.output.TokenService.TokenClaims;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Comprueba que HmacTokenEngine es intercambiable con jjwt para los tokens que
+ * emitimos, y que todo lo demás lo rechaza (INVALID) o lo deja a jjwt (UNSUPPORTED).
+ */
+class HmacTokenEngineTest {
+
+	private static final SecretKey KEY = Keys.hmacShaKeyFor(
+			"test-secret-key-with-at-least-256-bits!".getBytes(StandardCharsets.UTF_8));
+
+	private static final String HEADER = "eyJhbGciOiJIUzI1NiJ9"; // {"alg":"HS256"}
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+	private final HmacTokenEngine engine = new HmacTokenEngine(KEY);
+
+	@Test
+	void accessTokenRoundTripsThroughJjwt() {
+		TokenClaims claims = accessClaims(Instant.now().plus(Duration.ofHours(1)));
+
+		String token = engine.signAccessToken(claims);
+
+		HmacTokenEngine.Verification verification = engine.verify(token);
+		assertEquals(HmacTokenEngine.Status.VALID, verification.status());
+		assertEquals(claims, verification.claims());
+
+		Claims parsed = Jwts.parser().verifyWith(KEY).build().parseSignedClaims(token).getPayload();
+		assertEquals(claims.tokenId(), parsed.getId());
+		assertEquals(claims.email(), parsed.getSubject());
+		assertEquals(claims.userId().toString(), parsed.get("uid", String.class));
+		assertEquals("ROLE_USER,ROLE_ADMIN", parsed.get("roles", String.class));
+		assertEquals(true, parsed.get("enabled", Boolean.class));
+		assertEquals(false, parsed.get("locked", Boolean.class));
+		assertEquals(claims.version(), parsed.get("ver", Number.class).longValue());
+		assertEquals(claims.permissionIndexId(), parsed.get("pix", String.class));
+		assertEquals(claims.permissionBitmap(), parsed.get("perms", String.class));
+		assertEquals(claims.issuedAt(), parsed.getIssuedAt().toInstant());
+		assertEquals(claims.issuedAt().toEpochMilli(), parsed.get("iat_ms", Number.class).longValue());
+		assertEquals(claims.expiresAt(), parsed.getExpiration().toInstant());
+	}
+
+	@Test
+	void issuedAtKeepsMilliseconds() {
+		Instant now = Instant.ofEpochMilli(System.currentTimeMillis() / 1000 * 1000 + 123);
+		TokenClaims claims = new TokenClaims("john@example.com", UUID.randomUUID(), List.of(),
+				null, null, null, now, now.plus(Duration.ofDays(7)), UUID.randomUUID().toString(), null, null);
+
+		String token = engine.signRefreshToken(claims);
+
+		assertEquals(now, engine.verify(token).claims().issuedAt());
+		Claims parsed = Jwts.parser().verifyWith(KEY).build().parseSignedClaims(token).getPayload();
+		assertEquals(now.getEpochSecond(), parsed.getIssuedAt().toInstant().getEpochSecond());
+	}
+
+	@Test
+	void refreshTokenRoundTripsThroughJjwt() {
+		Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+		TokenClaims claims = new TokenClaims("john@example.com", UUID.randomUUID(), List.of(),
+				null, null, null, now, now.plus(Duration.ofDays(7)), UUID.randomUUID().toString(), null, null);
+
+		String token = engine.signRefreshToken(claims);
+
+		assertEquals(claims, engine.verify(token).claims());
+		Claims parsed = Jwts.parser().verifyWith(KEY).build().parseSignedClaims(token).getPayload();
+		assertEquals(claims.email(), parsed.getSubject());
+		assertEquals(claims.userId().toString(), parsed.get("uid", String.class));
+		assertNull(parsed.get("roles"));
+	}
+
+	@Test
+	void jjwtTokenWithOurShapeIsVerifiedByTheEngine() {
+		Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+		UUID userId = UUID.randomUUID();
+		String token = Jwts.builder()
+				.id("token-id")
+				.subject("john@example.com")
+				.claim("uid", userId.toString())
+				.claim("roles", "ROLE_USER")
+				.claim("enabled", true)
+				.claim("locked", true)
+				.claim("ver", 42L)
+				.issuedAt(Date.from(now))
+				.expiration(Date.from(now.plus(Duration.ofHours(1))))
+				.signWith(KEY)
+				.compact();
+
+		HmacTokenEngine.Verification verification = engine.verify(token);
+
+		assertEquals(HmacTokenEngine.Status.VALID, verification.status());
+		assertEquals(new TokenClaims("john@example.com", userId, List.of("ROLE_USER"), true, false, 42L,
+				now, now.plus(Duration.ofHours(1)), "token-id", null, null), verification.claims());
+	}
+
+	@Test
+	void escapedStringsRoundTrip() {
+		Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+		TokenClaims claims = new TokenClaims("a\"b\\c\n\u0001ñ@example.com", UUID.randomUUID(), List.of(),
+				null, null, null, now, now.plus(Duration.ofHours(1)), "jti", null, null);
+
+		String token = engine.signRefreshToken(claims);
+
+		assertEquals(claims.email(), engine.verify(token).claims().email());
+		assertEquals(claims.email(),
+				Jwts.parser().verifyWith(KEY).build().parseSignedClaims(token).getPayload().getSubject());
+	}
+
+	@Test
+	void tamperedSignatureIsInvalid() {
+		String token = engine.signAccessToken(accessClaims(Instant.now().plus(Duration.ofHours(1))));
+		char last = token.charAt(token.length() - 2);
+		String tampered = token.substring(0, token.length() - 2) + (last == 'A' ? 'B' : 'A') + token.charAt(token.length() - 1);
+
+		assertEquals(HmacTokenEngine.Status.INVALID, engine.verify(tampered).status());
+	}
+
+	@Test
+	void paddedSignatureIsInvalid() {
+		String token = engine.signAccessToken(accessClaims(Instant.now().plus(Duration.ofHours(1))));
+
+		// El decoder de Java acepta el relleno: decodificando, "firma=" verificaría
+		assertEquals(HmacTokenEngine.Status.INVALID, engine.verify(token + "=").status());
+		assertEquals(HmacTokenEngine.Status.INVALID, engine.verify(token + "==").status());
+	}
+
+	@Test
+	void nonCanonicalSignatureEncodingIsInvalid() {
+		String token = engine.signAccessToken(accessClaims(Instant.now().plus(Duration.ofHours(1))));
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+		// 32 bytes → 43 caracteres: los 2 bits bajos del último no se usan
+		char last = token.charAt(token.length() - 1);
+		String sibling = token.substring(0, token.length() - 1) + alphabet.charAt(alphabet.indexOf(last) + 1);
+		String[] parts = token.split("\\.");
+		String[] siblingParts = sibling.split("\\.");
+
+		// Decodifican a la misma firma
+		assertArrayEquals(Base64.getUrlDecoder().decode(parts[2]), Base64.getUrlDecoder().decode(siblingParts[2]));
+		assertEquals(HmacTokenEngine.Status.INVALID, engine.verify(sibling).status());
+		assertEquals(HmacTokenEngine.Status.VALID, engine.verify(token).status());
+	}
+
+	@Test
+	void tamperedPayloadIsInvalid() {
+		String token = engine.signAccessToken(accessClaims(Instant.now().plus(Duration.ofHours(1))));
+		String[] parts = token.split("\\.");
+		String forged = ENCODER.encodeToString(new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+				.replace("ROLE_USER", "ROLE_ROOT").getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(HmacTokenEngine.Status.INVALID, engine.verify(parts[0] + "." + forged + "." + parts[2]).status());
+	}
+
+	@Test
+	void tokenSignedWithAnotherKeyIsInvalid() {
+		HmacTokenEngine other = new HmacTokenEngine(Keys.hmacShaKeyFor(
+				"another-secret-key-with-at-least-256-bits".getBytes(StandardCharsets.UTF_8)));
+		String token = other.signAccessToken(accessClaims(Instant.now().plus(Duration.ofHours(1))));
+
+		assertEquals(HmacTokenEngine.Status.INVALID, engine.verify(token).status());
+	}
+
+	@Test
+	void expiredTokenIsInvalid() {
+		String token = engine.signAccessToken(accessClaims(Instant.now().minusSeconds(1)));
+
+		assertEquals(HmacTokenEngine.Status.INVALID, engine.verify(token).status());
+	}
+
+	@Test
+	void tokenWithKidIsLeftToJjwt() {
+		Instant now = Instant.now();
+		String token = Jwts.builder()
+				.header().keyId("some-kid").and()
+				.subject("john@example.com")
+				.expiration(Date.from(now.plus(Duration.ofHours(1))))
+				.signWith(KEY)
+				.compact();
+
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED, engine.verify(token).status());
+		assertEquals("john@example.com",
+				Jwts.parser().verifyWith(KEY).build().parseSignedClaims(token).getPayload().getSubject());
+	}
+
+	@Test
+	void otherAlgorithmIsLeftToJjwt() {
+		SecretKey hs384 = Keys.hmacShaKeyFor(
+				"a-secret-key-long-enough-for-hmac-sha-384-signatures!!".getBytes(StandardCharsets.UTF_8));
+		String token = Jwts.builder()
+				.subject("john@example.com")
+				.expiration(Date.from(Instant.now().plus(Duration.ofHours(1))))
+				.signWith(hs384, Jwts.SIG.HS384)
+				.compact();
+
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED, engine.verify(token).status());
+		assertEquals("john@example.com",
+				Jwts.parser().verifyWith(hs384).build().parseSignedClaims(token).getPayload().getSubject());
+	}
+
+	@Test
+	void unknownClaimIsLeftToJjwt() {
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED,
+				engine.verify(signed("{\"sub\":\"john@example.com\",\"aud\":\"api\",\"exp\":9999999999}")).status());
+	}
+
+	@Test
+	void nestedOrNullValuesAreLeftToJjwt() {
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED,
+				engine.verify(signed("{\"sub\":{\"email\":\"x\"},\"exp\":9999999999}")).status());
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED,
+				engine.verify(signed("{\"sub\":null,\"exp\":9999999999}")).status());
+	}
+
+	@Test
+	void tokenWithoutExpirationIsLeftToJjwt() {
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED,
+				engine.verify(signed("{\"sub\":\"john@example.com\"}")).status());
+	}
+
+	@Test
+	void malformedJsonWithValidSignatureIsLeftToJjwt() {
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED, engine.verify(signed("{\"sub\":\"john")).status());
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED, engine.verify(signed("not json")).status());
+	}
+
+	@Test
+	void badBase64IsInvalid() {
+		String token = engine.signAccessToken(accessClaims(Instant.now().plus(Duration.ofHours(1))));
+		String[] parts = token.split("\\.");
+
+		assertEquals(HmacTokenEngine.Status.INVALID, engine.verify(parts[0] + "." + parts[1] + ".%%%").status());
+		assertEquals(HmacTokenEngine.Status.INVALID, engine.verify(parts[0] + ".%%%." + parts[2]).status());
+	}
+
+	@Test
+	void malformedTokensAreLeftToJjwt() {
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED, engine.verify("").status());
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED, engine.verify("not-a-token").status());
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED, engine.verify(HEADER + ".payload").status());
+		assertEquals(HmacTokenEngine.Status.UNSUPPORTED, engine.verify(HEADER + ".a.b.c").status());
+	}
+
+	@Test
+	void reusedMacsProduceTheSameSignature() {
+		TokenClaims claims = accessClaims(Instant.now().plus(Duration.ofHours(1)));
+
+		String first = engine.signAccessToken(claims);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(first, engine.signAccessToken(claims));
+		}
+	}
+
+	private static TokenClaims accessClaims(Instant expiresAt) {
+		Instant issuedAt = expiresAt.minus(Duration.ofHours(1)).truncatedTo(ChronoUnit.SECONDS);
+		return new TokenClaims(
+				"john@example.com",
+				UUID.randomUUID(),
+				List.of("ROLE_USER", "ROLE_ADMIN"),
+				true,
+				true,
+				1700000000000L,
+				issuedAt,
+				expiresAt.truncatedTo(ChronoUnit.SECONDS),
+				UUID.randomUUID().toString(),
+				"AbCdEfGhIjK",
+				"Bw"
+		);
+	}
+
+	/**
+	 * Token HS256 con nuestro header y un payload arbitrario, firmado correctamente.
+	 */
+	private static String signed(String payloadJson) {
+		try {
+			String signingInput = HEADER + "." + ENCODER.encodeToString(payloadJson.getBytes(StandardCharsets.UTF_8));
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(KEY);
+			byte[] signature = mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+			return signingInput + "." + ENCODER.encodeToString(signature);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
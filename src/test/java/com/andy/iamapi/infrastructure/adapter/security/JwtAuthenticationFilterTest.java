@@ -0,0 +1,95 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.domain.port.output.UserRepository;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Los tokens que emitimos, recibidos por el filtro real, se verifican con
+ * HmacTokenEngine y no con jjwt (caché de claims desactivada: cada request verifica).
+ */
+class JwtAuthenticationFilterTest {
+
+	private static final String SECRET = "test-secret-key-with-at-least-256-bits!";
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	private SigningKeyRing keyRing;
+	private JwtTokenService tokenService;
+	private JwtAuthenticationFilter filter;
+	private User user;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		keyRing = new SigningKeyRing(mock(RedisTemplate.class), SECRET, 604_800_000L, "HS256",
+				Duration.ofHours(24), Duration.ofMinutes(5), Duration.ofSeconds(30), "", "");
+		tokenService = new JwtTokenService(keyRing, 3_600_000L, 604_800_000L,
+				mock(RevocationNearCache.class), mock(UserRevocationEpochs.class), mock(PermissionIndex.class),
+				false, 1_000, false, true);
+		filter = new JwtAuthenticationFilter(tokenService, userRepository,
+				mock(UserVersionTracker.class), mock(PermissionIndex.class), false);
+
+		user = User.create("john@example.com", "hash", "John", "Doe");
+		user.addRole(Role.create("ROLE_USER", "User"));
+		when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(user));
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void issuedTokensAreVerifiedByTheFastPath() throws Exception {
+		String token = tokenService.generateAccessToken(user);
+
+		send("Bearer " + token);
+		assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+
+		SecurityContextHolder.clearContext();
+		send("Bearer   " + token + " ");
+		assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+
+		assertEquals(new JwtTokenService.VerificationStats(2, 0), tokenService.verificationStats());
+	}
+
+	@Test
+	void tokensOfAnotherShapeFallBackToJjwt() throws Exception {
+		String token = Jwts.builder()
+				.subject("john@example.com")
+				.claim("aud", "other-service")
+				.expiration(new Date(System.currentTimeMillis() + 60_000))
+				.signWith(keyRing.secretKey())
+				.compact();
+
+		send("Bearer " + token);
+
+		assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+		assertEquals(new JwtTokenService.VerificationStats(0, 1), tokenService.verificationStats());
+	}
+
+	private void send(String authorization) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/me");
+		request.addHeader("Authorization", authorization);
+		filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+	}
+}
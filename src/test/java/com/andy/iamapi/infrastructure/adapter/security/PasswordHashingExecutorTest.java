@@ -0,0 +1,144 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Un solo hilo de hashing y max-wait de 500ms: los tiempos de cada test
+ * dejan al menos 100ms de margen.
+ */
+class PasswordHashingExecutorTest {
+
+	private final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 4, Duration.ofMillis(500), 0);
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	void runsTheTaskAndRecordsItsDuration() {
+		assertEquals("hash", executor.execute(() -> {
+			sleep(50);
+			return "hash";
+		}));
+
+		assertEquals(1, executor.stats().executed());
+		assertTrue(executor.stats().avgRunTimeMicros() >= 50_000);
+	}
+
+	@Test
+	void taskWithoutTimeLeftIsSkippedAndCountsAsTimedOut() throws Exception {
+		// Duración media de un hash: 200ms
+		executor.execute(() -> sleep(200));
+
+		// Ocupa el único hilo 300ms
+		CountDownLatch started = new CountDownLatch(1);
+		CompletableFuture<Void> busy = CompletableFuture.runAsync(() -> executor.execute(() -> {
+			started.countDown();
+			return sleep(300);
+		}));
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+
+		// Sale de la cola con ~300ms de espera: 300 + 250 (media) >= 500 → no se ejecuta
+		AtomicBoolean ran = new AtomicBoolean();
+		long start = System.nanoTime();
+		assertThrows(ServiceOverloadedException.class, () -> executor.execute(() -> {
+			ran.set(true);
+			return null;
+		}));
+
+		assertFalse(ran.get());
+		// Respuesta al salir de la cola, sin esperar a max-wait
+		assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(450));
+		busy.get(1, TimeUnit.SECONDS);
+		assertEquals(1, executor.stats().timedOut());
+		assertEquals(2, executor.stats().executed());
+	}
+
+	@Test
+	void callerGivesUpAfterMaxWait() {
+		AtomicBoolean ran = new AtomicBoolean();
+
+		assertThrows(ServiceOverloadedException.class, () -> executor.execute(() -> {
+			ran.set(true);
+			return sleep(700);
+		}));
+
+		assertTrue(ran.get());
+		assertEquals(1, executor.stats().timedOut());
+	}
+
+	@Test
+	void optionalTaskIsSkippedWhileThePoolIsBusy() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Void> busy = CompletableFuture.runAsync(() -> executor.execute(() -> {
+			started.countDown();
+			try {
+				return release.await(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}));
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+
+		AtomicBoolean ran = new AtomicBoolean();
+		assertTrue(executor.tryExecute(() -> ran.getAndSet(true)).isEmpty());
+		assertFalse(ran.get());
+		assertEquals(1, executor.stats().skipped());
+		assertEquals(0, executor.stats().rejected());
+
+		release.countDown();
+		busy.get(1, TimeUnit.SECONDS);
+		assertEquals(Optional.of("hash"), executor.tryExecute(() -> "hash"));
+	}
+
+	@Test
+	void importLeavesAHashingThreadFree() {
+		PasswordHashingExecutor pool = new PasswordHashingExecutor(4, 16, Duration.ofSeconds(5), 8);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+
+		try {
+			List<Supplier<Object>> tasks = IntStream.range(0, 12).<Supplier<Object>>mapToObj(i -> () -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				sleep(20);
+				running.decrementAndGet();
+				return i;
+			}).toList();
+
+			assertEquals(12, pool.executeAll(tasks).size());
+			// 8 pedidos, limitados a hilos - 1
+			assertEquals(3, maxRunning.get());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static Object sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return null;
+	}
+}
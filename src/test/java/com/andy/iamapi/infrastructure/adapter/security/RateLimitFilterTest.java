@@ -0,0 +1,171 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.domain.port.output.UserRepository;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.KeyStrategy;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.Limit;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.Policy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Un request autenticado a una política USER recorre RateLimitFilter,
+ * JwtAuthenticationFilter y RateLimitDecisionFilter con un JwtTokenService real
+ * (HS256, caché de claims activa).
+ *
+ * El primer request con un token se comprueba tras autenticar; desde el segundo,
+ * el uid sale de la caché de claims y la comprobación se lanza antes de autenticar.
+ */
+class RateLimitFilterTest {
+
+	private static final String SECRET = "test-secret-key-with-at-least-256-bits!";
+
+	/**
+	 * Controller simulado: responde 200 sin hacer nada.
+	 */
+	private static final HttpServlet CONTROLLER = new HttpServlet() {
+		@Override
+		protected void service(HttpServletRequest request, HttpServletResponse response) {
+			response.setStatus(200);
+		}
+	};
+
+	private final RateLimitService rateLimitService = mock(RateLimitService.class);
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	/**
+	 * Sujeto de cada comprobación y si en ese momento ya había autenticación.
+	 */
+	private final List<String> subjects = new ArrayList<>();
+	private final List<Boolean> authenticatedAtCheck = new ArrayList<>();
+
+	private JwtTokenService tokenService;
+	private RateLimitFilter rateLimitFilter;
+	private JwtAuthenticationFilter authenticationFilter;
+	private RateLimitDecisionFilter decisionFilter;
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		tokenService = tokenService();
+
+		when(rateLimitService.isAllowed(any(RateLimitPolicy.class), anyString())).thenAnswer(invocation -> {
+			subjects.add(invocation.getArgument(1));
+			authenticatedAtCheck.add(SecurityContextHolder.getContext().getAuthentication() != null);
+			return CompletableFuture.completedFuture(true);
+		});
+
+		RateLimitPolicies policies = new RateLimitPolicies(new RateLimitProperties(List.of(
+				new Policy("users", null, "/api/users/**", KeyStrategy.USER,
+						List.of(new Limit(60, null, Duration.ofMinutes(1))), 0))));
+		RateLimitSubjects rateLimitSubjects = new RateLimitSubjects(64, tokenService);
+		ObjectMapper objectMapper = new ObjectMapper();
+
+		rateLimitFilter = new RateLimitFilter(rateLimitService, policies, rateLimitSubjects,
+				mock(RateLimitRevocationScript.class), objectMapper);
+		authenticationFilter = new JwtAuthenticationFilter(tokenService, userRepository,
+				mock(UserVersionTracker.class), mock(PermissionIndex.class), false);
+		decisionFilter = new RateLimitDecisionFilter(rateLimitService, rateLimitSubjects, objectMapper);
+
+		user = User.create("john@example.com", "hash", "John", "Doe");
+		user.addRole(Role.create("ROLE_USER", "User"));
+		when(userRepository.findByEmail("john@example.com")).thenReturn(Optional.of(user));
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void userSubjectResolvesBeforeAuthenticationOnceTheTokenIsVerified() throws Exception {
+		String token = tokenService.generateAccessToken(user);
+
+		MockHttpServletRequest first = request("Bearer " + token);
+		assertEquals(200, send(first).getStatus());
+		// Primer uso del token: aún no está en la caché de claims → tras autenticar
+		assertNotNull(first.getAttribute(RateLimitFilter.DEFERRED_POLICY_ATTRIBUTE));
+
+		MockHttpServletRequest second = request("Bearer " + token);
+		assertEquals(200, send(second).getStatus());
+		assertNull(second.getAttribute(RateLimitFilter.DEFERRED_POLICY_ATTRIBUTE));
+
+		assertEquals(List.of("user:" + user.getId(), "user:" + user.getId()), subjects);
+		assertEquals(List.of(true, false), authenticatedAtCheck);
+	}
+
+	@Test
+	void extraWhitespaceAfterBearerIsTheSameToken() throws Exception {
+		String token = tokenService.generateAccessToken(user);
+
+		send(request("Bearer   " + token + " "));
+		MockHttpServletRequest second = request("Bearer " + token);
+		send(second);
+
+		assertNull(second.getAttribute(RateLimitFilter.DEFERRED_POLICY_ATTRIBUTE));
+		assertEquals(List.of(true, false), authenticatedAtCheck);
+	}
+
+	@Test
+	void unknownTokenIsCheckedAfterAuthenticationByIp() throws Exception {
+		MockHttpServletRequest request = request("Bearer not-a-token");
+
+		send(request);
+		send(request("Bearer not-a-token"));
+
+		// Nunca verificado: no entra en la caché, siempre tras autenticar y por IP
+		assertEquals(List.of("203.0.113.7", "203.0.113.7"), subjects);
+		assertEquals(List.of(false, false), authenticatedAtCheck);
+	}
+
+	private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+		SecurityContextHolder.clearContext();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		new MockFilterChain(CONTROLLER, rateLimitFilter, authenticationFilter, decisionFilter)
+				.doFilter(request, response);
+		return response;
+	}
+
+	private static MockHttpServletRequest request(String authorization) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/me");
+		request.setRemoteAddr("203.0.113.7");
+		request.addHeader("Authorization", authorization);
+		return request;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JwtTokenService tokenService() {
+		SigningKeyRing keyRing = new SigningKeyRing(mock(RedisTemplate.class), SECRET, 604_800_000L, "HS256",
+				Duration.ofHours(24), Duration.ofMinutes(5), Duration.ofSeconds(30), "", "");
+
+		return new JwtTokenService(keyRing, 3_600_000L, 604_800_000L,
+				mock(RevocationNearCache.class), mock(UserRevocationEpochs.class), mock(PermissionIndex.class),
+				true, 1_000, false, true);
+	}
+}
@@ -0,0 +1,142 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.infrastructure.config.RateLimitProperties;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.KeyStrategy;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.Limit;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.Policy;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Búsqueda en el trie (precedencia literal > {variable} > **, método concreto >
+ * cualquier método, separadores sobrantes) y tablas que deben impedir arrancar.
+ */
+class RateLimitPoliciesTest {
+
+	/**
+	 * Misma forma que la tabla de application.yml.
+	 */
+	private final RateLimitPolicies policies = new RateLimitPolicies(new RateLimitProperties(List.of(
+			policy("login", "POST", "/api/auth/login"),
+			policy("auth", null, "/api/auth/**"),
+			policy("general", "GET", "/api/users"),
+			policy("users-import", "POST", "/api/users/import"),
+			policy("user-by-id", "GET", "/api/users/{id}"),
+			policy("users", null, "/api/users/**"),
+			policy("api", null, "/api/**")
+	)));
+
+	@Test
+	void literalSegmentWinsOverVariable() {
+		assertEquals("users-import", name("POST", "/api/users/import"));
+		assertEquals("user-by-id", name("GET", "/api/users/5f0c7b1e-9d3a-4c51-8a57-0d5c3f1e2a44"));
+	}
+
+	@Test
+	void literalWithoutPolicyForTheMethodBacktracksToVariable() {
+		// /api/users/import solo tiene política para POST: un GET encaja con {id}
+		assertEquals("user-by-id", name("GET", "/api/users/import"));
+	}
+
+	@Test
+	void concreteMethodWinsOverAnyMethod() {
+		assertEquals("login", name("POST", "/api/auth/login"));
+		assertEquals("auth", name("GET", "/api/auth/login"));
+		assertEquals("auth", name("POST", "/api/auth/logout"));
+	}
+
+	@Test
+	void methodWithoutPolicyFallsToDoubleWildcard() {
+		// general es solo GET: POST /api/users (alta) cae en /api/users/**
+		assertEquals("general", name("GET", "/api/users"));
+		assertEquals("users", name("POST", "/api/users"));
+		assertEquals("users", name("DELETE", "/api/users/5f0c7b1e-9d3a-4c51-8a57-0d5c3f1e2a44"));
+	}
+
+	@Test
+	void doubleWildcardCoversDeeperPaths() {
+		assertEquals("users", name("GET", "/api/users/5f0c7b1e-9d3a-4c51-8a57-0d5c3f1e2a44/roles"));
+		assertEquals("users", name("POST", "/api/users/import/extra"));
+		assertEquals("api", name("GET", "/api/roles"));
+		assertEquals("api", name("GET", "/api"));
+	}
+
+	@Test
+	void trailingAndRepeatedSlashesAreIgnored() {
+		assertEquals("users-import", name("POST", "/api/users/import/"));
+		assertEquals("users-import", name("POST", "/api//users//import"));
+		assertEquals("general", name("GET", "/api/users/"));
+		assertEquals("general", name("GET", "//api/users"));
+		assertEquals("login", name("POST", "/api/auth/login//"));
+	}
+
+	@Test
+	void pathOutsideEveryPolicyHasNoPolicy() {
+		assertNull(policies.match("GET", "/"));
+		assertNull(policies.match("GET", "/actuator/health"));
+		assertNull(policies.match("GET", "/apix/users"));
+	}
+
+	@Test
+	void compiledPolicyKeepsKeyAndPrefix() {
+		RateLimitPolicy policy = policies.match("POST", "/api/users/import");
+
+		assertEquals(KeyStrategy.USER, policy.keyStrategy());
+		assertEquals("rate_limit:users-import:42", policy.key("42"));
+	}
+
+	@Test
+	void duplicateNameFailsStartup() {
+		assertThrows(IllegalStateException.class, () -> compile(
+				policy("users", "GET", "/api/users"),
+				policy("users", "POST", "/api/users")));
+	}
+
+	@Test
+	void samePathAndMethodFailsStartup() {
+		assertThrows(IllegalStateException.class, () -> compile(
+				policy("a", "GET", "/api/users"),
+				policy("b", "get", "/api/users/")));
+	}
+
+	@Test
+	void equivalentVariablesOverlap() {
+		// {id}, {userId} y * son el mismo nodo del trie
+		assertThrows(IllegalStateException.class, () -> compile(
+				policy("a", "GET", "/api/users/{id}"),
+				policy("b", "GET", "/api/users/{userId}")));
+		assertThrows(IllegalStateException.class, () -> compile(
+				policy("a", null, "/api/users/*"),
+				policy("b", "*", "/api/users/{id}")));
+	}
+
+	@Test
+	void invalidDefinitionsFailStartup() {
+		assertThrows(IllegalStateException.class, () -> compile(policy(null, "GET", "/api/users")));
+		assertThrows(IllegalStateException.class, () -> compile(policy("a", "GET", "api/users")));
+		assertThrows(IllegalStateException.class, () -> compile(policy("a", "GET", "/api/**/users")));
+		assertThrows(IllegalStateException.class, () -> compile(
+				new Policy("a", "GET", "/api/users", KeyStrategy.IP, List.of(), 0)));
+	}
+
+	private String name(String method, String path) {
+		RateLimitPolicy policy = policies.match(method, path);
+		return policy != null ? policy.name() : null;
+	}
+
+	private static RateLimitPolicies compile(Policy... definitions) {
+		return new RateLimitPolicies(new RateLimitProperties(new ArrayList<>(List.of(definitions))));
+	}
+
+	private static Policy policy(String name, String method, String path) {
+		return new Policy(name, method, path, KeyStrategy.USER,
+				List.of(new Limit(10, null, Duration.ofMinutes(1))), 0);
+	}
+}
@@ -0,0 +1,235 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Ejecuta el script Lua de RateLimitRevocationScript con luaj y un redis.call
+ * simulado en memoria: recarga continua, tiempo de espera, varios límites y
+ * lectura de la revocación.
+ */
+class RateLimitRevocationScriptTest {
+
+	private static final String BUCKET = "fused:rate_limit:users:42";
+	private static final String BLACKLIST = "blacklist:jti:abc";
+	private static final String EPOCH = "revocation:epoch:42";
+
+	private final Map<String, Map<String, String>> hashes = new HashMap<>();
+	private final Map<String, String> values = new HashMap<>();
+	private final Map<String, Long> ttls = new HashMap<>();
+
+	@Test
+	void firstRequestStartsWithAFullBucket() {
+		assertArrayEquals(new long[]{1, 1, -2, -1}, run(0, limit(2, 2, 60_000)));
+		// TTL: lo que tarda el bucket en llenarse desde vacío
+		assertEquals(60_000L, ttls.get(BUCKET));
+	}
+
+	@Test
+	void emptyBucketReturnsTheWaitUntilTheNextToken() {
+		run(0, limit(2, 2, 60_000));
+		assertArrayEquals(new long[]{1, 0, -2, -1}, run(0, limit(2, 2, 60_000)));
+
+		// 2 tokens por minuto: uno cada 30 s
+		assertArrayEquals(new long[]{0, 30_000, -2, -1}, run(0, limit(2, 2, 60_000)));
+		assertArrayEquals(new long[]{0, 15_000, -2, -1}, run(15_000, limit(2, 2, 60_000)));
+	}
+
+	@Test
+	void rejectedRequestDoesNotChangeTheBucket() {
+		run(0, limit(1, 1, 1_000));
+		Map<String, String> before = new HashMap<>(hashes.get(BUCKET));
+
+		run(500, limit(1, 1, 1_000));
+
+		assertEquals(before, hashes.get(BUCKET));
+	}
+
+	@Test
+	void tokensRefillContinuously() {
+		run(0, limit(2, 2, 60_000));
+		run(0, limit(2, 2, 60_000));
+
+		assertArrayEquals(new long[]{1, 0, -2, -1}, run(30_000, limit(2, 2, 60_000)));
+		assertEquals(0, run(45_000, limit(2, 2, 60_000))[0]);
+		assertArrayEquals(new long[]{1, 0, -2, -1}, run(60_000, limit(2, 2, 60_000)));
+	}
+
+	@Test
+	void refillNeverExceedsCapacity() {
+		run(0, limit(5, 5, 1_000));
+
+		assertArrayEquals(new long[]{1, 4, -2, -1}, run(3_600_000, limit(5, 5, 1_000)));
+	}
+
+	@Test
+	void refillTokensSmallerThanCapacity() {
+		// Capacidad 10, recarga de 1 token por segundo
+		for (int i = 0; i < 10; i++) {
+			run(0, limit(10, 1, 1_000));
+		}
+
+		assertArrayEquals(new long[]{0, 1_000, -2, -1}, run(0, limit(10, 1, 1_000)));
+		assertArrayEquals(new long[]{1, 0, -2, -1}, run(1_000, limit(10, 1, 1_000)));
+		assertEquals(10_000L, ttls.get(BUCKET));
+	}
+
+	@Test
+	void clockGoingBackwardsDoesNotRemoveTokens() {
+		run(10_000, limit(3, 3, 1_000));
+
+		assertArrayEquals(new long[]{1, 1, -2, -1}, run(5_000, limit(3, 3, 1_000)));
+	}
+
+	@Test
+	void everyLimitMustHaveAToken() {
+		long[] limits = limits(limit(10, 10, 60_000), limit(2, 2, 1_000));
+
+		// Restantes: el mínimo entre los límites
+		assertArrayEquals(new long[]{1, 1, -2, -1}, run(0, limits));
+		assertArrayEquals(new long[]{1, 0, -2, -1}, run(0, limits));
+
+		// El límite de ráfaga se agota aunque al de minuto le queden 8
+		assertArrayEquals(new long[]{0, 500, -2, -1}, run(0, limits));
+		assertEquals("8", hashes.get(BUCKET).get("t1"));
+
+		assertArrayEquals(new long[]{1, 1, -2, -1}, run(1_000, limits));
+		assertEquals(60_000L, ttls.get(BUCKET));
+	}
+
+	@Test
+	void waitIsTheLongestAmongEmptyLimits() {
+		long[] limits = limits(limit(1, 1, 60_000), limit(1, 1, 1_000));
+		run(0, limits);
+
+		assertArrayEquals(new long[]{0, 60_000, -2, -1}, run(0, limits));
+		assertArrayEquals(new long[]{0, 30_000, -2, -1}, run(30_000, limits));
+	}
+
+	@Test
+	void revocationIsReadAlongTheBucket() {
+		ttls.put(BLACKLIST, 5_000L);
+		values.put(EPOCH, "1700000000");
+
+		assertArrayEquals(new long[]{1, 0, 5_000, 1_700_000_000},
+				run(new String[]{BUCKET, BLACKLIST, EPOCH}, 0, limit(1, 1, 1_000)));
+		// Aunque el bucket rechace, la revocación se sigue devolviendo
+		assertArrayEquals(new long[]{0, 1_000, 5_000, 1_700_000_000},
+				run(new String[]{BUCKET, BLACKLIST, EPOCH}, 0, limit(1, 1, 1_000)));
+	}
+
+	@Test
+	void missingRevocationKeys() {
+		assertArrayEquals(new long[]{1, 0, -2, -1},
+				run(new String[]{BUCKET, BLACKLIST, EPOCH}, 0, limit(1, 1, 1_000)));
+	}
+
+	@Test
+	void argumentsCarryEveryLimitOfTheConfiguration() {
+		BucketConfiguration configuration = BucketConfiguration.builder()
+				.addLimit(Bandwidth.builder().capacity(60).refillGreedy(60, Duration.ofMinutes(1)).build())
+				.addLimit(Bandwidth.builder().capacity(10).refillGreedy(5, Duration.ofSeconds(1)).build())
+				.build();
+
+		byte[][] args = RateLimitRevocationScript.arguments(configuration);
+
+		assertEquals(7, args.length);
+		assertArrayEquals(new String[]{"60", "60", "60000", "10", "5", "1000"},
+				Arrays.stream(args, 1, args.length).map(arg -> new String(arg, StandardCharsets.US_ASCII)).toArray());
+
+		// El script entiende lo que genera arguments()
+		long[] limits = Arrays.stream(args, 1, args.length)
+				.mapToLong(arg -> Long.parseLong(new String(arg, StandardCharsets.US_ASCII)))
+				.toArray();
+		assertArrayEquals(new long[]{1, 9, -2, -1}, run(0, limits));
+	}
+
+	private long[] run(long now, long... limits) {
+		return run(new String[]{BUCKET, "", ""}, now, limits);
+	}
+
+	private long[] run(String[] keys, long now, long... limits) {
+		Globals globals = JsePlatform.standardGlobals();
+
+		LuaTable redis = new LuaTable();
+		redis.set("call", new RedisCall());
+		globals.set("redis", redis);
+		globals.set("KEYS", list(Arrays.stream(keys).map(LuaValue::valueOf).toArray(LuaValue[]::new)));
+
+		LuaValue[] argv = new LuaValue[1 + limits.length];
+		argv[0] = LuaValue.valueOf(Long.toString(now));
+		for (int i = 0; i < limits.length; i++) {
+			argv[i + 1] = LuaValue.valueOf(Long.toString(limits[i]));
+		}
+		globals.set("ARGV", list(argv));
+
+		LuaValue reply = globals.load(RateLimitRevocationScript.SCRIPT, "script").call();
+
+		// Redis trunca los números Lua a enteros en la respuesta
+		long[] result = new long[reply.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = (long) reply.get(i + 1).todouble();
+		}
+		return result;
+	}
+
+	private static LuaTable list(LuaValue[] items) {
+		return LuaValue.listOf(items);
+	}
+
+	/**
+	 * Capacidad, tokens por recarga y periodo (ms) de un límite, en el orden de ARGV.
+	 */
+	private static long[] limit(long capacity, long refillTokens, long periodMillis) {
+		return new long[]{capacity, refillTokens, periodMillis};
+	}
+
+	private static long[] limits(long[]... limits) {
+		return Arrays.stream(limits).flatMapToLong(Arrays::stream).toArray();
+	}
+
+	/**
+	 * Los comandos que usa el script. Una clave o campo inexistente devuelve false, como Redis.
+	 */
+	private final class RedisCall extends VarArgFunction {
+		@Override
+		public Varargs invoke(Varargs args) {
+			String command = args.checkjstring(1);
+			String key = args.checkjstring(2);
+
+			return switch (command) {
+				case "HGET" -> {
+					String value = hashes.getOrDefault(key, Map.of()).get(args.checkjstring(3));
+					yield value != null ? LuaValue.valueOf(value) : LuaValue.FALSE;
+				}
+				case "HSET" -> {
+					hashes.computeIfAbsent(key, k -> new HashMap<>()).put(args.checkjstring(3), args.checkjstring(4));
+					yield LuaValue.ONE;
+				}
+				case "PEXPIRE" -> {
+					ttls.put(key, Long.parseLong(args.tojstring(3)));
+					yield LuaValue.ONE;
+				}
+				case "PTTL" -> LuaValue.valueOf(ttls.getOrDefault(key, -2L).doubleValue());
+				case "GET" -> values.containsKey(key) ? LuaValue.valueOf(values.get(key)) : LuaValue.FALSE;
+				default -> throw new IllegalArgumentException("Unexpected Redis command " + command);
+			};
+		}
+	}
+}
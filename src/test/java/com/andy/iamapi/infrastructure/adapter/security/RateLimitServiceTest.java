@@ -0,0 +1,233 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.infrastructure.adapter.security.RedisCircuitBreaker.DegradedMode;
+import com.andy.iamapi.infrastructure.config.RateLimitProperties.KeyStrategy;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.TimeMeter;
+import io.github.bucket4j.distributed.AsyncBucketProxy;
+import io.github.bucket4j.distributed.proxy.AsyncProxyManager;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.RemoteAsyncBucketBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Modo aproximado (rate-limit.lease.*) de RateLimitService con varias "instancias"
+ * compartiendo un mismo bucket: límite global, error acotado por max-error y una
+ * sola renovación de reserva en curso por clave.
+ *
+ * El bucket de Redis se simula con un bucket local de Bucket4j sobre un reloj
+ * manual (sin recarga durante el test); las respuestas de Redis pueden retenerse.
+ */
+class RateLimitServiceTest {
+
+	private static final String SUBJECT = "10.0.0.1";
+	private static final long CAPACITY = 30;
+	private static final double MAX_ERROR = 0.1;
+	/** max-error × capacidad */
+	private static final long LEASE_SIZE = 3;
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final RateLimitPolicy policy = new RateLimitPolicy("general", KeyStrategy.IP,
+			BucketConfiguration.builder()
+					.addLimit(Bandwidth.builder().capacity(CAPACITY).refillGreedy(CAPACITY, Duration.ofMinutes(1)).build())
+					.build(),
+			0);
+
+	private Bucket bucket;
+
+	/** Respuestas de Redis: completado = al momento. */
+	private CompletableFuture<Void> redisResponds = CompletableFuture.completedFuture(null);
+
+	@BeforeEach
+	void setUp() {
+		bucket = Bucket.builder()
+				.addLimit(policy.configuration().getBandwidths()[0])
+				.withCustomTimePrecision(new TimeMeter() {
+					@Override
+					public long currentTimeNanos() {
+						return clock.get();
+					}
+
+					@Override
+					public boolean isWallClockBased() {
+						return false;
+					}
+				})
+				.build();
+	}
+
+	@Test
+	void neverAdmitsMoreThanTheBucketCapacity() throws Exception {
+		List<RateLimitService> nodes = nodes(3);
+
+		long admitted = 0;
+		boolean progress = true;
+		while (progress) {
+			progress = false;
+			for (RateLimitService node : nodes) {
+				if (allowed(node)) {
+					admitted++;
+					progress = true;
+				}
+			}
+		}
+
+		assertEquals(CAPACITY, admitted);
+		assertEquals(0, bucket.getAvailableTokens());
+	}
+
+	@Test
+	void earlyRejectionsAreBoundedByTheMaxErrorOfOtherInstances() throws Exception {
+		List<RateLimitService> nodes = nodes(3);
+
+		// Las otras dos instancias reservan una vez y usan un solo token
+		assertTrue(allowed(nodes.get(1)));
+		assertTrue(allowed(nodes.get(2)));
+
+		long admitted = 0;
+		while (allowed(nodes.get(0))) {
+			admitted++;
+		}
+
+		// Rechazos antes de tiempo: como mucho max-error × capacidad por cada otra instancia
+		long earlyRejections = CAPACITY - 2 - admitted;
+		assertEquals(2 * (LEASE_SIZE - 1), earlyRejections);
+		assertTrue(earlyRejections <= (nodes.size() - 1) * (long) (MAX_ERROR * CAPACITY));
+
+		// Al devolver sus reservas, esos tokens vuelven a estar disponibles
+		nodes.get(1).releaseAllLeases();
+		nodes.get(2).releaseAllLeases();
+		while (allowed(nodes.get(0))) {
+			admitted++;
+		}
+		assertEquals(CAPACITY - 2, admitted);
+	}
+
+	@Test
+	void bucketIsHitOncePerLease() throws Exception {
+		AsyncBucketProxy remote = remoteBucket();
+		RateLimitService node = node(remote);
+
+		for (int i = 0; i < 30; i++) {
+			assertTrue(allowed(node));
+		}
+
+		verify(remote, times((int) (30 / LEASE_SIZE))).tryConsumeAsMuchAsPossible(anyLong());
+	}
+
+	@Test
+	void concurrentRequestsShareOneLeaseRenewal() throws Exception {
+		AsyncBucketProxy remote = remoteBucket();
+		RateLimitService node = node(remote);
+		redisResponds = new CompletableFuture<>();
+
+		// Cinco requests con la reserva vacía mientras Redis aún no ha respondido
+		List<CompletableFuture<Boolean>> requests = IntStream.range(0, 5)
+				.mapToObj(i -> node.isAllowed(policy, SUBJECT))
+				.toList();
+
+		verify(remote, times(1)).tryConsumeAsMuchAsPossible(LEASE_SIZE);
+
+		redisResponds.complete(null);
+		for (CompletableFuture<Boolean> request : requests) {
+			assertTrue(request.get(1, TimeUnit.SECONDS));
+		}
+
+		// Tres desde la reserva, dos consumidos uno a uno en Redis: sin tokens reservados de más
+		verify(remote, times(1)).tryConsumeAsMuchAsPossible(LEASE_SIZE);
+		verify(remote, times(2)).tryConsumeAndReturnRemaining(1);
+		assertEquals(CAPACITY - 5, bucket.getAvailableTokens());
+
+		// Terminada la renovación, la siguiente reserva se pide de nuevo
+		assertTrue(allowed(node));
+		verify(remote, times(2)).tryConsumeAsMuchAsPossible(LEASE_SIZE);
+	}
+
+	@Test
+	void requestsWaitingOnARenewalOfAnEmptyBucketAreRejected() throws Exception {
+		AsyncBucketProxy remote = remoteBucket();
+		RateLimitService node = node(remote);
+		bucket.tryConsume(CAPACITY);
+		redisResponds = new CompletableFuture<>();
+
+		CompletableFuture<Boolean> first = node.isAllowed(policy, SUBJECT);
+		CompletableFuture<Boolean> second = node.isAllowed(policy, SUBJECT);
+		redisResponds.complete(null);
+
+		assertFalse(first.get(1, TimeUnit.SECONDS));
+		assertFalse(second.get(1, TimeUnit.SECONDS));
+		// Solo quien pidió la renovación consulta el tiempo de recarga
+		verify(remote, times(1)).tryConsumeAndReturnRemaining(1);
+	}
+
+	private boolean allowed(RateLimitService node) throws Exception {
+		return node.isAllowed(policy, SUBJECT).get(1, TimeUnit.SECONDS);
+	}
+
+	private List<RateLimitService> nodes(int count) {
+		return IntStream.range(0, count).mapToObj(i -> node(remoteBucket())).toList();
+	}
+
+	/**
+	 * Una instancia con su propio proxy al bucket compartido.
+	 */
+	@SuppressWarnings("unchecked")
+	private RateLimitService node(AsyncBucketProxy remote) {
+		ProxyManager<String> proxyManager = mock(ProxyManager.class);
+		AsyncProxyManager<String> asyncProxyManager = mock(AsyncProxyManager.class);
+		RemoteAsyncBucketBuilder<String> builder = mock(RemoteAsyncBucketBuilder.class);
+		when(proxyManager.asAsync()).thenReturn(asyncProxyManager);
+		when(asyncProxyManager.builder()).thenReturn(builder);
+		when(builder.build(anyString(),
+				ArgumentMatchers.<Supplier<CompletableFuture<BucketConfiguration>>>any())).thenReturn(remote);
+
+		return new RateLimitService(proxyManager, Duration.ofSeconds(1), false, 1_000,
+				true, Set.of("general"), MAX_ERROR, Duration.ofMinutes(1),
+				null, false, new RedisCircuitBreaker(true, 5, Duration.ofSeconds(10)),
+				DegradedMode.CLOSED, Duration.ofMinutes(10));
+	}
+
+	/**
+	 * Proxy asíncrono sobre el bucket compartido; responde cuando lo hace redisResponds.
+	 */
+	private AsyncBucketProxy remoteBucket() {
+		AsyncBucketProxy remote = mock(AsyncBucketProxy.class);
+		when(remote.tryConsumeAsMuchAsPossible(anyLong())).thenAnswer(invocation -> {
+			long limit = invocation.getArgument(0);
+			return redisResponds.thenApply(ignored -> bucket.tryConsumeAsMuchAsPossible(limit));
+		});
+		when(remote.tryConsumeAndReturnRemaining(anyLong())).thenAnswer(invocation -> {
+			long tokens = invocation.getArgument(0);
+			return redisResponds.thenApply(ignored -> bucket.tryConsumeAndReturnRemaining(tokens));
+		});
+		when(remote.addTokens(anyLong())).thenAnswer(invocation -> {
+			bucket.addTokens(invocation.getArgument(0));
+			return CompletableFuture.completedFuture(null);
+		});
+		return remote;
+	}
+}
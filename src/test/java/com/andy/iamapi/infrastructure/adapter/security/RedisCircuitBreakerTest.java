@@ -0,0 +1,151 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.infrastructure.adapter.security.RedisCircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Transiciones CLOSED → OPEN → HALF_OPEN → CLOSED / OPEN y métricas.
+ */
+class RedisCircuitBreakerTest {
+
+	private static final int THRESHOLD = 3;
+	private static final Duration OPEN_DURATION = Duration.ofMillis(50);
+
+	private static final RuntimeException ERROR = new RuntimeException("Redis down");
+
+	private final RedisCircuitBreaker breaker = new RedisCircuitBreaker(true, THRESHOLD, OPEN_DURATION);
+
+	@Test
+	void opensAfterConsecutiveFailures() {
+		for (int i = 0; i < THRESHOLD - 1; i++) {
+			breaker.recordFailure(ERROR);
+			assertEquals(State.CLOSED, breaker.state());
+		}
+
+		breaker.recordFailure(ERROR);
+
+		assertEquals(State.OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire());
+		assertEquals(1, breaker.stats().openings());
+		assertEquals(1, breaker.stats().shortCircuited());
+	}
+
+	@Test
+	void successResetsTheFailureCount() {
+		breaker.recordFailure(ERROR);
+		breaker.recordFailure(ERROR);
+		breaker.recordSuccess();
+		breaker.recordFailure(ERROR);
+		breaker.recordFailure(ERROR);
+
+		assertEquals(State.CLOSED, breaker.state());
+	}
+
+	@Test
+	void lateSuccessDoesNotCloseAnOpenCircuit() {
+		open();
+
+		// Llamada lanzada antes de abrirse que termina bien ahora
+		breaker.recordSuccess();
+
+		assertEquals(State.OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	void allowsOneTrialCallAfterOpenDuration() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_DURATION.toMillis() + 10);
+
+		assertTrue(breaker.tryAcquire());
+		assertEquals(State.HALF_OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	void successfulTrialCallCloses() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_DURATION.toMillis() + 10);
+		breaker.tryAcquire();
+
+		breaker.recordSuccess();
+
+		assertEquals(State.CLOSED, breaker.state());
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.stats().degradedMillis() >= OPEN_DURATION.toMillis());
+	}
+
+	@Test
+	void failedTrialCallReopens() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_DURATION.toMillis() + 10);
+		breaker.tryAcquire();
+
+		breaker.recordFailure(ERROR);
+
+		assertEquals(State.OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire());
+		// Sigue siendo la misma apertura
+		assertEquals(1, breaker.stats().openings());
+
+		Thread.sleep(OPEN_DURATION.toMillis() + 10);
+		assertTrue(breaker.tryAcquire());
+		breaker.recordSuccess();
+		assertEquals(State.CLOSED, breaker.state());
+	}
+
+	@Test
+	void unansweredTrialCallAllowsAnotherAfterOpenDuration() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_DURATION.toMillis() + 10);
+		assertTrue(breaker.tryAcquire());
+
+		Thread.sleep(OPEN_DURATION.toMillis() + 10);
+
+		assertTrue(breaker.tryAcquire());
+		assertEquals(State.HALF_OPEN, breaker.state());
+	}
+
+	@Test
+	void executeUsesTheFallbackWhenOpenOrFailing() {
+		assertEquals("fallback", breaker.execute(() -> {
+			throw ERROR;
+		}, () -> "fallback"));
+		open();
+
+		assertEquals("fallback", breaker.execute(() -> "redis", () -> "fallback"));
+		assertEquals(State.OPEN, breaker.state());
+	}
+
+	@Test
+	void executeClosesTheCircuitWithASuccessfulTrialCall() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_DURATION.toMillis() + 10);
+
+		assertEquals("redis", breaker.execute(() -> "redis", () -> "fallback"));
+		assertEquals(State.CLOSED, breaker.state());
+	}
+
+	@Test
+	void disabledBreakerNeverOpens() {
+		RedisCircuitBreaker disabled = new RedisCircuitBreaker(false, THRESHOLD, OPEN_DURATION);
+		for (int i = 0; i < THRESHOLD * 2; i++) {
+			disabled.recordFailure(ERROR);
+		}
+
+		assertTrue(disabled.tryAcquire());
+	}
+
+	private void open() {
+		for (int i = 0; i < THRESHOLD; i++) {
+			breaker.recordFailure(ERROR);
+		}
+		assertEquals(State.OPEN, breaker.state());
+	}
+}
@@ -0,0 +1,234 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.port.output.LoginAttemptTracker.FailureResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ejecuta el script RECORD_FAILURE con luaj y un redis.call simulado en memoria
+ * (como RateLimitRevocationScriptTest): poda de la ventana, bloqueo al llegar a
+ * max-failures y TTL del bloqueo. Después, el tracker completo sobre el mismo
+ * Redis simulado: lockRemaining, desbloqueo automático y agregación IPv6.
+ */
+class RedisLoginAttemptTrackerTest {
+
+	private static final String FAILURES = "login:failures:account:john@example.com";
+	private static final String LOCK = "login:lock:account:john@example.com";
+
+	private final Map<String, Map<String, Double>> sortedSets = new HashMap<>();
+	private final Map<String, String> values = new HashMap<>();
+	private final Map<String, Long> ttls = new HashMap<>();
+	/** Caducidad real (reloj del sistema) de las claves con PX, para el tracker. */
+	private final Map<String, Long> expiresAt = new HashMap<>();
+
+	private RedisTemplate<String, String> redisTemplate;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		redisTemplate = mock(RedisTemplate.class);
+		ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+		doReturn(valueOps).when(redisTemplate).opsForValue();
+
+		when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+			Object[] arguments = invocation.getArguments();
+			List<String> keys = invocation.getArgument(1);
+			String[] argv = Arrays.stream(arguments, 2, arguments.length).map(String::valueOf).toArray(String[]::new);
+			return run(keys.get(0), keys.get(1), argv);
+		});
+		when(valueOps.multiGet(anyList())).thenAnswer(invocation -> {
+			List<String> keys = invocation.getArgument(0);
+			return keys.stream().map(this::get).toList();
+		});
+	}
+
+	@Test
+	void failuresOutsideTheWindowArePruned() {
+		assertEquals(1, record(0, 1_000, 3, 60_000));
+		assertEquals(2, record(500, 1_000, 3, 60_000));
+
+		// El fallo de t=0 sale de la ventana en t=1000 (límite incluido)
+		assertEquals(2, record(1_000, 1_000, 3, 60_000));
+		assertEquals(1, record(2_500, 1_000, 3, 60_000));
+		assertFalse(values.containsKey(LOCK));
+	}
+
+	@Test
+	void failuresKeyExpiresWithTheWindow() {
+		record(0, 1_000, 3, 60_000);
+
+		assertEquals(1_000L, ttls.get(FAILURES));
+	}
+
+	@Test
+	void locksOnTheNthFailureWithinTheWindow() {
+		record(0, 60_000, 3, 900_000);
+		record(1_000, 60_000, 3, 900_000);
+		assertFalse(values.containsKey(LOCK));
+
+		assertEquals(3, record(2_000, 60_000, 3, 900_000));
+
+		// Valor: instante de desbloqueo; TTL: la duración del bloqueo (desbloqueo automático)
+		assertEquals("902000", values.get(LOCK));
+		assertEquals(900_000L, ttls.get(LOCK));
+		// Tras el bloqueo el contador empieza de cero
+		assertFalse(sortedSets.containsKey(FAILURES));
+		assertEquals(1, record(3_000, 60_000, 3, 900_000));
+	}
+
+	@Test
+	void lockRemainingReportsTheTimeUntilUnlock() {
+		RedisLoginAttemptTracker tracker = tracker(3, Duration.ofMinutes(15), 100);
+
+		assertTrue(tracker.lockRemaining("john@example.com", "10.0.0.1").isEmpty());
+		tracker.recordFailure("john@example.com", "10.0.0.1");
+		tracker.recordFailure("John@Example.com", "10.0.0.2");
+		FailureResult result = tracker.recordFailure("john@example.com ", "10.0.0.3");
+
+		assertTrue(result.accountLocked());
+		Duration remaining = tracker.lockRemaining("john@example.com", "10.0.0.4").orElseThrow();
+		assertTrue(remaining.compareTo(Duration.ofMinutes(14)) > 0);
+		assertTrue(remaining.compareTo(Duration.ofMinutes(15)) <= 0);
+	}
+
+	@Test
+	void lockIsLiftedWhenItsTtlExpires() throws InterruptedException {
+		RedisLoginAttemptTracker tracker = tracker(2, Duration.ofMillis(200), 100);
+
+		tracker.recordFailure("john@example.com", "10.0.0.1");
+		tracker.recordFailure("john@example.com", "10.0.0.1");
+		assertTrue(tracker.lockRemaining("john@example.com", "10.0.0.1").isPresent());
+
+		Thread.sleep(300);
+
+		assertTrue(tracker.lockRemaining("john@example.com", "10.0.0.1").isEmpty());
+	}
+
+	@Test
+	void ipv6AddressesOfTheSameNetworkShareTheIpLock() {
+		RedisLoginAttemptTracker tracker = tracker(100, Duration.ofMinutes(15), 3);
+
+		// Una dirección distinta de la misma /64 en cada intento, y con emails distintos
+		tracker.recordFailure("a@example.com", "2001:db8::1");
+		tracker.recordFailure("b@example.com", "2001:db8::2:3");
+		FailureResult result = tracker.recordFailure("c@example.com", "[2001:db8::ffff]");
+
+		assertTrue(result.ipLocked());
+		assertFalse(result.accountLocked());
+		assertTrue(values.containsKey("login:lock:ip:2001:db8:0:0:0:0:0:0/64"));
+		assertTrue(tracker.lockRemaining("d@example.com", "2001:db8::abcd").isPresent());
+		// Otra /64 no está bloqueada
+		assertTrue(tracker.lockRemaining("d@example.com", "2001:db8:0:1::1").isEmpty());
+	}
+
+	private RedisLoginAttemptTracker tracker(int accountMaxFailures, Duration lockDuration, int ipMaxFailures) {
+		return new RedisLoginAttemptTracker(redisTemplate, new RedisCircuitBreaker(true, 5, Duration.ofSeconds(10)),
+				true, accountMaxFailures, Duration.ofMinutes(15), lockDuration,
+				ipMaxFailures, Duration.ofMinutes(15), lockDuration, 64);
+	}
+
+	private long record(long now, long windowMillis, long maxFailures, long lockMillis) {
+		return run(FAILURES, LOCK, Long.toString(now), Long.toString(windowMillis), Long.toString(maxFailures),
+				Long.toString(lockMillis), "attempt-" + now);
+	}
+
+	private long run(String failuresKey, String lockKey, String... argv) {
+		Globals globals = JsePlatform.standardGlobals();
+
+		LuaTable redis = new LuaTable();
+		redis.set("call", new RedisCall());
+		globals.set("redis", redis);
+		globals.set("KEYS", LuaValue.listOf(new LuaValue[]{LuaValue.valueOf(failuresKey), LuaValue.valueOf(lockKey)}));
+		globals.set("ARGV", LuaValue.listOf(Arrays.stream(argv).map(LuaValue::valueOf).toArray(LuaValue[]::new)));
+
+		LuaValue reply = globals.load(RedisLoginAttemptTracker.RECORD_FAILURE.getScriptAsString(), "script").call();
+		return (long) reply.todouble();
+	}
+
+	private String get(String key) {
+		Long expiry = expiresAt.get(key);
+		if (expiry != null && expiry <= System.currentTimeMillis()) {
+			values.remove(key);
+			expiresAt.remove(key);
+		}
+		return values.get(key);
+	}
+
+	/**
+	 * Redis convierte los números Lua en enteros al pasarlos como argumento.
+	 */
+	private static String string(LuaValue value) {
+		return value.type() == LuaValue.TNUMBER ? Long.toString((long) value.todouble()) : value.tojstring();
+	}
+
+	/**
+	 * Los comandos que usa el script.
+	 */
+	private final class RedisCall extends VarArgFunction {
+		@Override
+		public Varargs invoke(Varargs args) {
+			String command = args.checkjstring(1);
+			String key = args.checkjstring(2);
+
+			return switch (command) {
+				case "ZREMRANGEBYSCORE" -> {
+					double max = Double.parseDouble(string(args.arg(4)));
+					Map<String, Double> set = sortedSets.getOrDefault(key, new HashMap<>());
+					int before = set.size();
+					set.values().removeIf(score -> score <= max);
+					yield LuaValue.valueOf(before - set.size());
+				}
+				case "ZADD" -> {
+					sortedSets.computeIfAbsent(key, k -> new HashMap<>())
+							.put(string(args.arg(4)), Double.parseDouble(string(args.arg(3))));
+					yield LuaValue.ONE;
+				}
+				case "PEXPIRE" -> {
+					ttls.put(key, Long.parseLong(string(args.arg(3))));
+					yield LuaValue.ONE;
+				}
+				case "ZCARD" -> LuaValue.valueOf(sortedSets.getOrDefault(key, Map.of()).size());
+				case "SET" -> {
+					if (!"PX".equals(args.checkjstring(4))) {
+						throw new IllegalArgumentException("Expected SET ... PX");
+					}
+					long px = Long.parseLong(string(args.arg(5)));
+					values.put(key, string(args.arg(3)));
+					ttls.put(key, px);
+					expiresAt.put(key, System.currentTimeMillis() + px);
+					yield LuaValue.valueOf("OK");
+				}
+				case "DEL" -> {
+					boolean existed = sortedSets.remove(key) != null | values.remove(key) != null;
+					ttls.remove(key);
+					yield LuaValue.valueOf(existed ? 1 : 0);
+				}
+				default -> throw new IllegalArgumentException("Unexpected Redis command " + command);
+			};
+		}
+	}
+}
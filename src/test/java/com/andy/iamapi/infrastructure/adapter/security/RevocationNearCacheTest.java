@@ -0,0 +1,182 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compara RevocationNearCache con la blacklist de Redis (fuente de verdad)
+ * mientras se producen revocaciones y reconstrucciones concurrentes.
+ *
+ * Redis se simula con un mapa token → expiración (ms).
+ */
+class RevocationNearCacheTest {
+
+	private final Map<String, Long> redis = new ConcurrentHashMap<>();
+
+	private RedisTokenBlacklist blacklist;
+	private RevocationNearCache nearCache;
+
+	@BeforeEach
+	void setUp() {
+		blacklist = mock(RedisTokenBlacklist.class);
+
+		doAnswer(invocation -> {
+			String token = invocation.getArgument(0);
+			Duration ttl = invocation.getArgument(1);
+			redis.put(token, System.currentTimeMillis() + ttl.toMillis());
+			return null;
+		}).when(blacklist).add(anyString(), any(Duration.class));
+
+		when(blacklist.contains(anyString()))
+				.thenAnswer(invocation -> remainingTtl(invocation.getArgument(0)) > 0);
+
+		when(blacklist.remainingTtlMillis(anyString()))
+				.thenAnswer(invocation -> remainingTtl(invocation.getArgument(0)));
+
+		doAnswer(invocation -> {
+			Consumer<String> consumer = invocation.getArgument(0);
+			redis.keySet().forEach(consumer);
+			return null;
+		}).when(blacklist).forEach(any());
+
+		nearCache = new RevocationNearCache(
+				blacklist,
+				mock(RedisMessageListenerContainer.class),
+				new RedisCircuitBreaker(true, 5, Duration.ofSeconds(10)),
+				RedisCircuitBreaker.DegradedMode.LOCAL,
+				true,
+				1_000,
+				0.01,
+				100_000
+		);
+	}
+
+	@Test
+	void fallsBackToRedisUntilFirstRebuild() {
+		redis.put("revoked-before-startup", System.currentTimeMillis() + 60_000);
+
+		assertTrue(nearCache.isRevoked("revoked-before-startup"));
+		verify(blacklist).contains("revoked-before-startup");
+	}
+
+	@Test
+	void rebuildLoadsExistingRevocations() {
+		redis.put("revoked-before-startup", System.currentTimeMillis() + 60_000);
+
+		nearCache.rebuild();
+
+		assertTrue(nearCache.isRevoked("revoked-before-startup"));
+		assertFalse(nearCache.isRevoked("never-revoked"));
+	}
+
+	@Test
+	void expiredRevocationIsNotReported() {
+		nearCache.rebuild();
+
+		nearCache.onRevoked("already-expired", System.currentTimeMillis() - 1);
+
+		assertFalse(nearCache.isRevoked("already-expired"));
+	}
+
+	@Test
+	void matchesRedisUnderConcurrentRevocations() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			redis.put("preexisting-" + i, System.currentTimeMillis() + 60_000);
+		}
+		nearCache.rebuild();
+
+		int threads = 8;
+		int revocationsPerThread = 500;
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean revoking = new AtomicBoolean(true);
+		Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+		// Reconstrucciones continuas mientras se revoca
+		Future<?> rebuilder = executor.submit(() -> {
+			start.await();
+			while (revoking.get()) {
+				nearCache.rebuild();
+			}
+			return null;
+		});
+
+		List<Future<?>> revokers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			revokers.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < revocationsPerThread; i++) {
+					String token = "token-" + thread + "-" + i;
+
+					if (i % 2 == 0) {
+						// Revocación en esta instancia
+						nearCache.revoke(token, Duration.ofMinutes(1));
+					} else {
+						// Revocación en otra instancia: Redis + mensaje pub/sub
+						long expiresAt = System.currentTimeMillis() + 60_000;
+						redis.put(token, expiresAt);
+						nearCache.onRevoked(token, expiresAt);
+					}
+
+					if (!nearCache.isRevoked(token)) {
+						failures.add(token);
+					}
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> revoker : revokers) {
+			revoker.get(30, TimeUnit.SECONDS);
+		}
+		revoking.set(false);
+		rebuilder.get(30, TimeUnit.SECONDS);
+		executor.shutdown();
+
+		assertTrue(failures.isEmpty(), "Revocations not visible right after revoking: " + failures);
+
+		// Sin falsos negativos: todo lo que está en Redis se reporta revocado
+		long visible = redis.keySet().stream().filter(nearCache::isRevoked).count();
+		assertEquals(redis.size(), visible);
+
+		// Sin falsos positivos: los falsos positivos del filtro se confirman contra Redis
+		for (int i = 0; i < 10_000; i++) {
+			String token = UUID.randomUUID().toString();
+			assertEquals(redis.containsKey(token), nearCache.isRevoked(token));
+		}
+	}
+
+	private long remainingTtl(String token) {
+		Long expiresAt = redis.get(token);
+		return expiresAt == null ? 0L : Math.max(0L, expiresAt - System.currentTimeMillis());
+	}
+}
@@ -0,0 +1,322 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Anillo de claves contra un Redis simulado en memoria (hashes + SET NX),
+ * compartido por todas las instancias del test como en un despliegue real.
+ *
+ * El TTL del lock de rotación no se simula: los tests que rotan lo liberan a mano.
+ */
+class SigningKeyRingTest {
+
+	private static final String SECRET = "test-secret-key-with-at-least-256-bits!";
+	private static final String OTHER_SECRET = "another-secret-key-with-at-least-256-bits";
+
+	private static final String KEYS_HASH = "jwks:keys";
+	private static final String SIGNING_HASH = "jwks:signing";
+
+	private static final Duration ROTATION_INTERVAL = Duration.ofHours(24);
+	private static final Duration JWKS_MAX_AGE = Duration.ofMinutes(5);
+	private static final Duration JWKS_REFRESH = Duration.ofSeconds(30);
+
+	private final Map<String, Map<Object, Object>> hashes = new ConcurrentHashMap<>();
+	private final Map<String, String> values = new ConcurrentHashMap<>();
+
+	private RedisTemplate<String, String> redisTemplate;
+	private HashOperations<String, Object, Object> hashOps;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		redisTemplate = mock(RedisTemplate.class);
+		hashOps = mock(HashOperations.class);
+		ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+
+		doReturn(hashOps).when(redisTemplate).opsForHash();
+		doReturn(valueOps).when(redisTemplate).opsForValue();
+
+		when(hashOps.entries(anyString())).thenAnswer(invocation -> new HashMap<>(hash(invocation.getArgument(0))));
+		when(hashOps.get(anyString(), any())).thenAnswer(invocation ->
+				hash(invocation.getArgument(0)).get(invocation.getArgument(1)));
+		doAnswer(invocation -> {
+			hash(invocation.getArgument(0)).put(invocation.getArgument(1), invocation.getArgument(2));
+			return null;
+		}).when(hashOps).put(anyString(), any(), any());
+		when(hashOps.delete(anyString(), any())).thenAnswer(invocation -> {
+			Object[] arguments = invocation.getArguments();
+			Map<Object, Object> hash = hash(invocation.getArgument(0));
+			Arrays.stream(arguments, 1, arguments.length).forEach(hash::remove);
+			return (long) (arguments.length - 1);
+		});
+
+		when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenAnswer(invocation ->
+				values.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+	}
+
+	@Test
+	void hs256SignsWithTheSecretWithoutRedis() {
+		SigningKeyRing ring = ring("HS256", SECRET, "", "");
+
+		String token = ring.sign(Jwts.builder().subject("john")).compact();
+
+		assertEquals("john", parse(ring, token).getPayload().getSubject());
+		assertNull(parse(ring, token).getHeader().getKeyId());
+		assertTrue(ring.acceptsUnkeyedHmac());
+		assertEquals(Map.of("keys", List.of()), ring.jwks());
+		verifyNoInteractions(redisTemplate);
+	}
+
+	@Test
+	void es256BootstrapsTheRingAndPublishesTheKey() {
+		SigningKeyRing ring = ring("ES256", SECRET, "", "");
+
+		String token = ring.sign(Jwts.builder().subject("john")).compact();
+		String kid = parse(ring, token).getHeader().getKeyId();
+
+		assertNotNull(kid);
+		assertEquals("john", parse(ring, token).getPayload().getSubject());
+		assertEquals(List.of(kid), jwksKids(ring));
+		assertTrue(hash(KEYS_HASH).containsKey(kid));
+		assertTrue(hash(SIGNING_HASH).containsKey(kid));
+	}
+
+	@Test
+	void privateKeyIsNotStoredInPlaintext() {
+		SigningKeyRing ring = ring("ES256", SECRET, "", "");
+		ring.sign(Jwts.builder().subject("john")).compact();
+
+		String stored = hash(SIGNING_HASH).values().iterator().next().toString();
+		String[] parts = stored.split(":", 3);
+		byte[] payload = Base64.getDecoder().decode(parts[2]);
+
+		assertEquals("ES256", parts[0]);
+		assertThrows(InvalidKeySpecException.class,
+				() -> KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(payload)));
+	}
+
+	@Test
+	void anotherInstanceAdoptsTheSameKey() {
+		SigningKeyRing first = ring("ES256", SECRET, "", "");
+		SigningKeyRing second = ring("ES256", SECRET, "", "");
+
+		String firstToken = first.sign(Jwts.builder().subject("john")).compact();
+		String secondToken = second.sign(Jwts.builder().subject("john")).compact();
+
+		assertEquals(parse(first, firstToken).getHeader().getKeyId(),
+				parse(first, secondToken).getHeader().getKeyId());
+		assertEquals(1, hash(SIGNING_HASH).size());
+	}
+
+	@Test
+	void explicitKeyEncryptionKeyIsSharedAcrossSecrets() {
+		String kek = Base64.getEncoder().encodeToString(new byte[32]);
+		SigningKeyRing first = ring("ES256", SECRET, "", kek);
+		SigningKeyRing second = ring("ES256", OTHER_SECRET, "", kek);
+
+		String firstToken = first.sign(Jwts.builder().subject("john")).compact();
+		String secondToken = second.sign(Jwts.builder().subject("john")).compact();
+
+		assertEquals(parse(first, firstToken).getHeader().getKeyId(),
+				parse(second, secondToken).getHeader().getKeyId());
+	}
+
+	@Test
+	void wrongKeyEncryptionKeyCannotSignNorDeleteTheRing() {
+		SigningKeyRing owner = ring("ES256", SECRET, "", "");
+		owner.sign(Jwts.builder().subject("john")).compact();
+		Map<Object, Object> ring = Map.copyOf(hash(SIGNING_HASH));
+
+		// Otra jwt.secret: no puede descifrar la clave privada del anillo.
+		// Aun con el lock de rotación libre no genera una clave que sustituya a la buena
+		SigningKeyRing misconfigured = ring("ES256", OTHER_SECRET, "", "");
+		values.clear();
+
+		assertThrows(IllegalStateException.class,
+				() -> misconfigured.sign(Jwts.builder().subject("john")).compact());
+		assertEquals(ring, hash(SIGNING_HASH));
+	}
+
+	@Test
+	void plaintextKeyFromAPreviousVersionIsEncryptedOnRead() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(new ECGenParameterSpec("secp256r1"));
+		KeyPair keyPair = generator.generateKeyPair();
+		long activatesAt = System.currentTimeMillis() - 1_000;
+		String plaintext = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+
+		hash(KEYS_HASH).put("legacy-kid", "ES256:" + (activatesAt + 3_600_000) + ":"
+				+ Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+		hash(SIGNING_HASH).put("legacy-kid", "ES256:" + activatesAt + ":" + plaintext);
+
+		SigningKeyRing ring = ring("ES256", SECRET, "", "");
+		String token = ring.sign(Jwts.builder().subject("john")).compact();
+
+		assertEquals("legacy-kid", parse(ring, token).getHeader().getKeyId());
+		String stored = hash(SIGNING_HASH).get("legacy-kid").toString();
+		assertTrue(stored.startsWith("ES256:" + activatesAt + ":"));
+		assertFalse(stored.endsWith(plaintext));
+	}
+
+	@Test
+	void keyEncryptionKeyMustBe32Bytes() {
+		String shortKey = Base64.getEncoder().encodeToString(new byte[16]);
+
+		assertThrows(IllegalStateException.class, () -> ring("ES256", SECRET, "", shortKey));
+	}
+
+	@Test
+	void rotationPublishesTheNextKeyBeforeSigningWithIt() throws InterruptedException {
+		// publishLead = 2 × 50ms + 1s: rota a los 900ms y firma con la nueva a los 2s
+		SigningKeyRing ring = new SigningKeyRing(redisTemplate, SECRET, 604_800_000L, "ES256",
+				Duration.ofSeconds(2), Duration.ofMillis(50), Duration.ofSeconds(1), "", "");
+
+		String firstToken = ring.sign(Jwts.builder().subject("john")).compact();
+		String firstKid = parse(ring, firstToken).getHeader().getKeyId();
+		assertEquals(List.of(firstKid), jwksKids(ring));
+
+		Thread.sleep(950);
+		values.clear();
+		ring.refresh();
+
+		// El JWKS calculado hace menos de jwks-refresh ya incluye la clave siguiente
+		List<String> kids = jwksKids(ring);
+		assertEquals(2, kids.size());
+		String nextKid = kids.stream().filter(kid -> !kid.equals(firstKid)).findFirst().orElseThrow();
+
+		// Publicada pero aún no activa
+		assertEquals(firstKid, parse(ring, ring.sign(Jwts.builder().subject("john")).compact())
+				.getHeader().getKeyId());
+
+		Thread.sleep(1_200);
+
+		String rotatedToken = ring.sign(Jwts.builder().subject("john")).compact();
+		assertEquals(nextKid, parse(ring, rotatedToken).getHeader().getKeyId());
+		// Los tokens firmados con la clave anterior siguen verificando
+		assertDoesNotThrow(() -> parse(ring, firstToken));
+	}
+
+	@Test
+	void publishLeadMustFitInTheRotationInterval() {
+		// 2 × 25m + 15m = 65m > 60m
+		assertThrows(IllegalStateException.class, () -> new SigningKeyRing(redisTemplate, SECRET, 604_800_000L,
+				"ES256", Duration.ofHours(1), Duration.ofMinutes(25), Duration.ofMinutes(15), "", ""));
+		// 2 × 25m + 5m = 55m
+		assertDoesNotThrow(() -> new SigningKeyRing(redisTemplate, SECRET, 604_800_000L,
+				"ES256", Duration.ofHours(1), Duration.ofMinutes(25), Duration.ofMinutes(5), "", ""));
+		assertThrows(IllegalStateException.class, () -> ring("HS512", SECRET, "", ""));
+	}
+
+	@Test
+	void legacyHmacTokensAreAcceptedOnlyInsideTheWindow() {
+		String legacyToken = Jwts.builder().subject("john")
+				.signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+				.compact();
+
+		SigningKeyRing open = ring("ES256", SECRET, Instant.now().plusSeconds(3600).toString(), "");
+		SigningKeyRing closed = ring("ES256", SECRET, Instant.now().minusSeconds(1).toString(), "");
+		SigningKeyRing none = ring("ES256", SECRET, "", "");
+
+		assertTrue(open.acceptsUnkeyedHmac());
+		assertEquals("john", parse(open, legacyToken).getPayload().getSubject());
+
+		assertFalse(closed.acceptsUnkeyedHmac());
+		assertThrows(JwtException.class, () -> parse(closed, legacyToken));
+
+		assertFalse(none.acceptsUnkeyedHmac());
+		assertThrows(JwtException.class, () -> parse(none, legacyToken));
+	}
+
+	@Test
+	void unknownKidIsLookedUpOnce() {
+		SigningKeyRing ring = ring("ES256", SECRET, "", "");
+		JwsHeader header = header("forged-kid");
+
+		assertNull(ring.locate(header));
+		assertNull(ring.locate(header));
+
+		verify(hashOps, times(1)).get(KEYS_HASH, "forged-kid");
+	}
+
+	@Test
+	void kidPublishedByAnotherInstanceIsLoadedOnDemand() {
+		SigningKeyRing publisher = ring("ES256", SECRET, "", "");
+		SigningKeyRing verifier = ring("ES256", SECRET, "", "");
+
+		String token = publisher.sign(Jwts.builder().subject("john")).compact();
+		String kid = parse(publisher, token).getHeader().getKeyId();
+
+		// verifier nunca ha sincronizado: un HGET por kid y luego de memoria
+		assertEquals("john", parse(verifier, token).getPayload().getSubject());
+		assertEquals("john", parse(verifier, token).getPayload().getSubject());
+		verify(hashOps, times(1)).get(KEYS_HASH, kid);
+	}
+
+	private SigningKeyRing ring(String algorithm, String secret, String legacyHmacUntil, String keyEncryptionKey) {
+		return new SigningKeyRing(redisTemplate, secret, 604_800_000L, algorithm,
+				ROTATION_INTERVAL, JWKS_MAX_AGE, JWKS_REFRESH, legacyHmacUntil, keyEncryptionKey);
+	}
+
+	private Map<Object, Object> hash(String key) {
+		return hashes.computeIfAbsent(key, ignored -> new ConcurrentHashMap<>());
+	}
+
+	private static Jws<Claims> parse(SigningKeyRing ring, String token) {
+		return Jwts.parser().keyLocator(ring).build().parseSignedClaims(token);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<String> jwksKids(SigningKeyRing ring) {
+		List<Map<String, Object>> keys = (List<Map<String, Object>>) ring.jwks().get("keys");
+		return keys.stream().map(key -> (String) key.get("kid")).toList();
+	}
+
+	private static JwsHeader header(String kid) {
+		JwsHeader header = mock(JwsHeader.class);
+		when(header.getKeyId()).thenReturn(kid);
+		return header;
+	}
+}
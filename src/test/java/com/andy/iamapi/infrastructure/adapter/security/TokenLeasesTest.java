@@ -0,0 +1,131 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.TimeMeter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reservas de TokenLeases sobre un bucket: tokens servidos desde memoria,
+ * caducidad y devolución. El límite global y el error con varias instancias
+ * se comprueban en RateLimitServiceTest.
+ *
+ * El bucket de Redis se simula con un bucket local de Bucket4j sobre un reloj
+ * manual: el tiempo solo avanza cuando el test lo indica.
+ */
+class TokenLeasesTest {
+
+	private static final String KEY = "rate_limit:general:10.0.0.1";
+	private static final long CAPACITY = 30;
+	private static final long LEASE_SIZE = 3;
+	private static final long LEASE_DURATION = Duration.ofMillis(100).toNanos();
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private Bucket bucket;
+
+	@BeforeEach
+	void setUp() {
+		bucket = Bucket.builder()
+				.addLimit(Bandwidth.builder()
+						.capacity(CAPACITY)
+						.refillGreedy(CAPACITY, Duration.ofMinutes(1))
+						.build())
+				.withCustomTimePrecision(new TimeMeter() {
+					@Override
+					public long currentTimeNanos() {
+						return clock.get();
+					}
+
+					@Override
+					public boolean isWallClockBased() {
+						return false;
+					}
+				})
+				.build();
+	}
+
+	@Test
+	void leaseServesTheRemainingTokensFromMemory() {
+		TokenLeases node = new TokenLeases(LEASE_DURATION, clock::get);
+
+		assertFalse(node.tryTake(KEY));
+		lease(node);
+
+		// El primer token fue para el request que pidió la reserva
+		assertTrue(node.tryTake(KEY));
+		assertTrue(node.tryTake(KEY));
+		assertFalse(node.tryTake(KEY));
+		assertEquals(CAPACITY - LEASE_SIZE, bucket.getAvailableTokens());
+	}
+
+	@Test
+	void returnsUnusedTokensWhenTheLeaseExpires() {
+		TokenLeases node = new TokenLeases(LEASE_DURATION, clock::get);
+
+		lease(node);
+		assertEquals(CAPACITY - LEASE_SIZE, bucket.getAvailableTokens());
+
+		// Sin caducar no se devuelve nada
+		assertEquals(0, node.releaseExpired());
+
+		clock.addAndGet(LEASE_DURATION);
+
+		assertEquals(LEASE_SIZE - 1, node.releaseExpired());
+		assertEquals(CAPACITY - 1, bucket.getAvailableTokens());
+		assertFalse(node.tryTake(KEY));
+	}
+
+	@Test
+	void expiredLeaseIsNotUsedAndIsReturnedOnRenewal() {
+		TokenLeases node = new TokenLeases(LEASE_DURATION, clock::get);
+
+		lease(node);
+		clock.addAndGet(LEASE_DURATION);
+		assertFalse(node.tryTake(KEY));
+
+		// Nueva reserva de 3; la caducada devuelve sus 2 tokens sin usar
+		lease(node);
+		assertEquals(CAPACITY - 2 * LEASE_SIZE + (LEASE_SIZE - 1), bucket.getAvailableTokens());
+	}
+
+	@Test
+	void replacedLeaseReturnsItsTokens() {
+		TokenLeases node = new TokenLeases(LEASE_DURATION, clock::get);
+
+		lease(node);
+		lease(node);
+
+		// Solo quedan en uso los de la segunda reserva
+		assertEquals(CAPACITY - LEASE_SIZE - 1, bucket.getAvailableTokens());
+	}
+
+	@Test
+	void discardAndReleaseAllReturnTheTokens() {
+		TokenLeases node = new TokenLeases(LEASE_DURATION, clock::get);
+
+		lease(node);
+		node.discard(KEY);
+		assertEquals(CAPACITY - 1, bucket.getAvailableTokens());
+		assertFalse(node.tryTake(KEY));
+
+		lease(node);
+		node.releaseAll();
+		assertEquals(CAPACITY - 2, bucket.getAvailableTokens());
+	}
+
+	/**
+	 * Reserva LEASE_SIZE tokens del bucket, como RateLimitService al renovar.
+	 */
+	private void lease(TokenLeases node) {
+		node.install(KEY, bucket::addTokens, bucket.tryConsumeAsMuchAsPossible(LEASE_SIZE));
+	}
+}
@@ -0,0 +1,139 @@
+package com.andy.iamapi.infrastructure.adapter.security;
+
+import com.andy.iamapi.domain.model.Role;
+import com.andy.iamapi.domain.model.User;
+import com.andy.iamapi.infrastructure.adapter.security.RedisCircuitBreaker.DegradedMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Épocas de revocación en milisegundos: un token emitido en el mismo segundo
+ * que revokeAll queda revocado si es anterior y sigue siendo válido si es posterior.
+ */
+class UserRevocationEpochsTest {
+
+	private static final String SECRET = "test-secret-key-with-at-least-256-bits!";
+
+	private final Map<String, String> redis = new ConcurrentHashMap<>();
+	private final UUID userId = UUID.randomUUID();
+
+	private RedisTemplate<String, String> redisTemplate;
+	private UserRevocationEpochs epochs;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		redisTemplate = mock(RedisTemplate.class);
+		ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+		doReturn(valueOps).when(redisTemplate).opsForValue();
+
+		when(valueOps.get(anyString())).thenAnswer(invocation -> redis.get(invocation.getArgument(0)));
+		doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+				.when(valueOps).set(anyString(), anyString(), any(Duration.class));
+
+		epochs = epochs();
+	}
+
+	@Test
+	void tokenIssuedBeforeRevocationInTheSameSecondIsRevoked() {
+		long epoch = epochs.revokeAll(userId);
+
+		assertTrue(epochs.isRevoked(userId, Instant.ofEpochMilli(epoch - 1)));
+		assertTrue(epochs.isRevoked(userId, Instant.ofEpochMilli(epoch)));
+		// Token sin iat_ms: iat truncado a segundos
+		assertTrue(epochs.isRevoked(userId, Instant.ofEpochSecond(epoch / 1000)));
+	}
+
+	@Test
+	void tokenIssuedAfterRevocationInTheSameSecondIsValid() {
+		long epoch = epochs.revokeAll(userId);
+
+		assertFalse(epochs.isRevoked(userId, Instant.ofEpochMilli(epoch + 1)));
+		assertFalse(epochs.isRevoked(UUID.randomUUID(), Instant.ofEpochMilli(epoch - 1)));
+	}
+
+	@Test
+	void otherInstancesReadTheEpochInMilliseconds() {
+		long epoch = epochs.revokeAll(userId);
+		UserRevocationEpochs other = epochs();
+
+		assertEquals(String.valueOf(epoch), redis.get(UserRevocationEpochs.key(userId)));
+		assertTrue(other.isRevoked(userId, Instant.ofEpochMilli(epoch - 1)));
+		assertFalse(other.isRevoked(userId, Instant.ofEpochMilli(epoch + 1)));
+	}
+
+	@Test
+	void epochStoredInSecondsByAPreviousVersionIsReadAsMilliseconds() {
+		redis.put(UserRevocationEpochs.key(userId), "1700000000");
+
+		assertTrue(epochs.isRevoked(userId, Instant.ofEpochMilli(1_700_000_000_000L)));
+		assertFalse(epochs.isRevoked(userId, Instant.ofEpochMilli(1_700_000_000_001L)));
+	}
+
+	@Test
+	void publishedEpochInSecondsIsConverted() {
+		UUID other = UUID.randomUUID();
+		epochs.onMessage(new DefaultMessage(
+				UserRevocationEpochs.EPOCH_CHANNEL.getBytes(StandardCharsets.UTF_8),
+				(other + ":1700000000").getBytes(StandardCharsets.UTF_8)), null);
+
+		assertTrue(epochs.isRevoked(other, Instant.ofEpochMilli(1_699_999_999_999L)));
+		assertFalse(epochs.isRevoked(other, Instant.ofEpochMilli(1_700_000_000_001L)));
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void loginRightAfterRevokeAllIsValid(boolean fastPath) throws InterruptedException {
+		JwtTokenService tokenService = tokenService(fastPath);
+		User user = User.create("john@example.com", "hash", "John", "Doe");
+		user.addRole(Role.create("ROLE_USER", "User"));
+
+		String before = tokenService.generateAccessToken(user);
+		tokenService.revokeAllForUser(user.getId());
+		// El login posterior nunca cae en el mismo milisegundo (BCrypt)
+		Thread.sleep(2);
+		String after = tokenService.generateAccessToken(user);
+
+		assertTrue(tokenService.validateToken(before).isEmpty());
+		assertTrue(tokenService.validateToken(after).isPresent());
+	}
+
+	private UserRevocationEpochs epochs() {
+		return new UserRevocationEpochs(redisTemplate, mock(RedisMessageListenerContainer.class),
+				new RedisCircuitBreaker(true, 5, Duration.ofSeconds(10)), DegradedMode.LOCAL,
+				604_800_000L, Duration.ofSeconds(60), 1_000);
+	}
+
+	@SuppressWarnings("unchecked")
+	private JwtTokenService tokenService(boolean fastPath) {
+		SigningKeyRing keyRing = new SigningKeyRing(mock(RedisTemplate.class), SECRET, 604_800_000L, "HS256",
+				Duration.ofHours(24), Duration.ofMinutes(5), Duration.ofSeconds(30), "", "");
+
+		return new JwtTokenService(keyRing, 3_600_000L, 604_800_000L,
+				mock(RevocationNearCache.class), epochs, mock(PermissionIndex.class),
+				true, 1_000, false, fastPath);
+	}
+}